@@ -77,8 +77,10 @@ import org.janusgraph.graphdb.query.index.ApproximateIndexSelectionStrategy;
 import org.janusgraph.graphdb.query.index.BruteForceIndexSelectionStrategy;
 import org.janusgraph.graphdb.query.index.ThresholdBasedIndexSelectionStrategy;
 import org.janusgraph.graphdb.query.profile.QueryProfiler;
+import org.janusgraph.graphdb.tinkerpop.optimize.step.JanusGraphMixedIndexAggregationStep;
 import org.janusgraph.graphdb.tinkerpop.optimize.step.JanusGraphMixedIndexCountStep;
 import org.janusgraph.graphdb.tinkerpop.optimize.step.JanusGraphStep;
+import org.janusgraph.graphdb.tinkerpop.optimize.strategy.JanusGraphMixedIndexAggregationStrategy;
 import org.janusgraph.graphdb.tinkerpop.optimize.strategy.JanusGraphMixedIndexCountStrategy;
 import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
 import org.janusgraph.graphdb.types.ParameterType;
@@ -1827,6 +1829,51 @@ public abstract class JanusGraphIndexTest extends JanusGraphBaseTest {
         assertEquals(graph.traversal().withoutStrategies(JanusGraphMixedIndexCountStrategy.class).V().has("text").identity().count().barrier().identity().next(), graph.traversal().V().has("text").identity().count().barrier().identity().next());
     }
 
+    /**
+     * Tests that groupCount().by(key) and values(key).min()/max()/sum() after a query satisfied by a single mixed index
+     * are replaced by an aggregation query and return the same results as the unoptimized traversal
+     */
+    @Test
+    public void testMixedIndexQueryFollowedByAggregation() {
+        final PropertyKey category = makeKey("category", String.class);
+        final PropertyKey weight = makeKey("weight", Integer.class);
+        mgmt.buildIndex("aggregated", Vertex.class).addKey(category, getStringMapping()).addKey(weight).buildMixedIndex(INDEX);
+        finishSchema();
+        final String[] categories = {"a", "b", "c"};
+        for (int i = 0; i < 30; i++) {
+            graph.addVertex("category", categories[i % categories.length], "weight", i);
+        }
+        graph.addVertex("category", "d");
+        graph.tx().commit();
+
+        final GraphTraversalSource optimized = graph.traversal();
+        final GraphTraversalSource unoptimized = graph.traversal().withoutStrategies(JanusGraphMixedIndexAggregationStrategy.class);
+
+        TraversalMetrics profile = optimized.V().has("weight", P.gte(10)).values("weight").sum().profile().next();
+        assertTrue(profile.getMetrics(0).getName().contains(JanusGraphMixedIndexAggregationStep.class.getSimpleName()));
+        assertEquals(unoptimized.V().has("weight", P.gte(10)).values("weight").sum().next().intValue(),
+            optimized.V().has("weight", P.gte(10)).values("weight").sum().next().intValue());
+        assertEquals(10, optimized.V().has("weight", P.gte(10)).values("weight").min().next().intValue());
+        assertEquals(29, optimized.V().has("weight", P.gte(10)).values("weight").max().next().intValue());
+        assertEquals(unoptimized.V().has("category", "a").groupCount().by("category").next(),
+            optimized.V().has("category", "a").groupCount().by("category").next());
+        assertEquals(unoptimized.V().has("weight", P.lt(20)).groupCount().by("category").next(),
+            optimized.V().has("weight", P.lt(20)).groupCount().by("category").next());
+
+        // elements without a value do not produce a min, max or sum
+        assertFalse(optimized.V().has("category", "d").values("weight").max().hasNext());
+        assertFalse(optimized.V().has("category", "d").values("weight").sum().hasNext());
+
+        // a limit changes the aggregated elements, so it is not pushed down
+        profile = optimized.V().has("weight", P.gte(10)).limit(5).values("weight").sum().profile().next();
+        assertFalse(profile.getMetrics(0).getName().contains(JanusGraphMixedIndexAggregationStep.class.getSimpleName()));
+        assertEquals(unoptimized.V().has("weight", P.gte(10)).limit(5).values("weight").sum().next().intValue(),
+            optimized.V().has("weight", P.gte(10)).limit(5).values("weight").sum().next().intValue());
+
+        // the aggregation can be followed by further steps
+        assertEquals(29, optimized.V().has("weight", P.gte(10)).values("weight").max().is(P.gt(20)).next().intValue());
+    }
+
     /**
      * Tests index parameters (mapping and names) with raw indexQuery
      */
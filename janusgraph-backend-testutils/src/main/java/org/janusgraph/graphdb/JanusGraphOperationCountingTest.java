@@ -41,23 +41,33 @@ import org.janusgraph.diskstorage.configuration.ModifiableConfiguration;
 import org.janusgraph.diskstorage.configuration.WriteConfiguration;
 import org.janusgraph.diskstorage.util.CacheMetricsAction;
 import org.janusgraph.diskstorage.util.MetricInstrumentedStore;
+import org.janusgraph.dsl.KydsjTraversalSource;
 import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
 import org.janusgraph.graphdb.internal.ElementCategory;
 import org.janusgraph.graphdb.internal.InternalRelationType;
 import org.janusgraph.graphdb.internal.InternalVertexLabel;
 import org.janusgraph.graphdb.types.CompositeIndexType;
+import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
 import org.janusgraph.graphdb.types.IndexType;
+import org.janusgraph.graphdb.vertices.AbstractVertex;
+import org.janusgraph.kydsj.serialize.MediaData;
+import org.janusgraph.kydsj.serialize.Note;
 import org.janusgraph.util.stats.MetricManager;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.janusgraph.diskstorage.Backend.*;
 import static org.janusgraph.diskstorage.util.MetricInstrumentedStore.*;
@@ -592,6 +602,87 @@ public abstract class JanusGraphOperationCountingTest extends JanusGraphBaseTest
         counter.dec(counter.getCount());
     }
 
+    /**
+     * Reads attachments, notes and properties of properties through the database-level caches of their stores, the
+     * caches have to serve repeated reads and drop the entries mutated by a commit.
+     */
+    @Test
+    public void testSideStoreCache() {
+        metricsPrefix = "tSSC";
+        Object[] newConfig = {option(GraphDatabaseConfiguration.DB_CACHE),true,
+                option(GraphDatabaseConfiguration.DB_CACHE_TIME),0,
+                option(GraphDatabaseConfiguration.DB_CACHE_CLEAN_WAIT),0,
+                option(GraphDatabaseConfiguration.DB_CACHE_ATTACHMENT_SIZE),0.05,
+                option(GraphDatabaseConfiguration.DB_CACHE_NOTE_SIZE),0.05,
+                option(GraphDatabaseConfiguration.DB_CACHE_PROPERTY_PROPERTIES_SIZE),0.05,
+                option(GraphDatabaseConfiguration.METRICS_PREFIX),metricsPrefix};
+        clopen(newConfig);
+        mgmt.makePropertyKey("tag").dataType(String.class).cardinality(Cardinality.SET).make();
+        makeKey("since", String.class);
+        finishSchema();
+
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.buildTransaction().groupName(metricsPrefix).start();
+        JanusGraphVertex v = tx.addVertex();
+        v.property("tag", "x").property("since", "v1");
+        writeSideStores(tx, v, "v1");
+        tx.commit();
+        String vertexId = getId(v);
+        clopen(newConfig);
+
+        final String[] stores = {ATTACHMENT_FAMILY_NAME, NOTE_FAMILY_NAME, PROPERTY_PROPERTIES};
+        long[] misses = new long[stores.length];
+        long[] hits = new long[stores.length];
+        assertEquals(Arrays.asList("v1", "v1", "v1"), readSideStores(vertexId));
+        for (int i = 0; i < stores.length; i++) {
+            misses[i] = getCacheCount(stores[i], CacheMetricsAction.MISS);
+            hits[i] = getCacheCount(stores[i], CacheMetricsAction.RETRIEVAL) - misses[i];
+            assertTrue(misses[i] > 0, stores[i]);
+        }
+
+        //the second read is served by the caches
+        assertEquals(Arrays.asList("v1", "v1", "v1"), readSideStores(vertexId));
+        for (int i = 0; i < stores.length; i++) {
+            assertEquals(misses[i], getCacheCount(stores[i], CacheMetricsAction.MISS), stores[i]);
+            long storeHits = getCacheCount(stores[i], CacheMetricsAction.RETRIEVAL) - misses[i];
+            assertTrue(storeHits > hits[i], stores[i]);
+            hits[i] = storeHits;
+        }
+
+        //the commit invalidates the mutated rows, the next read goes to the stores and sees the new values
+        tx = (StandardJanusGraphTx) graph.buildTransaction().groupName(metricsPrefix).start();
+        JanusGraphVertex u = getV(tx, vertexId);
+        u.properties("tag").next().property("since", "v2");
+        writeSideStores(tx, u, "v2");
+        tx.commit();
+        assertEquals(Arrays.asList("v2", "v2", "v2"), readSideStores(vertexId));
+        for (int i = 0; i < stores.length; i++) {
+            assertTrue(getCacheCount(stores[i], CacheMetricsAction.MISS) > misses[i], stores[i]);
+        }
+    }
+
+    private static void writeSideStores(StandardJanusGraphTx tx, JanusGraphVertex v, String title) {
+        MediaData mediaData = new MediaData("a");
+        mediaData.setMediaTitle(title);
+        mediaData.setMediaData(title.getBytes());
+        tx.addAttachment(v, mediaData);
+        Note note = new Note("n");
+        note.setNoteTitle(title);
+        tx.addNote(v, note);
+    }
+
+    private List<String> readSideStores(String vertexId) {
+        JanusGraphTransaction tx = graph.buildTransaction().groupName(metricsPrefix).start();
+        AbstractVertex v = (AbstractVertex) getV(tx, vertexId);
+        List<String> values = Arrays.asList(v.attachments("a").next().getMediaTitle(), v.notes("n").next().getNoteTitle(),
+            v.properties("tag").next().value("since"));
+        tx.rollback();
+        return values;
+    }
+
+    private long getCacheCount(String storeName, CacheMetricsAction action) {
+        return metric.getCounter(metricsPrefix, storeName + METRICS_CACHE_SUFFIX, action.getName()).getCount();
+    }
+
     protected void resetMetrics() {
         MetricManager.INSTANCE.getRegistry().removeMatching(MetricFilter.ALL);
     }
@@ -668,4 +759,111 @@ public abstract class JanusGraphOperationCountingTest extends JanusGraphBaseTest
         return ((System.nanoTime()-start)/1000000.0);
     }
 
+    /**
+     * Reads attachments, notes and raw attachments of many vertices with and without query.batch, the results have to
+     * be the same and a batch has to read each store once per key instead of once per vertex and key.
+     */
+    @Test
+    public void testVertexContentMultiQuery() {
+        int numV = 10;
+        StandardJanusGraphTx contentTx = (StandardJanusGraphTx) graph.newTransaction();
+        Object[] ids = new Object[numV];
+        for (int i = 0; i < numV; i++) {
+            JanusGraphVertex v = contentTx.addVertex();
+            ids[i] = v.id();
+            //the first vertex has no content at all
+            if (i == 0) continue;
+            for (String key : new String[]{"a", "b"}) {
+                MediaData mediaData = new MediaData(key);
+                mediaData.setMediaTitle(key + i);
+                mediaData.setMediaData((key + i).getBytes());
+                contentTx.addAttachment(v, mediaData);
+            }
+            for (String id : new String[]{"n1", "n2"}) {
+                Note note = new Note(id);
+                note.setNoteTitle(id + "-" + i);
+                contentTx.addNote(v, note);
+            }
+        }
+        contentTx.commit();
+
+        final int fallbackCalls = features.hasMultiQuery() ? 1 : numV;
+        for (String[] keys : new String[][]{{}, {"a", "missing"}}) {
+            //without query.batch there is one call per vertex and key
+            long unbatchedCalls = (long) numV * Math.max(1, keys.length);
+            long batchedCalls = (long) fallbackCalls * Math.max(1, keys.length);
+
+            Set<String> attachments = readVertexContent("attachments" + keys.length, false, ATTACHMENT_FAMILY_NAME,
+                unbatchedCalls, g -> g.V(ids).attachments(keys).toStream()
+                    .map(m -> m.getVertex().id() + "/" + m.getKey() + "/" + m.getMediaTitle()));
+            assertEquals(attachments, readVertexContent("attachments" + keys.length, true, ATTACHMENT_FAMILY_NAME,
+                batchedCalls, g -> g.V(ids).attachments(keys).toStream()
+                    .map(m -> m.getVertex().id() + "/" + m.getKey() + "/" + m.getMediaTitle())));
+            assertEquals((numV - 1) * (keys.length == 0 ? 2 : 1), attachments.size());
+            assertTrue(attachments.contains(ids[1] + "/a/a1"));
+
+            Set<String> raws = readVertexContent("raws" + keys.length, false, ATTACHMENT_FAMILY_NAME,
+                unbatchedCalls, g -> g.V(ids).attachmentRaws(keys).toStream()
+                    .map(m -> m.getVertex().id() + "/" + m.getKey() + "/" + m.getMediaTitle()));
+            assertEquals(raws, readVertexContent("raws" + keys.length, true, ATTACHMENT_FAMILY_NAME,
+                batchedCalls, g -> g.V(ids).attachmentRaws(keys).toStream()
+                    .map(m -> m.getVertex().id() + "/" + m.getKey() + "/" + m.getMediaTitle())));
+            assertEquals(attachments, raws);
+        }
+
+        //notes are always read with one slice over the whole row
+        for (String[] keys : new String[][]{{}, {"n1"}}) {
+            Set<String> notes = readVertexContent("notes" + keys.length, false, NOTE_FAMILY_NAME, numV,
+                g -> g.V(ids).notes(keys).toStream().map(n -> n.getVertex().id() + "/" + n.getId() + "/" + n.getNoteTitle()));
+            assertEquals(notes, readVertexContent("notes" + keys.length, true, NOTE_FAMILY_NAME, fallbackCalls,
+                g -> g.V(ids).notes(keys).toStream().map(n -> n.getVertex().id() + "/" + n.getId() + "/" + n.getNoteTitle())));
+            assertEquals((numV - 1) * (keys.length == 0 ? 2 : 1), notes.size());
+            assertTrue(notes.contains(ids[1] + "/n1/n1-1"));
+        }
+    }
+
+    /**
+     * Reads the properties of properties of many vertices with and without query.batch, the results have to be the same
+     * and a batch has to read the property_properties store once instead of once per vertex.
+     */
+    @Test
+    public void testPropertyPropertiesMultiQuery() {
+        mgmt.makePropertyKey("tag").dataType(String.class).cardinality(Cardinality.SET).make();
+        makeKey("since", String.class);
+        finishSchema();
+
+        int numV = 10;
+        JanusGraphTransaction tx = graph.newTransaction();
+        Object[] ids = new Object[numV];
+        for (int i = 0; i < numV; i++) {
+            JanusGraphVertex v = tx.addVertex();
+            ids[i] = v.id();
+            v.property("tag", "x" + i).property("since", "x-" + i);
+            v.property("tag", "y" + i).property("since", "y-" + i);
+        }
+        tx.commit();
+
+        Function<KydsjTraversalSource, Stream<String>> read = g -> g.V(ids).properties("tag").properties().toStream()
+            .map(p -> {
+                VertexProperty<?> vp = (VertexProperty<?>) p.element();
+                return vp.element().id() + "/" + vp.value() + "/" + p.key() + "=" + p.value();
+            });
+        Set<String> propertyProperties = readVertexContent("propertyProperties", false, PROPERTY_PROPERTIES, numV, read);
+        assertEquals(propertyProperties, readVertexContent("propertyProperties", true, PROPERTY_PROPERTIES,
+            features.hasMultiQuery() ? 1 : numV, read));
+        assertEquals(2 * numV, propertyProperties.size());
+        assertTrue(propertyProperties.contains(ids[1] + "/y1/since=y-1"));
+    }
+
+    private Set<String> readVertexContent(String name, boolean batch, String storeName, long expectedCalls,
+                                          Function<KydsjTraversalSource, Stream<String>> read) {
+        clopen(option(USE_MULTIQUERY), batch, option(LIMIT_BATCH_SIZE), false);
+        resetMetrics();
+        metricsPrefix = name + (batch ? "Batched" : "");
+        JanusGraphTransaction tx = graph.buildTransaction().groupName(metricsPrefix).start();
+        Set<String> content = read.apply(tx.traversal(KydsjTraversalSource.class)).collect(Collectors.toSet());
+        tx.rollback();
+        verifyStoreMetrics(storeName, ImmutableMap.of(M_GET_SLICE, expectedCalls));
+        return content;
+    }
 }
@@ -23,6 +23,7 @@ import org.janusgraph.diskstorage.StandardIndexProvider;
 import org.janusgraph.diskstorage.TemporaryBackendException;
 import org.janusgraph.diskstorage.configuration.ConfigOption;
 import org.janusgraph.diskstorage.configuration.Configuration;
+import org.janusgraph.diskstorage.indexing.IndexAggregation;
 import org.janusgraph.diskstorage.indexing.IndexEntry;
 import org.janusgraph.diskstorage.indexing.IndexFeatures;
 import org.janusgraph.diskstorage.indexing.IndexMutation;
@@ -107,6 +108,12 @@ public class TestMockIndexProvider implements IndexProvider {
         return index.queryCount(query, information, tx);
     }
 
+    @Override
+    public Object aggregate(IndexQuery query, IndexAggregation aggregation, KeyInformation.IndexRetriever information,
+                            BaseTransaction tx) throws BackendException {
+        return index.aggregate(query, aggregation, information, tx);
+    }
+
     @Override
     public void deleteDocument(String index,String ... ids) throws BackendException{
 
@@ -0,0 +1,165 @@
+// Copyright 2021 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.benchmark;
+
+import com.google.common.collect.Sets;
+import org.janusgraph.core.JanusGraphVertex;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
+import org.janusgraph.kydsj.serialize.MediaData;
+import org.janusgraph.kydsj.serialize.Note;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and reading attachments and notes through the attachment and note stores.
+ * 附件和注释的写入与读取
+ * <p>
+ * The write benchmarks overwrite the same keys in every invocation, so the size of the stores stays constant.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AttachmentNoteBenchmark {
+    @Param({"100"})
+    int vertices;
+
+    @Param({"4"})
+    int perVertex;
+
+    @Param({"1024", "65536"})
+    int contentSize;
+
+    StandardJanusGraph graph;
+    String[] vertexIds;
+    byte[] content;
+    String noteData;
+
+    @Setup
+    public void setUp() {
+        graph = InMemoryGraphs.open();
+        content = new byte[contentSize];
+        new Random(7).nextBytes(content);
+        noteData = new String(content, StandardCharsets.ISO_8859_1);
+
+        vertexIds = new String[vertices];
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        for (int i = 0; i < vertices; i++) {
+            vertexIds[i] = tx.addVertex().longId();
+        }
+        tx.commit();
+        writeAttachments();
+        writeNotes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graph.close();
+    }
+
+    @Benchmark
+    public void writeAttachments() {
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        for (String vertexId : vertexIds) {
+            JanusGraphVertex vertex = tx.getVertex(vertexId);
+            for (int i = 0; i < perVertex; i++) {
+                tx.addAttachment(vertex, attachment(i));
+            }
+        }
+        tx.commit();
+    }
+
+    @Benchmark
+    public void readAttachments(Blackhole blackhole) {
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        for (String vertexId : vertexIds) {
+            Iterator<MediaData> iterator = tx.getMediaDatas(vertexId);
+            while (iterator.hasNext()) {
+                blackhole.consume(iterator.next());
+            }
+        }
+        tx.rollback();
+    }
+
+    @Benchmark
+    public void writeNotes() {
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        for (String vertexId : vertexIds) {
+            JanusGraphVertex vertex = tx.getVertex(vertexId);
+            for (int i = 0; i < perVertex; i++) {
+                tx.addNote(vertex, note(i));
+            }
+        }
+        tx.commit();
+    }
+
+    @Benchmark
+    public void readNotes(Blackhole blackhole) {
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        for (String vertexId : vertexIds) {
+            Iterator<Note> iterator = tx.getNotes(vertexId);
+            while (iterator.hasNext()) {
+                blackhole.consume(iterator.next());
+            }
+        }
+        tx.rollback();
+    }
+
+    private MediaData attachment(int i) {
+        MediaData mediaData = new MediaData("attachment" + i);
+        mediaData.setMediaType("application/octet-stream");
+        mediaData.setFilename("attachment" + i + ".bin");
+        mediaData.setMediaTitle("附件" + i);
+        mediaData.setDsr(Sets.newHashSet("benchmark"));
+        mediaData.setMediaData(content);
+        return mediaData;
+    }
+
+    private Note note(int i) {
+        Note note = new Note("note" + i);
+        note.setNoteTitle("注释" + i);
+        note.setNoteData(noteData);
+        note.setDsr(Sets.newHashSet("benchmark"));
+        return note;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(AttachmentNoteBenchmark.class.getSimpleName())
+            .warmupIterations(10)
+            .measurementIterations(10)
+            .build();
+        new Runner(options).run();
+    }
+}
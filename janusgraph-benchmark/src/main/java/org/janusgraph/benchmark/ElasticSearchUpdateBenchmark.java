@@ -0,0 +1,145 @@
+// Copyright 2021 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.benchmark;
+
+import org.apache.tinkerpop.shaded.jackson.databind.ObjectMapper;
+import org.apache.tinkerpop.shaded.jackson.databind.SerializationFeature;
+import org.janusgraph.core.Cardinality;
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.es.ElasticMajorVersion;
+import org.janusgraph.diskstorage.es.ElasticSearchUpdatePlanner;
+import org.janusgraph.diskstorage.es.compat.AbstractESCompat;
+import org.janusgraph.diskstorage.es.compat.ESCompatUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.ES_DOC_AS_UPSERT_KEY;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.ES_DOC_KEY;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.ES_UPSERT_KEY;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_CARDINALITY;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_DSR;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_DS_NAME;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_OVERLAID;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_STARTDATE;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_VALUE;
+
+/**
+ * Compares the bulk update bodies of SINGLE property changes: the stored addition script with a full upsert document
+ * against a partial document with doc_as_upsert.
+ * 比较单值属性修改时脚本加upsert文档与部分文档更新的序列化耗时和请求字节数
+ * <p>
+ * The {@code bytes} counter reports the serialized body size per operation. The cost of running the script on the
+ * Elasticsearch nodes needs a cluster and is not covered here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ElasticSearchUpdateBenchmark {
+    @Param({"1", "10", "50"})
+    int fields;
+
+    ObjectMapper mapper;
+    AbstractESCompat compat;
+    List<Map<String, Object>> params;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class WireBytes {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws BackendException {
+        mapper = new ObjectMapper();
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        compat = ESCompatUtils.acquireCompatForVersion(ElasticMajorVersion.SEVEN);
+        params = new ArrayList<>(fields);
+        for (int i = 0; i < fields; i++) {
+            Map<String, Object> field = new HashMap<>();
+            field.put(KG_PROPERTY_DS_NAME, "property" + i);
+            field.put(KG_PROPERTY_VALUE, "value of property " + i);
+            field.put(KG_PROPERTY_OVERLAID, true);
+            field.put(KG_CARDINALITY, Cardinality.SINGLE.name());
+            field.put(KG_PROPERTY_STARTDATE, new Date(1600000000000L + i));
+            field.put(KG_PROPERTY_DSR, new String[]{"ds" + i});
+            params.add(field);
+        }
+    }
+
+    @Benchmark
+    public byte[] scriptWithUpsert(WireBytes wire) throws IOException {
+        //脚本更新的upsert文档与部分文档结构相同
+        Map<String, Object> upsert = ElasticSearchUpdatePlanner.getPartialDocument(params);
+        Map<String, Object> source = compat.prepareStoredScript("janusgraph-add", params)
+            .put(ES_UPSERT_KEY, upsert).build();
+        byte[] body = mapper.writeValueAsBytes(source);
+        wire.bytes += body.length;
+        return body;
+    }
+
+    @Benchmark
+    public byte[] scriptWithoutUpsert(WireBytes wire) throws IOException {
+        Map<String, Object> source = compat.prepareStoredScript("janusgraph-add", params).build();
+        byte[] body = mapper.writeValueAsBytes(source);
+        wire.bytes += body.length;
+        return body;
+    }
+
+    @Benchmark
+    public byte[] partialDocument(WireBytes wire) throws IOException {
+        Map<String, Object> source = new HashMap<>();
+        source.put(ES_DOC_KEY, ElasticSearchUpdatePlanner.getPartialDocument(params));
+        source.put(ES_DOC_AS_UPSERT_KEY, true);
+        byte[] body = mapper.writeValueAsBytes(source);
+        wire.bytes += body.length;
+        return body;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(ElasticSearchUpdateBenchmark.class.getSimpleName())
+            .warmupIterations(10)
+            .measurementIterations(10)
+            .build();
+        new Runner(options).run();
+    }
+}
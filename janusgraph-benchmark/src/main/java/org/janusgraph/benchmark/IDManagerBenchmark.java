@@ -0,0 +1,104 @@
+// Copyright 2021 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.benchmark;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.idmanagement.IDManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion between String vertex ids, tids and HBase row keys.
+ * String类型顶点id与rowkey之间的转换
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IDManagerBenchmark {
+    @Param({"1000"})
+    int size;
+
+    StandardJanusGraph graph;
+    IDManager idManager;
+    String[] tids;
+    String[] vertexIds;
+    StaticBuffer[] keys;
+
+    @Setup
+    public void setUp() {
+        graph = InMemoryGraphs.open();
+        idManager = graph.getIDManager();
+        tids = new String[size];
+        vertexIds = new String[size];
+        keys = new StaticBuffer[size];
+        for (int i = 0; i < size; i++) {
+            tids[i] = InMemoryGraphs.tid(i);
+            vertexIds[i] = idManager.toVertexId(tids[i]);
+            keys[i] = idManager.getKey(vertexIds[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        graph.close();
+    }
+
+    @Benchmark
+    public void getKey(Blackhole blackhole) {
+        for (String vertexId : vertexIds) {
+            blackhole.consume(idManager.getKey(vertexId));
+        }
+    }
+
+    @Benchmark
+    public void getKeyID(Blackhole blackhole) {
+        for (StaticBuffer key : keys) {
+            blackhole.consume(idManager.getKeyID(key));
+        }
+    }
+
+    @Benchmark
+    public void toVertexId(Blackhole blackhole) {
+        for (String tid : tids) {
+            blackhole.consume(idManager.toVertexId(tid));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(IDManagerBenchmark.class.getSimpleName())
+            .warmupIterations(10)
+            .measurementIterations(10)
+            .build();
+        new Runner(options).run();
+    }
+}
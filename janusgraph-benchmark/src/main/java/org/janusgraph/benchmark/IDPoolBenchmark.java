@@ -0,0 +1,91 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.benchmark;
+
+import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.database.idassigner.SnowflakeIDPool;
+import org.janusgraph.graphdb.database.idassigner.StandardIDPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares id allocation of the {@link StandardIDPool}, which renews blocks from the id authority of the in-memory
+ * backend, with the {@link SnowflakeIDPool} under concurrent threads. 并发分配id的吞吐量
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IDPoolBenchmark {
+
+    private static final int RELATION_NAMESPACE = 3;
+
+    StandardJanusGraph graph;
+    StandardIDPool standardIdPool;
+    SnowflakeIDPool snowflakeIdPool;
+
+    @Setup
+    public void setUp() {
+        graph = InMemoryGraphs.open();
+        standardIdPool = new StandardIDPool(graph.getBackend().getIDAuthority(), 1, RELATION_NAMESPACE,
+            graph.getIDManager().getRelationCountBound(), Duration.ofMinutes(1), 0.3);
+        snowflakeIdPool = new SnowflakeIDPool(GraphDatabaseConfiguration.IDS_WORKER_BITS.getDefaultValue(),
+            GraphDatabaseConfiguration.IDS_STRIPE_BITS.getDefaultValue());
+        snowflakeIdPool.setWorkerId(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        standardIdPool.close();
+        snowflakeIdPool.close();
+        graph.close();
+    }
+
+    @Benchmark
+    public String standardNextID() {
+        return standardIdPool.nextID();
+    }
+
+    @Benchmark
+    public String snowflakeNextID() {
+        return snowflakeIdPool.nextID();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(IDPoolBenchmark.class.getSimpleName())
+            .warmupIterations(10)
+            .measurementIterations(10)
+            .build();
+        new Runner(options).run();
+    }
+}
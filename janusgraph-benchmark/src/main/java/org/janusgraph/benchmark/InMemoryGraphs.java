@@ -0,0 +1,46 @@
+// Copyright 2021 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.benchmark;
+
+import org.janusgraph.core.JanusGraphFactory;
+import org.janusgraph.diskstorage.configuration.ModifiableConfiguration;
+import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+
+/**
+ * Opens the in-memory graphs the benchmarks run against.
+ * 基准测试使用的内存图
+ */
+public final class InMemoryGraphs {
+
+    private InMemoryGraphs() {
+    }
+
+    public static ModifiableConfiguration getConfiguration() {
+        ModifiableConfiguration config = GraphDatabaseConfiguration.buildGraphConfiguration();
+        config.set(GraphDatabaseConfiguration.STORAGE_BACKEND, "inmemory");
+        //允许按tid指定顶点id,与KydsjTraversalDsl.T(...)的查找方式一致
+        config.set(GraphDatabaseConfiguration.ALLOW_SETTING_VERTEX_ID, true);
+        return config;
+    }
+
+    public static StandardJanusGraph open() {
+        return (StandardJanusGraph) JanusGraphFactory.open(getConfiguration().getConfiguration());
+    }
+
+    public static String tid(int i) {
+        return "tid" + i;
+    }
+}
@@ -0,0 +1,133 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.benchmark;
+
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.janusgraph.core.JanusGraphFactory;
+import org.janusgraph.core.PropertyKey;
+import org.janusgraph.core.schema.JanusGraphManagement;
+import org.janusgraph.core.schema.Mapping;
+import org.janusgraph.diskstorage.configuration.ModifiableConfiguration;
+import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.tinkerpop.optimize.strategy.JanusGraphMixedIndexAggregationStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares groupCount and sum after a mixed index query with {@link JanusGraphMixedIndexAggregationStrategy} enabled and
+ * disabled, i.e. with the aggregation query against aggregating the loaded vertices in the traversal.
+ * 对比混合索引聚合查询与在图中聚合
+ * <p>
+ * The graph uses the lucene index, which does not aggregate itself, so this measures the fallback of the aggregation
+ * query. The pushdown to elasticsearch needs a running cluster and is not covered here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MixedIndexAggregationBenchmark {
+    private static final String INDEX = "search";
+    private static final String[] CATEGORIES = {"a", "b", "c", "d", "e"};
+
+    @Param({"10000"})
+    int size;
+
+    @Param({"true", "false"})
+    boolean pushdown;
+
+    StandardJanusGraph graph;
+    GraphTraversalSource g;
+    File indexDirectory;
+
+    @Setup
+    public void setUp() throws IOException {
+        indexDirectory = Files.createTempDirectory("aggregation-benchmark").toFile();
+        ModifiableConfiguration config = InMemoryGraphs.getConfiguration();
+        config.set(GraphDatabaseConfiguration.INDEX_BACKEND, "lucene", INDEX);
+        config.set(GraphDatabaseConfiguration.INDEX_DIRECTORY, indexDirectory.getAbsolutePath(), INDEX);
+        graph = (StandardJanusGraph) JanusGraphFactory.open(config.getConfiguration());
+
+        JanusGraphManagement mgmt = graph.openManagement();
+        PropertyKey category = mgmt.makePropertyKey("category").dataType(String.class).make();
+        PropertyKey weight = mgmt.makePropertyKey("weight").dataType(Integer.class).make();
+        mgmt.buildIndex("aggregated", Vertex.class).addKey(category, Mapping.STRING.asParameter()).addKey(weight)
+            .buildMixedIndex(INDEX);
+        mgmt.commit();
+
+        final int batchSize = Math.min(10000, size);
+        for (int i = 0; i < size; i++) {
+            graph.addVertex("category", CATEGORIES[i % CATEGORIES.length], "weight", i);
+            if ((i + 1) % batchSize == 0) graph.tx().commit();
+        }
+        graph.tx().commit();
+
+        g = pushdown ? graph.traversal() : graph.traversal().withoutStrategies(JanusGraphMixedIndexAggregationStrategy.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        graph.close();
+        try (Stream<Path> paths = Files.walk(indexDirectory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public Map<Object, Long> groupCount() {
+        Map<Object, Long> counts = g.V().has("weight", P.gte(0)).groupCount().by("category").next();
+        graph.tx().rollback();
+        return counts;
+    }
+
+    @Benchmark
+    public Number sum() {
+        Number sum = g.V().has("category", "a").values("weight").<Number>sum().next();
+        graph.tx().rollback();
+        return sum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(MixedIndexAggregationBenchmark.class.getSimpleName())
+            .warmupIterations(10)
+            .measurementIterations(10)
+            .build();
+        new Runner(options).run();
+    }
+}
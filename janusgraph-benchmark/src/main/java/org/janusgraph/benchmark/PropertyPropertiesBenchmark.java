@@ -0,0 +1,142 @@
+// Copyright 2021 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.benchmark;
+
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.janusgraph.core.Cardinality;
+import org.janusgraph.core.JanusGraphVertex;
+import org.janusgraph.core.schema.JanusGraphManagement;
+import org.janusgraph.graphdb.database.EdgeSerializer;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.internal.InternalRelationType;
+import org.janusgraph.graphdb.internal.InternalVertex;
+import org.janusgraph.graphdb.relations.AbstractVertexProperty;
+import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
+import org.janusgraph.graphdb.vertices.CacheVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serializing and loading the properties of properties kept in the property_properties store.
+ * 属性的属性的序列化与读取
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PropertyPropertiesBenchmark {
+    @Param({"100"})
+    int vertices;
+
+    @Param({"1", "10"})
+    int valuesPerVertex;
+
+    StandardJanusGraph graph;
+    String[] vertexIds;
+    StandardJanusGraphTx readTx;
+    List<AbstractVertexProperty> properties;
+
+    @Setup
+    public void setUp() {
+        graph = InMemoryGraphs.open();
+        JanusGraphManagement mgmt = graph.openManagement();
+        mgmt.makePropertyKey("name").dataType(String.class).cardinality(Cardinality.SET).make();
+        mgmt.makePropertyKey("dsr").dataType(String.class).cardinality(Cardinality.SET).make();
+        mgmt.commit();
+
+        vertexIds = new String[vertices];
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        for (int i = 0; i < vertices; i++) {
+            JanusGraphVertex vertex = tx.addVertex();
+            for (int j = 0; j < valuesPerVertex; j++) {
+                vertex.property(VertexProperty.Cardinality.set, "name", "name" + j, "dsr", "dsr" + j, "dsr", "dsr");
+            }
+            vertexIds[i] = vertex.longId();
+        }
+        tx.commit();
+
+        //序列化时只读取已加载的属性,读取一次后在所有调用中复用
+        readTx = (StandardJanusGraphTx) graph.newTransaction();
+        properties = new ArrayList<>();
+        for (String vertexId : vertexIds) {
+            Iterator<VertexProperty<Object>> iterator = readTx.getVertex(vertexId).properties("name");
+            while (iterator.hasNext()) {
+                properties.add((AbstractVertexProperty) iterator.next());
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        readTx.rollback();
+        graph.close();
+    }
+
+    @Benchmark
+    public void writeMulitPropertyProperties(Blackhole blackhole) {
+        EdgeSerializer serializer = readTx.getEdgeSerializer();
+        for (AbstractVertexProperty property : properties) {
+            blackhole.consume(serializer.writeMulitPropertyProperties(property,
+                (InternalRelationType) property.getType(), readTx));
+        }
+    }
+
+    @Benchmark
+    public void getPropertyProperties(Blackhole blackhole) {
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        for (String vertexId : vertexIds) {
+            blackhole.consume(tx.getPropertyProperties((CacheVertex) tx.getVertex(vertexId)));
+        }
+        tx.rollback();
+    }
+
+    @Benchmark
+    public void getPropertyPropertiesBatched(Blackhole blackhole) {
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        List<InternalVertex> loaded = new ArrayList<>(vertexIds.length);
+        for (String vertexId : vertexIds) {
+            loaded.add((InternalVertex) tx.getVertex(vertexId));
+        }
+        blackhole.consume(tx.getPropertyProperties(loaded));
+        tx.rollback();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(PropertyPropertiesBenchmark.class.getSimpleName())
+            .warmupIterations(10)
+            .measurementIterations(10)
+            .build();
+        new Runner(options).run();
+    }
+}
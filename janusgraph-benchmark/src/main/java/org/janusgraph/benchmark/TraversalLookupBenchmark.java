@@ -0,0 +1,99 @@
+// Copyright 2021 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.benchmark;
+
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.janusgraph.dsl.KydsjTraversalSource;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.idmanagement.IDManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up vertices by tid with {@code KydsjTraversalDsl.T(...)}.
+ * 按tid查找顶点
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TraversalLookupBenchmark {
+    @Param({"10000"})
+    int size;
+
+    @Param({"1", "100"})
+    int lookupSize;
+
+    StandardJanusGraph graph;
+    KydsjTraversalSource g;
+    String[] tids;
+
+    @Setup
+    public void setUp() {
+        graph = InMemoryGraphs.open();
+        IDManager idManager = graph.getIDManager();
+        final int batchSize = Math.min(10000, size);
+        for (int i = 0; i < size; i++) {
+            String tid = InMemoryGraphs.tid(i);
+            graph.addVertex(T.id, idManager.toVertexId(tid), "tid", tid);
+            if ((i + 1) % batchSize == 0) graph.tx().commit();
+        }
+        graph.tx().commit();
+
+        g = graph.traversal(KydsjTraversalSource.class);
+        //间隔取tid,避免只命中相邻的顶点
+        tids = new String[lookupSize];
+        for (int i = 0; i < lookupSize; i++) {
+            tids[i] = InMemoryGraphs.tid((int) ((long) i * size / lookupSize));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        graph.close();
+    }
+
+    @Benchmark
+    public List<Vertex> lookupByTid() {
+        List<Vertex> vertices = g.T(tids).toList();
+        graph.tx().rollback();
+        return vertices;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(TraversalLookupBenchmark.class.getSimpleName())
+            .warmupIterations(10)
+            .measurementIterations(10)
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,126 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.benchmark;
+
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.janusgraph.core.JanusGraphTransaction;
+import org.janusgraph.core.JanusGraphVertex;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.idmanagement.IDManager;
+import org.janusgraph.graphdb.transaction.vertexcache.VertexCacheType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the vertex caches of a transaction shared by several threads, which look up vertices with a skewed
+ * distribution from a graph larger than the cache.
+ * 对比多线程共享事务时的顶点缓存实现
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VertexCacheBenchmark {
+    @Param({"100000"})
+    int size;
+
+    @Param({"10000"})
+    int cacheSize;
+
+    @Param({"GUAVA", "TINYLFU"})
+    VertexCacheType cacheType;
+
+    StandardJanusGraph graph;
+    JanusGraphTransaction tx;
+    String[] vertexIds;
+
+    @Setup
+    public void setUp() {
+        graph = InMemoryGraphs.open();
+        IDManager idManager = graph.getIDManager();
+        vertexIds = new String[size];
+        for (int i = 0; i < size; i++) {
+            String tid = InMemoryGraphs.tid(i);
+            vertexIds[i] = idManager.toVertexId(tid);
+            graph.addVertex(T.id, vertexIds[i], "tid", tid);
+            if ((i + 1) % 10000 == 0) graph.tx().commit();
+        }
+        graph.tx().commit();
+    }
+
+    @Setup(Level.Iteration)
+    public void startTransaction() {
+        tx = graph.buildTransaction()
+            .vertexCacheSize(cacheSize)
+            .vertexCacheType(cacheType)
+            .start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void rollbackTransaction() {
+        tx.rollback();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graph.close();
+    }
+
+    @Benchmark
+    public Object getVertex(Lookups lookups) {
+        JanusGraphVertex vertex = tx.getVertex(vertexIds[lookups.next(size)]);
+        return vertex.value("tid");
+    }
+
+    @State(Scope.Thread)
+    public static class Lookups {
+        private final Random random = new Random();
+
+        /**
+         * 偏斜的访问分布,少数顶点被反复访问,其余顶点只偶尔访问
+         */
+        int next(int size) {
+            double x = random.nextDouble();
+            return (int) (x * x * x * size);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(VertexCacheBenchmark.class.getSimpleName())
+            .warmupIterations(10)
+            .measurementIterations(10)
+            .build();
+        new Runner(options).run();
+    }
+}
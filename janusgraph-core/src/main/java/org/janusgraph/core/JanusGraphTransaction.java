@@ -105,6 +105,17 @@ public interface JanusGraphTransaction extends Transaction {
      */
     Iterator<MediaDataRaw> getMediaDataRaws(String vertexId, String ...keys);
 
+    /**
+     * 对象合并:把sources对象合并到target对象上,合并后删除sources对象.
+     * SINGLE properties keep the value of the target, SET and LIST properties are united, edges, attachments, notes
+     * and the properties of properties are moved to the target. Everything happens in this transaction, use
+     * {@link org.janusgraph.graphdb.olap.job.VertexMergeJob} to merge vertices with many relations.
+     *
+     * @param target  合并对象
+     * @param sources 被合并对象
+     */
+    void mergeVertices(JanusGraphVertex target, JanusGraphVertex... sources);
+
    /* ---------------------------------------------------------------
     * Closing and admin
     * ---------------------------------------------------------------
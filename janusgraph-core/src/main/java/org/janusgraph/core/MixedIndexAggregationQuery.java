@@ -0,0 +1,65 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.core;
+
+import org.janusgraph.graphdb.query.profile.ProfileObservable;
+
+import java.util.Map;
+
+/**
+ * Aggregates a property of the elements matching a single mixed index query. The aggregation is computed by the index
+ * backend if it supports it, otherwise the matching elements are loaded and aggregated in the transaction.
+ * 对混合索引查询结果的属性做聚合,索引后端不支持时读取匹配的元素计算
+ * <p>
+ * Like {@link MixedIndexCountQuery} the result only reflects the index and ignores changes of the current transaction.
+ */
+public interface MixedIndexAggregationQuery extends ProfileObservable {
+
+    /**
+     * @param key 属性名
+     * @return true if the key is indexed by the mixed index of this query and can be aggregated
+     */
+    boolean supports(String key);
+
+    /**
+     * Counts the matching elements per distinct value of the given key.
+     *
+     * @return value to number of elements, elements without the key are not counted
+     */
+    Map<Object, Long> executeGroupCount(String key);
+
+    /**
+     * @return the smallest value of the numeric key, or null if no matching element has the key
+     */
+    Number executeMin(String key);
+
+    /**
+     * @return the largest value of the numeric key, or null if no matching element has the key
+     */
+    Number executeMax(String key);
+
+    /**
+     * @return the sum of all values of the numeric key, or null if no matching element has the key
+     */
+    Number executeSum(String key);
+
+    /**
+     * Counts the matching elements per bucket of the numeric key. A value v falls into the bucket
+     * {@code floor(v / interval) * interval}, empty buckets are omitted.
+     *
+     * @return lower bound of the bucket to number of elements, ordered by the bucket
+     */
+    Map<Double, Long> executeHistogram(String key, Number interval);
+}
@@ -71,6 +71,12 @@ public interface Transaction extends Graph, SchemaManager {
      */
     MixedIndexCountQuery mixedIndexCountQuery();
 
+    /**
+     * @return a mixed index aggregation query which pushes groupCount, min, max, sum and histogram down to the mixed index
+     * @see StandardJanusGraphTx#mixedIndexAggregationQuery()
+     */
+    MixedIndexAggregationQuery mixedIndexAggregationQuery();
+
     /**
      * Returns a {@link org.janusgraph.core.JanusGraphIndexQuery} to query for vertices or edges against the specified indexing backend using
      * the given query string. The query string is analyzed and answered by the underlying storage backend.
@@ -15,6 +15,7 @@
 package org.janusgraph.core;
 
 import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
+import org.janusgraph.graphdb.transaction.vertexcache.VertexCacheType;
 
 import java.time.Instant;
 import java.util.Set;
@@ -83,6 +84,23 @@ public interface TransactionBuilder {
      */
     TransactionBuilder vertexCacheSize(int size);
 
+    /**
+     * Configures the implementation of the vertex cache used in the transaction.
+     *
+     * @param type The vertex cache implementation
+     * @return Object containing the internal cache properties
+     */
+    TransactionBuilder vertexCacheType(VertexCacheType type);
+
+    /**
+     * Configures the maximum estimated size in bytes of the vertices cached in the transaction. Only applies to
+     * {@link VertexCacheType#TINYLFU}, 0 bounds the cache by {@link #vertexCacheSize(int)} instead.
+     *
+     * @param bytes The maximum estimated size of the cached vertices
+     * @return Object containing the internal cache properties
+     */
+    TransactionBuilder vertexCacheMaxBytes(long bytes);
+
     /**
      * Configures the initial size of the map of modified vertices held by this
      * transaction. This is a performance hint, not a hard upper bound. The map
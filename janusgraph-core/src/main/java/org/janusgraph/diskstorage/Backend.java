@@ -47,6 +47,7 @@ import org.janusgraph.diskstorage.keycolumnvalue.cache.CacheTransaction;
 import org.janusgraph.diskstorage.keycolumnvalue.cache.ExpirationKCVSCache;
 import org.janusgraph.diskstorage.keycolumnvalue.cache.KCVSCache;
 import org.janusgraph.diskstorage.keycolumnvalue.cache.NoKCVSCache;
+import org.janusgraph.diskstorage.keycolumnvalue.cache.OffHeapKCVSCache;
 import org.janusgraph.diskstorage.keycolumnvalue.keyvalue.OrderedKeyValueStoreManager;
 import org.janusgraph.diskstorage.keycolumnvalue.keyvalue.OrderedKeyValueStoreManagerAdapter;
 import org.janusgraph.diskstorage.keycolumnvalue.scan.StandardScanner;
@@ -85,7 +86,13 @@ import java.util.stream.Collectors;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.BASIC_METRICS;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.BUFFER_SIZE;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.DB_CACHE;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.DB_CACHE_ATTACHMENT_SIZE;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.DB_CACHE_CLEAN_WAIT;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.DB_CACHE_NOTE_SIZE;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.DB_CACHE_OFF_HEAP_PAGE_SIZE;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.DB_CACHE_OFF_HEAP_SIZE;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.DB_CACHE_PROPERTY_PROPERTIES_SIZE;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.DB_CACHE_SIDE_STORE_TIME;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.DB_CACHE_SIZE;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.DB_CACHE_TIME;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_STORE_NAME;
@@ -330,37 +337,40 @@ public class Backend implements LockerProvider, AutoCloseable {
             KeyColumnValueStore attachmentStoreRaw = storeManager.openDatabase(ATTACHMENT_FAMILY_NAME);
             KeyColumnValueStore noteStoreRaw = storeManager.openDatabase(NOTE_FAMILY_NAME);
             KeyColumnValueStore propertyPropertiesStoreRaw = storeManager.openDatabase(PROPERTY_PROPERTIES);
-            attachmentStore = new NoKCVSCache(attachmentStoreRaw);
-            noteStore = new NoKCVSCache(noteStoreRaw);
-            propertyPopertiesStore = new NoKCVSCache(propertyPropertiesStoreRaw);
             //Configure caches
             if (cacheEnabled) {
-                long expirationTime = configuration.get(DB_CACHE_TIME);
-                Preconditions.checkArgument(expirationTime>=0,"Invalid cache expiration time: %s",expirationTime);
-                if (expirationTime==0) expirationTime=ETERNAL_CACHE_EXPIRATION;
-
-                long cacheSizeBytes;
+                long expirationTime = getCacheExpirationTime(DB_CACHE_TIME);
                 double cacheSize = configuration.get(DB_CACHE_SIZE);
                 Preconditions.checkArgument(cacheSize>0.0,"Invalid cache size specified: %s",cacheSize);
-                if (cacheSize<1.0) {
-                    //Its a percentage
-                    Runtime runtime = Runtime.getRuntime();
-                    cacheSizeBytes = (long)((runtime.maxMemory()-(runtime.totalMemory()-runtime.freeMemory())) * cacheSize);
-                } else {
-                    Preconditions.checkArgument(cacheSize>1000,"Cache size is too small: %s",cacheSize);
-                    cacheSizeBytes = (long)cacheSize;
-                }
+                long cacheSizeBytes = getCacheSizeBytes(cacheSize);
                 log.info("Configuring total store cache size: {}",cacheSizeBytes);
                 long cleanWaitTime = configuration.get(DB_CACHE_CLEAN_WAIT);
                 Preconditions.checkArgument(EDGESTORE_CACHE_PERCENT + INDEXSTORE_CACHE_PERCENT == 1.0,"Cache percentages don't add up!");
                 long edgeStoreCacheSize = Math.round(cacheSizeBytes * EDGESTORE_CACHE_PERCENT);
                 long indexStoreCacheSize = Math.round(cacheSizeBytes * INDEXSTORE_CACHE_PERCENT);
 
-                edgeStore = new ExpirationKCVSCache(edgeStoreRaw,getMetricsCacheName(EDGESTORE_NAME),expirationTime,cleanWaitTime,edgeStoreCacheSize);
+                long offHeapCacheSize = configuration.get(DB_CACHE_OFF_HEAP_SIZE);
+                Preconditions.checkArgument(offHeapCacheSize>=0,"Invalid off-heap cache size specified: %s",offHeapCacheSize);
+                if (offHeapCacheSize>0) {
+                    //edgestore的邻接表缓存在堆外, 避免超级节点的缓存造成长时间GC
+                    edgeStore = new OffHeapKCVSCache(edgeStoreRaw,getMetricsCacheName(EDGESTORE_NAME),expirationTime,cleanWaitTime,
+                        offHeapCacheSize,configuration.get(DB_CACHE_OFF_HEAP_PAGE_SIZE));
+                } else {
+                    edgeStore = new ExpirationKCVSCache(edgeStoreRaw,getMetricsCacheName(EDGESTORE_NAME),expirationTime,cleanWaitTime,edgeStoreCacheSize);
+                }
                 indexStore = new ExpirationKCVSCache(indexStoreRaw,getMetricsCacheName(INDEXSTORE_NAME),expirationTime,cleanWaitTime,indexStoreCacheSize);
+
+                //附件、注释和属性的属性列族使用单独的缓存大小和过期时间
+                long sideStoreExpirationTime = getCacheExpirationTime(DB_CACHE_SIDE_STORE_TIME);
+                attachmentStore = openSideStoreCache(attachmentStoreRaw, ATTACHMENT_FAMILY_NAME, DB_CACHE_ATTACHMENT_SIZE, sideStoreExpirationTime, cleanWaitTime);
+                noteStore = openSideStoreCache(noteStoreRaw, NOTE_FAMILY_NAME, DB_CACHE_NOTE_SIZE, sideStoreExpirationTime, cleanWaitTime);
+                propertyPopertiesStore = openSideStoreCache(propertyPropertiesStoreRaw, PROPERTY_PROPERTIES, DB_CACHE_PROPERTY_PROPERTIES_SIZE, sideStoreExpirationTime, cleanWaitTime);
             } else {
                 edgeStore = new NoKCVSCache(edgeStoreRaw);
                 indexStore = new NoKCVSCache(indexStoreRaw);
+                attachmentStore = new NoKCVSCache(attachmentStoreRaw);
+                noteStore = new NoKCVSCache(noteStoreRaw);
+                propertyPopertiesStore = new NoKCVSCache(propertyPropertiesStoreRaw);
             }
 
             //Just open them so that they are cached
@@ -469,6 +479,38 @@ public class Backend implements LockerProvider, AutoCloseable {
         return userConfig;
     }
 
+    private long getCacheExpirationTime(ConfigOption<Long> option) {
+        long expirationTime = configuration.get(option);
+        Preconditions.checkArgument(expirationTime>=0,"Invalid cache expiration time: %s",expirationTime);
+        if (expirationTime==0) expirationTime=ETERNAL_CACHE_EXPIRATION;
+        return expirationTime;
+    }
+
+    /**
+     * Converts a configured cache size into bytes: values below 1 are a fraction of the free heap, larger values
+     * are an absolute number of bytes.
+     */
+    private static long getCacheSizeBytes(double cacheSize) {
+        if (cacheSize<1.0) {
+            //Its a percentage
+            Runtime runtime = Runtime.getRuntime();
+            return (long)((runtime.maxMemory()-(runtime.totalMemory()-runtime.freeMemory())) * cacheSize);
+        } else {
+            Preconditions.checkArgument(cacheSize>1000,"Cache size is too small: %s",cacheSize);
+            return (long)cacheSize;
+        }
+    }
+
+    private KCVSCache openSideStoreCache(KeyColumnValueStore store, String storeName, ConfigOption<Double> sizeOption,
+                                         long expirationTime, long cleanWaitTime) {
+        double cacheSize = configuration.get(sizeOption);
+        Preconditions.checkArgument(cacheSize>=0.0,"Invalid cache size specified for %s: %s",storeName,cacheSize);
+        if (cacheSize==0.0) return new NoKCVSCache(store);
+        long cacheSizeBytes = getCacheSizeBytes(cacheSize);
+        log.info("Configuring {} store cache size: {}",storeName,cacheSizeBytes);
+        return new ExpirationKCVSCache(store,getMetricsCacheName(storeName),expirationTime,cleanWaitTime,cacheSizeBytes);
+    }
+
     private String getMetricsCacheName(String storeName) {
         if (!configuration.get(BASIC_METRICS)) return null;
         return configuration.get(METRICS_MERGE_STORES) ? METRICS_MERGED_CACHE : storeName + METRICS_CACHE_SUFFIX;
@@ -18,6 +18,7 @@ import org.janusgraph.graphdb.database.idassigner.Preconditions;
 import org.apache.commons.lang.StringUtils;
 import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalInterruptedException;
 import org.janusgraph.core.JanusGraphException;
+import org.janusgraph.diskstorage.indexing.IndexAggregation;
 import org.janusgraph.diskstorage.indexing.IndexQuery;
 import org.janusgraph.diskstorage.indexing.IndexTransaction;
 import org.janusgraph.diskstorage.indexing.RawQuery;
@@ -38,6 +39,7 @@ import org.janusgraph.kydsj.ContentStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
@@ -47,6 +49,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
@@ -351,31 +354,53 @@ public class BackendTransaction implements LoggableTransaction {
     }
 
     public Map<StaticBuffer,EntryList> edgeStoreMultiQuery(final List<StaticBuffer> keys, final SliceQuery query) {
+        return multiQuery(edgeStore, keys, query, this::edgeStoreQuery, "MultiEdgeStoreQuery");
+    }
+
+    public Map<StaticBuffer,EntryList> attachmentMultiQuery(final List<StaticBuffer> keys, final SliceQuery query) {
+        return multiQuery(attachmentStore, keys, query, this::attachmentQuery, "MultiAttachmentQuery");
+    }
+
+    public Map<StaticBuffer,EntryList> noteMultiQuery(final List<StaticBuffer> keys, final SliceQuery query) {
+        return multiQuery(noteStore, keys, query, this::noteQuery, "MultiNoteQuery");
+    }
+
+    public Map<StaticBuffer,EntryList> propertyPropertiesMultiQuery(final List<StaticBuffer> keys, final SliceQuery query) {
+        return multiQuery(propertyPopertiesStore, keys, query, this::propertyPropertiesQuery, "MultiPropertyPropertiesQuery");
+    }
+
+    /**
+     * Reads the same slice for many keys of one store, in a single call if the backend supports multi queries or
+     * else through the thread pool with one query per key.
+     * 批量查询多个rowkey
+     */
+    private Map<StaticBuffer,EntryList> multiQuery(final KCVSCache store, final List<StaticBuffer> keys, final SliceQuery query,
+                                                   final Function<KeySliceQuery,EntryList> singleQuery, final String name) {
         if (storeFeatures.hasMultiQuery()) {
             return executeRead(new Callable<Map<StaticBuffer,EntryList>>() {
                 @Override
                 public Map<StaticBuffer,EntryList> call() throws Exception {
-                    return cacheEnabled?edgeStore.getSlice(keys, query, storeTx):
-                                        edgeStore.getSliceNoCache(keys, query, storeTx);
+                    return cacheEnabled?store.getSlice(keys, query, storeTx):
+                                        store.getSliceNoCache(keys, query, storeTx);
                 }
 
                 @Override
                 public String toString() {
-                    return "MultiEdgeStoreQuery";
+                    return name;
                 }
             });
         } else {
             final Map<StaticBuffer,EntryList> results = new HashMap<>(keys.size());
             if (threadPool == null || keys.size() < MIN_TASKS_TO_PARALLELIZE) {
                 for (StaticBuffer key : keys) {
-                    results.put(key,edgeStoreQuery(new KeySliceQuery(key, query)));
+                    results.put(key,singleQuery.apply(new KeySliceQuery(key, query)));
                 }
             } else {
                 final CountDownLatch doneSignal = new CountDownLatch(keys.size());
                 final AtomicInteger failureCount = new AtomicInteger(0);
                 EntryList[] resultArray = new EntryList[keys.size()];
                 for (int i = 0; i < keys.size(); i++) {
-                    threadPool.execute(new SliceQueryRunner(new KeySliceQuery(keys.get(i), query),
+                    threadPool.execute(new SliceQueryRunner(new KeySliceQuery(keys.get(i), query), singleQuery,
                             doneSignal, failureCount, resultArray, i));
                 }
                 try {
@@ -395,17 +420,19 @@ public class BackendTransaction implements LoggableTransaction {
         }
     }
 
-    private class SliceQueryRunner implements Runnable {
+    private static class SliceQueryRunner implements Runnable {
 
         final KeySliceQuery kq;
+        final Function<KeySliceQuery,EntryList> singleQuery;
         final CountDownLatch doneSignal;
         final AtomicInteger failureCount;
         final Object[] resultArray;
         final int resultPosition;
 
-        private SliceQueryRunner(KeySliceQuery kq, CountDownLatch doneSignal, AtomicInteger failureCount,
-                                 Object[] resultArray, int resultPosition) {
+        private SliceQueryRunner(KeySliceQuery kq, Function<KeySliceQuery,EntryList> singleQuery, CountDownLatch doneSignal,
+                                 AtomicInteger failureCount, Object[] resultArray, int resultPosition) {
             this.kq = kq;
+            this.singleQuery = singleQuery;
             this.doneSignal = doneSignal;
             this.failureCount = failureCount;
             this.resultArray = resultArray;
@@ -416,7 +443,7 @@ public class BackendTransaction implements LoggableTransaction {
         public void run() {
             try {
                 List<Entry> result;
-                result = edgeStoreQuery(kq);
+                result = singleQuery.apply(kq);
                 resultArray[resultPosition] = result;
             } catch (Exception e) {
                 failureCount.incrementAndGet();
@@ -521,6 +548,19 @@ public class BackendTransaction implements LoggableTransaction {
         });
     }
 
+    public InputStream getLargeCellStream(String fileName, long offset) {
+        return executeRead(new Callable<InputStream>() {
+            @Override
+            public InputStream call() throws Exception {
+                return attachmentStore.getLargeCellStream(fileName, offset);
+            }
+            @Override
+            public String toString() {
+                return "Large Cell Stream";
+            }
+        });
+    }
+
     public ContentStatus getContentStatus(String fileName) {
         return executeRead(new Callable<ContentStatus>() {
             @Override
@@ -575,6 +615,21 @@ public class BackendTransaction implements LoggableTransaction {
             }
         });
     }
+
+    public Object indexAggregate(final String index, final IndexQuery query, final IndexAggregation aggregation) {
+        final IndexTransaction indexTx = getIndexTransaction(index);
+        return executeRead(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return indexTx.aggregate(query, aggregation);
+            }
+
+            @Override
+            public String toString() {
+                return "indexAggregate";
+            }
+        });
+    }
     public void deleteIndexDocument(IndexType indexType,String indexName, String ... documentIds) {
         if(indexType.isMixedIndex()) {
             final IndexTransaction indexTx = getIndexTransaction(indexType.getBackingIndexName());
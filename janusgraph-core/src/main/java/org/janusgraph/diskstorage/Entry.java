@@ -16,6 +16,8 @@ package org.janusgraph.diskstorage;
 
 import org.janusgraph.graphdb.relations.RelationCache;
 
+import java.io.InputStream;
+
 /**
  * An entry is the primitive persistence unit used in the graph database storage backend.
  * <p>
@@ -63,4 +65,17 @@ public interface Entry extends StaticBuffer, MetaAnnotated {
     void setHdfsContent(byte[] content);
 
     byte[] getHdfsContent();
+
+    /**
+     * 以流的方式设置需要上传到hdfs的内容,上传时不需要把整个内容读入内存.
+     * The stream can only be consumed once and must provide exactly {@code length} bytes.
+     *
+     * @param content content of the hdfs file
+     * @param length number of bytes in the stream
+     */
+    void setHdfsContentStream(InputStream content, long length);
+
+    InputStream getHdfsContentStream();
+
+    long getHdfsContentLength();
 }
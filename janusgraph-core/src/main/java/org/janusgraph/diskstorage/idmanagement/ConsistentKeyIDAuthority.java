@@ -224,7 +224,7 @@ public class ConsistentKeyIDAuthority extends AbstractIDAuthority implements Bac
 
         final Timer methodTime = times.getTimer().start();
 
-        final long blockSize = getBlockSize(idNamespace);
+        final long blockSize = getBlockSize(partition, idNamespace);
         final long idUpperBound = getIdUpperBound(idNamespace);
 
         final int maxAvailableBits = (VariableLong.unsignedBitLength(idUpperBound)-1)-uniqueIdBitWidth;
@@ -285,7 +285,8 @@ public class ConsistentKeyIDAuthority extends AbstractIDAuthority implements Bac
                     } else {
 
                         assert 0 != target.length();
-                        final StaticBuffer[] slice = getBlockSlice(nextEnd);
+                        //Block sizes may differ between instances, every claim ending after nextStart may overlap ours
+                        final StaticBuffer[] slice = getBlockSlice(Long.MAX_VALUE, nextStart + 1);
 
                         /* At this point we've written our claim on [nextStart, nextEnd),
                          * but we haven't yet guaranteed the absence of a contending claim on
@@ -296,7 +297,7 @@ public class ConsistentKeyIDAuthority extends AbstractIDAuthority implements Bac
                             sleepAndConvertInterrupts(idApplicationWaitMS.plus(waitGracePeriod));
                         }
 
-                        // Read all id allocation claims on this partition, for the counter value we're claiming
+                        // Read all id allocation claims on this partition that overlap the block we're claiming
                         final List<Entry> blocks = BackendOperation.execute(
                             (BackendOperation.Transactional<List<Entry>>) txh -> idStore.getSlice(new KeySliceQuery(partitionKey, slice[0], slice[1]), txh),this,times);
                         if (blocks == null) throw new TemporaryBackendException("Could not read from storage");
@@ -304,10 +305,10 @@ public class ConsistentKeyIDAuthority extends AbstractIDAuthority implements Bac
                             throw new PermanentBackendException("It seems there is a race-condition in the block application. " +
                                     "If you have multiple JanusGraph instances running on one physical machine, ensure that they have unique machine idAuthorities");
 
-                        /* If our claim is the lexicographically first one, then our claim
-                         * is the most senior one and we own this id block
+                        /* If our claim is the oldest of all claims that may overlap it, then our claim is the
+                         * most senior one and we own this id block, whatever the sizes of the other blocks.
                          */
-                        if (target.equals(blocks.get(0).getColumnAs(StaticBuffer.STATIC_FACTORY))) {
+                        if (target.equals(getSeniorClaim(blocks))) {
 
                             ConsistentKeyIDBlock idBlock = new ConsistentKeyIDBlock(nextStart,blockSize,uniqueIdBitWidth,uniquePID);
 
@@ -365,13 +366,31 @@ public class ConsistentKeyIDAuthority extends AbstractIDAuthority implements Bac
     }
 
 
-    private StaticBuffer[] getBlockSlice(long blockValue) {
+    /**
+     * The slice of all claims with counter values from {@code maxBlockValue} down to {@code minBlockValue}
+     */
+    private StaticBuffer[] getBlockSlice(long maxBlockValue, long minBlockValue) {
         StaticBuffer[] slice = new StaticBuffer[2];
-        slice[0] = new WriteByteBuffer(16).putLong(-blockValue).putLong(0).getStaticBuffer();
-        slice[1] = new WriteByteBuffer(16).putLong(-blockValue).putLong(-1).getStaticBuffer();
+        slice[0] = new WriteByteBuffer(16).putLong(-maxBlockValue).putLong(0).getStaticBuffer();
+        slice[1] = new WriteByteBuffer(16).putLong(-minBlockValue).putLong(-1).getStaticBuffer();
         return slice;
     }
 
+    /**
+     * The claim with the oldest timestamp, claims written at the same time are ordered by their column
+     */
+    private StaticBuffer getSeniorClaim(List<Entry> blocks) {
+        StaticBuffer senior = null;
+        for (Entry e : blocks) {
+            final StaticBuffer claim = e.getColumnAs(StaticBuffer.STATIC_FACTORY);
+            if (senior == null || claim.getLong(8) < senior.getLong(8)
+                    || (claim.getLong(8) == senior.getLong(8) && claim.compareTo(senior) < 0)) {
+                senior = claim;
+            }
+        }
+        return senior;
+    }
+
     private StaticBuffer getBlockApplication(long blockValue, Instant timestamp) {
         WriteByteBuffer bb = new WriteByteBuffer(
                 8 // counter long
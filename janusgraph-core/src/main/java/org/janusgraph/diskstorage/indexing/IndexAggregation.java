@@ -0,0 +1,100 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.indexing;
+
+import org.janusgraph.graphdb.database.idassigner.Preconditions;
+
+import java.util.Objects;
+
+/**
+ * An aggregation over one field of the documents matching an {@link IndexQuery}, executed by
+ * {@link IndexProvider#aggregate(IndexQuery, IndexAggregation, KeyInformation.IndexRetriever, org.janusgraph.diskstorage.BaseTransaction)}.
+ * 在索引后端对一个字段做聚合计算
+ * <p>
+ * {@link Type#MIN}, {@link Type#MAX} and {@link Type#SUM} return a {@link Number}, or {@link Double#NaN} if no matching
+ * document has a value for the field. {@link Type#COUNT_BY_VALUE} and {@link Type#HISTOGRAM} return a map from the value, respectively the lower bound of the bucket, to the number of
+ * matching documents.
+ */
+public class IndexAggregation {
+
+    public enum Type {
+        /**
+         * Number of matching documents per distinct value of the field
+         */
+        COUNT_BY_VALUE,
+        MIN,
+        MAX,
+        SUM,
+        /**
+         * Number of matching documents per fixed-size bucket of a numeric field
+         */
+        HISTOGRAM
+    }
+
+    private final Type type;
+    private final String field;
+    private final Number interval;
+
+    private IndexAggregation(Type type, String field, Number interval) {
+        Preconditions.checkNotNull(type);
+        Preconditions.checkNotNull(field);
+        this.type = type;
+        this.field = field;
+        this.interval = interval;
+    }
+
+    public static IndexAggregation of(Type type, String field) {
+        Preconditions.checkArgument(type != Type.HISTOGRAM, "A histogram needs an interval");
+        return new IndexAggregation(type, field, null);
+    }
+
+    public static IndexAggregation histogram(String field, Number interval) {
+        Preconditions.checkArgument(interval != null && interval.doubleValue() > 0, "Invalid histogram interval: %s", interval);
+        return new IndexAggregation(Type.HISTOGRAM, field, interval);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * @return bucket size of a {@link Type#HISTOGRAM}, null for other aggregations
+     */
+    public Number getInterval() {
+        return interval;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IndexAggregation that = (IndexAggregation) o;
+        return type == that.type && field.equals(that.field) && Objects.equals(interval, that.interval);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, field, interval);
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + field + (interval != null ? ", " + interval : "") + ")";
+    }
+}
@@ -132,6 +132,23 @@ public interface IndexProvider extends IndexInformation {
 
     Long queryCount(IndexQuery query, KeyInformation.IndexRetriever information, BaseTransaction tx) throws BackendException;
 
+    /**
+     * Computes an aggregation over the documents matching the given query inside the index backend.
+     * 在索引后端计算聚合,不支持时返回null,由调用方读取匹配的元素自行计算
+     *
+     * @param query Query selecting the documents
+     * @param aggregation Aggregation to compute
+     * @param information Information on the keys used in the query accessible through {@link KeyInformation.IndexRetriever}.
+     * @param tx Enclosing transaction
+     * @return the result as described in {@link IndexAggregation}, or null if the index cannot compute this
+     * aggregation exactly
+     * @throws org.janusgraph.diskstorage.BackendException
+     */
+    default Object aggregate(IndexQuery query, IndexAggregation aggregation, KeyInformation.IndexRetriever information,
+                             BaseTransaction tx) throws BackendException {
+        return null;
+    }
+
     /**
      * Executes the given query against the index.
      *
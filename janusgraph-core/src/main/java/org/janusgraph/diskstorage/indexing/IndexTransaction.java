@@ -142,6 +142,10 @@ public class IndexTransaction implements BaseTransaction, LoggableTransaction {
         return index.queryCount(query, keyInformation, indexTx);
     }
 
+    public Object aggregate(IndexQuery query, IndexAggregation aggregation) throws BackendException {
+        return index.aggregate(query, aggregation, keyInformation, indexTx);
+    }
+
     /**
      * @deprecated use {@link #queryStream(RawQuery query)} instead.
      */
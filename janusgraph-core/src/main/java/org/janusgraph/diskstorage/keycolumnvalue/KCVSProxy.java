@@ -21,6 +21,7 @@ import org.janusgraph.diskstorage.EntryList;
 import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.kydsj.ContentStatus;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -88,6 +89,11 @@ public class KCVSProxy implements KeyColumnValueStore {
         return store.getLargeCellContent(fileName);
     }
 
+    @Override
+    public InputStream getLargeCellStream(String fileName, long offset){
+        return store.getLargeCellStream(fileName, offset);
+    }
+
     @Override
     public ContentStatus getContentStatus(String fileName){
         return store.getContentStatus(fileName);
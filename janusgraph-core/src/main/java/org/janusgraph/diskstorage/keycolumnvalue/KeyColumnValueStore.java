@@ -20,6 +20,8 @@ import org.janusgraph.diskstorage.EntryList;
 import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.kydsj.ContentStatus;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -209,6 +211,20 @@ public interface KeyColumnValueStore {
      */
     byte[] getLargeCellContent(String fileName);
 
+    /**
+     * 以流的方式读取存储在外边系统的大文件内容,从offset处开始读取,不会把整个文件读入内存.
+     * The default implementation wraps {@link #getLargeCellContent(String)} for stores that keep the content in memory.
+     * @param fileName
+     * @param offset position in the file of the first byte to read
+     * @return the stream, which has to be closed by the caller, or null if the file does not exist
+     */
+    default InputStream getLargeCellStream(String fileName, long offset) {
+        byte[] content = getLargeCellContent(fileName);
+        if (content == null) return null;
+        int start = (int) Math.min(offset, content.length);
+        return new ByteArrayInputStream(content, start, content.length - start);
+    }
+
     /**
      * 获取存储在外边系统的大文件信息,暂时只支持hdfs
      * @param fileName
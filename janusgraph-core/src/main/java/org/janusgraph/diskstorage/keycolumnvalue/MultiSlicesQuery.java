@@ -36,6 +36,10 @@ public class MultiSlicesQuery {
         this.queries = queries;
     }
 
+    public List<SliceQuery> getQueries() {
+        return queries;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -59,6 +59,7 @@ public class SliceQuery extends BaseQuery implements BackendQuery<SliceQuery> {
     public SliceQuery(final SliceQuery query) {
         this(query.getSliceStart(), query.getSliceEnd());
         setLimit(query.getLimit());
+        setMaxColumnInclusive(query.isMaxColumnInclusive());
     }
 
     /**
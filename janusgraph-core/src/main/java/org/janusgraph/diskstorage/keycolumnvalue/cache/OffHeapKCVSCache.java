@@ -0,0 +1,303 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.keycolumnvalue.cache;
+
+import org.janusgraph.graphdb.database.idassigner.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import org.janusgraph.core.JanusGraphException;
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyColumnValueStore;
+import org.janusgraph.diskstorage.keycolumnvalue.KeySliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
+import org.janusgraph.diskstorage.util.CacheMetricsAction;
+import org.janusgraph.diskstorage.util.StaticArrayEntryList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A database level cache which keeps the cached slices outside of the heap, so that the adjacency lists of vertices
+ * with many edges can be cached without long garbage collection pauses. 堆外的数据库级缓存
+ * <p>
+ * Slices are written to {@link OffHeapPages} in the serialized form of {@link StaticArrayEntryList} and read back with
+ * a single bulk copy into one array, the returned entries are views into that array. Only the index of the cache, the
+ * {@link KeySliceQuery} and the page numbers of each slice, stays on the heap.
+ * <p>
+ * Unlike {@link ExpirationKCVSCache}, which keeps invalidated keys expired for the whole expiration time, the slices of
+ * a key are removed as soon as the commit that modified the key has been persisted. A slice read from the store is only
+ * cached if its key was not invalidated while it was being read, and not within the invalidation grace period, so a
+ * concurrent reader cannot put back the state before the commit.
+ */
+public class OffHeapKCVSCache extends KCVSCache {
+
+    private static final Logger log = LoggerFactory.getLogger(OffHeapKCVSCache.class);
+
+    /**
+     * Number of recorded invalidations above which those older than the grace period are dropped
+     */
+    private static final int MAX_INVALIDATIONS = 10000;
+
+    private final OffHeapPages pages;
+    private final Cache<KeySliceQuery, OffHeapSlice> cache;
+    private final ConcurrentHashMap<StaticBuffer, Map<KeySliceQuery, OffHeapSlice>> slicesByKey;
+    private final ConcurrentHashMap<StaticBuffer, Invalidation> invalidations;
+    private final AtomicLong invalidationCounter = new AtomicLong();
+    /**
+     * Slices read before this invalidation are not cached, since the invalidations they could have missed were dropped
+     */
+    private volatile long invalidationFloor = 0;
+
+    private final long invalidationGracePeriodMS;
+
+    /**
+     * @param cacheTimeMS               缓存过期时间(毫秒)
+     * @param invalidationGracePeriodMS key失效后多长时间内不缓存从存储读取的数据(毫秒)
+     * @param maximumByteSize           堆外内存的最大字节数
+     * @param pageSize                  堆外内存页的字节数
+     */
+    public OffHeapKCVSCache(final KeyColumnValueStore store, String metricsName, final long cacheTimeMS,
+                            final long invalidationGracePeriodMS, final long maximumByteSize, final int pageSize) {
+        super(store, metricsName);
+        Preconditions.checkArgument(cacheTimeMS > 0, "Cache expiration must be positive: %s", cacheTimeMS);
+        Preconditions.checkArgument(invalidationGracePeriodMS >= 0, "Invalid expiration grace period: %s", invalidationGracePeriodMS);
+        this.invalidationGracePeriodMS = invalidationGracePeriodMS;
+        this.pages = new OffHeapPages(maximumByteSize, pageSize);
+        final int concurrencyLevel = Runtime.getRuntime().availableProcessors();
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumByteSize)
+                .concurrencyLevel(concurrencyLevel)
+                .initialCapacity(1000)
+                .expireAfterWrite(cacheTimeMS, TimeUnit.MILLISECONDS)
+                .weigher((KeySliceQuery query, OffHeapSlice slice) -> Math.max(1, slice.pages.length * pageSize))
+                .removalListener(this::onRemoval)
+                .build();
+        slicesByKey = new ConcurrentHashMap<>(1000, 0.75f, concurrencyLevel);
+        invalidations = new ConcurrentHashMap<>(50, 0.75f, concurrencyLevel);
+        log.info("Configured off-heap cache of {} with {} bytes in pages of {} bytes", store.getName(), maximumByteSize, pageSize);
+    }
+
+    @Override
+    public EntryList getSlice(final KeySliceQuery query, final StoreTransaction txh) throws BackendException {
+        incActionBy(1, CacheMetricsAction.RETRIEVAL, txh);
+        final EntryList cached = read(query);
+        if (cached != null) return cached;
+
+        incActionBy(1, CacheMetricsAction.MISS, txh);
+        final long sequence = invalidationCounter.get();
+        final EntryList result = store.getSlice(query, unwrapTx(txh));
+        put(query, result, sequence);
+        return result;
+    }
+
+    @Override
+    public Map<StaticBuffer, EntryList> getSlice(final List<StaticBuffer> keys, final SliceQuery query, final StoreTransaction txh) throws BackendException {
+        final Map<StaticBuffer, EntryList> results = new HashMap<>(keys.size());
+        final List<StaticBuffer> remainingKeys = new ArrayList<>(keys.size());
+        incActionBy(keys.size(), CacheMetricsAction.RETRIEVAL, txh);
+        //Find all cached queries
+        for (StaticBuffer key : keys) {
+            final EntryList result = read(new KeySliceQuery(key, query));
+            if (result != null) results.put(key, result);
+            else remainingKeys.add(key);
+        }
+        //Request remaining ones from backend
+        if (!remainingKeys.isEmpty()) {
+            incActionBy(remainingKeys.size(), CacheMetricsAction.MISS, txh);
+            final long sequence = invalidationCounter.get();
+            final Map<StaticBuffer, EntryList> subresults = store.getSlice(remainingKeys, query, unwrapTx(txh));
+            for (StaticBuffer key : remainingKeys) {
+                final EntryList subresult = subresults.get(key);
+                if (subresult != null) {
+                    results.put(key, subresult);
+                    put(new KeySliceQuery(key, query), subresult, sequence);
+                }
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void clearCache() {
+        invalidationFloor = invalidationCounter.incrementAndGet();
+        cache.invalidateAll();
+        slicesByKey.clear();
+        invalidations.clear();
+    }
+
+    @Override
+    public void invalidate(StaticBuffer key, List<CachableStaticBuffer> entries) {
+        Preconditions.checkArgument(!hasValidateKeysOnly() || entries.isEmpty());
+        //Record the invalidation first, slices that are concurrently read and cached check it after registering
+        invalidations.put(key, new Invalidation(invalidationCounter.incrementAndGet(), System.currentTimeMillis()));
+        final Map<KeySliceQuery, OffHeapSlice> slices = slicesByKey.remove(key);
+        if (slices != null) {
+            for (KeySliceQuery query : slices.keySet()) cache.invalidate(query);
+        }
+        if (invalidations.size() > MAX_INVALIDATIONS) dropInvalidations();
+    }
+
+    @Override
+    public void close() throws BackendException {
+        cache.invalidateAll();
+        slicesByKey.clear();
+        super.close();
+    }
+
+    /**
+     * @return the number of bytes of off-heap memory currently used by cached slices
+     */
+    public long getOffHeapBytes() {
+        return pages.getUsedBytes();
+    }
+
+    private EntryList read(KeySliceQuery query) {
+        final OffHeapSlice slice = cache.getIfPresent(query);
+        return slice == null ? null : slice.read();
+    }
+
+    private void put(KeySliceQuery query, EntryList entries, long sequence) {
+        if (isInvalidated(query.getKey(), sequence)) return;
+        final OffHeapSlice slice = write(entries);
+        if (slice == null) {
+            //Not enough off-heap memory left until pending evictions are processed
+            cache.cleanUp();
+            return;
+        }
+        slicesByKey.compute(query.getKey(), (key, slices) -> {
+            if (slices == null) slices = new HashMap<>(4);
+            slices.put(query, slice);
+            return slices;
+        });
+        cache.put(query, slice);
+        if (isInvalidated(query.getKey(), sequence)) cache.invalidate(query);
+    }
+
+    private OffHeapSlice write(EntryList entries) {
+        if (entries.isEmpty()) return new OffHeapSlice(OffHeapPages.NO_PAGES, 0);
+        final StaticArrayEntryList list = entries instanceof StaticArrayEntryList
+            ? (StaticArrayEntryList) entries : (StaticArrayEntryList) StaticArrayEntryList.of(entries);
+        final int length = list.getSerializedSize();
+        final int[] slicePages = pages.allocate(length);
+        if (slicePages == null) return null;
+        try (DataOutputStream out = new DataOutputStream(pages.output(slicePages))) {
+            list.writeTo(out);
+        } catch (IOException e) {
+            pages.free(slicePages);
+            throw new JanusGraphException(e);
+        }
+        return new OffHeapSlice(slicePages, length);
+    }
+
+    private boolean isInvalidated(StaticBuffer key, long sequence) {
+        if (sequence < invalidationFloor) return true;
+        final Invalidation invalidation = invalidations.get(key);
+        return invalidation != null && (invalidation.sequence > sequence
+            || System.currentTimeMillis() - invalidation.time < invalidationGracePeriodMS);
+    }
+
+    private synchronized void dropInvalidations() {
+        final long now = System.currentTimeMillis();
+        long floor = invalidationFloor;
+        for (Iterator<Map.Entry<StaticBuffer, Invalidation>> iterator = invalidations.entrySet().iterator(); iterator.hasNext(); ) {
+            final Invalidation invalidation = iterator.next().getValue();
+            if (now - invalidation.time >= invalidationGracePeriodMS) {
+                floor = Math.max(floor, invalidation.sequence);
+                iterator.remove();
+            }
+        }
+        invalidationFloor = floor;
+    }
+
+    private void onRemoval(RemovalNotification<KeySliceQuery, OffHeapSlice> notification) {
+        final KeySliceQuery query = notification.getKey();
+        final OffHeapSlice slice = notification.getValue();
+        if (query != null) {
+            slicesByKey.computeIfPresent(query.getKey(), (key, slices) -> {
+                slices.remove(query, slice);
+                return slices.isEmpty() ? null : slices;
+            });
+        }
+        if (slice != null) slice.release();
+    }
+
+    private static final class Invalidation {
+        private final long sequence;
+        private final long time;
+
+        private Invalidation(long sequence, long time) {
+            this.sequence = sequence;
+            this.time = time;
+        }
+    }
+
+    /**
+     * The pages of a cached slice. The cache holds one reference which is released when the slice is removed, readers
+     * hold another one while copying so the pages are not reused underneath them.
+     */
+    private final class OffHeapSlice {
+        private final int[] pages;
+        private final int length;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private OffHeapSlice(int[] pages, int length) {
+            this.pages = pages;
+            this.length = length;
+        }
+
+        /**
+         * @return the entries of the slice, or null if it was removed concurrently
+         */
+        private EntryList read() {
+            if (!retain()) return null;
+            try {
+                if (length == 0) return EntryList.EMPTY_LIST;
+                return StaticArrayEntryList.readFrom(new DataInputStream(OffHeapKCVSCache.this.pages.input(pages, length)));
+            } catch (IOException e) {
+                throw new JanusGraphException(e);
+            } finally {
+                release();
+            }
+        }
+
+        private boolean retain() {
+            while (true) {
+                final int count = references.get();
+                if (count == 0) return false;
+                if (references.compareAndSet(count, count + 1)) return true;
+            }
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) OffHeapKCVSCache.this.pages.free(pages);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.keycolumnvalue.cache;
+
+import org.janusgraph.graphdb.database.idassigner.Preconditions;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed size pages of direct memory used by {@link OffHeapKCVSCache}. 堆外内存页
+ * <p>
+ * The memory is allocated lazily in slabs of direct buffers up to the maximum size and never handed back, freed pages
+ * are reused for the next allocation. This keeps the amount of direct memory bounded without relying on the garbage
+ * collector to release direct buffers. A value is written to and read from its pages as a stream, so the pages of a
+ * value do not need to be contiguous.
+ */
+class OffHeapPages {
+
+    private static final int MAX_SLAB_SIZE = 16 * 1024 * 1024;
+
+    static final int[] NO_PAGES = new int[0];
+
+    private final int pageSize;
+    private final int pagesPerSlab;
+    private final int maxPages;
+    private final ByteBuffer[] slabs;
+
+    private final int[] freePages;
+    private int freeCount;
+    private int unusedPage;
+
+    OffHeapPages(long maxBytes, int pageSize) {
+        Preconditions.checkArgument(pageSize > 0, "Invalid page size: %s", pageSize);
+        Preconditions.checkArgument(maxBytes >= pageSize, "Off-heap memory is smaller than a page: %s", maxBytes);
+        Preconditions.checkArgument(maxBytes / pageSize <= Integer.MAX_VALUE, "Too many pages, increase the page size: %s", pageSize);
+        this.pageSize = pageSize;
+        this.pagesPerSlab = Math.max(1, MAX_SLAB_SIZE / pageSize);
+        this.maxPages = (int) (maxBytes / pageSize);
+        this.slabs = new ByteBuffer[(maxPages + pagesPerSlab - 1) / pagesPerSlab];
+        this.freePages = new int[maxPages];
+    }
+
+    int getPageSize() {
+        return pageSize;
+    }
+
+    int getPageCount(int bytes) {
+        return (bytes + pageSize - 1) / pageSize;
+    }
+
+    /**
+     * @return the pages holding the given number of bytes, or null if not enough memory is left
+     */
+    synchronized int[] allocate(int bytes) {
+        final int count = getPageCount(bytes);
+        if (count == 0) return NO_PAGES;
+        if (count > freeCount + maxPages - unusedPage) return null;
+        final int[] pages = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (freeCount > 0) {
+                pages[i] = freePages[--freeCount];
+            } else {
+                final int slab = unusedPage / pagesPerSlab;
+                if (slabs[slab] == null) {
+                    final int slabPages = Math.min(pagesPerSlab, maxPages - slab * pagesPerSlab);
+                    slabs[slab] = ByteBuffer.allocateDirect(slabPages * pageSize);
+                }
+                pages[i] = unusedPage++;
+            }
+        }
+        return pages;
+    }
+
+    synchronized void free(int[] pages) {
+        for (int page : pages) {
+            freePages[freeCount++] = page;
+        }
+    }
+
+    /**
+     * @return the number of bytes in pages that are currently allocated
+     */
+    synchronized long getUsedBytes() {
+        return (long) (unusedPage - freeCount) * pageSize;
+    }
+
+    /**
+     * The returned stream writes at most the bytes held by the pages
+     */
+    OutputStream output(int[] pages) {
+        return new PageOutputStream(pages);
+    }
+
+    /**
+     * The returned stream reads the given number of bytes from the pages
+     */
+    InputStream input(int[] pages, int length) {
+        return new PageInputStream(pages, length);
+    }
+
+    private ByteBuffer page(int page) {
+        final ByteBuffer buffer = slabs[page / pagesPerSlab].duplicate();
+        final int offset = (page % pagesPerSlab) * pageSize;
+        buffer.limit(offset + pageSize);
+        buffer.position(offset);
+        return buffer;
+    }
+
+    private final class PageOutputStream extends OutputStream {
+        private final int[] pages;
+        private int next = 0;
+        private ByteBuffer current;
+
+        private PageOutputStream(int[] pages) {
+            this.pages = pages;
+        }
+
+        private ByteBuffer current() {
+            if (current == null || !current.hasRemaining()) {
+                Preconditions.checkState(next < pages.length, "Value exceeds its allocated pages");
+                current = page(pages[next++]);
+            }
+            return current;
+        }
+
+        @Override
+        public void write(int b) {
+            current().put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                final ByteBuffer buffer = current();
+                final int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+    }
+
+    private final class PageInputStream extends InputStream {
+        private final int[] pages;
+        private int remaining;
+        private int next = 0;
+        private ByteBuffer current;
+
+        private PageInputStream(int[] pages, int length) {
+            this.pages = pages;
+            this.remaining = length;
+        }
+
+        private ByteBuffer current() {
+            if (current == null || !current.hasRemaining()) {
+                current = page(pages[next++]);
+            }
+            return current;
+        }
+
+        @Override
+        public int read() {
+            if (remaining == 0) return -1;
+            remaining--;
+            return current().get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (remaining == 0) return -1;
+            final ByteBuffer buffer = current();
+            final int n = Math.min(Math.min(len, remaining), buffer.remaining());
+            buffer.get(b, off, n);
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return remaining;
+        }
+    }
+}
@@ -50,6 +50,7 @@ class SingleThreadRowsCollector extends RowsCollector {
 
     private final StoreTransaction storeTx;
     private final Predicate<StaticBuffer> keyFilter;
+    private final SliceQuery primaryQuery;
     private KeySlicesIterator keyIterator;
 
     private boolean interrupted = false;
@@ -64,6 +65,7 @@ class SingleThreadRowsCollector extends RowsCollector {
         super(store, rowQueue);
         this.storeTx = storeTx;
         this.keyFilter = keyFilter;
+        this.primaryQuery = queries.get(0);
 
         setUp(queries);
     }
@@ -80,6 +82,9 @@ class SingleThreadRowsCollector extends RowsCollector {
                 if (!keyFilter.test(key)) continue;
                 Map<SliceQuery, EntryList> rowEntries = new HashMap<>(sliceToEntriesMap.size());
                 sliceToEntriesMap.forEach((sliceQuery, entryList) -> rowEntries.put(sliceQuery, EntryArrayList.of(entryList)));
+                //As with one scan per query, only rows matched by the primary query are processed
+                EntryList primaryEntries = rowEntries.get(primaryQuery);
+                if (primaryEntries == null || primaryEntries.isEmpty()) continue;
                 rowQueue.put(new Row(key, rowEntries));
             }
         } catch (InterruptedException e) {
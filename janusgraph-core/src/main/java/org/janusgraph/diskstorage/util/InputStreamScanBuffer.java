@@ -0,0 +1,192 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.util;
+
+import org.janusgraph.diskstorage.ScanBuffer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Implementation of {@link ScanBuffer} which reads the bytes from an {@link InputStream} as they are requested, so
+ * the fields at the start of a large serialized value can be parsed without knowing their length up front.
+ * The byte order is the same as for {@link StaticArrayBuffer}.
+ * <p>
+ * Reading past the end of the stream throws an {@link UncheckedIOException} caused by an {@link java.io.EOFException}.
+ * The stream is not closed by this buffer.
+ */
+public class InputStreamScanBuffer implements ScanBuffer {
+
+    private final DataInputStream in;
+    private long position = 0;
+
+    public InputStreamScanBuffer(InputStream in) {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+    }
+
+    /**
+     * @return the number of bytes read from the stream
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean hasRemaining() {
+        try {
+            in.mark(1);
+            boolean remaining = in.read() >= 0;
+            in.reset();
+            return remaining;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public byte getByte() {
+        try {
+            byte value = in.readByte();
+            position += 1;
+            return value;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean getBoolean() {
+        return getByte() > 0;
+    }
+
+    @Override
+    public short getShort() {
+        try {
+            short value = in.readShort();
+            position += 2;
+            return value;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int getInt() {
+        try {
+            int value = in.readInt();
+            position += 4;
+            return value;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long getLong() {
+        try {
+            long value = in.readLong();
+            position += 8;
+            return value;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public char getChar() {
+        return (char) getShort();
+    }
+
+    @Override
+    public float getFloat() {
+        return Float.intBitsToFloat(getInt());
+    }
+
+    @Override
+    public double getDouble() {
+        return Double.longBitsToDouble(getLong());
+    }
+
+    //------
+
+    @Override
+    public byte[] getBytes(int length) {
+        byte[] result = new byte[length];
+        try {
+            in.readFully(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        position += length;
+        return result;
+    }
+
+    @Override
+    public short[] getShorts(int length) {
+        short[] result = new short[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = getShort();
+        }
+        return result;
+    }
+
+    @Override
+    public int[] getInts(int length) {
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = getInt();
+        }
+        return result;
+    }
+
+    @Override
+    public long[] getLongs(int length) {
+        long[] result = new long[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = getLong();
+        }
+        return result;
+    }
+
+    @Override
+    public char[] getChars(int length) {
+        char[] result = new char[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = getChar();
+        }
+        return result;
+    }
+
+    @Override
+    public float[] getFloats(int length) {
+        float[] result = new float[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = getFloat();
+        }
+        return result;
+    }
+
+    @Override
+    public double[] getDoubles(int length) {
+        double[] result = new double[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = getDouble();
+        }
+        return result;
+    }
+}
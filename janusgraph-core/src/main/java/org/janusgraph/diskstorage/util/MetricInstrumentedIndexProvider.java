@@ -19,6 +19,7 @@ import org.janusgraph.diskstorage.BackendException;
 import org.janusgraph.diskstorage.BaseTransaction;
 import org.janusgraph.diskstorage.BaseTransactionConfig;
 import org.janusgraph.diskstorage.BaseTransactionConfigurable;
+import org.janusgraph.diskstorage.indexing.IndexAggregation;
 import org.janusgraph.diskstorage.indexing.IndexEntry;
 import org.janusgraph.diskstorage.indexing.IndexFeatures;
 import org.janusgraph.diskstorage.indexing.IndexMutation;
@@ -44,13 +45,14 @@ public class MetricInstrumentedIndexProvider implements IndexProvider {
     public static final String M_RESTORE = "restore";
     public static final String M_QUERY = "query";
     public static final String M_MIXED_COUNT_QUERY = "mixedIndexCountQuery";
+    public static final String M_MIXED_AGGREGATION_QUERY = "mixedIndexAggregationQuery";
     public static final String M_RAW_QUERY = "rawQuery";
     public static final String M_TOTALS = "totals";
     public static final String M_CALLS = "calls";
     public static final String M_TIME = "time";
     public static final String M_EXCEPTIONS = "exceptions";
     public static final List<String> OPERATION_NAMES = Collections.unmodifiableList(
-        Arrays.asList(M_MUTATE, M_RESTORE, M_QUERY, M_MIXED_COUNT_QUERY, M_RAW_QUERY, M_TOTALS));
+        Arrays.asList(M_MUTATE, M_RESTORE, M_QUERY, M_MIXED_COUNT_QUERY, M_MIXED_AGGREGATION_QUERY, M_RAW_QUERY, M_TOTALS));
 
     public MetricInstrumentedIndexProvider(final IndexProvider indexProvider, String prefix) {
         this.indexProvider = indexProvider;
@@ -96,6 +98,13 @@ public class MetricInstrumentedIndexProvider implements IndexProvider {
         return runWithMetrics((BaseTransactionConfigurable) tx, M_MIXED_COUNT_QUERY, () -> indexProvider.queryCount(query, information, tx));
     }
 
+    @Override
+    public Object aggregate(IndexQuery query, IndexAggregation aggregation, KeyInformation.IndexRetriever information,
+                            BaseTransaction tx) throws BackendException {
+        return runWithMetrics((BaseTransactionConfigurable) tx, M_MIXED_AGGREGATION_QUERY,
+            () -> indexProvider.aggregate(query, aggregation, information, tx));
+    }
+
     @Override
     public Stream<String> query(final IndexQuery query, final KeyInformation.IndexRetriever information,
                                 final BaseTransaction tx) throws BackendException {
@@ -35,6 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -134,6 +135,11 @@ public class MetricInstrumentedStore implements KeyColumnValueStore {
         return backend.getLargeCellContent(fileName);
     }
 
+    @Override
+    public InputStream getLargeCellStream(String fileName, long offset){
+        return backend.getLargeCellStream(fileName, offset);
+    }
+
     @Override
     public ContentStatus getContentStatus(String fileName){
         return backend.getContentStatus(fileName);
@@ -18,6 +18,7 @@ import org.janusgraph.diskstorage.ReadBuffer;
 import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.graphdb.database.idassigner.Preconditions;
 
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 
 /**
@@ -36,6 +37,8 @@ public class StaticArrayBuffer implements StaticBuffer {
     private int limit;
     private String hdfsFileName;
     private byte[] hdfsContent;
+    private InputStream hdfsContentStream;
+    private long hdfsContentLength;
 
     public StaticArrayBuffer(byte[] array, int offset, int limit) {
         assert array != null;
@@ -170,6 +173,20 @@ public class StaticArrayBuffer implements StaticBuffer {
         return this.hdfsContent;
     }
 
+    public void setHdfsContentStream(InputStream content, long length){
+        Preconditions.checkArgument(length>=0,"Invalid content length: %s",length);
+        this.hdfsContentStream=content;
+        this.hdfsContentLength=length;
+    }
+
+    public InputStream getHdfsContentStream(){
+        return this.hdfsContentStream;
+    }
+
+    public long getHdfsContentLength(){
+        return this.hdfsContentLength;
+    }
+
 
     /*
     ############## READING PRIMITIVES ################
@@ -23,6 +23,9 @@ import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.graphdb.relations.RelationCache;
 import org.janusgraph.util.encoding.StringEncoding;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.AbstractList;
 import java.util.Arrays;
@@ -279,6 +282,39 @@ public class StaticArrayEntryList extends AbstractList<Entry> implements EntryLi
         }
     }
 
+    //############# SERIALIZATION #######################
+
+    /**
+     * @return the number of bytes written by {@link #writeTo(DataOutput)}
+     */
+    public int getSerializedSize() {
+        return 4 + 1 + metaDataSchema.length + 8 * limitAndValuePos.length + 4 + data.length;
+    }
+
+    /**
+     * Writes the entries in the same layout as they are held by this list, so that {@link #readFrom(DataInput)}
+     * only copies the data back in bulk. The transient relation caches are not written.
+     * 按内部结构序列化, 用于在堆外保存
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(limitAndValuePos.length);
+        out.writeByte(metaDataSchema.length);
+        for (EntryMetaData meta : metaDataSchema) out.writeByte(meta.ordinal());
+        for (long l : limitAndValuePos) out.writeLong(l);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    public static StaticArrayEntryList readFrom(DataInput in) throws IOException {
+        final int size = in.readInt();
+        final EntryMetaData[] metaDataSchema = new EntryMetaData[in.readByte()];
+        for (int i = 0; i < metaDataSchema.length; i++) metaDataSchema[i] = EntryMetaData.values()[in.readByte()];
+        final long[] limitAndValuePos = new long[size];
+        for (int i = 0; i < size; i++) limitAndValuePos[i] = in.readLong();
+        final byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new StaticArrayEntryList(data, limitAndValuePos, metaDataSchema);
+    }
 
     //############# CONSTRUCTORS #######################
 
@@ -0,0 +1,315 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.util;
+
+import org.janusgraph.core.JanusGraphException;
+import org.janusgraph.diskstorage.ReadBuffer;
+import org.janusgraph.diskstorage.ScanBuffer;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.graphdb.database.idassigner.Preconditions;
+import org.janusgraph.graphdb.database.idhandling.VariableLong;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses the serialized values of attachments and notes. 附件和注释值的压缩
+ * <p>
+ * A compressed value starts with a zero byte, followed by the codec id, the length of the original and of the
+ * compressed value and the compressed bytes. Serialized attachments and notes start with a variable length number,
+ * whose first byte is never zero, so values written without compression are recognized and read unchanged.
+ * <p>
+ * Small values compress badly on their own. A preset dictionary built with {@link #trainDictionary(Iterable, int)}
+ * from sample values can be configured, it has to be registered with {@link #registerDictionary(byte[])} wherever
+ * such values are read. The compressed stream refers to the dictionary by its checksum.
+ */
+public class ValueCompression implements BackendCompression {
+
+    public static final byte MARKER = 0;
+
+    /**
+     * The window of deflate, a longer dictionary is not used
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int GRAM_LENGTH = 8;
+    private static final int SEGMENT_LENGTH = 64;
+
+    private static final Map<Integer, byte[]> DICTIONARIES = new ConcurrentHashMap<>();
+
+    public enum Codec {
+        NONE(0), DEFLATE(1);
+
+        private final byte id;
+
+        Codec(int id) {
+            this.id = (byte) id;
+        }
+
+        public byte getId() {
+            return id;
+        }
+
+        public static Codec of(byte id) {
+            for (Codec codec : values()) {
+                if (codec.id == id) return codec;
+            }
+            throw new IllegalArgumentException("Unknown compression codec: " + id);
+        }
+
+        public static Codec of(String name) {
+            for (Codec codec : values()) {
+                if (codec.name().equalsIgnoreCase(name)) return codec;
+            }
+            throw new IllegalArgumentException("Unknown compression codec: " + name);
+        }
+    }
+
+    private final Codec codec;
+    private final int level;
+    private final int minSize;
+    private final byte[] dictionary;
+
+    /**
+     * @param codec the codec to compress with
+     * @param level the deflate level from 1 (fastest) to 9 (smallest)
+     * @param minSize values shorter than this are not compressed
+     * @param dictionary the preset dictionary or null, it is registered for reading
+     */
+    public ValueCompression(Codec codec, int level, int minSize, byte[] dictionary) {
+        Preconditions.checkArgument(level >= Deflater.BEST_SPEED && level <= Deflater.BEST_COMPRESSION, "Invalid compression level: %s", level);
+        Preconditions.checkArgument(minSize >= 0, "Invalid minimum size: %s", minSize);
+        Preconditions.checkArgument(dictionary == null || dictionary.length <= MAX_DICTIONARY_SIZE,
+            "Dictionary exceeds %s bytes", MAX_DICTIONARY_SIZE);
+        this.codec = Preconditions.checkNotNull(codec);
+        this.level = level;
+        this.minSize = minSize;
+        this.dictionary = dictionary == null || dictionary.length == 0 ? null : dictionary;
+        if (this.dictionary != null) registerDictionary(this.dictionary);
+    }
+
+    public Codec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public StaticBuffer compress(StaticBuffer value) {
+        if (codec == Codec.NONE || value.length() < minSize) return value;
+        final byte[] input = value.as(StaticBuffer.ARRAY_FACTORY);
+        final byte[] compressed = deflate(input);
+        final WriteByteBuffer out = new WriteByteBuffer(compressed.length + 12);
+        out.putByte(MARKER);
+        out.putByte(codec.getId());
+        VariableLong.writePositive(out, input.length);
+        VariableLong.writePositive(out, compressed.length);
+        out.putBytes(compressed);
+        final StaticBuffer result = out.getStaticBuffer();
+        //Not worth it if nothing is saved
+        return result.length() < input.length ? result : value;
+    }
+
+    @Override
+    public StaticBuffer decompress(StaticBuffer value) {
+        if (value.length() == 0 || value.getByte(0) != MARKER) return value;
+        return decompress(value.asReadBuffer());
+    }
+
+    private byte[] deflate(byte[] input) {
+        final Deflater deflater = new Deflater(level);
+        try {
+            if (dictionary != null) deflater.setDictionary(dictionary);
+            deflater.setInput(input);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 2));
+            final byte[] chunk = new byte[Math.min(64 * 1024, Math.max(64, input.length))];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @return whether the value at the position of the buffer was written by {@link #compress(StaticBuffer)}
+     */
+    public static boolean isCompressed(ScanBuffer buffer) {
+        if (!(buffer instanceof ReadBuffer)) return false;
+        final ReadBuffer readBuffer = (ReadBuffer) buffer;
+        return readBuffer.hasRemaining() && readBuffer.getByte(readBuffer.getPosition()) == MARKER;
+    }
+
+    /**
+     * Reads the compressed value at the position of the buffer and moves the buffer behind it.
+     *
+     * @return the original value
+     */
+    public static ReadBuffer decompress(ReadBuffer buffer) {
+        Preconditions.checkArgument(buffer.getByte() == MARKER, "Value is not compressed");
+        final Codec codec = Codec.of(buffer.getByte());
+        final int length = (int) VariableLong.readPositive(buffer);
+        final byte[] compressed = buffer.getBytes((int) VariableLong.readPositive(buffer));
+        Preconditions.checkArgument(codec == Codec.DEFLATE, "Unsupported compression codec: %s", codec);
+        return new ReadArrayBuffer(inflate(compressed, length));
+    }
+
+    private static byte[] inflate(byte[] compressed, int length) {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            final byte[] result = new byte[length];
+            int position = 0;
+            while (position < length) {
+                final int read = inflater.inflate(result, position, length - position);
+                if (read == 0) {
+                    if (inflater.needsDictionary()) {
+                        final byte[] dictionary = DICTIONARIES.get(inflater.getAdler());
+                        if (dictionary == null) {
+                            throw new JanusGraphException("压缩字典" + Integer.toHexString(inflater.getAdler()) + "未配置,无法解压");
+                        }
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.finished() || inflater.needsInput()) {
+                        throw new IllegalArgumentException("Compressed value ends after " + position + " of " + length + " bytes");
+                    }
+                }
+                position += read;
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupted compressed value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Makes a dictionary known for reading, compressed values refer to it by its adler32 checksum.
+     *
+     * @return the checksum of the dictionary
+     */
+    public static int registerDictionary(byte[] dictionary) {
+        final Deflater deflater = new Deflater();
+        try {
+            deflater.setDictionary(dictionary);
+            final int id = deflater.getAdler();
+            DICTIONARIES.put(id, dictionary);
+            return id;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Builds a preset dictionary out of the byte sequences that occur most often in the samples.
+     * 根据样本训练压缩字典
+     * <p>
+     * The samples are cut into overlapping segments, which are scored by how often their 8 byte grams occur in all
+     * samples. The best segments are taken greedily, after each one its grams no longer count, so the dictionary does
+     * not repeat itself. The best segments are placed at the end of the dictionary, which is the cheapest to refer to.
+     *
+     * @param samples typical serialized values
+     * @param maxSize the maximum size of the dictionary, at most {@link #MAX_DICTIONARY_SIZE}
+     * @return the dictionary, empty if the samples do not share any content
+     */
+    public static byte[] trainDictionary(Iterable<byte[]> samples, int maxSize) {
+        Preconditions.checkArgument(maxSize > 0 && maxSize <= MAX_DICTIONARY_SIZE, "Invalid dictionary size: %s", maxSize);
+        final Map<Long, Integer> frequencies = new HashMap<>();
+        final PriorityQueue<Segment> segments = new PriorityQueue<>((a, b) -> Long.compare(b.score, a.score));
+        final List<byte[]> sampleList = new ArrayList<>();
+        for (byte[] sample : samples) {
+            sampleList.add(sample);
+            for (int i = 0; i + GRAM_LENGTH <= sample.length; i++) {
+                frequencies.merge(gram(sample, i), 1, Integer::sum);
+            }
+        }
+        for (byte[] sample : sampleList) {
+            for (int i = 0; i + GRAM_LENGTH <= sample.length; i += SEGMENT_LENGTH / 2) {
+                final Segment segment = new Segment(sample, i, Math.min(SEGMENT_LENGTH, sample.length - i));
+                segment.score = segment.score(frequencies);
+                if (segment.score > 0) segments.add(segment);
+            }
+        }
+        final List<Segment> selected = new ArrayList<>();
+        int size = 0;
+        while (!segments.isEmpty() && size < maxSize) {
+            final Segment segment = segments.poll();
+            final long score = segment.score(frequencies);
+            if (score == 0) continue;
+            if (!segments.isEmpty() && score < segments.peek().score) {
+                //Grams of the segment were taken by a better one, try again with the current score
+                segment.score = score;
+                segments.add(segment);
+                continue;
+            }
+            selected.add(segment);
+            size += segment.length;
+            for (int i = segment.offset; i + GRAM_LENGTH <= segment.offset + segment.length; i++) {
+                frequencies.put(gram(segment.sample, i), 0);
+            }
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            final Segment segment = selected.get(i);
+            out.write(segment.sample, segment.offset, segment.length);
+        }
+        final byte[] dictionary = out.toByteArray();
+        if (dictionary.length <= maxSize) return dictionary;
+        final byte[] truncated = new byte[maxSize];
+        System.arraycopy(dictionary, dictionary.length - maxSize, truncated, 0, maxSize);
+        return truncated;
+    }
+
+    private static long gram(byte[] sample, int offset) {
+        long gram = 0;
+        for (int i = 0; i < GRAM_LENGTH; i++) {
+            gram = gram << 8 | (sample[offset + i] & 0xFF);
+        }
+        return gram;
+    }
+
+    private static class Segment {
+        private final byte[] sample;
+        private final int offset;
+        private final int length;
+        private long score;
+
+        private Segment(byte[] sample, int offset, int length) {
+            this.sample = sample;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Only grams that occur more than once are worth keeping in the dictionary
+         */
+        private long score(Map<Long, Integer> frequencies) {
+            long score = 0;
+            for (int i = offset; i + GRAM_LENGTH <= offset + length; i++) {
+                final int frequency = frequencies.get(gram(sample, i));
+                if (frequency > 1) score += frequency;
+            }
+            return score;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.janusgraph.dsl.step.AddAttachmentStep;
 import org.janusgraph.dsl.step.AddNoteStep;
 import org.janusgraph.dsl.step.AttachmentRawsStep;
+import org.janusgraph.dsl.step.AttachmentStreamStep;
 import org.janusgraph.dsl.step.AttachmentsStep;
 import org.janusgraph.dsl.step.KydsjDropStep;
 import org.janusgraph.dsl.step.NotesStep;
@@ -38,6 +39,7 @@ import org.janusgraph.kydsj.serialize.MediaData;
 import org.janusgraph.kydsj.serialize.MediaDataRaw;
 import org.janusgraph.kydsj.serialize.Note;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -122,6 +124,23 @@ public interface KydsjTraversalDsl<S, E> extends GraphTraversal.Admin<S, E> {
         return this.asAdmin().addStep(new AttachmentsStep(this.asAdmin(),keys));
     }
 
+    /**
+     * 以流的方式查询对象附件的内容,附件内容在hdfs上时不会把整个文件读入内存,返回的流需要调用者关闭
+     * @return
+     */
+    public default GraphTraversal<S, InputStream> attachmentStream(final String... keys) {
+        return attachmentStream(0, Long.MAX_VALUE, keys);
+    }
+
+    /**
+     * 以流的方式查询对象附件内容中从start开始的最多length个字节,返回的流需要调用者关闭
+     * @return
+     */
+    public default GraphTraversal<S, InputStream> attachmentStream(final long start, final long length, final String... keys) {
+        this.asAdmin().getBytecode().addStep(Symbols.attachmentStream, start, length, keys);
+        return this.asAdmin().addStep(new AttachmentStreamStep(this.asAdmin(), start, length, keys));
+    }
+
     /**
      * 查询对象的所有附件的标题
      * @return
@@ -182,6 +201,7 @@ public interface KydsjTraversalDsl<S, E> extends GraphTraversal.Admin<S, E> {
         public static final String attachment = "attachment";
         public static final String attachments = "attachments";
         public static final String attachmentRaws = "attachmentRaws";
+        public static final String attachmentStream = "attachmentStream";
         public static final String dropExpand = "dropExpand";
     }
 }
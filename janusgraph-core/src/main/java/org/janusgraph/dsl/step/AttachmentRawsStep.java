@@ -18,64 +18,33 @@
  */
 package org.janusgraph.dsl.step;
 
-import org.apache.commons.collections.iterators.EmptyIterator;
 import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
-import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
-import org.apache.tinkerpop.gremlin.process.traversal.step.Configuring;
-import org.apache.tinkerpop.gremlin.process.traversal.step.map.FlatMapStep;
-import org.apache.tinkerpop.gremlin.process.traversal.step.util.Parameters;
-import org.apache.tinkerpop.gremlin.process.traversal.traverser.TraverserRequirement;
-import org.apache.tinkerpop.gremlin.structure.Element;
+import org.janusgraph.graphdb.internal.InternalVertex;
+import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
 import org.janusgraph.graphdb.vertices.AbstractVertex;
 import org.janusgraph.kydsj.serialize.MediaDataRaw;
 
-import java.util.Collections;
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Marko A. Rodriguez (http://markorodriguez.com)
  */
-public class AttachmentRawsStep extends FlatMapStep<Element, MediaDataRaw> implements AutoCloseable, Configuring {
-
-    protected Parameters parameters = new Parameters();
-    private String [] keys;
+public class AttachmentRawsStep extends VertexContentStep<MediaDataRaw> {
 
     public AttachmentRawsStep(final Traversal.Admin traversal, String [] keys) {
-        super(traversal);
-        this.keys=keys;
-    }
-
-    @Override
-    public Parameters getParameters() {
-        return this.parameters;
+        super(traversal, keys);
     }
 
     @Override
-    public void configure(final Object... keyValues) {
-        this.parameters.set(null, keyValues);
-    }
-
-    @Override
-    protected Iterator<MediaDataRaw> flatMap(final Traverser.Admin<Element> traverser) {
-        Element element = traverser.get();
-        if(element instanceof AbstractVertex){
-            AbstractVertex vertex=(AbstractVertex)element;
-            Iterator<MediaDataRaw> attachments =  vertex.attachmentRaws(keys);
-            return attachments;
-        }
-        Iterator iterator = EmptyIterator.INSTANCE;
-        return iterator;
-    }
-
-
-    @Override
-    public Set<TraverserRequirement> getRequirements() {
-        return Collections.singleton(TraverserRequirement.OBJECT);
+    protected Iterator<MediaDataRaw> query(AbstractVertex vertex) {
+        return vertex.attachmentRaws(keys);
     }
 
     @Override
-    public void close() throws Exception {
-        closeIterator();
+    protected Map<InternalVertex, List<MediaDataRaw>> multiQuery(StandardJanusGraphTx tx, Collection<InternalVertex> vertices) {
+        return tx.getMediaDataRaws(vertices, keys);
     }
 }
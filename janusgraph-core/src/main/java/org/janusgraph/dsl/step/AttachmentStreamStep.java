@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.janusgraph.dsl.step;
+
+import org.apache.commons.collections.iterators.EmptyIterator;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.Configuring;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.FlatMapStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.Parameters;
+import org.apache.tinkerpop.gremlin.process.traversal.traverser.TraverserRequirement;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.janusgraph.graphdb.vertices.AbstractVertex;
+import org.janusgraph.kydsj.serialize.MediaData;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * 以流的方式返回对象附件的内容,附件内容在hdfs上时不会把整个文件读入内存.
+ * Each returned stream has to be closed by the caller.
+ */
+public class AttachmentStreamStep extends FlatMapStep<Element, InputStream> implements AutoCloseable, Configuring {
+
+    protected Parameters parameters = new Parameters();
+    private final String [] keys;
+    private final long start;
+    private final long length;
+
+    public AttachmentStreamStep(final Traversal.Admin traversal, long start, long length, String [] keys) {
+        super(traversal);
+        this.keys=keys;
+        this.start=start;
+        this.length=length;
+    }
+
+    @Override
+    public Parameters getParameters() {
+        return this.parameters;
+    }
+
+    @Override
+    public void configure(final Object... keyValues) {
+        this.parameters.set(null, keyValues);
+    }
+
+    @Override
+    protected Iterator<InputStream> flatMap(final Traverser.Admin<Element> traverser) {
+        Element element = traverser.get();
+        if(element instanceof AbstractVertex){
+            AbstractVertex vertex=(AbstractVertex)element;
+            Iterator<MediaData> attachments = vertex.attachments(keys);
+            return new Iterator<InputStream>() {
+                @Override
+                public boolean hasNext() {
+                    return attachments.hasNext();
+                }
+
+                @Override
+                public InputStream next() {
+                    return attachments.next().openContentStream(start, length);
+                }
+            };
+        }
+        Iterator iterator = EmptyIterator.INSTANCE;
+        return iterator;
+    }
+
+    @Override
+    public Set<TraverserRequirement> getRequirements() {
+        return Collections.singleton(TraverserRequirement.OBJECT);
+    }
+
+    @Override
+    public void close() throws Exception {
+        closeIterator();
+    }
+}
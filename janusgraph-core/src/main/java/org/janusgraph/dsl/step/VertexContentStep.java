@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.janusgraph.dsl.step;
+
+import org.apache.commons.collections.iterators.EmptyIterator;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.Configuring;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.FlatMapStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.Parameters;
+import org.apache.tinkerpop.gremlin.process.traversal.traverser.TraverserRequirement;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalInterruptedException;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.janusgraph.core.JanusGraphException;
+import org.janusgraph.graphdb.internal.InternalVertex;
+import org.janusgraph.graphdb.tinkerpop.optimize.step.MultiQueriable;
+import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
+import org.janusgraph.graphdb.vertices.AbstractVertex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base of the steps reading the attachments or notes of vertices. 读取顶点附件和注释的step
+ * <p>
+ * When multi queries are enabled through {@code query.batch}, the vertices of upcoming traversers are registered by
+ * the preceding {@link org.janusgraph.graphdb.tinkerpop.optimize.step.JanusGraphMultiQueryStep} and loaded together
+ * with one multi query per store. With {@code query.limit-batch-size} the batch is bounded by the barrier in front of
+ * this step, otherwise all vertices of the traversal are loaded at once.
+ */
+public abstract class VertexContentStep<E> extends FlatMapStep<Element, E> implements AutoCloseable, Configuring, MultiQueriable<Element, E> {
+
+    protected Parameters parameters = new Parameters();
+    protected final String[] keys;
+
+    private boolean useMultiQuery = false;
+    private Set<Vertex> verticesToPrefetch = new HashSet<>();
+    private Map<InternalVertex, List<E>> multiQueryResults = null;
+
+    protected VertexContentStep(final Traversal.Admin traversal, String[] keys) {
+        super(traversal);
+        this.keys = keys;
+    }
+
+    /**
+     * Reads the content of a single vertex.
+     */
+    protected abstract Iterator<E> query(AbstractVertex vertex);
+
+    /**
+     * Reads the content of all given vertices at once.
+     */
+    protected abstract Map<InternalVertex, List<E>> multiQuery(StandardJanusGraphTx tx, Collection<InternalVertex> vertices);
+
+    @Override
+    public Parameters getParameters() {
+        return this.parameters;
+    }
+
+    @Override
+    public void configure(final Object... keyValues) {
+        this.parameters.set(null, keyValues);
+    }
+
+    @Override
+    public void setUseMultiQuery(boolean useMultiQuery) {
+        this.useMultiQuery = useMultiQuery;
+    }
+
+    @Override
+    public void registerFutureVertexForPrefetching(Vertex futureVertex) {
+        if (futureVertex instanceof AbstractVertex) {
+            verticesToPrefetch.add(futureVertex);
+        }
+    }
+
+    /**
+     * Called when the content of a vertex is not among the results of the last batch.
+     */
+    private void prefetchNextBatch(AbstractVertex vertex) {
+        final List<InternalVertex> vertices = new ArrayList<>(verticesToPrefetch.size() + 1);
+        vertices.add(vertex);
+        for (Vertex futureVertex : verticesToPrefetch) {
+            if (!futureVertex.equals(vertex)) vertices.add((InternalVertex) futureVertex);
+        }
+        verticesToPrefetch.clear();
+        try {
+            multiQueryResults = multiQuery(vertex.tx(), vertices);
+        } catch (JanusGraphException janusGraphException) {
+            if (janusGraphException.isCausedBy(InterruptedException.class)) {
+                throw new TraversalInterruptedException();
+            }
+            throw janusGraphException;
+        }
+    }
+
+    @Override
+    protected Iterator<E> flatMap(final Traverser.Admin<Element> traverser) {
+        Element element = traverser.get();
+        if (!(element instanceof AbstractVertex)) {
+            return EmptyIterator.INSTANCE;
+        }
+        AbstractVertex vertex = (AbstractVertex) element;
+        if (useMultiQuery) {
+            if (multiQueryResults == null || !multiQueryResults.containsKey(vertex)) {
+                prefetchNextBatch(vertex);
+            }
+            return multiQueryResults.get(vertex).iterator();
+        }
+        return query(vertex);
+    }
+
+    @Override
+    public Set<TraverserRequirement> getRequirements() {
+        return Collections.singleton(TraverserRequirement.OBJECT);
+    }
+
+    @Override
+    public VertexContentStep<E> clone() {
+        final VertexContentStep<E> clone = (VertexContentStep<E>) super.clone();
+        clone.verticesToPrefetch = new HashSet<>();
+        clone.multiQueryResults = null;
+        return clone;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        verticesToPrefetch.clear();
+        multiQueryResults = null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        closeIterator();
+    }
+}
@@ -54,6 +54,7 @@ import org.janusgraph.graphdb.query.index.BruteForceIndexSelectionStrategy;
 import org.janusgraph.graphdb.query.index.IndexSelectionStrategy;
 import org.janusgraph.graphdb.query.index.ThresholdBasedIndexSelectionStrategy;
 import org.janusgraph.graphdb.transaction.StandardTransactionBuilder;
+import org.janusgraph.graphdb.transaction.vertexcache.VertexCacheType;
 import org.janusgraph.graphdb.types.system.ImplicitKey;
 import org.janusgraph.util.StringUtils;
 import org.janusgraph.util.stats.MetricManager;
@@ -411,6 +412,45 @@ public class GraphDatabaseConfiguration {
             "triggers eviction when set to 0).",
             ConfigOption.Type.GLOBAL_OFFLINE, 10000L);
 
+    /**
+     * Size of the off-heap cache of the edgestore in bytes. If positive, the adjacency lists of the edgestore are cached
+     * in direct memory instead of the heap, see {@link org.janusgraph.diskstorage.keycolumnvalue.cache.OffHeapKCVSCache}.
+     * Only used when {@link #DB_CACHE} is enabled.
+     * edgestore的堆外缓存大小
+     */
+    public static final ConfigOption<Long> DB_CACHE_OFF_HEAP_SIZE = new ConfigOption<>(CACHE_NS,"db-cache-off-heap-size",
+            "edgestore堆外缓存的字节数, 只有在开启db-cache时生效. 大于0时edgestore的数据缓存在堆外内存中, db-cache-size只用于索引存储的部分, " +
+            "0表示edgestore使用堆内缓存",
+            ConfigOption.Type.MASKABLE, 0L);
+
+    public static final ConfigOption<Integer> DB_CACHE_OFF_HEAP_PAGE_SIZE = new ConfigOption<>(CACHE_NS,"db-cache-off-heap-page-size",
+            "堆外缓存内存页的字节数. 每个缓存的查询结果至少占用一页",
+            ConfigOption.Type.MASKABLE, 4096);
+
+    /**
+     * Size of the database level cache of the attachment, note and property_properties stores. These caches are only
+     * used when {@link #DB_CACHE} is enabled and a size of 0 disables the cache of the respective store.
+     * 附件、注释和属性的属性列族的缓存大小
+     */
+    public static final ConfigOption<Double> DB_CACHE_ATTACHMENT_SIZE = new ConfigOption<>(CACHE_NS,"attachment-cache-size",
+            "附件(attachment)列族的数据库级缓存大小, 只有在开启db-cache时生效. 0到1之间的值表示占堆内存的比例, " +
+            "大于1的值表示字节数, 0表示不缓存",
+            ConfigOption.Type.MASKABLE, 0.0);
+
+    public static final ConfigOption<Double> DB_CACHE_NOTE_SIZE = new ConfigOption<>(CACHE_NS,"note-cache-size",
+            "注释(note)列族的数据库级缓存大小, 只有在开启db-cache时生效. 0到1之间的值表示占堆内存的比例, " +
+            "大于1的值表示字节数, 0表示不缓存",
+            ConfigOption.Type.MASKABLE, 0.0);
+
+    public static final ConfigOption<Double> DB_CACHE_PROPERTY_PROPERTIES_SIZE = new ConfigOption<>(CACHE_NS,"property-properties-cache-size",
+            "属性的属性(property_properties)列族的数据库级缓存大小, 只有在开启db-cache时生效. 0到1之间的值表示占堆内存的比例, " +
+            "大于1的值表示字节数, 0表示不缓存",
+            ConfigOption.Type.MASKABLE, 0.0);
+
+    public static final ConfigOption<Long> DB_CACHE_SIDE_STORE_TIME = new ConfigOption<>(CACHE_NS,"side-store-cache-time",
+            "附件、注释和属性的属性列族缓存的过期时间(毫秒). 0表示不过期",
+            ConfigOption.Type.GLOBAL_OFFLINE, 10000L);
+
     /**
      * Configures the maximum number of recently-used vertices cached by a transaction. The smaller the cache size, the
      * less memory a transaction can consume at maximum. For many concurrent, long running transactions in memory constraint
@@ -425,6 +465,16 @@ public class GraphDatabaseConfiguration {
             "Maximum size of the transaction-level cache of recently-used vertices.",
             ConfigOption.Type.MASKABLE, 20000);
 
+    public static final ConfigOption<VertexCacheType> TX_CACHE_TYPE = new ConfigOption<>(CACHE_NS,"tx-cache-type",
+            "事务级顶点缓存的实现。GUAVA按顶点数LRU淘汰;TINYLFU使用W-TinyLFU淘汰,分段加锁且读取不加锁," +
+            "并可通过tx-cache-max-bytes按顶点估算的字节数限制大小",
+            ConfigOption.Type.MASKABLE, VertexCacheType.class, VertexCacheType.GUAVA);
+
+    public static final ConfigOption<Long> TX_CACHE_MAX_BYTES = new ConfigOption<>(CACHE_NS,"tx-cache-max-bytes",
+            "tx-cache-type为TINYLFU时事务级顶点缓存的最大估算字节数,按顶点及已加载关系的大小计算。" +
+            "0表示按tx-cache-size限制顶点数",
+            ConfigOption.Type.MASKABLE, 0L);
+
     /**
      * Configures the initial size of the dirty (modified) vertex map used by a transaction.  All vertices created or
      * updated by a transaction are held in that transaction's dirty vertex map until the transaction commits.
@@ -506,6 +556,42 @@ public class GraphDatabaseConfiguration {
     public static final ConfigOption<Integer> LARGE_CONTENT_UPLOAD_HDFS_SIZE = new ConfigOption<>(STORAGE_NS,"large-content-upload-hdfs-size",
         "限制多大的正文、附件内容需要上传到hdfs上(默认5M)",
         ConfigOption.Type.LOCAL, 5242880, ConfigOption.positiveInt());
+    public static final ConfigOption<Integer> LARGE_CONTENT_UPLOAD_HDFS_THREADS = new ConfigOption<>(STORAGE_NS,"large-content-upload-hdfs-threads",
+        "提交事务时并行上传到hdfs的线程数,同一事务中的多个大附件会同时上传",
+        ConfigOption.Type.LOCAL, 4, ConfigOption.positiveInt());
+    public static final ConfigOption<Integer> LARGE_CONTENT_UPLOAD_HDFS_RETRIES = new ConfigOption<>(STORAGE_NS,"large-content-upload-hdfs-retries",
+        "单个文件上传hdfs失败后的重试次数,以流方式写入的内容无法重试",
+        ConfigOption.Type.LOCAL, 3, ConfigOption.nonnegativeInt());
+    public static final ConfigOption<Duration> LARGE_CONTENT_UPLOAD_HDFS_RETRY_WAIT = new ConfigOption<>(STORAGE_NS,"large-content-upload-hdfs-retry-wait",
+        "上传hdfs失败后第一次重试前的等待时间,之后每次重试等待时间翻倍",
+        ConfigOption.Type.LOCAL, Duration.ofMillis(200L));
+    public static final ConfigOption<Duration> LARGE_CONTENT_DELETE_HDFS_INTERVAL = new ConfigOption<>(STORAGE_NS,"large-content-delete-hdfs-interval",
+        "删除顶点或附件时hdfs上的文件先记录到墓碑文件,由后台线程按此间隔批量删除",
+        ConfigOption.Type.LOCAL, Duration.ofSeconds(60L));
+    public static final ConfigOption<Integer> LARGE_CONTENT_DELETE_HDFS_BATCH_SIZE = new ConfigOption<>(STORAGE_NS,"large-content-delete-hdfs-batch-size",
+        "后台线程每次最多删除的hdfs文件数",
+        ConfigOption.Type.LOCAL, 1000, ConfigOption.positiveInt());
+
+    public static final ConfigOption<String> PROPERTY_PROPERTIES_LAYOUT = new ConfigOption<>(STORAGE_NS,"property-properties-layout",
+        "属性的属性(property_properties)的列格式. 'md5'使用属性值toString后md5的8个字符作为列前缀, " +
+        "'hash64'使用序列化后属性值的8字节murmur3 hash作为列前缀. 两种格式都可以读取",
+        ConfigOption.Type.GLOBAL_OFFLINE, "md5");
+
+    public static final ConfigOption<String> ATTACHMENT_COMPRESSION = new ConfigOption<>(STORAGE_NS,"attachment-compression",
+        "附件列族值的压缩算法, 'none'不压缩, 'deflate'使用deflate压缩. 上传到hdfs的内容不压缩, 未压缩的旧数据可以直接读取",
+        ConfigOption.Type.MASKABLE, "none");
+    public static final ConfigOption<String> NOTE_COMPRESSION = new ConfigOption<>(STORAGE_NS,"note-compression",
+        "注释列族值的压缩算法, 'none'不压缩, 'deflate'使用deflate压缩. 未压缩的旧数据可以直接读取",
+        ConfigOption.Type.MASKABLE, "none");
+    public static final ConfigOption<Integer> VALUE_COMPRESSION_LEVEL = new ConfigOption<>(STORAGE_NS,"value-compression-level",
+        "附件和注释值的压缩级别, 1最快, 9压缩率最高",
+        ConfigOption.Type.MASKABLE, 1, level -> level != null && level >= 1 && level <= 9);
+    public static final ConfigOption<Integer> VALUE_COMPRESSION_MIN_SIZE = new ConfigOption<>(STORAGE_NS,"value-compression-min-size",
+        "附件和注释的值小于这个字节数时不压缩",
+        ConfigOption.Type.MASKABLE, 64, ConfigOption.nonnegativeInt());
+    public static final ConfigOption<String> NOTE_COMPRESSION_DICTIONARY = new ConfigOption<>(STORAGE_NS,"note-compression-dictionary",
+        "注释压缩使用的预置字典文件, 由ValueCompression.trainDictionary根据注释样本生成. 读取用字典压缩的注释的所有实例都必须配置同一个字典",
+        ConfigOption.Type.MASKABLE, String.class);
 
     /**
      * Enables batch loading which improves write performance but assumes that only one thread is interacting with
@@ -817,6 +903,73 @@ public class GraphDatabaseConfiguration {
             "This helps avoid transaction commits waiting on ID reservation even if the block size is relatively small.",
             ConfigOption.Type.MASKABLE, 0.3);
 
+    /**
+     * The codec used to turn vertex ids into row keys. The compact codec packs numeric and hex ids into binary keys
+     * and can still decode keys written by the string codec, so a graph can be switched to it and then migrated with
+     * {@link org.janusgraph.graphdb.olap.job.IDKeyMigrationJob} while it is offline.
+     */
+    public static final ConfigOption<String> IDS_KEY_CODEC = new ConfigOption<>(IDS_NS,"key-codec",
+            "Name of the codec that converts vertex ids into storage row keys or full class name of a custom " +
+            "IDKeyCodec. 'string' stores the UTF-8 bytes of the id, 'compact' stores numeric and hex ids as packed " +
+            "binary. Existing rows have to be rewritten with IDKeyMigrationJob after switching, the graph must stay " +
+            "offline until the migration is finished because point reads do not find rows with the old key layout.",
+            ConfigOption.Type.GLOBAL_OFFLINE, "string");
+
+    /**
+     * The function that maps user provided vertex ids onto partitions. The partition is part of the vertex id,
+     * so this can only be chosen when the graph is created.
+     */
+    public static final ConfigOption<String> IDS_PARTITION_HASH = new ConfigOption<>(IDS_NS,"partition-hash",
+            "Name of the hash function that places vertices with user provided ids into partitions or full class name " +
+            "of a custom PartitionHashFunction. 'java' uses String.hashCode, 'murmur3' uses a 64 bit murmur3 hash of " +
+            "the id bytes which spreads ids more evenly. Cannot be changed once vertices with user provided ids exist.",
+            ConfigOption.Type.FIXED, "java");
+
+    /**
+     * Adapts the id block size of every partition and id namespace to its consumption rate, so that bulk loads
+     * renew blocks less often, and requests the next block in time for the observed renewal latency.
+     */
+    public static final ConfigOption<Boolean> IDS_ADAPTIVE_BLOCK_SIZE = new ConfigOption<>(IDS_NS,"adaptive-block-size",
+            "When true, the size of the id blocks of a partition and id namespace follows how fast its ids are " +
+            "consumed, between ids.block-size and ids.adaptive-max-factor times of it, and the next block is reserved " +
+            "early enough for the observed reservation latency. Do not enable while instances of older versions, which " +
+            "assume a fixed block size, share the graph.",
+            ConfigOption.Type.MASKABLE, false);
+
+    public static final ConfigOption<Duration> IDS_ADAPTIVE_BLOCK_DURATION = new ConfigOption<>(IDS_NS,"adaptive-block-duration",
+            "With ids.adaptive-block-size, the time an id block should last at the observed consumption rate",
+            ConfigOption.Type.MASKABLE, Duration.ofSeconds(30));
+
+    public static final ConfigOption<Integer> IDS_ADAPTIVE_MAX_FACTOR = new ConfigOption<>(IDS_NS,"adaptive-max-factor",
+            "With ids.adaptive-block-size, the largest id block as a multiple of the base block size of the id namespace",
+            ConfigOption.Type.MASKABLE, 64, ConfigOption.positiveInt());
+
+    /**
+     * The pool that hands out the counts of vertex and relation ids. The snowflake pool generates time ordered ids
+     * locally and needs a worker id per instance, which is leased from zookeeper unless configured.
+     */
+    public static final ConfigOption<String> IDS_POOL = new ConfigOption<>(IDS_NS,"pool",
+            "Generator of vertex and relation ids. 'standard' reserves id blocks through the id authority, " +
+            "'snowflake' generates 64 bit time ordered ids from the clock, a worker id and a per thread sequence " +
+            "without coordination. The worker id is leased from zookeeper (graph.registry-zookeeper-enable) " +
+            "unless ids.worker-id is set. Schema ids always come from the id authority.",
+            ConfigOption.Type.GLOBAL_OFFLINE, "standard");
+
+    public static final ConfigOption<Integer> IDS_WORKER_ID = new ConfigOption<>(IDS_NS,"worker-id",
+            "Worker id of this instance for the snowflake id pool. Has to be unique among all running instances " +
+            "and fit into ids.worker-bits. When not set, a worker id is leased from zookeeper.",
+            ConfigOption.Type.LOCAL, Integer.class);
+
+    public static final ConfigOption<Integer> IDS_WORKER_BITS = new ConfigOption<>(IDS_NS,"worker-bits",
+            "Number of bits of snowflake ids that hold the worker id, which limits the number of instances " +
+            "generating ids at the same time to 2^worker-bits",
+            ConfigOption.Type.GLOBAL_OFFLINE, 10);
+
+    public static final ConfigOption<Integer> IDS_STRIPE_BITS = new ConfigOption<>(IDS_NS,"stripe-bits",
+            "Number of bits of snowflake ids that select the sequence stripe of a thread. Threads of different " +
+            "stripes never contend, the remaining bits hold the sequence within a millisecond.",
+            ConfigOption.Type.GLOBAL_OFFLINE, 4);
+
     // ################ IDAUTHORITY ###################
     // ################################################
 
@@ -1215,6 +1368,8 @@ public class GraphDatabaseConfiguration {
     private boolean forceIndexUsage;
     private boolean batchLoading;
     private int txVertexCacheSize;
+    private VertexCacheType txVertexCacheType;
+    private long txVertexCacheMaxBytes;
     private int txDirtyVertexSize;
     private DefaultSchemaMaker defaultSchemaMaker;
     private boolean hasDisabledSchemaConstraints;
@@ -1268,6 +1423,14 @@ public class GraphDatabaseConfiguration {
         return txVertexCacheSize;
     }
 
+    public VertexCacheType getTxVertexCacheType() {
+        return txVertexCacheType;
+    }
+
+    public long getTxVertexCacheMaxBytes() {
+        return txVertexCacheMaxBytes;
+    }
+
     public int getTxDirtyVertexSize() {
         return txDirtyVertexSize;
     }
@@ -1437,6 +1600,8 @@ public class GraphDatabaseConfiguration {
         hasDisabledSchemaConstraints = !configuration.get(SCHEMA_CONSTRAINTS);
 
         txVertexCacheSize = configuration.get(TX_CACHE_SIZE);
+        txVertexCacheType = configuration.get(TX_CACHE_TYPE);
+        txVertexCacheMaxBytes = configuration.get(TX_CACHE_MAX_BYTES);
         //Check for explicit dirty vertex cache size first, then fall back on batch-loading-dependent default
         if (configuration.has(TX_DIRTY_SIZE)) {
             txDirtyVertexSize = configuration.get(TX_DIRTY_SIZE);
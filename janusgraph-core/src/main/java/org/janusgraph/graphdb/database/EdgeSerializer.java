@@ -48,7 +48,6 @@ import org.janusgraph.graphdb.relations.StandardVertexProperty;
 import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
 import org.janusgraph.graphdb.types.TypeInspector;
 import org.janusgraph.graphdb.types.system.ImplicitKey;
-import org.janusgraph.graphdb.util.MD5Util;
 import org.janusgraph.util.datastructures.Interval;
 import org.janusgraph.util.system.DefaultFields;
 import org.janusgraph.util.system.DefaultKeywordField;
@@ -83,11 +82,22 @@ public class EdgeSerializer implements RelationReader {
     private final Serializer serializer;
     private final Boolean largeContentUploadHdfsEnabled;
     private final Integer largeContentUploadHdfsSize;
+    private final PropertyPropertyLayout propertyPropertyLayout;
 
     public EdgeSerializer(Serializer serializer,Boolean largeContentUploadHdfsEnabled,Integer largeContentUploadHdfsSize) {
+        this(serializer, largeContentUploadHdfsEnabled, largeContentUploadHdfsSize, PropertyPropertyLayout.MD5);
+    }
+
+    public EdgeSerializer(Serializer serializer,Boolean largeContentUploadHdfsEnabled,Integer largeContentUploadHdfsSize,
+                          PropertyPropertyLayout propertyPropertyLayout) {
         this.serializer = serializer;
         this.largeContentUploadHdfsEnabled=largeContentUploadHdfsEnabled;
         this.largeContentUploadHdfsSize=largeContentUploadHdfsSize;
+        this.propertyPropertyLayout=propertyPropertyLayout;
+    }
+
+    public PropertyPropertyLayout getPropertyPropertyLayout() {
+        return propertyPropertyLayout;
     }
 
     public Boolean getLargeContentUploadHdfsEnabled() {
@@ -411,11 +421,19 @@ public class EdgeSerializer implements RelationReader {
     public List<StaticArrayEntry> writeMulitPropertyProperties(AbstractVertexProperty vertexProperty,
                                                                InternalRelationType type,
                                                                StandardJanusGraphTx tx) {
+        return writeMulitPropertyProperties(vertexProperty, type, tx, propertyPropertyLayout);
+    }
+
+    public List<StaticArrayEntry> writeMulitPropertyProperties(AbstractVertexProperty vertexProperty,
+                                                               InternalRelationType type,
+                                                               StandardJanusGraphTx tx,
+                                                               PropertyPropertyLayout layout) {
         Iterator<? extends Property<Object>> properties = vertexProperty.allProperties();
         List<StaticArrayEntry> entries=new ArrayList<>();
         String typeId = type.longId();
         String relationId = vertexProperty.longId();
-        String propertyValueMD5 = MD5Util.getMD8(vertexProperty.value());
+        PropertyKey propertyKey = vertexProperty.propertyKey();
+        Object propertyValue = vertexProperty.value();
         while (properties.hasNext()){
             Property<Object> property=properties.next();
             String key = property.key();
@@ -424,7 +442,7 @@ public class EdgeSerializer implements RelationReader {
                 Object valueDirect = property.value();
                 DataOutput out = serializer.getDataOutput(DEFAULT_CAPACITY);
                 out.writeObjectNotNull(typeId);
-                out.writeObjectNotNull(propertyValueMD5);
+                layout.writeValuePrefix(out, serializer, propertyKey, propertyValue);
                 out.writeObjectNotNull(propertyPropertyKey.longId());
                 writePropertyValue(out, propertyPropertyKey, valueDirect);
                 final int valuePosition = out.getPosition();
@@ -457,12 +475,13 @@ public class EdgeSerializer implements RelationReader {
                     String typeId = type.longId();
                     //Multiplicity multiplicity = type.multiplicity();
                     String relationId = vertexProperty.longId();
-                    String propertyValueMD5 = MD5Util.getMD8(vertexProperty.value());
+                    PropertyKey propertyKey = vertexProperty.propertyKey();
+                    Object propertyValue = vertexProperty.value();
                     for (Object valueDirect : dsrProperties) {
                         //Object valueDirect = vertexProperty.getValueDirect(propertyPropertyKey);
                         DataOutput out = serializer.getDataOutput(DEFAULT_CAPACITY);
                         out.writeObjectNotNull(typeId);
-                        out.writeObjectNotNull(propertyValueMD5);
+                        propertyPropertyLayout.writeValuePrefix(out, serializer, propertyKey, propertyValue);
                         out.writeObjectNotNull(dsr.longId());
                         writePropertyValue(out, dsr, valueDirect);
                         final int valuePosition = out.getPosition();
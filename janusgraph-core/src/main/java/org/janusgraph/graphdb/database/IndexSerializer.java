@@ -48,6 +48,7 @@ import org.janusgraph.diskstorage.PropertyPropertyInfo;
 import org.janusgraph.diskstorage.ReadBuffer;
 import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.diskstorage.configuration.Configuration;
+import org.janusgraph.diskstorage.indexing.IndexAggregation;
 import org.janusgraph.diskstorage.indexing.IndexEntry;
 import org.janusgraph.diskstorage.indexing.IndexFeatures;
 import org.janusgraph.diskstorage.indexing.IndexInformation;
@@ -936,6 +937,22 @@ public class IndexSerializer {
         return tx.indexQueryCount(index.getBackingIndexName(), query.getMixedQuery());
     }
 
+    /**
+     * Computes an aggregation over the given property key of the elements matching a mixed index query in the index
+     * backend.
+     *
+     * @return the aggregation result as described in {@link IndexAggregation}, or null if the backend cannot compute it
+     */
+    public Object aggregate(final JointIndexQuery.Subquery query, final IndexAggregation.Type type, final PropertyKey key,
+                            final Number interval, final BackendTransaction tx) {
+        final IndexType index = query.getIndex();
+        assert index.isMixedIndex();
+        final String field = key2Field((MixedIndexType) index, key);
+        final IndexAggregation aggregation = type == IndexAggregation.Type.HISTOGRAM
+            ? IndexAggregation.histogram(field, interval) : IndexAggregation.of(type, field);
+        return tx.indexAggregate(index.getBackingIndexName(), query.getMixedQuery(), aggregation);
+    }
+
     public MultiKeySliceQuery getQuery(final CompositeIndexType index, List<Object[]> values) {
         final List<KeySliceQuery> ksqs = new ArrayList<>(values.size());
         for (final Object[] value : values) {
@@ -0,0 +1,164 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.database;
+
+import com.google.common.collect.Multimap;
+import com.google.common.hash.HashFunction;
+import org.janusgraph.core.PropertyKey;
+import org.janusgraph.diskstorage.ReadBuffer;
+import org.janusgraph.diskstorage.util.HashUtility;
+import org.janusgraph.graphdb.database.serialize.DataOutput;
+import org.janusgraph.graphdb.database.serialize.InternalAttributeUtil;
+import org.janusgraph.graphdb.database.serialize.Serializer;
+import org.janusgraph.graphdb.util.MD5Util;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Column layout of the property_properties store.
+ * 属性的属性(property_properties)的列格式
+ * <p>
+ * Every column starts with the type id of the multi valued property followed by a prefix derived from the
+ * property value, so that the property properties of a single value can be read with a slice query:
+ * <ul>
+ *     <li>{@link #MD5}: characters 8 to 16 of the md5 hex digest of {@code value.toString()}, serialized as String.
+ *     This is the layout of all existing data.</li>
+ *     <li>{@link #HASH64}: {@link #HASH64_MARKER} followed by the first 8 bytes of the murmur3 hash over the
+ *     serialized property value.</li>
+ * </ul>
+ * The serialized md5 prefix is an 8 character ascii string whose length header never starts with
+ * {@link #HASH64_MARKER}, so both layouts can be told apart per column and readers handle a mix of both.
+ * <p>
+ * The column value holds the id of the property the column belongs to. Hashed columns are grouped by that id
+ * instead of the hash when loaded, and slice queries by hash drop columns of other properties, so two values
+ * with the same hash never see each other's property properties.
+ */
+public enum PropertyPropertyLayout {
+
+    MD5 {
+        @Override
+        public void writeValuePrefix(DataOutput out, Serializer serializer, PropertyKey key, Object value) {
+            out.writeObjectNotNull(MD5Util.getMD8(value));
+        }
+    },
+
+    HASH64 {
+        @Override
+        public void writeValuePrefix(DataOutput out, Serializer serializer, PropertyKey key, Object value) {
+            out.putByte(HASH64_MARKER);
+            out.putLong(hashValue(serializer, key, value));
+        }
+    };
+
+    /**
+     * First byte of the value prefix in the {@link #HASH64} layout
+     */
+    public static final byte HASH64_MARKER = 0;
+
+    private static final char HASH_TOKEN_PREFIX = '#';
+    private static final HashFunction HASH = HashUtility.LONG.get();
+
+    /**
+     * Writes the prefix for the given property value, must directly follow the property type id.
+     *
+     * @param out output positioned after the property type id
+     * @param serializer serializer of the graph
+     * @param key property key of the multi valued property
+     * @param value value of the multi valued property
+     */
+    public abstract void writeValuePrefix(DataOutput out, Serializer serializer, PropertyKey key, Object value);
+
+    public static PropertyPropertyLayout parse(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+
+    /**
+     * Hashes the property value as serialized in the edgestore.
+     */
+    public static long hashValue(Serializer serializer, PropertyKey key, Object value) {
+        DataOutput out = serializer.getDataOutput(32);
+        if (InternalAttributeUtil.hasGenericDataType(key)) {
+            out.writeClassAndObject(value);
+        } else {
+            out.writeObject(value, key.dataType());
+        }
+        return out.getStaticBuffer().as((array, offset, limit) -> HASH.hashBytes(array, offset, limit - offset).asLong());
+    }
+
+    /**
+     * Reads the value prefix of a column in either layout.
+     *
+     * @param buffer buffer positioned after the property type id
+     * @param serializer serializer of the graph
+     * @return the md5 characters for the {@link #MD5} layout or the hash as hex with a leading '#' for {@link #HASH64}
+     */
+    public static String readValuePrefix(ReadBuffer buffer, Serializer serializer) {
+        if (buffer.getByte(buffer.getPosition()) == HASH64_MARKER) {
+            buffer.getByte();
+            return HASH_TOKEN_PREFIX + Long.toHexString(buffer.getLong());
+        }
+        return serializer.readObjectNotNull(buffer, String.class);
+    }
+
+    public static boolean isHashed(String valuePrefix) {
+        return valuePrefix.charAt(0) == HASH_TOKEN_PREFIX;
+    }
+
+    /**
+     * Key under which a column is grouped when all property properties of a vertex are loaded. Legacy columns
+     * are grouped by value md5, hashed columns by the id of their property.
+     *
+     * @param propertyTypeId type id of the multi valued property
+     * @param valuePrefix result of {@link #readValuePrefix(ReadBuffer, Serializer)}
+     * @param propertyId property id stored in the column value
+     */
+    public static String groupKey(String propertyTypeId, String valuePrefix, String propertyId) {
+        if (isHashed(valuePrefix)) return propertyTypeId + HASH_TOKEN_PREFIX + propertyId;
+        return propertyTypeId + valuePrefix;
+    }
+
+    /**
+     * Whether a map keyed by {@link #groupKey(String, String, String)} contains columns of the {@link #MD5} layout.
+     */
+    public static boolean hasLegacyGroups(Multimap<String, ?> groups) {
+        if (groups == null) return false;
+        for (String groupKey : groups.keySet()) {
+            if (groupKey.indexOf(HASH_TOKEN_PREFIX) < 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the property properties of a property in a map keyed by {@link #groupKey(String, String, String)}.
+     * The md5 of the value is only computed if the map contains legacy columns.
+     *
+     * @param groups loaded property properties
+     * @param hasLegacyGroups result of {@link #hasLegacyGroups(Multimap)} for the map
+     * @param propertyTypeId type id of the property
+     * @param propertyId id of the property
+     * @param value value of the property
+     * @return the property properties, never null
+     */
+    public static <T> Collection<T> find(Multimap<String, T> groups, boolean hasLegacyGroups, String propertyTypeId,
+                                         String propertyId, Object value) {
+        if (groups == null) return Collections.emptyList();
+        Collection<T> result = groups.get(propertyTypeId + HASH_TOKEN_PREFIX + propertyId);
+        if (result.isEmpty() && hasLegacyGroups) {
+            result = groups.get(propertyTypeId + MD5Util.getMD8(value));
+        }
+        return result;
+    }
+}
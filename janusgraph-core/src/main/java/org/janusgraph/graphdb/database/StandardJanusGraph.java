@@ -24,6 +24,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 import org.apache.commons.lang.StringUtils;
 import org.apache.tinkerpop.gremlin.process.traversal.TraversalStrategies;
 import org.apache.tinkerpop.gremlin.structure.Direction;
@@ -46,6 +47,7 @@ import org.janusgraph.diskstorage.EntryMetaData;
 import org.janusgraph.diskstorage.ReadBuffer;
 import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.diskstorage.configuration.BasicConfiguration;
+import org.janusgraph.diskstorage.configuration.ConfigOption;
 import org.janusgraph.diskstorage.configuration.Configuration;
 import org.janusgraph.diskstorage.configuration.ModifiableConfiguration;
 import org.janusgraph.diskstorage.indexing.IndexEntry;
@@ -61,13 +63,16 @@ import org.janusgraph.diskstorage.log.Log;
 import org.janusgraph.diskstorage.log.Message;
 import org.janusgraph.diskstorage.log.ReadMarker;
 import org.janusgraph.diskstorage.log.kcvs.KCVSLog;
+import org.janusgraph.diskstorage.util.BackendCompression;
 import org.janusgraph.diskstorage.util.BufferUtil;
 import org.janusgraph.diskstorage.util.RecordIterator;
 import org.janusgraph.diskstorage.util.StaticArrayEntry;
+import org.janusgraph.diskstorage.util.ValueCompression;
 import org.janusgraph.diskstorage.util.time.TimestampProvider;
 import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
 import org.janusgraph.graphdb.database.cache.SchemaCache;
 import org.janusgraph.graphdb.database.idassigner.Preconditions;
+import org.janusgraph.graphdb.database.idassigner.SnowflakeIDPool;
 import org.janusgraph.graphdb.database.idassigner.VertexIDAssigner;
 import org.janusgraph.graphdb.database.idhandling.IDHandler;
 import org.janusgraph.graphdb.database.leader.RegistryZookeeper;
@@ -93,6 +98,7 @@ import org.janusgraph.graphdb.tinkerpop.optimize.strategy.AdjacentVertexHasUniqu
 import org.janusgraph.graphdb.tinkerpop.optimize.strategy.AdjacentVertexIsOptimizerStrategy;
 import org.janusgraph.graphdb.tinkerpop.optimize.strategy.JanusGraphIoRegistrationStrategy;
 import org.janusgraph.graphdb.tinkerpop.optimize.strategy.JanusGraphLocalQueryOptimizerStrategy;
+import org.janusgraph.graphdb.tinkerpop.optimize.strategy.JanusGraphMixedIndexAggregationStrategy;
 import org.janusgraph.graphdb.tinkerpop.optimize.strategy.JanusGraphMixedIndexCountStrategy;
 import org.janusgraph.graphdb.tinkerpop.optimize.strategy.JanusGraphMultiQueryStrategy;
 import org.janusgraph.graphdb.tinkerpop.optimize.strategy.JanusGraphStepStrategy;
@@ -109,14 +115,21 @@ import org.janusgraph.kydsj.ContentStatus;
 import org.janusgraph.kydsj.serialize.MediaData;
 import org.janusgraph.kydsj.serialize.MediaDataRaw;
 import org.janusgraph.kydsj.serialize.Note;
+import org.janusgraph.kydsj.serialize.attribute.MediaDataSerializer;
 import org.janusgraph.util.system.IOUtils;
 import org.janusgraph.util.system.TXUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -130,10 +143,17 @@ import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.StreamSupport;
 
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.ATTACHMENT_COMPRESSION;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_WORKER_ID;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.LARGE_CONTENT_UPLOAD_HDFS_ENABLED;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.LARGE_CONTENT_UPLOAD_HDFS_SIZE;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.NOTE_COMPRESSION;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.NOTE_COMPRESSION_DICTIONARY;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.PROPERTY_PROPERTIES_LAYOUT;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.REGISTRATION_TIME;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.REPLACE_INSTANCE_IF_EXISTS;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.VALUE_COMPRESSION_LEVEL;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.VALUE_COMPRESSION_MIN_SIZE;
 import static org.janusgraph.graphdb.util.Constants.HDFS_MEDIA_MEDIATYPE;
 
 public class StandardJanusGraph extends JanusGraphBlueprintsGraph {
@@ -153,6 +173,7 @@ public class StandardJanusGraph extends JanusGraphBlueprintsGraph {
                                JanusGraphLocalQueryOptimizerStrategy.instance(),
                                JanusGraphMultiQueryStrategy.instance(),
                                JanusGraphMixedIndexCountStrategy.instance(),
+                               JanusGraphMixedIndexAggregationStrategy.instance(),
                                JanusGraphStepStrategy.instance(),
                                JanusGraphIoRegistrationStrategy.instance());
 
@@ -198,6 +219,8 @@ public class StandardJanusGraph extends JanusGraphBlueprintsGraph {
     private final String uniqueInstanceId;
     private final Boolean largeContentUploadHdfsEnabled;
     private final Integer largeContentUploadHdfsSize;
+    private final BackendCompression attachmentCompression;
+    private final BackendCompression noteCompression;
 
     public StandardJanusGraph(GraphDatabaseConfiguration configuration) {
 
@@ -215,7 +238,10 @@ public class StandardJanusGraph extends JanusGraphBlueprintsGraph {
                 this.backend.getIndexInformation(), storeFeatures.isDistributed() && storeFeatures.isKeyOrdered());
         this.largeContentUploadHdfsEnabled= configuration.getConfiguration().get(LARGE_CONTENT_UPLOAD_HDFS_ENABLED);
         this.largeContentUploadHdfsSize= configuration.getConfiguration().get(LARGE_CONTENT_UPLOAD_HDFS_SIZE);
-        this.edgeSerializer = new EdgeSerializer(this.serializer,this.largeContentUploadHdfsEnabled,this.largeContentUploadHdfsSize);
+        this.attachmentCompression = getValueCompression(configuration.getConfiguration(), ATTACHMENT_COMPRESSION, null);
+        this.noteCompression = getValueCompression(configuration.getConfiguration(), NOTE_COMPRESSION, NOTE_COMPRESSION_DICTIONARY);
+        this.edgeSerializer = new EdgeSerializer(this.serializer,this.largeContentUploadHdfsEnabled,this.largeContentUploadHdfsSize,
+                PropertyPropertyLayout.parse(configuration.getConfiguration().get(PROPERTY_PROPERTIES_LAYOUT)));
         this.vertexExistenceQuery = edgeSerializer.getQuery(BaseKey.VertexExists, Direction.OUT, new EdgeSerializer.TypedInterval[0]).setLimit(1);
         this.queryCache = new RelationQueryCache(this.edgeSerializer);
         this.schemaCache = configuration.getTypeCache(typeCacheRetrieval);
@@ -250,6 +276,14 @@ public class StandardJanusGraph extends JanusGraphBlueprintsGraph {
         //注册zookeeper
         this.registryZookeeper=new RegistryZookeeper(configuration,uniqueInstanceId,this);
         this.registryZookeeper.registry();
+        SnowflakeIDPool snowflakeIdPool = idAssigner.getSnowflakeIDPool();
+        if (snowflakeIdPool != null && !snowflakeIdPool.hasWorkerId()) {
+            int workerId = registryZookeeper.leaseWorkerId(snowflakeIdPool.getMaxWorkerId(), snowflakeIdPool::setWorkerId);
+            if (workerId < 0) {
+                log.error("No worker id for the snowflake id pool, vertices and relations cannot be added until {} is configured",
+                    IDS_WORKER_ID.getName());
+            }
+        }
     }
 
     public Boolean getLargeContentUploadHdfsEnabled() {
@@ -260,6 +294,45 @@ public class StandardJanusGraph extends JanusGraphBlueprintsGraph {
         return largeContentUploadHdfsSize;
     }
 
+    private static BackendCompression getValueCompression(Configuration configuration, ConfigOption<String> codecOption,
+                                                          ConfigOption<String> dictionaryOption) {
+        byte[] dictionary = null;
+        if (dictionaryOption != null && configuration.has(dictionaryOption)) {
+            String file = configuration.get(dictionaryOption);
+            try {
+                dictionary = Files.readAllBytes(Paths.get(file));
+            } catch (IOException e) {
+                throw new JanusGraphException("Could not read compression dictionary " + file, e);
+            }
+        }
+        ValueCompression.Codec codec = ValueCompression.Codec.of(configuration.get(codecOption));
+        //A dictionary is registered for reading even if new values are not compressed
+        if (codec == ValueCompression.Codec.NONE && dictionary == null) return BackendCompression.NO_COMPRESSION;
+        return new ValueCompression(codec, configuration.get(VALUE_COMPRESSION_LEVEL),
+            configuration.get(VALUE_COMPRESSION_MIN_SIZE), dictionary);
+    }
+
+    /**
+     * Builds the entry of a column whose value is compressed as configured for its store.
+     */
+    private static StaticArrayEntry getCompressedEntry(DataOutput out, int valuePosition, BackendCompression compression) {
+        StaticBuffer buffer = out.getStaticBuffer();
+        if (compression == BackendCompression.NO_COMPRESSION) return new StaticArrayEntry(buffer, valuePosition);
+        StaticBuffer value = buffer.subrange(valuePosition, buffer.length() - valuePosition);
+        StaticBuffer compressed = compression.compress(value);
+        if (compressed == value) return new StaticArrayEntry(buffer, valuePosition);
+        byte[] array = new byte[valuePosition + compressed.length()];
+        buffer.subrange(0, valuePosition).as((bytes, offset, limit) -> {
+            System.arraycopy(bytes, offset, array, 0, limit - offset);
+            return null;
+        });
+        compressed.as((bytes, offset, limit) -> {
+            System.arraycopy(bytes, offset, array, valuePosition, limit - offset);
+            return null;
+        });
+        return new StaticArrayEntry(array, valuePosition);
+    }
+
     @Override
     public String getUniqueInstanceId(){
         return this.uniqueInstanceId;
@@ -843,6 +916,10 @@ public class StandardJanusGraph extends JanusGraphBlueprintsGraph {
                              */
                             List<StaticArrayEntry> mutilArrayEntry = edgeSerializer.writeMulitPropertyProperties(vertexProperty, type, tx);
                             deletions.addAll(mutilArrayEntry);
+                            if (edgeSerializer.getPropertyPropertyLayout() != PropertyPropertyLayout.MD5) {
+                                //Columns written before the layout was switched
+                                deletions.addAll(edgeSerializer.writeMulitPropertyProperties(vertexProperty, type, tx, PropertyPropertyLayout.MD5));
+                            }
                         } else {
                             List<StaticArrayEntry> entries = edgeSerializer.writePropertyProperties(vertexProperty, type, tx);
                             additions.addAll(entries);
@@ -871,25 +948,72 @@ public class StandardJanusGraph extends JanusGraphBlueprintsGraph {
     }
 
     public Entry getMediaDataEntry(MediaData mediaData){
+        if(mediaData.getMediaDataStream()!=null){
+            if(this.getLargeContentUploadHdfsEnabled()){
+                return getMediaDataStreamEntry(mediaData);
+            }
+            //没有开启hdfs时只能把附件内容读入内存
+            mediaData.setMediaData(readMediaDataStream(mediaData));
+            mediaData.setMediaDataStream(null, 0);
+        }
         final DataOutput out = this.getDataSerializer().getDataOutput(10);
         out.writeObjectNotNull(mediaData.getKey());
         final int valuePosition=out.getPosition();
         out.writeObjectNotNull(mediaData);
-        StaticArrayEntry entry = new StaticArrayEntry(out.getStaticBuffer(), valuePosition);
-        if(this.getLargeContentUploadHdfsEnabled()&&entry.length()>=this.getLargeContentUploadHdfsSize()){
+        if(this.getLargeContentUploadHdfsEnabled()&&out.getPosition()>=this.getLargeContentUploadHdfsSize()){
+            StaticArrayEntry entry = new StaticArrayEntry(out.getStaticBuffer(), valuePosition);
             final byte[] value = entry.getValueAs(StaticBuffer.ARRAY_FACTORY);
-            String hdfsFileName=mediaData.getLargeFileName(mediaData.getVertex().id().toString());
-            MediaData media = mediaData.smallMediaData(hdfsFileName);
-            final DataOutput sout = this.getDataSerializer().getDataOutput(10);
-            sout.writeObjectNotNull(media.getKey());
-            final int hdfsValuePosition=sout.getPosition();
-            sout.writeObjectNotNull(media);
-            StaticArrayEntry staticArrayEntry = new StaticArrayEntry(sout.getStaticBuffer(), hdfsValuePosition);
-            staticArrayEntry.setHdfsFileName(hdfsFileName);
+            StaticArrayEntry staticArrayEntry = getHdfsMediaDataEntry(mediaData);
             staticArrayEntry.setHdfsContent(value);
             return staticArrayEntry;
         }else{
-            return entry;
+            //只压缩保存在hbase中的附件,hdfs上的文件保持原格式以便按位置读取附件内容
+            return getCompressedEntry(out, valuePosition, attachmentCompression);
+        }
+    }
+
+    /**
+     * 附件内容以流的方式上传到hdfs,hdfs文件的内容和{@link #getMediaDataEntry(MediaData)}上传的一样,
+     * 附件内容之前和之后的字段在内存中序列化,附件内容直接从流中复制
+     */
+    private Entry getMediaDataStreamEntry(MediaData mediaData){
+        final long length = mediaData.getMediaDataLength();
+        final DataOutput head = this.getDataSerializer().getDataOutput(64);
+        MediaDataSerializer.writeHeader(head, mediaData);
+        MediaDataSerializer.writeContentPrefix(head, this.getDataSerializer(), length);
+        final DataOutput tail = this.getDataSerializer().getDataOutput(64);
+        MediaDataSerializer.writeTrailer(tail, mediaData);
+        final byte[] headBytes = head.getStaticBuffer().as(StaticBuffer.ARRAY_FACTORY);
+        final byte[] tailBytes = tail.getStaticBuffer().as(StaticBuffer.ARRAY_FACTORY);
+        InputStream content = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+            new ByteArrayInputStream(headBytes),
+            ByteStreams.limit(mediaData.getMediaDataStream(), length),
+            new ByteArrayInputStream(tailBytes))));
+        StaticArrayEntry staticArrayEntry = getHdfsMediaDataEntry(mediaData);
+        staticArrayEntry.setHdfsContentStream(content, headBytes.length + length + tailBytes.length);
+        return staticArrayEntry;
+    }
+
+    private StaticArrayEntry getHdfsMediaDataEntry(MediaData mediaData){
+        String hdfsFileName=mediaData.getLargeFileName(mediaData.getVertex().id().toString());
+        MediaData media = mediaData.smallMediaData(hdfsFileName);
+        final DataOutput sout = this.getDataSerializer().getDataOutput(10);
+        sout.writeObjectNotNull(media.getKey());
+        final int hdfsValuePosition=sout.getPosition();
+        sout.writeObjectNotNull(media);
+        StaticArrayEntry staticArrayEntry = new StaticArrayEntry(sout.getStaticBuffer(), hdfsValuePosition);
+        staticArrayEntry.setHdfsFileName(hdfsFileName);
+        return staticArrayEntry;
+    }
+
+    private static byte[] readMediaDataStream(MediaData mediaData){
+        try (InputStream in = mediaData.getMediaDataStream()) {
+            byte[] content = ByteStreams.toByteArray(ByteStreams.limit(in, mediaData.getMediaDataLength()));
+            Preconditions.checkArgument(content.length == mediaData.getMediaDataLength(),
+                "附件内容只有%s个字节,预期%s个字节", content.length, mediaData.getMediaDataLength());
+            return content;
+        } catch (IOException e) {
+            throw new JanusGraphException("Could not read attachment content " + mediaData.getKey(), e);
         }
     }
     public Entry getMediaDataRawEntry(MediaData mediaData){
@@ -898,7 +1022,7 @@ public class StandardJanusGraph extends JanusGraphBlueprintsGraph {
         out.writeObjectNotNull(mediaDataRaw.cellName());
         final int valuePosition=out.getPosition();
         out.writeObjectNotNull(mediaDataRaw);
-        return new StaticArrayEntry(out.getStaticBuffer(),valuePosition);
+        return getCompressedEntry(out, valuePosition, attachmentCompression);
     }
 
     public Entry getNoteEntry(Note note){
@@ -906,7 +1030,7 @@ public class StandardJanusGraph extends JanusGraphBlueprintsGraph {
         out.writeObjectNotNull(note.getId());
         final int valuePosition=out.getPosition();
         out.writeObjectNotNull(note);
-        return new StaticArrayEntry(out.getStaticBuffer(),valuePosition);
+        return getCompressedEntry(out, valuePosition, noteCompression);
     }
 
     private static final Predicate<InternalRelation> SCHEMA_FILTER =
@@ -0,0 +1,87 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.database.idassigner;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sizes id blocks by how fast the ids of a partition and id namespace are consumed. 根据消耗速度调整id块大小
+ * <p>
+ * The id pools report every consumed block through {@link #blockConsumed(int, int, long, Duration)}. The smoothed
+ * consumption rate times the target duration gives the size of the next block, so that a block lasts about the target
+ * duration during bulk loads. Block sizes stay between the size of the base sizer and {@code maxFactor} times of it,
+ * and below 1/256 of the id upper bound of the namespace.
+ */
+public class AdaptiveIDBlockSizer implements IDBlockSizer {
+
+    private static final double SMOOTHING = 0.5;
+
+    private final IDBlockSizer baseSizer;
+    private final long targetDurationNanos;
+    private final int maxFactor;
+
+    /**
+     * Consumed ids per nanosecond by partition and id namespace
+     */
+    private final Map<Long, Double> rates = new ConcurrentHashMap<>();
+
+    public AdaptiveIDBlockSizer(IDBlockSizer baseSizer, Duration targetDuration, int maxFactor) {
+        Preconditions.checkArgument(!targetDuration.isNegative() && !targetDuration.isZero(), "Invalid target duration: %s", targetDuration);
+        Preconditions.checkArgument(maxFactor >= 1, "Invalid maximum factor: %s", maxFactor);
+        this.baseSizer = Preconditions.checkNotNull(baseSizer);
+        this.targetDurationNanos = targetDuration.toNanos();
+        this.maxFactor = maxFactor;
+    }
+
+    private static long key(int partition, int idNamespace) {
+        return ((long) partition << 32) | (idNamespace & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public long getBlockSize(int idNamespace) {
+        return baseSizer.getBlockSize(idNamespace);
+    }
+
+    @Override
+    public long getBlockSize(int partition, int idNamespace) {
+        final long baseSize = baseSizer.getBlockSize(idNamespace);
+        final Double rate = rates.get(key(partition, idNamespace));
+        if (rate == null) return baseSize;
+        final long maxSize = Math.max(baseSize, Math.min(baseSize * maxFactor, getIdUpperBound(idNamespace) >> 8));
+        final double size = rate * targetDurationNanos;
+        return size >= maxSize ? maxSize : Math.max(baseSize, Math.round(size));
+    }
+
+    @Override
+    public long getIdUpperBound(int idNamespace) {
+        return baseSizer.getIdUpperBound(idNamespace);
+    }
+
+    @Override
+    public void blockConsumed(int partition, int idNamespace, long numIds, Duration duration) {
+        final double rate = (double) numIds / Math.max(1, duration.toNanos());
+        rates.merge(key(partition, idNamespace), rate, (old, sample) -> old * (1 - SMOOTHING) + sample * SMOOTHING);
+    }
+
+    /**
+     * @return the smoothed number of ids consumed per second, 0 if no block was consumed yet
+     */
+    public double getConsumptionRate(int partition, int idNamespace) {
+        final Double rate = rates.get(key(partition, idNamespace));
+        return rate == null ? 0 : rate * 1e9;
+    }
+}
@@ -43,4 +43,27 @@ public interface IDBlockSizer {
      */
     long getIdUpperBound(int idNamespace);
 
+    /**
+     * The size of the next id block for the given partition and id namespace. Sizers that adapt to the consumption
+     * of a partition override this, the default is {@link #getBlockSize(int)}.
+     *
+     * @param partition
+     * @param idNamespace
+     * @return
+     */
+    default long getBlockSize(int partition, int idNamespace) {
+        return getBlockSize(idNamespace);
+    }
+
+    /**
+     * Called by the id pool of the given partition and id namespace when all ids of a block have been handed out.
+     *
+     * @param partition
+     * @param idNamespace
+     * @param numIds the number of ids in the block
+     * @param duration the time from taking the block into use until its last id was handed out
+     */
+    default void blockConsumed(int partition, int idNamespace, long numIds, Duration duration) {
+    }
+
 }
@@ -0,0 +1,166 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.database.idassigner;
+
+import org.janusgraph.core.JanusGraphException;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates time ordered 64 bit ids without asking the {@link org.janusgraph.diskstorage.IDAuthority}. 基于时间戳的id生成
+ * <p>
+ * An id consists of the milliseconds since {@link #EPOCH} (41 bits), the worker id of this instance, the stripe and a
+ * sequence within the millisecond. The worker id is leased from zookeeper or configured through {@code ids.worker-id},
+ * so no two running instances share it. Every thread uses the stripe picked by its thread id and advances the
+ * sequence of the stripe with a compare-and-set, threads of different stripes never contend.
+ * <p>
+ * When the sequence of a millisecond is used up, or the clock moved back a little, the stripe continues with the
+ * following milliseconds, at most {@link #MAX_BORROW_MS} ahead of the clock. Beyond that allocation waits for the
+ * clock, and fails if the clock moved back by more than {@link #MAX_CLOCK_BACKWARD_MS}.
+ * <p>
+ * The ids are unique across partitions and id namespaces, so one pool can serve all of them.
+ */
+public class SnowflakeIDPool implements IDPool {
+
+    /**
+     * 2020-01-01T00:00:00Z, the 41 bits of the timestamp last until 2089
+     */
+    public static final long EPOCH = 1577836800000L;
+
+    public static final int TIMESTAMP_BITS = 41;
+    public static final int NODE_BITS = 63 - TIMESTAMP_BITS;
+
+    public static final long MAX_BORROW_MS = 1000;
+    static final long MAX_CLOCK_BACKWARD_MS = 5000;
+
+    /**
+     * Stripes are 8 longs apart so that they do not share a cache line
+     */
+    private static final int PADDING = 8;
+
+    private final int workerBits;
+    private final int stripeBits;
+    private final int sequenceBits;
+    private final long sequenceMask;
+    private final int stripeMask;
+    private final LongSupplier clock;
+
+    /**
+     * Per stripe the last timestamp shifted by the sequence bits plus the last sequence
+     */
+    private final AtomicLongArray stripes;
+
+    private volatile long workerId = -1;
+
+    public SnowflakeIDPool(int workerBits, int stripeBits) {
+        this(workerBits, stripeBits, System::currentTimeMillis);
+    }
+
+    SnowflakeIDPool(int workerBits, int stripeBits, LongSupplier clock) {
+        Preconditions.checkArgument(workerBits >= 1 && workerBits <= 16, "Invalid number of worker bits: %s", workerBits);
+        Preconditions.checkArgument(stripeBits >= 0 && stripeBits <= 8, "Invalid number of stripe bits: %s", stripeBits);
+        Preconditions.checkArgument(NODE_BITS - workerBits - stripeBits >= 4,
+            "%s worker bits and %s stripe bits leave less than 4 sequence bits", workerBits, stripeBits);
+        this.workerBits = workerBits;
+        this.stripeBits = stripeBits;
+        this.sequenceBits = NODE_BITS - workerBits - stripeBits;
+        this.sequenceMask = (1L << sequenceBits) - 1;
+        this.stripeMask = (1 << stripeBits) - 1;
+        this.clock = Preconditions.checkNotNull(clock);
+        this.stripes = new AtomicLongArray((1 << stripeBits) * PADDING);
+    }
+
+    public int getWorkerBits() {
+        return workerBits;
+    }
+
+    public int getMaxWorkerId() {
+        return (1 << workerBits) - 1;
+    }
+
+    public boolean hasWorkerId() {
+        return workerId >= 0;
+    }
+
+    /**
+     * Sets the worker id of this instance, -1 when the lease was lost. No ids are handed out without a worker id.
+     */
+    public void setWorkerId(int workerId) {
+        Preconditions.checkArgument(workerId >= -1 && workerId <= getMaxWorkerId(),
+            "Worker id %s does not fit into %s bits", workerId, workerBits);
+        this.workerId = workerId;
+    }
+
+    @Override
+    public String nextID() {
+        return Long.toString(nextLongID());
+    }
+
+    public long nextLongID() {
+        final long worker = workerId;
+        if (worker < 0) {
+            throw new JanusGraphException("id生成器没有worker id, 需要注册zookeeper或配置ids.worker-id");
+        }
+        final int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        final int index = stripe * PADDING;
+        while (true) {
+            final long state = stripes.get(index);
+            final long last = state >>> sequenceBits;
+            final long now = clock.getAsLong() - EPOCH;
+            final long next;
+            if (now > last) {
+                next = now << sequenceBits;
+            } else {
+                //The sequence overflows into the timestamp, which continues with the next millisecond
+                next = state + 1;
+                final long ahead = (next >>> sequenceBits) - now;
+                if (ahead > MAX_BORROW_MS) {
+                    if (ahead > MAX_BORROW_MS + MAX_CLOCK_BACKWARD_MS) {
+                        throw new JanusGraphException("系统时钟回拨了" + (last - now) + "ms, 无法生成id");
+                    }
+                    Thread.yield();
+                    continue;
+                }
+            }
+            if (stripes.compareAndSet(index, state, next)) {
+                final long timestamp = next >>> sequenceBits;
+                Preconditions.checkState(timestamp < 1L << TIMESTAMP_BITS, "Timestamp exceeds %s bits", TIMESTAMP_BITS);
+                return timestamp << NODE_BITS
+                    | worker << (stripeBits + sequenceBits)
+                    | (long) stripe << sequenceBits
+                    | next & sequenceMask;
+            }
+        }
+    }
+
+    /**
+     * @return the milliseconds since the unix epoch at which the id was generated
+     */
+    public static long getTimestamp(long id) {
+        return (id >>> NODE_BITS) + EPOCH;
+    }
+
+    public int getWorkerId(long id) {
+        return (int) (id >>> (stripeBits + sequenceBits)) & getMaxWorkerId();
+    }
+
+    /**
+     * The pool holds no resources, the worker id lease belongs to the zookeeper registration.
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -15,11 +15,14 @@
 package org.janusgraph.graphdb.database.idassigner;
 
 import org.janusgraph.graphdb.database.idassigner.Preconditions;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.janusgraph.core.JanusGraphException;
 import org.janusgraph.diskstorage.BackendException;
 import org.janusgraph.diskstorage.IDAuthority;
 import org.janusgraph.diskstorage.IDBlock;
+import org.janusgraph.util.stats.MetricManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,6 +74,15 @@ public class StandardIDPool implements IDPool {
 
     private static final int RENEW_ID_COUNT = 100;
 
+    /**
+     * The next block is requested when the remaining ids last this many times the last renewal
+     */
+    private static final int PREFETCH_LATENCY_FACTOR = 2;
+
+    public static final String M_IDS = "ids";
+    public static final String M_WAIT = "wait";
+    public static final String M_BLOCK_SIZE = "block-size";
+
     private final IDAuthority idAuthority;
     private final long idUpperBound; //exclusive
     private final int partition;
@@ -92,7 +104,27 @@ public class StandardIDPool implements IDPool {
 
     private final Queue<Future<?>> closeBlockers;
 
+    /**
+     * Receives the consumption of blocks, when set the next block is also requested in time for the observed renewal latency
+     */
+    private final IDBlockSizer blockSizer;
+    private long currentBlockStart;
+    private double idsPerNano;
+    private long renewLatencyNanos;
+
+    private final Timer waitTimer;
+    private final Histogram blockSizeHistogram;
+
     public StandardIDPool(IDAuthority idAuthority, int partition, int idNamespace, long idUpperBound, Duration renewTimeout, double renewBufferPercentage) {
+        this(idAuthority, partition, idNamespace, idUpperBound, renewTimeout, renewBufferPercentage, null, null);
+    }
+
+    /**
+     * @param blockSizer notified of consumed blocks, enables prefetching by consumption rate, may be null
+     * @param metricsPrefix prefix of the wait time and block size metrics per id namespace, null to disable them
+     */
+    public StandardIDPool(IDAuthority idAuthority, int partition, int idNamespace, long idUpperBound, Duration renewTimeout, double renewBufferPercentage,
+                          IDBlockSizer blockSizer, String metricsPrefix) {
         Preconditions.checkArgument(idUpperBound > 0);
         this.idAuthority = idAuthority;
         Preconditions.checkArgument(partition>=0);
@@ -122,6 +154,15 @@ public class StandardIDPool implements IDPool {
         closeBlockers = new ArrayDeque<>(4);
 
         closed = false;
+
+        this.blockSizer = blockSizer;
+        if (metricsPrefix != null) {
+            waitTimer = MetricManager.INSTANCE.getTimer(metricsPrefix, M_IDS, String.valueOf(idNamespace), M_WAIT);
+            blockSizeHistogram = MetricManager.INSTANCE.getHistogram(metricsPrefix, M_IDS, String.valueOf(idNamespace), M_BLOCK_SIZE);
+        } else {
+            waitTimer = null;
+            blockSizeHistogram = null;
+        }
     }
 
     private synchronized void waitForIDBlockGetter() throws InterruptedException {
@@ -129,6 +170,7 @@ public class StandardIDPool implements IDPool {
         if (null != idBlockFuture) {
             try {
                 nextBlock = idBlockFuture.get(renewTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                renewLatencyNanos = idBlockGetter.latencyNanos;
             } catch (ExecutionException e) {
                 String msg = String.format("ID block allocation on partition(%d)-namespace(%d) failed with an exception in %s",
                         partition, idNamespace, sw.stop());
@@ -166,6 +208,15 @@ public class StandardIDPool implements IDPool {
         Preconditions.checkState(!closed,"ID Pool has been closed for partition(%s)-namespace(%s) - cannot apply for new id block",
                 partition,idNamespace);
 
+        final long start = System.nanoTime();
+        if (currentBlock != UNINITIALIZED_BLOCK && currentBlock.numIds() > 0) {
+            final long consumedNanos = Math.max(1, start - currentBlockStart);
+            idsPerNano = (double) currentBlock.numIds() / consumedNanos;
+            if (blockSizer != null) {
+                blockSizer.blockConsumed(partition, idNamespace, currentBlock.numIds(), Duration.ofNanos(consumedNanos));
+            }
+        }
+
         if (null == nextBlock && null == idBlockFuture) {
             startIDBlockGetter();
         }
@@ -173,12 +224,19 @@ public class StandardIDPool implements IDPool {
         if (null == nextBlock) {
             waitForIDBlockGetter();
         }
+        if (waitTimer != null) {
+            waitTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
 
         if (nextBlock == ID_POOL_EXHAUSTION)
             throw new IDPoolExhaustedException("Exhausted ID Pool for partition(" + partition+")-namespace("+idNamespace+")");
 
         currentBlock = nextBlock;
         currentIndex = 0;
+        currentBlockStart = System.nanoTime();
+        if (blockSizeHistogram != null) {
+            blockSizeHistogram.update(currentBlock.numIds());
+        }
 
         log.debug("ID partition({})-namespace({}) acquired block: [{}]", partition, idNamespace, currentBlock);
 
@@ -187,7 +245,12 @@ public class StandardIDPool implements IDPool {
         nextBlock = null;
 
         assert RENEW_ID_COUNT>0;
-        renewBlockIndex = Math.max(0,currentBlock.numIds()-Math.max(RENEW_ID_COUNT, Math.round(currentBlock.numIds()*renewBufferPercentage)));
+        long renewBuffer = Math.max(RENEW_ID_COUNT, Math.round(currentBlock.numIds()*renewBufferPercentage));
+        if (blockSizer != null && idsPerNano > 0 && renewLatencyNanos > 0) {
+            //Ask for the next block early enough that it arrives before this one is used up at the current rate
+            renewBuffer = Math.max(renewBuffer, (long) Math.ceil(idsPerNano * renewLatencyNanos * PREFETCH_LATENCY_FACTOR));
+        }
+        renewBlockIndex = Math.max(0,currentBlock.numIds()-renewBuffer);
         assert renewBlockIndex<currentBlock.numIds() && renewBlockIndex>=currentIndex;
     }
 
@@ -252,6 +315,7 @@ public class StandardIDPool implements IDPool {
         private final int idNamespace;
         private final Duration renewTimeout;
         private volatile boolean stopRequested;
+        private volatile long latencyNanos;
 
         public IDBlockGetter(IDAuthority idAuthority, int partition, int idNamespace, Duration renewTimeout) {
             this.idAuthority = idAuthority;
@@ -282,6 +346,7 @@ public class StandardIDPool implements IDPool {
                           "exec time {}, exec+q time {}",
                           partition, idNamespace, running.stop(), alive.stop());
                 Preconditions.checkArgument(idBlock!=null && idBlock.numIds()>0);
+                latencyNanos = alive.elapsed(TimeUnit.NANOSECONDS);
                 return idBlock;
             } catch (BackendException e) {
                 throw new JanusGraphException("Could not acquire new ID block from storage", e);
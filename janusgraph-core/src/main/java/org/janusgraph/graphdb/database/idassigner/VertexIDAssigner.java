@@ -28,11 +28,18 @@ import org.janusgraph.diskstorage.configuration.ConfigOption;
 import org.janusgraph.diskstorage.configuration.Configuration;
 import org.janusgraph.diskstorage.keycolumnvalue.StoreFeatures;
 import org.janusgraph.graphdb.configuration.PreInitializeConfigOptions;
+import org.janusgraph.graphdb.database.idassigner.placement.HashPartitionPlacementStrategy;
 import org.janusgraph.graphdb.database.idassigner.placement.IDPlacementStrategy;
+import org.janusgraph.graphdb.database.idassigner.placement.JavaHashPartitionFunction;
+import org.janusgraph.graphdb.database.idassigner.placement.Murmur3PartitionFunction;
 import org.janusgraph.graphdb.database.idassigner.placement.PartitionAssignment;
+import org.janusgraph.graphdb.database.idassigner.placement.PartitionHashFunction;
 import org.janusgraph.graphdb.database.idassigner.placement.PartitionIDRange;
 import org.janusgraph.graphdb.database.idassigner.placement.SimpleBulkPlacementStrategy;
+import org.janusgraph.graphdb.idmanagement.CompactIDKeyCodec;
+import org.janusgraph.graphdb.idmanagement.IDKeyCodec;
 import org.janusgraph.graphdb.idmanagement.IDManager;
+import org.janusgraph.graphdb.idmanagement.StringIDKeyCodec;
 import org.janusgraph.graphdb.internal.InternalElement;
 import org.janusgraph.graphdb.internal.InternalRelation;
 import org.janusgraph.graphdb.internal.InternalRelationType;
@@ -40,6 +47,7 @@ import org.janusgraph.graphdb.internal.InternalVertex;
 import org.janusgraph.graphdb.relations.EdgeDirection;
 import org.janusgraph.graphdb.relations.ReassignableRelation;
 import org.janusgraph.graphdb.types.vertices.JanusGraphSchemaVertex;
+import org.janusgraph.graphdb.vertices.AbstractVertex;
 import org.janusgraph.util.stats.NumberUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,12 +61,24 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.BASIC_METRICS;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.CLUSTER_MAX_PARTITIONS;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_ADAPTIVE_BLOCK_DURATION;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_ADAPTIVE_BLOCK_SIZE;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_ADAPTIVE_MAX_FACTOR;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_BLOCK_SIZE;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_KEY_CODEC;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_NS;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_PARTITION_HASH;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_POOL;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_RENEW_BUFFER_PERCENTAGE;
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_RENEW_TIMEOUT;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_STRIPE_BITS;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_WORKER_BITS;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.IDS_WORKER_ID;
+import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.METRICS_PREFIX;
 
 @PreInitializeConfigOptions
 public class VertexIDAssigner implements AutoCloseable {
@@ -69,13 +89,30 @@ public class VertexIDAssigner implements AutoCloseable {
     private static final int MAX_PARTITION_RENEW_ATTEMPTS = 1000;
 
     public static final ConfigOption<String> PLACEMENT_STRATEGY = new ConfigOption<>(IDS_NS, "placement",
-            "Name of the vertex placement strategy or full class name", ConfigOption.Type.MASKABLE, "simple");
+            "Name of the vertex placement strategy ('simple' or 'hash') or full class name", ConfigOption.Type.MASKABLE, "simple");
 
-    private static final Map<String,String> REGISTERED_PLACEMENT_STRATEGIES = Collections.singletonMap("simple", SimpleBulkPlacementStrategy.class.getName());
+    private static final Map<String,String> REGISTERED_PLACEMENT_STRATEGIES = Collections.unmodifiableMap(new HashMap<String,String>(2) {{
+        put("simple", SimpleBulkPlacementStrategy.class.getName());
+        put("hash", HashPartitionPlacementStrategy.class.getName());
+    }});
+
+    private static final Map<String,String> REGISTERED_KEY_CODECS = Collections.unmodifiableMap(new HashMap<String,String>(2) {{
+        put("string", StringIDKeyCodec.class.getName());
+        put("compact", CompactIDKeyCodec.class.getName());
+    }});
+
+    private static final Map<String,String> REGISTERED_PARTITION_HASHES = Collections.unmodifiableMap(new HashMap<String,String>(2) {{
+        put("java", JavaHashPartitionFunction.class.getName());
+        put("murmur3", Murmur3PartitionFunction.class.getName());
+    }});
 
     final ConcurrentMap<Integer,PartitionIDPool> idPools;
     final StandardIDPool schemaIdPool;
     final StandardIDPool partitionVertexIdPool;
+    /**
+     * Shared by all partitions when {@code ids.pool} is 'snowflake', otherwise null
+     */
+    final SnowflakeIDPool snowflakeIdPool;
 
     private final IDAuthority idAuthority;
     private final IDManager idManager;
@@ -84,6 +121,8 @@ public class VertexIDAssigner implements AutoCloseable {
     //For StandardIDPool
     private final Duration renewTimeoutMS;
     private final double renewBufferPercentage;
+    private final AdaptiveIDBlockSizer adaptiveBlockSizer;
+    private final String metricsPrefix;
 
     private final int partitionIdBound;
     private final boolean hasLocalPartitions;
@@ -94,7 +133,9 @@ public class VertexIDAssigner implements AutoCloseable {
 
 
         int partitionBits = NumberUtil.getPowerOf2(config.get(CLUSTER_MAX_PARTITIONS));
-        idManager = new IDManager(partitionBits);
+        IDKeyCodec keyCodec = Backend.getImplementationClass(config, config.get(IDS_KEY_CODEC), REGISTERED_KEY_CODECS);
+        PartitionHashFunction partitionHash = Backend.getImplementationClass(config, config.get(IDS_PARTITION_HASH), REGISTERED_PARTITION_HASHES);
+        idManager = new IDManager(partitionBits, keyCodec, partitionHash);
         Preconditions.checkArgument(idManager.getPartitionBound() <= Integer.MAX_VALUE && idManager.getPartitionBound()>0);
         this.partitionIdBound = (int)idManager.getPartitionBound();
         hasLocalPartitions = idAuthFeatures.hasLocalKeyPartition();
@@ -105,19 +146,40 @@ public class VertexIDAssigner implements AutoCloseable {
         log.debug("Partition IDs? [{}], Local Partitions? [{}]",true,hasLocalPartitions);
 
         long baseBlockSize = config.get(IDS_BLOCK_SIZE);
-        idAuthority.setIDBlockSizer(new SimpleVertexIDBlockSizer(baseBlockSize));
+        if (config.get(IDS_ADAPTIVE_BLOCK_SIZE)) {
+            adaptiveBlockSizer = new AdaptiveIDBlockSizer(new SimpleVertexIDBlockSizer(baseBlockSize),
+                    config.get(IDS_ADAPTIVE_BLOCK_DURATION), config.get(IDS_ADAPTIVE_MAX_FACTOR));
+            idAuthority.setIDBlockSizer(adaptiveBlockSizer);
+        } else {
+            adaptiveBlockSizer = null;
+            idAuthority.setIDBlockSizer(new SimpleVertexIDBlockSizer(baseBlockSize));
+        }
 
         renewTimeoutMS = config.get(IDS_RENEW_TIMEOUT);
         renewBufferPercentage = config.get(IDS_RENEW_BUFFER_PERCENTAGE);
+        metricsPrefix = config.get(BASIC_METRICS) ? config.get(METRICS_PREFIX) : null;
+
+        String poolName = config.get(IDS_POOL);
+        if ("snowflake".equalsIgnoreCase(poolName)) {
+            snowflakeIdPool = new SnowflakeIDPool(config.get(IDS_WORKER_BITS), config.get(IDS_STRIPE_BITS));
+            if (config.has(IDS_WORKER_ID)) snowflakeIdPool.setWorkerId(config.get(IDS_WORKER_ID));
+        } else {
+            Preconditions.checkArgument("standard".equalsIgnoreCase(poolName), "Unknown id pool: %s", poolName);
+            snowflakeIdPool = null;
+        }
 
         idPools = new ConcurrentHashMap<>(partitionIdBound);
         schemaIdPool = new StandardIDPool(idAuthority, IDManager.SCHEMA_PARTITION, PoolType.SCHEMA.getIDNamespace(),
-                IDManager.getSchemaCountBound(), renewTimeoutMS, renewBufferPercentage);
-        partitionVertexIdPool = new StandardIDPool(idAuthority, IDManager.PARTITIONED_VERTEX_PARTITION, PoolType.PARTITIONED_VERTEX.getIDNamespace(),
-                PoolType.PARTITIONED_VERTEX.getCountBound(idManager), renewTimeoutMS, renewBufferPercentage);
+                IDManager.getSchemaCountBound(), renewTimeoutMS, renewBufferPercentage, null, metricsPrefix);
+        partitionVertexIdPool = newStandardIDPool(IDManager.PARTITIONED_VERTEX_PARTITION, PoolType.PARTITIONED_VERTEX);
         setLocalPartitions(partitionBits);
     }
 
+    private StandardIDPool newStandardIDPool(int partitionID, PoolType type) {
+        return new StandardIDPool(idAuthority, partitionID, type.getIDNamespace(), type.getCountBound(idManager),
+                renewTimeoutMS, renewBufferPercentage, adaptiveBlockSizer, metricsPrefix);
+    }
+
     private void setLocalPartitionsToGlobal(int partitionBits) {
         placementStrategy.setLocalPartitionBounds(PartitionIDRange.getGlobalRange(partitionBits));
     }
@@ -146,6 +208,13 @@ public class VertexIDAssigner implements AutoCloseable {
         return idManager;
     }
 
+    /**
+     * @return the snowflake pool, which needs a worker id before vertices and relations get ids, or null
+     */
+    public SnowflakeIDPool getSnowflakeIDPool() {
+        return snowflakeIdPool;
+    }
+
     public synchronized void close() {
         schemaIdPool.close();
         partitionVertexIdPool.close();
@@ -301,6 +370,7 @@ public class VertexIDAssigner implements AutoCloseable {
     }
 
     private long getPartitionID(final InternalVertex v) {
+        if (v instanceof AbstractVertex) return ((AbstractVertex) v).getPartitionId(idManager);
         String vid = v.longId();
         if (IDManager.VertexIDType.Schema.is(vid)) return IDManager.SCHEMA_PARTITION;
         else return idManager.getPartitionId(vid);
@@ -325,7 +395,7 @@ public class VertexIDAssigner implements AutoCloseable {
         } else {
             PartitionIDPool partitionPool = idPools.get(partitionID);
             if (partitionPool == null) {
-                partitionPool = new PartitionIDPool(partitionID, idAuthority, idManager, renewTimeoutMS, renewBufferPercentage);
+                partitionPool = new PartitionIDPool(type -> snowflakeIdPool != null ? snowflakeIdPool : newStandardIDPool(partitionID, type));
                 idPools.putIfAbsent(partitionID,partitionPool);
                 partitionPool = idPools.get(partitionID);
             }
@@ -370,6 +440,10 @@ public class VertexIDAssigner implements AutoCloseable {
 
         Preconditions.checkArgument(StringUtils.isNotBlank(elementId));
         element.setId(elementId);
+        if (element instanceof AbstractVertex && !(element instanceof JanusGraphSchemaVertex)
+                && userVertexIDType != IDManager.VertexIDType.PartitionedVertex) {
+            ((AbstractVertex) element).setPartitionId(partitionID);
+        }
     }
 
     private static IDManager.VertexIDType getVertexIDType(VertexLabel vertexLabel) {
@@ -470,11 +544,11 @@ public class VertexIDAssigner implements AutoCloseable {
         private volatile long lastAccess;
         private volatile boolean exhausted;
 
-        PartitionIDPool(int partitionID, IDAuthority idAuthority, IDManager idManager, Duration renewTimeoutMS, double renewBufferPercentage) {
+        PartitionIDPool(Function<PoolType, IDPool> poolFactory) {
             super(PoolType.class);
             for (PoolType type : PoolType.values()) {
                 if (!type.hasOnePerPartition()) continue;
-                put(type,new StandardIDPool(idAuthority, partitionID, type.getIDNamespace(), type.getCountBound(idManager), renewTimeoutMS, renewBufferPercentage));
+                put(type, poolFactory.apply(type));
             }
         }
 
@@ -0,0 +1,130 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.database.idassigner.placement;
+
+import org.janusgraph.diskstorage.configuration.Configuration;
+import org.janusgraph.graphdb.database.idassigner.IDPoolExhaustedException;
+import org.janusgraph.graphdb.database.idassigner.Preconditions;
+import org.janusgraph.graphdb.idmanagement.IDManager;
+import org.janusgraph.graphdb.internal.InternalElement;
+import org.janusgraph.graphdb.internal.InternalVertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A id placement strategy that spreads every new vertex over all local partitions by hashing a per instance
+ * sequence with the murmur3 finalizer.
+ * 每个新顶点通过hash分散到所有本地分区，避免单个分区成为写热点
+ * <p>
+ * In contrast to {@link SimpleBulkPlacementStrategy}, which places all vertices of a transaction into one of a few
+ * partitions, the writes of a bulk load are distributed evenly. The price is that an id block is reserved for every
+ * partition that is written to, so this strategy fits graphs with a moderate number of partitions.
+ */
+public class HashPartitionPlacementStrategy implements IDPlacementStrategy {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(HashPartitionPlacementStrategy.class);
+
+    public static final int PARTITION_FINDING_ATTEMPTS = 1000;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Set<Integer> exhaustedPartitions;
+    private volatile int[] localPartitions;
+
+    public HashPartitionPlacementStrategy(long seed) {
+        this.seed = seed;
+        exhaustedPartitions = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    }
+
+    public HashPartitionPlacementStrategy(Configuration config) {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Finalization mix of murmur3, forces all bits of the input to avalanche.
+     */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private int nextPartitionID() {
+        final int[] partitions = localPartitions;
+        Preconditions.checkArgument(partitions!=null && partitions.length>0,"Local partition id ranges have not been initialized");
+        int attempts = 0;
+        int partition;
+        do {
+            attempts++;
+            long hash = mix(seed + sequence.incrementAndGet() * GOLDEN_GAMMA);
+            partition = partitions[(int) Math.floorMod(hash, (long) partitions.length)];
+            if (attempts>PARTITION_FINDING_ATTEMPTS) throw new IDPoolExhaustedException("Could not find non-exhausted partition");
+        } while (exhaustedPartitions.contains(partition));
+        return partition;
+    }
+
+    @Override
+    public void injectIDManager(IDManager idManager) {} //We don't need the IDManager here
+
+    @Override
+    public int getPartition(InternalElement element) {
+        return nextPartitionID();
+    }
+
+    @Override
+    public void getPartitions(Map<InternalVertex, PartitionAssignment> vertices) {
+        for (Map.Entry<InternalVertex, PartitionAssignment> entry : vertices.entrySet()) {
+            entry.setValue(new SimplePartitionAssignment(nextPartitionID()));
+        }
+    }
+
+    @Override
+    public boolean supportsBulkPlacement() {
+        return true;
+    }
+
+    @Override
+    public void setLocalPartitionBounds(List<PartitionIDRange> localPartitionIdRanges) {
+        Preconditions.checkArgument(localPartitionIdRanges!=null && !localPartitionIdRanges.isEmpty());
+        int size = 0;
+        for (PartitionIDRange range : localPartitionIdRanges) size += range.getAllContainedIDs().length;
+        int[] partitions = new int[size];
+        int pos = 0;
+        for (PartitionIDRange range : localPartitionIdRanges) {
+            for (int id : range.getAllContainedIDs()) partitions[pos++] = id;
+        }
+        log.debug("Placing vertices on {} local partitions",partitions.length);
+        localPartitions = partitions;
+    }
+
+    @Override
+    public void exhaustedPartition(int partitionID) {
+        exhaustedPartitions.add(partitionID);
+    }
+}
@@ -0,0 +1,42 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.database.idassigner.placement;
+
+import org.janusgraph.diskstorage.configuration.Configuration;
+
+/**
+ * Places ids by {@link String#hashCode()}. This is the layout of all graphs that were created before the partition
+ * hash became configurable.
+ * 旧的分区方式，基于String.hashCode
+ * <p>
+ * String.hashCode only has 32 bits and mixes the low bits poorly, so ids that share a long common prefix
+ * (e.g. random UUIDs of one generator) are spread unevenly over small partition counts.
+ */
+public class JavaHashPartitionFunction implements PartitionHashFunction {
+
+    public static final JavaHashPartitionFunction INSTANCE = new JavaHashPartitionFunction();
+
+    public JavaHashPartitionFunction() {
+    }
+
+    public JavaHashPartitionFunction(Configuration config) {
+        this();
+    }
+
+    @Override
+    public long getPartition(String id, long partitionBound) {
+        return Math.abs((long) id.hashCode()) % partitionBound;
+    }
+}
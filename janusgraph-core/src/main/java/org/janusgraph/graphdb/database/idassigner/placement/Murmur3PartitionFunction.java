@@ -0,0 +1,52 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.database.idassigner.placement;
+
+import com.google.common.hash.HashFunction;
+import org.janusgraph.diskstorage.configuration.Configuration;
+import org.janusgraph.diskstorage.util.HashUtility;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Places ids by the first 64 bits of the murmur3 128 bit hash over the UTF-8 bytes of the id.
+ * 基于murmur3的分区方式，分布比String.hashCode均匀
+ */
+public class Murmur3PartitionFunction implements PartitionHashFunction {
+
+    public static final Murmur3PartitionFunction INSTANCE = new Murmur3PartitionFunction();
+
+    private static final HashFunction HASH = HashUtility.LONG.get();
+
+    public Murmur3PartitionFunction() {
+    }
+
+    public Murmur3PartitionFunction(Configuration config) {
+        this();
+    }
+
+    /**
+     * @param id id to hash
+     * @return 64 bit murmur3 hash of the UTF-8 bytes of the id
+     */
+    public static long hash(String id) {
+        return HASH.hashString(id, StandardCharsets.UTF_8).asLong();
+    }
+
+    @Override
+    public long getPartition(String id, long partitionBound) {
+        return Math.floorMod(hash(id), partitionBound);
+    }
+}
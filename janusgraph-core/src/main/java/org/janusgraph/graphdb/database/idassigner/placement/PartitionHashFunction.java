@@ -0,0 +1,37 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.database.idassigner.placement;
+
+/**
+ * Maps a user provided vertex id onto a partition id.
+ * 把用户提供的顶点id映射到分区
+ * <p>
+ * The partition becomes part of the JanusGraph vertex id, hence the function used by a graph must never change
+ * once vertices with user provided ids have been written.
+ *
+ * @see org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration#IDS_PARTITION_HASH
+ */
+public interface PartitionHashFunction {
+
+    /**
+     * Returns the partition of the given id.
+     *
+     * @param id user provided id
+     * @param partitionBound number of partitions, always a power of 2
+     * @return partition id in [0, partitionBound)
+     */
+    long getPartition(String id, long partitionBound);
+
+}
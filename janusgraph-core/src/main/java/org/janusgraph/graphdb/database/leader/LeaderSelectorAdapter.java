@@ -22,6 +22,7 @@ public class LeaderSelectorAdapter extends LeaderSelectorListenerAdapter impleme
     private static final Logger log =
         LoggerFactory.getLogger(LeaderSelectorAdapter.class);
     public static final String INSTANCENODE="instance";
+    public static final String WORKERNODE="worker";
     public static final String LEADERNODE="/leader";
     private final String name;
     private final LeaderSelector leaderSelector;
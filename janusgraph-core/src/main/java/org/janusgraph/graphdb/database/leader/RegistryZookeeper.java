@@ -13,6 +13,7 @@ import org.janusgraph.graphdb.database.StandardJanusGraph;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.*;
@@ -30,6 +31,7 @@ public class RegistryZookeeper implements Closeable {
     private RetryPolicy retryPolicy;
     private CuratorFramework curatorClient;
     private LeaderSelectorAdapter leaderSelectorAdapter;
+    private WorkerIdLease workerIdLease;
 
     public RegistryZookeeper(GraphDatabaseConfiguration configuration, String uniqueInstanceId,StandardJanusGraph janusGraph) {
         this.configuration = configuration;
@@ -81,9 +83,28 @@ public class RegistryZookeeper implements Closeable {
         }
     }
 
+    /**
+     * Leases a worker id for the id generation, the listener is told again when the lease is lost or renewed.
+     *
+     * @return the worker id or -1 if zookeeper is not enabled or no id is free
+     */
+    public int leaseWorkerId(int maxWorkerId, IntConsumer listener){
+        if(curatorClient==null){
+            return -1;
+        }
+        if(workerIdLease!=null){
+            workerIdLease.close();
+        }
+        workerIdLease=new WorkerIdLease(curatorClient,uniqueInstanceId,maxWorkerId,listener);
+        return workerIdLease.acquire();
+    }
+
     @Override
     public void close() throws IOException {
         //关闭zookeeper连接
+        if(workerIdLease!=null){
+            workerIdLease.close();
+        }
         if(leaderSelectorAdapter !=null){
             leaderSelectorAdapter.close();
         }
@@ -0,0 +1,153 @@
+package org.janusgraph.graphdb.database.leader;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+import org.janusgraph.graphdb.database.idassigner.SnowflakeIDPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntConsumer;
+
+/**
+ * Leases a worker id for {@link org.janusgraph.graphdb.database.idassigner.SnowflakeIDPool} as an ephemeral node
+ * {@code /worker/<id>} next to the instance registration. 通过zookeeper临时节点租用worker id
+ * <p>
+ * The node disappears with the session of the instance. The id is revoked as soon as the connection is suspended,
+ * well before the session can expire and another instance can take the id over, and leased again after reconnecting.
+ * The pool may have used timestamps up to {@link SnowflakeIDPool#MAX_BORROW_MS} ahead of the clock, so {@link #close()}
+ * keeps the node that long after revoking the id.
+ */
+public class WorkerIdLease implements ConnectionStateListener, Closeable {
+    private static final Logger log =
+        LoggerFactory.getLogger(WorkerIdLease.class);
+
+    private final CuratorFramework client;
+    private final String uniqueInstanceId;
+    private final int maxWorkerId;
+    private final IntConsumer listener;
+    private volatile int workerId = -1;
+    //The node held by this session, also while the id is revoked during a suspended connection
+    private int leasedId = -1;
+
+    public WorkerIdLease(CuratorFramework client, String uniqueInstanceId, int maxWorkerId, IntConsumer listener) {
+        this.client = client;
+        this.uniqueInstanceId = uniqueInstanceId;
+        this.maxWorkerId = maxWorkerId;
+        this.listener = listener;
+    }
+
+    /**
+     * @return the leased worker id or -1 if none is free or zookeeper cannot be reached
+     */
+    public synchronized int acquire() {
+        client.getConnectionStateListenable().removeListener(this);
+        client.getConnectionStateListenable().addListener(this);
+        leasedId = lease();
+        workerId = leasedId;
+        listener.accept(workerId);
+        return workerId;
+    }
+
+    public int getWorkerId() {
+        return workerId;
+    }
+
+    private int lease() {
+        final byte[] data = uniqueInstanceId.getBytes(StandardCharsets.UTF_8);
+        //Start at the node still held by the session, or at a position derived from the instance, so a restarted
+        //instance usually gets its old id back
+        final int start = leasedId >= 0 ? leasedId : (uniqueInstanceId.hashCode() & Integer.MAX_VALUE) % (maxWorkerId + 1);
+        for (int i = 0; i <= maxWorkerId; i++) {
+            final int candidate = (start + i) % (maxWorkerId + 1);
+            final String path = getPath(candidate);
+            try {
+                client.create()
+                    .creatingParentContainersIfNeeded()
+                    .withMode(CreateMode.EPHEMERAL)
+                    .forPath(path, data);
+                log.info("Leased worker id {} for instance {}", candidate, uniqueInstanceId);
+                return candidate;
+            } catch (KeeperException.NodeExistsException e) {
+                try {
+                    //Still held by this session, e.g. after a suspended connection. A node of an expiring session or
+                    //of another instance with the same unique instance id is taken, even if it carries our data
+                    final Stat stat = new Stat();
+                    client.getData().storingStatIn(stat).forPath(path);
+                    if (stat.getEphemeralOwner() == client.getZookeeperClient().getZooKeeper().getSessionId()) {
+                        return candidate;
+                    }
+                } catch (Exception ignored) {
+                    //Released in the meantime, the next round may get it
+                }
+            } catch (Exception e) {
+                log.error("租用worker id失败", e);
+                return -1;
+            }
+        }
+        log.error("All {} worker ids are leased, instance {} cannot generate ids", maxWorkerId + 1, uniqueInstanceId);
+        return -1;
+    }
+
+    private static String getPath(int workerId) {
+        return "/" + LeaderSelectorAdapter.WORKERNODE + "/" + workerId;
+    }
+
+    @Override
+    public void stateChanged(CuratorFramework client, ConnectionState newState) {
+        switch (newState) {
+            case SUSPENDED:
+                log.warn("Zookeeper connection suspended, revoking worker id {}", workerId);
+                revoke();
+                break;
+            case LOST:
+                log.warn("Zookeeper session lost, revoking worker id {}", workerId);
+                synchronized (this) {
+                    revoke();
+                    leasedId = -1;
+                }
+                break;
+            case RECONNECTED:
+                synchronized (this) {
+                    leasedId = lease();
+                    workerId = leasedId;
+                    listener.accept(workerId);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void revoke() {
+        workerId = -1;
+        listener.accept(-1);
+    }
+
+    @Override
+    public synchronized void close() {
+        client.getConnectionStateListenable().removeListener(this);
+        if (leasedId >= 0) {
+            revoke();
+            try {
+                //Ids generated before the revocation may carry timestamps up to MAX_BORROW_MS ahead of the clock
+                Thread.sleep(SnowflakeIDPool.MAX_BORROW_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while releasing worker id {}, the node is left to the session", leasedId);
+                return;
+            }
+            try {
+                client.delete().forPath(getPath(leasedId));
+            } catch (Exception e) {
+                log.debug("Could not release worker id {}", leasedId, e);
+            }
+            leasedId = -1;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.idmanagement;
+
+import com.google.common.base.Preconditions;
+import org.janusgraph.diskstorage.ReadBuffer;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.WriteBuffer;
+import org.janusgraph.diskstorage.configuration.Configuration;
+import org.janusgraph.diskstorage.util.WriteByteBuffer;
+import org.janusgraph.graphdb.database.idhandling.VariableLong;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary row key layout for vertex ids of the form {@code count_partition_suffix}.
+ * 紧凑的二进制rowkey格式
+ * <p>
+ * The first byte of the key is a tag that determines the layout of the remaining bytes:
+ * <ul>
+ *     <li>{@link #TAG_NUMERIC}: the count is a canonical decimal long (as produced by
+ *     {@link org.janusgraph.graphdb.database.idassigner.StandardIDPool}) and is written as a variable length long,
+ *     followed by the partition as variable length long and one byte for the code of the
+ *     {@link IDManager.VertexIDType}, see {@link #TYPE_CODES}.</li>
+ *     <li>{@link #TAG_HEX}: the count is a 32 character lower case hex string (as produced by
+ *     {@link org.janusgraph.graphdb.database.idassigner.UUIDIDPool}) and is packed into 16 bytes,
+ *     followed by partition and type as above.</li>
+ *     <li>{@link #TAG_UTF8}: any other id, written as UTF-8 bytes.</li>
+ * </ul>
+ * Keys whose first byte is not one of the tags were written by {@link StringIDKeyCodec} and are decoded
+ * as UTF-8 strings, so {@link org.janusgraph.graphdb.olap.job.IDKeyMigrationJob} can scan them. Point reads
+ * always use the compact key of an id and do not find rows that still have their legacy key, so the graph has to
+ * be offline until the migration is finished.
+ */
+public class CompactIDKeyCodec implements IDKeyCodec {
+
+    public static final byte TAG_NUMERIC = 1;
+    public static final byte TAG_HEX = 2;
+    public static final byte TAG_UTF8 = 3;
+
+    private static final char SEPARATOR = '_';
+    private static final int HEX_LENGTH = 32;
+    private static final int HEX_BYTES = HEX_LENGTH / 2;
+    //A canonical decimal with at most 18 digits always fits into a positive long
+    private static final int MAX_NUMERIC_DIGITS = 18;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The code of a type that is written into the key is its index in this array, independent of the declaration
+     * order of the enum. 写入rowkey的类型编码,新类型只能追加在末尾,不能调整顺序
+     */
+    private static final IDManager.VertexIDType[] TYPE_CODES = {
+        IDManager.VertexIDType.UserVertex,
+        IDManager.VertexIDType.NormalVertex,
+        IDManager.VertexIDType.PartitionedVertex,
+        IDManager.VertexIDType.UnmodifiableVertex,
+        IDManager.VertexIDType.Invisible,
+        IDManager.VertexIDType.InvisibleVertex,
+        IDManager.VertexIDType.Schema,
+        IDManager.VertexIDType.SchemaType,
+        IDManager.VertexIDType.RelationType,
+        IDManager.VertexIDType.PropertyKey,
+        IDManager.VertexIDType.UserPropertyKey,
+        IDManager.VertexIDType.SystemPropertyKey,
+        IDManager.VertexIDType.EdgeLabel,
+        IDManager.VertexIDType.UserEdgeLabel,
+        IDManager.VertexIDType.SystemEdgeLabel,
+        IDManager.VertexIDType.VertexLabel,
+        IDManager.VertexIDType.GenericSchemaType
+    };
+    private static final Map<String, Byte> CODE_BY_SUFFIX = new HashMap<>(TYPE_CODES.length);
+
+    static {
+        for (int code = 0; code < TYPE_CODES.length; code++) {
+            CODE_BY_SUFFIX.put(TYPE_CODES[code].suffix(), (byte) code);
+        }
+    }
+
+    public CompactIDKeyCodec() {
+    }
+
+    public CompactIDKeyCodec(Configuration config) {
+        this();
+    }
+
+    @Override
+    public StaticBuffer encode(String id) {
+        int first = id.indexOf(SEPARATOR);
+        int second = first < 0 ? -1 : id.indexOf(SEPARATOR, first + 1);
+        if (second > 0 && id.indexOf(SEPARATOR, second + 1) < 0) {
+            Byte type = CODE_BY_SUFFIX.get(id.substring(second + 1));
+            long partition = parseCanonicalLong(id, first + 1, second);
+            if (type != null && partition >= 0) {
+                long count = parseCanonicalLong(id, 0, first);
+                if (count >= 0) {
+                    WriteBuffer out = new WriteByteBuffer(1 + VariableLong.positiveLength(count)
+                        + VariableLong.positiveLength(partition) + 1);
+                    out.putByte(TAG_NUMERIC);
+                    VariableLong.writePositive(out, count);
+                    return writePartitionAndType(out, partition, type);
+                } else if (isHex(id, first)) {
+                    WriteBuffer out = new WriteByteBuffer(1 + HEX_BYTES + VariableLong.positiveLength(partition) + 1);
+                    out.putByte(TAG_HEX);
+                    for (int i = 0; i < HEX_LENGTH; i += 2) {
+                        out.putByte((byte) ((hexValue(id.charAt(i)) << 4) | hexValue(id.charAt(i + 1))));
+                    }
+                    return writePartitionAndType(out, partition, type);
+                }
+            }
+        }
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        WriteBuffer out = new WriteByteBuffer(bytes.length + 1);
+        out.putByte(TAG_UTF8);
+        out.putBytes(bytes);
+        return out.getStaticBuffer();
+    }
+
+    @Override
+    public String decode(StaticBuffer key) {
+        byte tag = key.getByte(0);
+        switch (tag) {
+            case TAG_NUMERIC: {
+                ReadBuffer in = key.asReadBuffer();
+                in.getByte();
+                long count = VariableLong.readPositive(in);
+                return appendPartitionAndType(new StringBuilder(32).append(count), in);
+            }
+            case TAG_HEX: {
+                ReadBuffer in = key.asReadBuffer();
+                in.getByte();
+                StringBuilder sb = new StringBuilder(HEX_LENGTH + 16);
+                for (int i = 0; i < HEX_BYTES; i++) {
+                    byte b = in.getByte();
+                    sb.append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+                }
+                return appendPartitionAndType(sb, in);
+            }
+            case TAG_UTF8:
+                return new String(key.getBytes(1, key.length() - 1), StandardCharsets.UTF_8);
+            default:
+                //Key was written by StringIDKeyCodec
+                return StringIDKeyCodec.INSTANCE.decode(key);
+        }
+    }
+
+    /**
+     * Whether the given key was written with one of the compact layouts of this codec.
+     *
+     * @param key row key
+     * @return false if the key was written by {@link StringIDKeyCodec}
+     */
+    public static boolean isCompactKey(StaticBuffer key) {
+        if (key.length() == 0) return false;
+        byte tag = key.getByte(0);
+        return tag == TAG_NUMERIC || tag == TAG_HEX || tag == TAG_UTF8;
+    }
+
+    private static StaticBuffer writePartitionAndType(WriteBuffer out, long partition, byte typeCode) {
+        VariableLong.writePositive(out, partition);
+        out.putByte(typeCode);
+        return out.getStaticBuffer();
+    }
+
+    private static String appendPartitionAndType(StringBuilder sb, ReadBuffer in) {
+        long partition = VariableLong.readPositive(in);
+        int typeCode = in.getByte();
+        Preconditions.checkArgument(typeCode >= 0 && typeCode < TYPE_CODES.length, "Unknown vertex id type code: %s", typeCode);
+        return sb.append(SEPARATOR).append(partition).append(SEPARATOR).append(TYPE_CODES[typeCode].suffix()).toString();
+    }
+
+    /**
+     * @return the code written into the key for the given type or -1 if the type has none
+     */
+    static int getTypeCode(IDManager.VertexIDType type) {
+        Byte code = CODE_BY_SUFFIX.get(type.suffix());
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Parses the decimal between start (inclusive) and end (exclusive) if it round trips through {@link Long#toString()}.
+     *
+     * @return the parsed value or -1 if the substring is not a canonical non-negative long
+     */
+    private static long parseCanonicalLong(String id, int start, int end) {
+        int length = end - start;
+        if (length <= 0 || length > MAX_NUMERIC_DIGITS) return -1;
+        if (length > 1 && id.charAt(start) == '0') return -1;
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isHex(String id, int length) {
+        if (length != HEX_LENGTH) return false;
+        for (int i = 0; i < length; i++) {
+            if (hexValue(id.charAt(i)) < 0) return false;
+        }
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        return -1;
+    }
+}
@@ -0,0 +1,49 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.idmanagement;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+
+/**
+ * Converts vertex ids into the row keys used by the edgestore, property_properties, attachment and note stores
+ * and back again.
+ * 把顶点id转换为edgestore、property_properties、attachment、note表的rowkey,以及反向解析
+ *
+ * Implementations must be able to decode any key they produce. Implementations that change the key layout
+ * should also be able to decode keys written by {@link StringIDKeyCodec} so that
+ * {@link org.janusgraph.graphdb.olap.job.IDKeyMigrationJob} can rewrite the rows of an existing graph. Point reads only
+ * use the encoded key, so the graph has to be offline during the migration.
+ *
+ * The codec is configurable through {@link org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration#IDS_KEY_CODEC}.
+ */
+public interface IDKeyCodec {
+
+    /**
+     * Encodes the given vertex id into a row key.
+     *
+     * @param id vertex id
+     * @return row key
+     */
+    StaticBuffer encode(String id);
+
+    /**
+     * Decodes a row key that was produced by {@link #encode(String)}.
+     *
+     * @param key row key
+     * @return vertex id
+     */
+    String decode(StaticBuffer key);
+
+}
@@ -19,7 +19,8 @@ import org.janusgraph.graphdb.database.idassigner.Preconditions;
 import org.apache.commons.lang.StringUtils;
 import org.janusgraph.core.InvalidIDException;
 import org.janusgraph.diskstorage.StaticBuffer;
-import org.janusgraph.diskstorage.util.StaticArrayBuffer;
+import org.janusgraph.graphdb.database.idassigner.placement.JavaHashPartitionFunction;
+import org.janusgraph.graphdb.database.idassigner.placement.PartitionHashFunction;
 
 /**
  * Handles the allocation of ids based on the type of element
@@ -451,9 +452,22 @@ public class IDManager {
     private final long relationCountBound;
     private final long vertexCountBound;
 
+    private final IDKeyCodec keyCodec;
+    private final PartitionHashFunction partitionHash;
+
 
     public IDManager(long partitionBits) {
+        this(partitionBits, StringIDKeyCodec.INSTANCE);
+    }
+
+    public IDManager(long partitionBits, IDKeyCodec keyCodec) {
+        this(partitionBits, keyCodec, JavaHashPartitionFunction.INSTANCE);
+    }
+
+    public IDManager(long partitionBits, IDKeyCodec keyCodec, PartitionHashFunction partitionHash) {
         Preconditions.checkArgument(partitionBits >= 0);
+        Preconditions.checkNotNull(keyCodec);
+        Preconditions.checkNotNull(partitionHash);
         Preconditions.checkArgument(partitionBits <= MAX_PARTITION_BITS,
                 "Partition bits can be at most %s bits", MAX_PARTITION_BITS);
         this.partitionBits = partitionBits;
@@ -466,6 +480,8 @@ public class IDManager {
 
 
         partitionOffset = Long.SIZE - partitionBits;
+        this.keyCodec = keyCodec;
+        this.partitionHash = partitionHash;
     }
 
     public IDManager() {
@@ -476,6 +492,14 @@ public class IDManager {
         return partitionIDBound;
     }
 
+    public IDKeyCodec getKeyCodec() {
+        return keyCodec;
+    }
+
+    public PartitionHashFunction getPartitionHash() {
+        return partitionHash;
+    }
+
     /* ########################################################
                    User Relations and Vertices
        ########################################################  */
@@ -522,20 +546,35 @@ public class IDManager {
         long partition = (vertexId>>>USERVERTEX_PADDING_BITWIDTH) & (partitionIDBound-1);
         assert partition>=0;*/
         //long partition=Math.abs(vertexId.hashCode())%partitionIDBound;
-        String[] strings =StringUtils.split(vertexId,"_");
-        if(strings!=null&&strings.length>=2){
-            long partition = Long.parseLong(strings[1]);
-            return partition;
-        }else {
-            long partition = Math.abs(vertexId.hashCode()) % partitionIDBound;
-            return partition;
+        long partition = parsePartition(vertexId);
+        if (partition >= 0) return partition;
+        return getHashPartition(vertexId);
+    }
+
+    /**
+     * Reads the partition of an id of the form {@code count_partition[_suffix]} without splitting the string.
+     *
+     * @return the partition or -1 if the id carries none
+     */
+    private static long parsePartition(String id) {
+        int start = id.indexOf('_') + 1;
+        if (start <= 0 || start >= id.length()) return -1;
+        int end = id.indexOf('_', start);
+        if (end < 0) end = id.length();
+        if (end == start) return -1;
+        long partition = 0;
+        for (int i = start; i < end; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            partition = partition * 10 + (c - '0');
         }
+        return partition;
     }
 
     public StaticBuffer getKey(String vertexId) {
         if (VertexIDType.Schema.is(vertexId)) {
             //No partition for schema vertices
-            return StaticArrayBuffer.of(vertexId.getBytes());
+            return keyCodec.encode(vertexId);
             //return BufferUtil.getLongBuffer(vertexId);
         } else {
             assert isUserVertexId(vertexId);
@@ -546,24 +585,13 @@ public class IDManager {
             assert count>0;
             long keyId = (partition<<partitionOffset) | type.addPadding(count);
             return BufferUtil.getLongBuffer(keyId);*/
-            //String newId=vertexId+type.suffix();
-            return StaticArrayBuffer.of(vertexId.getBytes());
+            return keyCodec.encode(vertexId);
         }
     }
 
     public String getKeyID(StaticBuffer b) {
         //String value=BufferUtil.getSerializer().readObjectNotNull(b.asReadBuffer(),String.class);
-        String value=new String(b.asByteBuffer().array());
-        if (VertexIDType.Schema.is(value)) {
-            return value;
-        } else {
-            //VertexIDType type = getUserVertexIDType(value);
-            //long partition = partitionOffset<Long.SIZE?value>>>partitionOffset:0;
-            //long count = (value>>>USERVERTEX_PADDING_BITWIDTH) & ((1L <<(partitionOffset-USERVERTEX_PADDING_BITWIDTH))-1);
-            //long partition =this.getPartitionId(value);
-            //return constructId(value,partition,type);
-            return value;
-        }
+        return keyCodec.decode(b);
     }
 
     public String getRelationID(String count, long partition) {
@@ -595,14 +623,9 @@ public class IDManager {
         }
         assert result>=0 && result<partitionIDBound;
         return result;*/
-        String[] strings = StringUtils.split(id,"_");
-        if(strings!=null&&strings.length>=2){
-            long partition = Long.parseLong(strings[1]);
-            return partition;
-        }else {
-            long partition = Math.abs(id.hashCode()) % partitionIDBound;
-            return partition;
-        }
+        long partition = parsePartition(id);
+        if (partition >= 0) return partition;
+        return getHashPartition(id);
     }
 
     public long getHashPartition(long hash){
@@ -610,6 +633,16 @@ public class IDManager {
         return partition;
     }
 
+    /**
+     * Returns the partition of a user provided id as determined by the configured {@link PartitionHashFunction}.
+     *
+     * @param id user provided id
+     * @return partition id
+     */
+    public long getHashPartition(String id) {
+        return partitionHash.getPartition(id, partitionIDBound);
+    }
+
     private String getCanonicalVertexIdFromCount(String count) {
         long partition = getPartitionHashForId(count);
         return constructId(count,partition,VertexIDType.PartitionedVertex);
@@ -653,7 +686,7 @@ public class IDManager {
     public String toVertexId(String id) {
         Preconditions.checkArgument(StringUtils.isNotBlank(id), "Vertex id must be positive: %s", id);
         //Preconditions.checkArgument(vertexCountBound > id, "Vertex id is too large: %s", id);
-        long partition=this.getHashPartition(id.hashCode());
+        long partition=this.getHashPartition(id);
         return getVertexID(id,partition,IDManager.VertexIDType.NormalVertex);
         //return id<<(partitionBits+USERVERTEX_PADDING_BITWIDTH);
     }
@@ -0,0 +1,47 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.idmanagement;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.configuration.Configuration;
+import org.janusgraph.diskstorage.util.StaticArrayBuffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The original row key layout: the UTF-8 bytes of the vertex id.
+ * 原始的rowkey格式:顶点id的UTF-8字节
+ */
+public class StringIDKeyCodec implements IDKeyCodec {
+
+    public static final StringIDKeyCodec INSTANCE = new StringIDKeyCodec();
+
+    public StringIDKeyCodec() {
+    }
+
+    public StringIDKeyCodec(Configuration config) {
+        this();
+    }
+
+    @Override
+    public StaticBuffer encode(String id) {
+        return StaticArrayBuffer.of(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String decode(StaticBuffer key) {
+        return new String(key.as(StaticBuffer.ARRAY_FACTORY), StandardCharsets.UTF_8);
+    }
+}
@@ -35,6 +35,7 @@ import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
 import org.janusgraph.diskstorage.keycolumnvalue.scan.ScanJob;
 import org.janusgraph.diskstorage.keycolumnvalue.scan.ScanMetrics;
 import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.graphdb.database.PropertyPropertyLayout;
 import org.janusgraph.graphdb.database.StandardJanusGraph;
 import org.janusgraph.graphdb.database.serialize.InternalAttributeUtil;
 import org.janusgraph.graphdb.database.serialize.Serializer;
@@ -180,6 +181,7 @@ public class VertexJobConverter extends AbstractScanJob {
 
     /**
      * 列名=》属性类型id+md5(属性值).substring(8,16)+属性的属性类型id+属性的属性值
+     *       (hash64格式: 属性类型id+0x00+8字节hash(序列化后的属性值)+属性的属性类型id+属性的属性值)
      * 列值=》属性值的ID
      * @param propertyProperties
      * @return
@@ -193,7 +195,7 @@ public class VertexJobConverter extends AbstractScanJob {
                 Entry entry = iterator.next();
                 ReadBuffer buffer = entry.asReadBuffer();
                 String propertyTypeId = serializer.readObjectNotNull(buffer, String.class);
-                String propertyValue_md5 = serializer.readObjectNotNull(buffer, String.class);
+                String propertyValue_md5 = PropertyPropertyLayout.readValuePrefix(buffer, serializer);
                 String propertyPropertyKeyId = serializer.readObjectNotNull(buffer, String.class);
                 RelationType relationType = tx.getExistingRelationType(propertyPropertyKeyId);
                 PropertyKey key = (PropertyKey) relationType;
@@ -201,7 +203,7 @@ public class VertexJobConverter extends AbstractScanJob {
                 String propertyId = serializer.readObjectNotNull(buffer, String.class);
                 PropertyPropertyInfo propertyPropertyInfo = new PropertyPropertyInfo(propertyTypeId, propertyValue_md5,
                     propertyPropertyKeyId,propertyPropertyValue,propertyId,key);
-                multimap.put(propertyTypeId+propertyValue_md5,propertyPropertyInfo);
+                multimap.put(PropertyPropertyLayout.groupKey(propertyTypeId, propertyValue_md5, propertyId),propertyPropertyInfo);
             }
         }
         return multimap;
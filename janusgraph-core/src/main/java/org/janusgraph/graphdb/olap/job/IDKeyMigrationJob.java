@@ -0,0 +1,159 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.olap.job;
+
+import org.janusgraph.core.JanusGraph;
+import org.janusgraph.core.JanusGraphException;
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.BackendTransaction;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.PropertyEntry;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.configuration.ConfigNamespace;
+import org.janusgraph.diskstorage.configuration.ConfigOption;
+import org.janusgraph.diskstorage.configuration.Configuration;
+import org.janusgraph.diskstorage.keycolumnvalue.KeySliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.scan.ScanMetrics;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.olap.AbstractScanJob;
+import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
+import org.janusgraph.graphdb.transaction.StandardTransactionBuilder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites all rows of the edgestore and the property_properties, attachment and note stores whose row key
+ * is not in the layout of the currently configured {@link org.janusgraph.graphdb.idmanagement.IDKeyCodec}.
+ * 把rowkey迁移到当前配置的IDKeyCodec格式
+ * <p>
+ * The job is meant to run after {@link org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration#IDS_KEY_CODEC}
+ * has been switched and while the graph is offline: point reads only use the new key of a vertex and miss rows that
+ * have not been migrated yet. Every {@link #BATCH_SIZE} migrated rows are committed together. Rows already in the
+ * target layout are skipped, so an interrupted migration can simply be started again.
+ */
+public class IDKeyMigrationJob extends AbstractScanJob {
+
+    public static final String MIGRATED_ROW_COUNT = "migrated-rows";
+    public static final String MIGRATED_ENTRY_COUNT = "migrated-entries";
+
+    public static final ConfigNamespace KEY_MIGRATION_NS = new ConfigNamespace(GraphDatabaseConfiguration.JOB_NS,
+        "key-migration", "Configuration options relating to row key migration jobs");
+
+    public static final ConfigOption<Integer> BATCH_SIZE = new ConfigOption<>(KEY_MIGRATION_NS, "batch-size",
+        "每次提交最多迁移的行数",
+        ConfigOption.Type.LOCAL, 1000, ConfigOption.positiveInt());
+
+    private static final SliceQuery EVERYTHING_QUERY = new SliceQuery(BufferUtil.zeroBuffer(1), BufferUtil.oneBuffer(4));
+    private static final StaticBuffer SIDE_STORE_START = BufferUtil.zeroBuffer(1);
+    private static final StaticBuffer SIDE_STORE_END = BufferUtil.oneBuffer(4);
+
+    private int batchSize = BATCH_SIZE.getDefaultValue();
+    private int uncommittedRows;
+
+    public IDKeyMigrationJob(JanusGraph graph) {
+        super(graph);
+    }
+
+    public IDKeyMigrationJob() {
+        this((JanusGraph) null);
+    }
+
+    protected IDKeyMigrationJob(IDKeyMigrationJob copy) {
+        super(copy);
+        this.batchSize = copy.batchSize;
+    }
+
+    @Override
+    public IDKeyMigrationJob clone() {
+        return new IDKeyMigrationJob(this);
+    }
+
+    @Override
+    public void workerIterationStart(Configuration jobConfig, Configuration graphConfig, ScanMetrics metrics) {
+        batchSize = jobConfig.get(BATCH_SIZE);
+        uncommittedRows = 0;
+        open(graphConfig);
+    }
+
+    @Override
+    protected StandardJanusGraphTx startTransaction(StandardJanusGraph graph) {
+        StandardTransactionBuilder txb = graph.buildTransaction();
+        txb.checkExternalVertexExistence(false);
+        txb.checkInternalVertexExistence(false);
+        return (StandardJanusGraphTx) txb.start();
+    }
+
+    @Override
+    public void process(StaticBuffer key, Map<SliceQuery, EntryList> entries, ScanMetrics metrics, PropertyEntry propertyEntry) {
+        String vertexId = getVertexId(key);
+        StaticBuffer newKey = idManager.getKey(vertexId);
+        if (newKey.equals(key)) return;
+
+        BackendTransaction txHandle = tx.getTxHandle();
+        try {
+            int migrated = 0;
+            EntryList edges = entries.get(EVERYTHING_QUERY);
+            if (edges != null && !edges.isEmpty()) {
+                txHandle.mutateEdges(newKey, edges, null);
+                txHandle.mutateEdges(key, null, edges);
+                migrated += edges.size();
+            }
+            KeySliceQuery sideQuery = new KeySliceQuery(key, SIDE_STORE_START, SIDE_STORE_END);
+            EntryList propertyProperties = txHandle.propertyPropertiesQuery(sideQuery);
+            if (!propertyProperties.isEmpty()) {
+                txHandle.mutatePropertyProperties(newKey, propertyProperties, null);
+                txHandle.mutatePropertyProperties(key, null, propertyProperties);
+                migrated += propertyProperties.size();
+            }
+            EntryList attachments = txHandle.attachmentQuery(sideQuery);
+            if (!attachments.isEmpty()) {
+                txHandle.mutateAttachment(newKey, attachments, null);
+                txHandle.mutateAttachment(key, null, attachments);
+                migrated += attachments.size();
+            }
+            EntryList notes = txHandle.noteQuery(sideQuery);
+            if (!notes.isEmpty()) {
+                txHandle.mutateNote(newKey, notes, null);
+                txHandle.mutateNote(key, null, notes);
+                migrated += notes.size();
+            }
+            metrics.incrementCustom(MIGRATED_ROW_COUNT);
+            metrics.incrementCustom(MIGRATED_ENTRY_COUNT, migrated);
+            if (++uncommittedRows >= batchSize) {
+                tx.commit();
+                tx = startTransaction(graph.get());
+                uncommittedRows = 0;
+            }
+        } catch (BackendException e) {
+            throw new JanusGraphException("Could not migrate row key of vertex " + vertexId, e);
+        }
+    }
+
+    @Override
+    public void workerIterationEnd(final ScanMetrics metrics) {
+        tx.commit();
+        close();
+    }
+
+    @Override
+    public List<SliceQuery> getQueries() {
+        return Collections.singletonList(EVERYTHING_QUERY);
+    }
+}
@@ -0,0 +1,123 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.olap.job;
+
+import org.janusgraph.core.JanusGraph;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.PropertyEntry;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.configuration.Configuration;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.scan.ScanMetrics;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.olap.AbstractScanJob;
+import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports how the vertices of an existing graph are distributed over the partitions and over the first byte of
+ * the row key. Nothing is written.
+ * 统计已有图的顶点在各分区以及rowkey首字节上的分布，用于诊断写热点
+ * <p>
+ * The partition histogram shows how evenly the configured placement spreads vertices, while the key prefix
+ * histogram approximates the load on key ordered storage backends (e.g. HBase regions), since rows are ordered
+ * by their key bytes and not by partition. Use {@link #getSkew(ScanMetrics, String, int)} on the returned metrics
+ * to summarize either histogram.
+ */
+public class PartitionSkewJob extends AbstractScanJob {
+
+    public static final String VERTEX_COUNT = "vertices";
+    public static final String SCHEMA_ROW_COUNT = "schema-rows";
+    public static final String PARTITION_PREFIX = "partition-";
+    public static final String KEY_PREFIX = "key-prefix-";
+
+    public static final int KEY_PREFIX_BUCKETS = 256;
+
+    private static final SliceQuery FIRST_COLUMN_QUERY = new SliceQuery(BufferUtil.zeroBuffer(1), BufferUtil.oneBuffer(4)).setLimit(1);
+
+    public PartitionSkewJob(JanusGraph graph) {
+        super(graph);
+    }
+
+    public PartitionSkewJob() {
+        this((JanusGraph) null);
+    }
+
+    protected PartitionSkewJob(PartitionSkewJob copy) {
+        super(copy);
+    }
+
+    @Override
+    public PartitionSkewJob clone() {
+        return new PartitionSkewJob(this);
+    }
+
+    @Override
+    public void workerIterationStart(Configuration jobConfig, Configuration graphConfig, ScanMetrics metrics) {
+        open(graphConfig);
+    }
+
+    @Override
+    protected StandardJanusGraphTx startTransaction(StandardJanusGraph graph) {
+        return (StandardJanusGraphTx) graph.buildTransaction().readOnly().start();
+    }
+
+    @Override
+    public void process(StaticBuffer key, Map<SliceQuery, EntryList> entries, ScanMetrics metrics, PropertyEntry propertyEntry) {
+        String vertexId = getVertexId(key);
+        if (!idManager.isUserVertexId(vertexId)) {
+            metrics.incrementCustom(SCHEMA_ROW_COUNT);
+            return;
+        }
+        metrics.incrementCustom(VERTEX_COUNT);
+        metrics.incrementCustom(PARTITION_PREFIX + idManager.getPartitionId(vertexId));
+        metrics.incrementCustom(KEY_PREFIX + (key.getByte(0) & 0xFF));
+    }
+
+    @Override
+    public void workerIterationEnd(final ScanMetrics metrics) {
+        close();
+    }
+
+    @Override
+    public List<SliceQuery> getQueries() {
+        return Collections.singletonList(FIRST_COLUMN_QUERY);
+    }
+
+    /**
+     * Ratio between the fullest bucket of a histogram and the average bucket. 1.0 means a perfectly even
+     * distribution, a value of n means that the fullest bucket holds n times its fair share.
+     *
+     * @param metrics metrics returned by a completed run of this job
+     * @param prefix {@link #PARTITION_PREFIX} or {@link #KEY_PREFIX}
+     * @param buckets number of buckets, i.e. the partition bound or {@link #KEY_PREFIX_BUCKETS}
+     * @return skew of the histogram or 0 if it is empty
+     */
+    public static double getSkew(ScanMetrics metrics, String prefix, int buckets) {
+        long total = 0;
+        long max = 0;
+        for (int i = 0; i < buckets; i++) {
+            long count = metrics.getCustom(prefix + i);
+            total += count;
+            max = Math.max(max, count);
+        }
+        if (total == 0) return 0;
+        return max / ((double) total / buckets);
+    }
+}
@@ -0,0 +1,153 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.olap.job;
+
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.janusgraph.core.JanusGraph;
+import org.janusgraph.core.JanusGraphException;
+import org.janusgraph.core.JanusGraphVertex;
+import org.janusgraph.diskstorage.configuration.ConfigNamespace;
+import org.janusgraph.diskstorage.configuration.ConfigOption;
+import org.janusgraph.diskstorage.configuration.Configuration;
+import org.janusgraph.diskstorage.keycolumnvalue.scan.ScanMetrics;
+import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.olap.QueryContainer;
+import org.janusgraph.graphdb.olap.VertexScanJob;
+import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
+import org.janusgraph.graphdb.transaction.VertexMerger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Merges every vertex that carries the merge marker property into the vertex whose id is the value of the marker.
+ * 批量对象合并:被合并对象上的标记属性(默认merge_to)的值为合并对象的id
+ * <p>
+ * Each vertex is merged with {@link VertexMerger} in steps of at most {@link #BATCH_SIZE} edges, attachments and notes,
+ * and every step is committed in its own transaction, so merging a supernode never builds a single huge transaction.
+ * A step only moves what is still left on the source and the marker is removed together with the source in the last
+ * step, so the job can simply be started again after it failed.
+ */
+public class VertexMergeJob implements VertexScanJob {
+
+    private static final Logger log = LoggerFactory.getLogger(VertexMergeJob.class);
+
+    public static final String MERGED_VERTEX_COUNT = "merged-vertices";
+    public static final String MOVED_EDGE_COUNT = "moved-edges";
+    public static final String MOVED_ATTACHMENT_COUNT = "moved-attachments";
+    public static final String MOVED_NOTE_COUNT = "moved-notes";
+    public static final String MISSING_TARGET_COUNT = "missing-targets";
+    public static final String SUCCESS_TX = "success-tx";
+    public static final String FAILED_TX = "failed-tx";
+
+    public static final ConfigNamespace MERGE_JOB_NS = new ConfigNamespace(GraphDatabaseConfiguration.JOB_NS, "merge",
+        "Configuration options relating to vertex merge jobs");
+
+    public static final ConfigOption<Integer> BATCH_SIZE = new ConfigOption<>(MERGE_JOB_NS, "batch-size",
+        "每次提交最多迁移的关系、附件和注释的数量",
+        ConfigOption.Type.LOCAL, 1000, ConfigOption.positiveInt());
+
+    public static final ConfigOption<String> MARKER_KEY = new ConfigOption<>(MERGE_JOB_NS, "marker-key",
+        "标记被合并对象的属性类型,属性值为合并对象的id",
+        ConfigOption.Type.LOCAL, VertexMerger.MERGE_TO_PROPERTY);
+
+    public static final ConfigOption<String[]> SKIPPED_PROPERTY_KEYS = new ConfigOption<>(MERGE_JOB_NS, "skipped-property-keys",
+        "合并时忽略的属性类型,这些属性的值不会拷贝到合并对象上",
+        ConfigOption.Type.LOCAL, new String[0]);
+
+    public static final ConfigOption<String[]> SKIPPED_EDGE_LABELS = new ConfigOption<>(MERGE_JOB_NS, "skipped-edge-labels",
+        "合并时忽略的关系类型,这些关系不会迁移到合并对象上",
+        ConfigOption.Type.LOCAL, new String[0]);
+
+    private StandardJanusGraph graph;
+    private String markerKey = VertexMerger.MERGE_TO_PROPERTY;
+    private int batchSize = BATCH_SIZE.getDefaultValue();
+    private VertexMerger merger;
+
+    public VertexMergeJob() {
+    }
+
+    protected VertexMergeJob(VertexMergeJob copy) {
+        this.markerKey = copy.markerKey;
+        this.batchSize = copy.batchSize;
+    }
+
+    @Override
+    public void workerIterationStart(JanusGraph graph, Configuration config, ScanMetrics metrics) {
+        this.graph = (StandardJanusGraph) graph;
+        this.batchSize = config.get(BATCH_SIZE);
+        this.markerKey = config.get(MARKER_KEY);
+        Set<String> skippedPropertyKeys = new HashSet<>(Arrays.asList(config.get(SKIPPED_PROPERTY_KEYS)));
+        skippedPropertyKeys.add(markerKey);
+        Set<String> skippedEdgeLabels = new HashSet<>(Arrays.asList(config.get(SKIPPED_EDGE_LABELS)));
+        this.merger = new VertexMerger(skippedPropertyKeys, skippedEdgeLabels);
+    }
+
+    @Override
+    public void process(JanusGraphVertex vertex, ScanMetrics metrics) {
+        VertexProperty<Object> marker = vertex.property(markerKey);
+        if (!marker.isPresent()) return;
+        String sourceId = vertex.id().toString();
+        String targetId = marker.value().toString();
+        if (sourceId.equals(targetId)) return;
+
+        boolean completed = false;
+        while (!completed) {
+            StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.buildTransaction()
+                .consistencyChecks(false).checkExternalVertexExistence(true).start();
+            try {
+                JanusGraphVertex source = tx.getVertex(sourceId);
+                if (source == null) {
+                    //已经合并过
+                    tx.rollback();
+                    return;
+                }
+                JanusGraphVertex target = tx.getVertex(targetId);
+                if (target == null) {
+                    log.warn("Cannot merge vertex {} into missing vertex {}", sourceId, targetId);
+                    metrics.incrementCustom(MISSING_TARGET_COUNT);
+                    tx.rollback();
+                    return;
+                }
+                VertexMerger.Step step = merger.merge(tx, source, target, batchSize);
+                tx.commit();
+                metrics.incrementCustom(SUCCESS_TX);
+                metrics.incrementCustom(MOVED_EDGE_COUNT, step.getEdges());
+                metrics.incrementCustom(MOVED_ATTACHMENT_COUNT, step.getAttachments());
+                metrics.incrementCustom(MOVED_NOTE_COUNT, step.getNotes());
+                completed = step.isCompleted();
+            } catch (RuntimeException e) {
+                if (tx.isOpen()) tx.rollback();
+                metrics.incrementCustom(FAILED_TX);
+                throw new JanusGraphException("Could not merge vertex " + sourceId + " into " + targetId, e);
+            }
+        }
+        metrics.incrementCustom(MERGED_VERTEX_COUNT);
+    }
+
+    @Override
+    public void getQueries(QueryContainer queries) {
+        queries.addQuery().keys(markerKey).properties();
+    }
+
+    @Override
+    public VertexMergeJob clone() {
+        return new VertexMergeJob(this);
+    }
+}
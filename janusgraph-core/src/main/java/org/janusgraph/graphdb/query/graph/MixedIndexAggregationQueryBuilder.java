@@ -0,0 +1,227 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.query.graph;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.util.NumberHelper;
+import org.janusgraph.core.JanusGraphElement;
+import org.janusgraph.core.MixedIndexAggregationQuery;
+import org.janusgraph.core.PropertyKey;
+import org.janusgraph.diskstorage.BackendTransaction;
+import org.janusgraph.diskstorage.indexing.IndexAggregation;
+import org.janusgraph.graphdb.database.IndexSerializer;
+import org.janusgraph.graphdb.database.idassigner.Preconditions;
+import org.janusgraph.graphdb.internal.ElementCategory;
+import org.janusgraph.graphdb.query.profile.QueryProfiler;
+import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Builds a {@link MixedIndexAggregationQuery}, which contains a single query against a mixed index. The aggregation is
+ * pushed down to the index backend, if the backend cannot compute it the matching elements are aggregated in the
+ * transaction.
+ */
+public class MixedIndexAggregationQueryBuilder implements MixedIndexAggregationQuery {
+    private final StandardJanusGraphTx tx;
+    private final BackendTransaction txHandle;
+    private final IndexSerializer serializer;
+    /**
+     * Search query against index backend
+     */
+    private JointIndexQuery.Subquery query;
+    private ElementCategory resultType;
+    /**
+     * The profiler observing this query
+     */
+    private QueryProfiler profiler = QueryProfiler.NO_OP;
+
+    public MixedIndexAggregationQueryBuilder(StandardJanusGraphTx tx, IndexSerializer serializer, BackendTransaction txHandle) {
+        Preconditions.checkNotNull(serializer);
+        this.tx = tx;
+        this.serializer = serializer;
+        this.txHandle = txHandle;
+    }
+
+    public MixedIndexAggregationQueryBuilder constructIndex(JointIndexQuery indexQuery, ElementCategory resultType) {
+        if (indexQuery.size() != 1 || !indexQuery.getQuery(0).getIndex().isMixedIndex()) {
+            return null;
+        }
+        this.query = indexQuery.getQuery(0);
+        this.resultType = resultType;
+        return this;
+    }
+
+    @Override
+    public boolean supports(String key) {
+        final PropertyKey propertyKey = tx.getPropertyKey(key);
+        return propertyKey != null && query.getIndex().indexesKey(propertyKey);
+    }
+
+    @Override
+    public Map<Object, Long> executeGroupCount(String key) {
+        return (Map<Object, Long>) execute(IndexAggregation.Type.COUNT_BY_VALUE, key, null);
+    }
+
+    @Override
+    public Number executeMin(String key) {
+        return (Number) execute(IndexAggregation.Type.MIN, key, null);
+    }
+
+    @Override
+    public Number executeMax(String key) {
+        return (Number) execute(IndexAggregation.Type.MAX, key, null);
+    }
+
+    @Override
+    public Number executeSum(String key) {
+        return (Number) execute(IndexAggregation.Type.SUM, key, null);
+    }
+
+    @Override
+    public Map<Double, Long> executeHistogram(String key, Number interval) {
+        Preconditions.checkArgument(interval != null && interval.doubleValue() > 0, "Invalid histogram interval: %s", interval);
+        return (Map<Double, Long>) execute(IndexAggregation.Type.HISTOGRAM, key, interval);
+    }
+
+    private Object execute(IndexAggregation.Type type, String key, Number interval) {
+        Preconditions.checkArgument(supports(key), "Key [%s] is not indexed by mixed index [%s]", key, query.getIndex().getName());
+        final PropertyKey propertyKey = tx.getPropertyKey(key);
+        if (type != IndexAggregation.Type.COUNT_BY_VALUE) {
+            Preconditions.checkArgument(Number.class.isAssignableFrom(propertyKey.dataType()),
+                "Key [%s] is not numeric and does not support %s", key, type);
+        }
+        profiler.startTimer();
+        profiler.setAnnotation(QueryProfiler.QUERY_ANNOTATION, query.getMixedQuery());
+        profiler.setAnnotation(QueryProfiler.AGGREGATION_ANNOTATION, type + "(" + key + ")");
+        try {
+            final Object result = serializer.aggregate(query, type, propertyKey, interval, txHandle);
+            if (result != null) {
+                return convert(type, result, propertyKey.dataType());
+            }
+            //索引后端不支持时读取匹配的元素计算
+            profiler.setAnnotation(QueryProfiler.FALLBACK_ANNOTATION, true);
+            return aggregateInGraph(type, key, interval);
+        } finally {
+            profiler.stopTimer();
+        }
+    }
+
+    private Object aggregateInGraph(IndexAggregation.Type type, String key, Number interval) {
+        final Map<Object, Long> counts = type == IndexAggregation.Type.HISTOGRAM ? new TreeMap<>() : new HashMap<>();
+        Number aggregate = null;
+        try (Stream<? extends JanusGraphElement> elements = serializer.query(query, txHandle)
+            .map(tx.getConversionFunction(resultType))) {
+            for (Iterator<? extends JanusGraphElement> iterator = elements.iterator(); iterator.hasNext(); ) {
+                final JanusGraphElement element = iterator.next();
+                if (element == null || element.isRemoved()) continue;
+                final Set<Object> distinct = new HashSet<>();
+                for (Iterator<? extends Property<Object>> properties = ((Element) element).properties(key); properties.hasNext(); ) {
+                    final Object value = properties.next().value();
+                    switch (type) {
+                        case COUNT_BY_VALUE:
+                            distinct.add(value);
+                            break;
+                        case HISTOGRAM:
+                            final double bucket = Math.floor(((Number) value).doubleValue() / interval.doubleValue()) * interval.doubleValue();
+                            distinct.add(bucket);
+                            break;
+                        case MIN:
+                            aggregate = aggregate == null ? (Number) value : NumberHelper.min(aggregate, (Number) value);
+                            break;
+                        case MAX:
+                            aggregate = aggregate == null ? (Number) value : NumberHelper.max(aggregate, (Number) value);
+                            break;
+                        case SUM:
+                            aggregate = aggregate == null ? (Number) value : NumberHelper.add(aggregate, (Number) value);
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Unexpected aggregation: " + type);
+                    }
+                }
+                distinct.forEach(value -> counts.merge(value, 1L, Long::sum));
+            }
+        }
+        return type == IndexAggregation.Type.COUNT_BY_VALUE || type == IndexAggregation.Type.HISTOGRAM ? counts : aggregate;
+    }
+
+    /**
+     * Converts the values returned by the index backend, which are usually doubles, longs or strings, back to the data
+     * type of the key.
+     */
+    private static Object convert(IndexAggregation.Type type, Object result, Class<?> dataType) {
+        switch (type) {
+            case COUNT_BY_VALUE:
+                final Map<Object, Long> counts = new LinkedHashMap<>();
+                ((Map<?, ?>) result).forEach((value, count) -> counts.merge(convertValue(value, dataType), ((Number) count).longValue(), Long::sum));
+                return counts;
+            case HISTOGRAM:
+                final Map<Double, Long> buckets = new TreeMap<>();
+                ((Map<?, ?>) result).forEach((bucket, count) -> buckets.put(((Number) bucket).doubleValue(), ((Number) count).longValue()));
+                return buckets;
+            default:
+                if (result instanceof Double && ((Double) result).isNaN()) {
+                    return null;
+                }
+                return convertValue(result, dataType);
+        }
+    }
+
+    static Object convertValue(Object value, Class<?> dataType) {
+        if (value == null || dataType.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Number) {
+            final Number number = (Number) value;
+            if (dataType == Integer.class) return number.intValue();
+            if (dataType == Long.class) return number.longValue();
+            if (dataType == Short.class) return number.shortValue();
+            if (dataType == Byte.class) return number.byteValue();
+            if (dataType == Float.class) return number.floatValue();
+            if (dataType == Double.class) return number.doubleValue();
+            if (dataType == Date.class) return new Date(number.longValue());
+            if (dataType == Instant.class) return Instant.ofEpochMilli(number.longValue());
+            if (dataType == Boolean.class) return number.longValue() != 0;
+        }
+        if (dataType == Boolean.class) {
+            return Boolean.valueOf(value.toString());
+        }
+        if (dataType == String.class) {
+            return Objects.toString(value);
+        }
+        return value;
+    }
+
+    @Override
+    public void observeWith(QueryProfiler parentProfiler, boolean hasSiblings) {
+        profiler = parentProfiler.addNested(QueryProfiler.MIXED_INDEX_AGGREGATION_QUERY);
+    }
+
+    @Override
+    public QueryProfiler getProfiler() {
+        return profiler;
+    }
+}
@@ -39,6 +39,8 @@ public interface QueryProfiler {
     String QUERY_ANNOTATION = "query";
     String FULLSCAN_ANNOTATION = "fullscan";
     String INDEX_ANNOTATION = "index";
+    String AGGREGATION_ANNOTATION = "aggregation";
+    String FALLBACK_ANNOTATION = "fallback";
 
     /* ==================================================================================
                                        GROUP NAMES
@@ -52,6 +54,7 @@ public interface QueryProfiler {
     // graph centric query execution phase
     String GRAPH_CENTRIC_QUERY = "GraphCentricQuery";
     String MIXED_INEX_COUNT_QUERY = "MixedIndexCountQuery";
+    String MIXED_INDEX_AGGREGATION_QUERY = "MixedIndexAggregationQuery";
 
     QueryProfiler NO_OP = new QueryProfiler() {
         @Override
@@ -33,6 +33,7 @@ import org.janusgraph.core.JanusGraphMultiVertexQuery;
 import org.janusgraph.core.JanusGraphQuery;
 import org.janusgraph.core.JanusGraphTransaction;
 import org.janusgraph.core.JanusGraphVertex;
+import org.janusgraph.core.MixedIndexAggregationQuery;
 import org.janusgraph.core.MixedIndexCountQuery;
 import org.janusgraph.core.PropertyKey;
 import org.janusgraph.core.RelationType;
@@ -190,6 +191,11 @@ public abstract class JanusGraphBlueprintsGraph implements JanusGraph {
         return getAutoStartTx().mixedIndexCountQuery();
     }
 
+    @Override
+    public MixedIndexAggregationQuery mixedIndexAggregationQuery() {
+        return getAutoStartTx().mixedIndexAggregationQuery();
+    }
+
     @Override
     public JanusGraphIndexQuery indexQuery(String indexName, String query) {
         return getAutoStartTx().indexQuery(indexName,query);
@@ -0,0 +1,152 @@
+// Copyright 2020 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.tinkerpop.optimize.step;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.Profiling;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.AbstractStep;
+import org.apache.tinkerpop.gremlin.process.traversal.util.FastNoSuchElementException;
+import org.apache.tinkerpop.gremlin.process.traversal.util.MutableMetrics;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+import org.janusgraph.core.Cardinality;
+import org.janusgraph.core.JanusGraphTransaction;
+import org.janusgraph.core.MixedIndexAggregationQuery;
+import org.janusgraph.core.PropertyKey;
+import org.janusgraph.diskstorage.indexing.IndexAggregation;
+import org.janusgraph.graphdb.internal.ElementCategory;
+import org.janusgraph.graphdb.query.BaseQuery;
+import org.janusgraph.graphdb.query.graph.GraphCentricQuery;
+import org.janusgraph.graphdb.query.graph.JointIndexQuery;
+import org.janusgraph.graphdb.query.graph.MixedIndexAggregationQueryBuilder;
+import org.janusgraph.graphdb.query.profile.QueryProfiler;
+import org.janusgraph.graphdb.tinkerpop.optimize.JanusGraphTraversalUtil;
+import org.janusgraph.graphdb.tinkerpop.profile.TP3ProfileWrapper;
+
+/**
+ * Replaces {@code g.V().has(...).groupCount().by(key)} and {@code g.V().has(...).values(key).min()/max()/sum()} with a
+ * single aggregation query against the mixed index, so the matching elements do not have to be fetched.
+ * 用一次混合索引聚合查询代替读取全部元素后的groupCount/min/max/sum
+ * <p>
+ * Like {@link JanusGraphMixedIndexCountStep} the result ignores modifications of the current transaction.
+ */
+public class JanusGraphMixedIndexAggregationStep<S, E> extends AbstractStep<S, E> implements Profiling {
+
+    private final IndexAggregation.Type type;
+    private final String key;
+    private MixedIndexAggregationQuery mixedIndexAggregationQuery = null;
+    private boolean done;
+
+    /**
+     * @param janusGraphStep 起始的图查询
+     * @param type           聚合类型,支持{@link IndexAggregation.Type#COUNT_BY_VALUE}, MIN, MAX, SUM
+     * @param key            聚合的属性名
+     */
+    public JanusGraphMixedIndexAggregationStep(JanusGraphStep<?, ?> janusGraphStep, IndexAggregation.Type type, String key,
+                                               Traversal.Admin<?, ?> traversal) {
+        super(traversal);
+        this.type = type;
+        this.key = key;
+        if (janusGraphStep.getLowLimit() != 0 || janusGraphStep.getHighLimit() != BaseQuery.NO_LIMIT) {
+            return;
+        }
+        final JanusGraphTransaction tx = JanusGraphTraversalUtil.getTx(traversal);
+        final PropertyKey propertyKey = tx.getPropertyKey(key);
+        if (propertyKey == null || !isAggregatable(type, propertyKey)) {
+            return;
+        }
+
+        final MixedIndexAggregationQueryBuilder aggregationQueryBuilder = (MixedIndexAggregationQueryBuilder) tx.mixedIndexAggregationQuery();
+
+        final GraphCentricQuery query = janusGraphStep.buildGlobalGraphCentricQuery();
+
+        if (query != null && query.getIndexQuery().isFitted()) {
+            final JointIndexQuery indexQuery = query.getIndexQuery().getBackendQuery();
+            final MixedIndexAggregationQuery aggregationQuery = aggregationQueryBuilder.constructIndex(indexQuery,
+                Vertex.class.isAssignableFrom(janusGraphStep.getReturnClass()) ? ElementCategory.VERTEX : ElementCategory.EDGE);
+            if (aggregationQuery != null && aggregationQuery.supports(key)) {
+                mixedIndexAggregationQuery = aggregationQuery;
+            }
+        }
+    }
+
+    /**
+     * groupCount counts elements, which only equals counting values for single valued keys.
+     */
+    private static boolean isAggregatable(IndexAggregation.Type type, PropertyKey propertyKey) {
+        if (type == IndexAggregation.Type.COUNT_BY_VALUE) {
+            return propertyKey.cardinality() == Cardinality.SINGLE;
+        }
+        return Number.class.isAssignableFrom(propertyKey.dataType());
+    }
+
+    @Override
+    protected Traverser.Admin<E> processNextStart() {
+        if (!this.done) {
+            this.done = true;
+            final Object result = execute();
+            if (result != null) {
+                return getTraversal().getTraverserGenerator().generate((E) result, (Step) this, 1L);
+            }
+        }
+        throw FastNoSuchElementException.instance();
+    }
+
+    private Object execute() {
+        switch (type) {
+            case COUNT_BY_VALUE:
+                return mixedIndexAggregationQuery.executeGroupCount(key);
+            case MIN:
+                return mixedIndexAggregationQuery.executeMin(key);
+            case MAX:
+                return mixedIndexAggregationQuery.executeMax(key);
+            case SUM:
+                return mixedIndexAggregationQuery.executeSum(key);
+            default:
+                throw new IllegalArgumentException("Unsupported aggregation: " + type);
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        this.done = false;
+    }
+
+    @Override
+    public String toString() {
+        return StringFactory.stepString(this, type, key);
+    }
+
+    @Override
+    public void setMetrics(final MutableMetrics metrics) {
+        QueryProfiler queryProfiler = new TP3ProfileWrapper(metrics);
+        mixedIndexAggregationQuery.observeWith(queryProfiler);
+    }
+
+    public MixedIndexAggregationQuery getMixedIndexAggregationQuery() {
+        return mixedIndexAggregationQuery;
+    }
+
+    public IndexAggregation.Type getType() {
+        return type;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
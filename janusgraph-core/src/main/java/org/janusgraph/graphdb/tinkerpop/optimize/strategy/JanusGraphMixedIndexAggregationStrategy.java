@@ -0,0 +1,150 @@
+// Copyright 2020 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.tinkerpop.optimize.strategy;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.TraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.lambda.ValueTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.GroupCountStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.MaxGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.MinGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.NoOpBarrierStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.PropertiesStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.SumGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.sideEffect.IdentityStep;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.AbstractTraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.structure.PropertyType;
+import org.janusgraph.diskstorage.indexing.IndexAggregation;
+import org.janusgraph.graphdb.tinkerpop.optimize.step.JanusGraphMixedIndexAggregationStep;
+import org.janusgraph.graphdb.tinkerpop.optimize.step.JanusGraphStep;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * If the query can be satisfied by a single mixed index query, and the query is followed by
+ * {@code groupCount().by(key)} or {@code values(key).min()/max()/sum()}, then this strategy replaces these steps with
+ * {@link JanusGraphMixedIndexAggregationStep}, which fires an aggregation query against the mixed index backend
+ * without retrieving all elements.
+ */
+public class JanusGraphMixedIndexAggregationStrategy extends AbstractTraversalStrategy<TraversalStrategy.ProviderOptimizationStrategy>
+    implements TraversalStrategy.ProviderOptimizationStrategy {
+    private static final JanusGraphMixedIndexAggregationStrategy INSTANCE = new JanusGraphMixedIndexAggregationStrategy();
+    private static final Set<Class<? extends ProviderOptimizationStrategy>> PRIORS = Collections.singleton(JanusGraphStepStrategy.class);
+
+    private JanusGraphMixedIndexAggregationStrategy() {
+    }
+
+    @Override
+    public void apply(final Traversal.Admin<?, ?> traversal) {
+        if (TraversalHelper.onGraphComputer(traversal))
+            return;
+
+        TraversalHelper.getStepsOfClass(JanusGraphStep.class, traversal).forEach(originalGraphStep -> {
+            buildMixedIndexAggregationStep(originalGraphStep, traversal);
+        });
+    }
+
+    /**
+     * Check if a mixed index aggregation step can be built, and if so, apply it.
+     *
+     * @param originalGraphStep
+     * @param traversal
+     */
+    private void buildMixedIndexAggregationStep(final JanusGraphStep<?, ?> originalGraphStep, final Traversal.Admin<?, ?> traversal) {
+        if (!originalGraphStep.isStartStep()) {
+            return;
+        }
+        final Step<?, ?> currentStep = skipEligibleSteps(originalGraphStep.getNextStep());
+        if (currentStep instanceof GroupCountStep) {
+            final String key = getGroupCountKey((GroupCountStep<?, ?>) currentStep);
+            if (key != null) {
+                apply(originalGraphStep, currentStep, currentStep, IndexAggregation.Type.COUNT_BY_VALUE, key, traversal);
+            }
+        } else if (currentStep instanceof PropertiesStep) {
+            final PropertiesStep<?> propertiesStep = (PropertiesStep<?>) currentStep;
+            if (propertiesStep.getReturnType() != PropertyType.VALUE || propertiesStep.getPropertyKeys().length != 1) {
+                return;
+            }
+            final Step<?, ?> reducingStep = skipEligibleSteps(propertiesStep.getNextStep());
+            final IndexAggregation.Type type;
+            if (reducingStep instanceof MinGlobalStep) {
+                type = IndexAggregation.Type.MIN;
+            } else if (reducingStep instanceof MaxGlobalStep) {
+                type = IndexAggregation.Type.MAX;
+            } else if (reducingStep instanceof SumGlobalStep) {
+                type = IndexAggregation.Type.SUM;
+            } else {
+                return;
+            }
+            apply(originalGraphStep, propertiesStep, reducingStep, type, propertiesStep.getPropertyKeys()[0], traversal);
+        }
+    }
+
+    /**
+     * @return the key of {@code groupCount().by(key)}, null for any other modulation
+     */
+    private String getGroupCountKey(final GroupCountStep<?, ?> groupCountStep) {
+        final List<? extends Traversal.Admin<?, ?>> children = groupCountStep.getLocalChildren();
+        if (children.size() != 1 || !(children.get(0) instanceof ValueTraversal)) {
+            return null;
+        }
+        return ((ValueTraversal<?, ?>) children.get(0)).getPropertyKey();
+    }
+
+    private Step<?, ?> skipEligibleSteps(Step<?, ?> currentStep) {
+        while (currentStep instanceof IdentityStep || currentStep instanceof NoOpBarrierStep) {
+            currentStep = currentStep.getNextStep();
+        }
+        return currentStep;
+    }
+
+    /**
+     * Replace the steps from the original graph step up to the reducing step with the mixed index aggregation step
+     *
+     * @param originalGraphStep
+     * @param firstStep         first step folded into the aggregation, after the original graph step
+     * @param reducingStep      last step folded into the aggregation
+     */
+    private void apply(final JanusGraphStep<?, ?> originalGraphStep, final Step<?, ?> firstStep, final Step<?, ?> reducingStep,
+                       final IndexAggregation.Type type, final String key, final Traversal.Admin<?, ?> traversal) {
+        final JanusGraphMixedIndexAggregationStep<?, ?> aggregationStep =
+            new JanusGraphMixedIndexAggregationStep<>(originalGraphStep, type, key, traversal);
+        if (aggregationStep.getMixedIndexAggregationQuery() == null) {
+            return;
+        }
+        reducingStep.getLabels().forEach(aggregationStep::addLabel);
+        Step<?, ?> currentStep = firstStep;
+        while (currentStep != reducingStep) {
+            final Step<?, ?> nextStep = currentStep.getNextStep();
+            traversal.removeStep(currentStep);
+            currentStep = nextStep;
+        }
+        traversal.removeStep(reducingStep);
+        TraversalHelper.replaceStep((Step) originalGraphStep, aggregationStep, traversal);
+    }
+
+    public static JanusGraphMixedIndexAggregationStrategy instance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public Set<Class<? extends ProviderOptimizationStrategy>> applyPrior() {
+        return PRIORS;
+    }
+}
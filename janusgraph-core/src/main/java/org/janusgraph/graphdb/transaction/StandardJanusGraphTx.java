@@ -22,6 +22,7 @@ import org.janusgraph.graphdb.database.idassigner.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 import org.apache.commons.collections.IteratorUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.tinkerpop.gremlin.structure.Direction;
@@ -39,6 +40,7 @@ import org.janusgraph.core.JanusGraphMultiVertexQuery;
 import org.janusgraph.core.JanusGraphRelation;
 import org.janusgraph.core.JanusGraphVertex;
 import org.janusgraph.core.JanusGraphVertexProperty;
+import org.janusgraph.core.MixedIndexAggregationQuery;
 import org.janusgraph.core.MixedIndexCountQuery;
 import org.janusgraph.core.Multiplicity;
 import org.janusgraph.core.PropertyKey;
@@ -66,6 +68,7 @@ import org.janusgraph.diskstorage.util.BufferUtil;
 import org.janusgraph.diskstorage.util.time.TimestampProvider;
 import org.janusgraph.graphdb.database.EdgeSerializer;
 import org.janusgraph.graphdb.database.IndexSerializer;
+import org.janusgraph.graphdb.database.PropertyPropertyLayout;
 import org.janusgraph.graphdb.database.StandardJanusGraph;
 import org.janusgraph.graphdb.database.idassigner.IDPool;
 import org.janusgraph.graphdb.database.idhandling.IDHandler;
@@ -73,6 +76,7 @@ import org.janusgraph.graphdb.database.management.ManagementSystem;
 import org.janusgraph.graphdb.database.serialize.AttributeHandler;
 import org.janusgraph.graphdb.database.serialize.DataOutput;
 import org.janusgraph.graphdb.database.serialize.InternalAttributeUtil;
+import org.janusgraph.graphdb.database.serialize.Serializer;
 import org.janusgraph.graphdb.idmanagement.IDManager;
 import org.janusgraph.graphdb.internal.ElementCategory;
 import org.janusgraph.graphdb.internal.ElementLifeCycle;
@@ -94,6 +98,7 @@ import org.janusgraph.graphdb.query.graph.GraphCentricQuery;
 import org.janusgraph.graphdb.query.graph.GraphCentricQueryBuilder;
 import org.janusgraph.graphdb.query.graph.IndexQueryBuilder;
 import org.janusgraph.graphdb.query.graph.JointIndexQuery;
+import org.janusgraph.graphdb.query.graph.MixedIndexAggregationQueryBuilder;
 import org.janusgraph.graphdb.query.graph.MixedIndexCountQueryBuilder;
 import org.janusgraph.graphdb.query.index.IndexSelectionStrategy;
 import org.janusgraph.graphdb.query.profile.QueryProfiler;
@@ -122,7 +127,9 @@ import org.janusgraph.graphdb.transaction.lock.TransactionLock;
 import org.janusgraph.graphdb.transaction.subquerycache.GuavaSubqueryCache;
 import org.janusgraph.graphdb.transaction.subquerycache.SubqueryCache;
 import org.janusgraph.graphdb.transaction.vertexcache.GuavaVertexCache;
+import org.janusgraph.graphdb.transaction.vertexcache.TinyLfuVertexCache;
 import org.janusgraph.graphdb.transaction.vertexcache.VertexCache;
+import org.janusgraph.graphdb.transaction.vertexcache.VertexCacheType;
 import org.janusgraph.graphdb.types.CompositeIndexType;
 import org.janusgraph.graphdb.types.IndexType;
 import org.janusgraph.graphdb.types.StandardEdgeLabelMaker;
@@ -144,10 +151,10 @@ import org.janusgraph.graphdb.types.vertices.EdgeLabelVertex;
 import org.janusgraph.graphdb.types.vertices.JanusGraphSchemaVertex;
 import org.janusgraph.graphdb.types.vertices.PropertyKeyVertex;
 import org.janusgraph.graphdb.util.IndexHelper;
-import org.janusgraph.graphdb.util.MD5Util;
 import org.janusgraph.graphdb.util.ProfiledIterator;
 import org.janusgraph.graphdb.util.SubqueryIterator;
 import org.janusgraph.graphdb.util.VertexCentricEdgeIterable;
+import org.janusgraph.graphdb.vertices.AbstractVertex;
 import org.janusgraph.graphdb.vertices.CacheVertex;
 import org.janusgraph.graphdb.vertices.PreloadedVertex;
 import org.janusgraph.graphdb.vertices.StandardVertex;
@@ -157,11 +164,16 @@ import org.janusgraph.kydsj.SimpleNote;
 import org.janusgraph.kydsj.serialize.MediaData;
 import org.janusgraph.kydsj.serialize.MediaDataRaw;
 import org.janusgraph.kydsj.serialize.Note;
+import org.janusgraph.kydsj.serialize.attribute.MediaDataSerializer;
 import org.janusgraph.util.datastructures.Retriever;
 import org.janusgraph.util.stats.MetricManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -177,6 +189,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -245,6 +258,10 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
      */
     private volatile SimpleNote addedNotes;
     private volatile SimpleNote deletedNotes;
+    /**
+     * hdfs附件的内容流,在事务结束时关闭
+     */
+    private final List<InputStream> openedStreams = new ArrayList<>();
 
     //######## Index Caches
     /**
@@ -352,7 +369,14 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
                     config.getVertexCacheSize(), effectiveVertexCacheSize, MIN_VERTEX_CACHE_SIZE);
         }
 
-        vertexCache = new GuavaVertexCache(effectiveVertexCacheSize,concurrencyLevel,config.getDirtyVertexSize());
+        if (config.getVertexCacheType() == VertexCacheType.TINYLFU) {
+            //分段数按线程数确定,读取顶点不加锁
+            final int cacheConcurrency = config.isSingleThreaded() ? 1 : Runtime.getRuntime().availableProcessors();
+            vertexCache = new TinyLfuVertexCache(effectiveVertexCacheSize, config.getVertexCacheMaxBytes(),
+                cacheConcurrency, config.getDirtyVertexSize());
+        } else {
+            vertexCache = new GuavaVertexCache(effectiveVertexCacheSize,concurrencyLevel,config.getDirtyVertexSize());
+        }
 
         indexCache = new GuavaSubqueryCache(concurrencyLevel, config.getIndexCacheWeight());
 
@@ -616,7 +640,7 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
             vertexId = null;
         }
         if(StringUtils.isNotBlank(vertexId)){
-            long partition=graph.getIDManager().getHashPartition(vertexId.hashCode());
+            long partition=graph.getIDManager().getHashPartition(vertexId);
             vertexId=graph.getIDManager().getVertexID(vertexId,partition,IDManager.VertexIDType.NormalVertex);
             //vertexId=IDManager.VertexIDType.NormalVertex.addPadding(vertexId);
         }
@@ -902,6 +926,7 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
     }
 
     public long getPartitionID(final InternalVertex v) {
+        if (v instanceof AbstractVertex) return ((AbstractVertex) v).getPartitionId(idManager);
         String vid = v.longId();
         if (IDManager.VertexIDType.Schema.is(vid)) return IDManager.SCHEMA_PARTITION;
         else return idManager.getPartitionId(vid);
@@ -1158,6 +1183,87 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
     }
 
 
+    public InputStream getLargeCellStream(String fileName, long offset){
+        return this.getTxHandle().getLargeCellStream(fileName, offset);
+    }
+
+    /**
+     * 以流的方式读取附件内容中从start开始的最多length个字节.
+     * Content stored on hdfs is read from the file without loading it into memory: the fields in front of the
+     * content are parsed from the head of the file and the returned stream starts at the requested position.
+     *
+     * @param mediaData attachment loaded from the vertex
+     * @param start position of the first byte in the content
+     * @param length maximum number of bytes to read
+     * @return the content range, which has to be closed by the caller
+     */
+    public InputStream openAttachmentStream(MediaData mediaData, long start, long length) {
+        Preconditions.checkArgument(start >= 0 && length >= 0, "Invalid range of attachment content: %s, %s", start, length);
+        if (!graph.getLargeContentUploadHdfsEnabled() || !HDFS_MEDIA_MEDIATYPE.equals(mediaData.getMediaType())) {
+            byte[] content = mediaData.getMediaData();
+            if (content == null) return new ByteArrayInputStream(new byte[0]);
+            int from = (int) Math.min(start, content.length);
+            return new ByteArrayInputStream(content, from, (int) Math.min(length, content.length - from));
+        }
+        String hdfsFileName = mediaData.getLargeFileName(mediaData.getVertex().id().toString());
+        long[] position = readAttachmentContentPosition(hdfsFileName);
+        if (position == null) return new ByteArrayInputStream(new byte[0]);
+        long from = Math.min(start, position[1]);
+        InputStream content = getLargeCellStream(hdfsFileName, position[0] + from);
+        Preconditions.checkState(content != null, "附件内容%s在hdfs上不存在", hdfsFileName);
+        return ByteStreams.limit(content, Math.min(length, position[1] - from));
+    }
+
+    /**
+     * 以流的方式打开hdfs上的附件,用于把附件复制到其他顶点.
+     * The returned attachment carries all fields stored in the hdfs file and its content as a stream that is read
+     * once when the attachment is written, so the content is never held in memory. The stream is closed when this
+     * transaction is committed or rolled back, whether or not the attachment has been written.
+     *
+     * @param mediaData attachment loaded from the vertex whose content is stored on hdfs
+     * @return a new attachment that is not attached to any vertex
+     */
+    public MediaData openHdfsMediaData(MediaData mediaData) {
+        String hdfsFileName = mediaData.getLargeFileName(mediaData.getVertex().id().toString());
+        long[] position = readAttachmentContentPosition(hdfsFileName);
+        Preconditions.checkState(position != null, "附件内容%s在hdfs上为空", hdfsFileName);
+        MediaData media = new MediaData(mediaData.getKey());
+        media.setKey(mediaData.getKey());
+        media.setDsr(mediaData.getDsr());
+        media.setFilename(mediaData.getFilename());
+        media.setLinkType(mediaData.getLinkType());
+        try (InputStream in = getLargeCellStream(hdfsFileName, position[0] + position[1])) {
+            Preconditions.checkState(in != null, "附件内容%s在hdfs上不存在", hdfsFileName);
+            byte[] trailer = ByteStreams.toByteArray(in);
+            MediaDataSerializer.readTrailer(graph.getDataSerializer(), new ReadArrayBuffer(trailer), media);
+        } catch (IOException e) {
+            throw new JanusGraphException("Could not read attachment content " + hdfsFileName, e);
+        }
+        InputStream content = getLargeCellStream(hdfsFileName, position[0]);
+        Preconditions.checkState(content != null, "附件内容%s在hdfs上不存在", hdfsFileName);
+        //the stream is consumed by the commit, but the transaction may end without writing the attachment
+        synchronized (openedStreams) {
+            openedStreams.add(content);
+        }
+        media.setMediaDataStream(ByteStreams.limit(content, position[1]), position[1]);
+        return media;
+    }
+
+    /**
+     * Parses the fields in front of the content from the start of the hdfs file, however large they are, without
+     * reading the content itself.
+     */
+    private long[] readAttachmentContentPosition(String hdfsFileName) {
+        try (InputStream in = getLargeCellStream(hdfsFileName, 0)) {
+            Preconditions.checkState(in != null, "附件内容%s在hdfs上不存在", hdfsFileName);
+            return MediaDataSerializer.readContentPosition(graph.getDataSerializer(), in);
+        } catch (UncheckedIOException e) {
+            throw new JanusGraphException("Invalid attachment content " + hdfsFileName, e);
+        } catch (IOException e) {
+            throw new JanusGraphException("Could not read attachment content " + hdfsFileName, e);
+        }
+    }
+
     public MediaData loadHdfsMediaData(String hdfsFileName){
         byte[] largeCellContent =this.getLargeCellContent(hdfsFileName);
         if (largeCellContent != null) {
@@ -1244,6 +1350,18 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
         return noteIterator;
     }
 
+    @Override
+    public void mergeVertices(JanusGraphVertex target, JanusGraphVertex... sources) {
+        verifyOpen();
+        Preconditions.checkArgument(target != null, "合并对象不能为null");
+        VertexMerger merger = new VertexMerger();
+        for (JanusGraphVertex source : sources) {
+            if (source != null && !source.equals(target)) {
+                merger.merge(this, source, target);
+            }
+        }
+    }
+
     @Override
     public Iterator<MediaDataRaw> getMediaDataRaws(String vertexId,String ... keys) {
         try {
@@ -1281,6 +1399,149 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
         }
     }
 
+    /**
+     * Loads the notes of all given vertices with one multi query against the note store instead of one query per
+     * vertex, see {@link #getNotes(String, String...)}.
+     * 批量读取多个顶点的注释
+     *
+     * @param vertices vertices to load the notes for
+     * @param keys ids of the notes to load, all notes if empty
+     * @return the notes of each vertex, attached to that vertex
+     */
+    public Map<InternalVertex,List<Note>> getNotes(Collection<? extends InternalVertex> vertices, String... keys) {
+        Map<InternalVertex,List<Note>> result = new HashMap<>(vertices.size());
+        if (vertices.isEmpty()) return result;
+        Set<String> keySet = keys != null && keys.length > 0 ? Sets.newHashSet(keys) : null;
+        List<StaticBuffer> rowkeys = getHBaseTableRowkeys(vertices);
+        Map<StaticBuffer,EntryList> entries = this.getTxHandle().noteMultiQuery(rowkeys,
+            new SliceQuery(BufferUtil.zeroBuffer(1), BufferUtil.oneBuffer(1)));
+        int i = 0;
+        for (InternalVertex vertex : vertices) {
+            List<Note> notes = new ArrayList<>();
+            EntryList vertexEntries = entries.get(rowkeys.get(i++));
+            if (vertexEntries != null) {
+                for (Entry entry : vertexEntries) {
+                    ReadBuffer buffer = entry.asReadBuffer();
+                    graph.getDataSerializer().readObjectNotNull(buffer, String.class);
+                    Note note = graph.getDataSerializer().readObjectNotNull(buffer, Note.class);
+                    if (note != null && (keySet == null || keySet.contains(note.getId()))) {
+                        note.setVertex(vertex.it());
+                        notes.add(note);
+                    }
+                }
+            }
+            result.put(vertex, notes);
+        }
+        return result;
+    }
+
+    /**
+     * Loads the attachments of all given vertices with one multi query against the attachment store per key instead
+     * of one query per vertex and key, see {@link #getMediaDatas(String, String...)}.
+     * 批量读取多个顶点的附件
+     *
+     * @param vertices vertices to load the attachments for
+     * @param keys keys of the attachments to load, all attachments if empty
+     * @return the attachments of each vertex, attached to that vertex
+     */
+    public Map<InternalVertex,List<MediaData>> getMediaDatas(Collection<? extends InternalVertex> vertices, String... keys) {
+        Map<InternalVertex,List<MediaData>> result = new HashMap<>(vertices.size());
+        Map<InternalVertex,List<ReadBuffer>> values = getAttachmentValues(vertices, false, keys);
+        for (InternalVertex vertex : vertices) {
+            List<MediaData> mediaDatas = new ArrayList<>();
+            for (ReadBuffer buffer : values.get(vertex)) {
+                MediaData mediaData = graph.getDataSerializer().readObjectNotNull(buffer, MediaData.class);
+                //附件内容在hdfs上,设置hdfs上附件内容的状态
+                if (graph.getLargeContentUploadHdfsEnabled() && HDFS_MEDIA_MEDIATYPE.equals(mediaData.getMediaType())) {
+                    mediaData.setStatus(this.getContentStatus(mediaData.getLargeFileName(vertex.longId())));
+                }
+                mediaData.setVertex(vertex.it());
+                mediaDatas.add(mediaData);
+            }
+            result.put(vertex, mediaDatas);
+        }
+        return result;
+    }
+
+    /**
+     * Loads the raw attachments of all given vertices, see {@link #getMediaDatas(Collection, String...)}.
+     * 批量读取多个顶点的原始附件
+     *
+     * @param vertices vertices to load the raw attachments for
+     * @param keys keys of the raw attachments to load, all raw attachments if empty
+     * @return the raw attachments of each vertex, attached to that vertex
+     */
+    public Map<InternalVertex,List<MediaDataRaw>> getMediaDataRaws(Collection<? extends InternalVertex> vertices, String... keys) {
+        Map<InternalVertex,List<MediaDataRaw>> result = new HashMap<>(vertices.size());
+        Map<InternalVertex,List<ReadBuffer>> values = getAttachmentValues(vertices, true, keys);
+        for (InternalVertex vertex : vertices) {
+            List<MediaDataRaw> mediaDataRaws = new ArrayList<>();
+            for (ReadBuffer buffer : values.get(vertex)) {
+                MediaDataRaw mediaDataRaw = graph.getDataSerializer().readObjectNotNull(buffer, MediaDataRaw.class);
+                mediaDataRaw.setVertex(vertex.it());
+                mediaDataRaws.add(mediaDataRaw);
+            }
+            result.put(vertex, mediaDataRaws);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the attachment columns of all vertices, either the given keys with one multi query per key or the whole
+     * row with a single multi query.
+     *
+     * @return for each vertex the values of its attachment entries, positioned behind the column name
+     */
+    private Map<InternalVertex,List<ReadBuffer>> getAttachmentValues(Collection<? extends InternalVertex> vertices, boolean raw, String... keys) {
+        Map<InternalVertex,List<ReadBuffer>> result = new HashMap<>(vertices.size());
+        for (InternalVertex vertex : vertices) {
+            result.put(vertex, new ArrayList<>());
+        }
+        if (vertices.isEmpty()) return result;
+        List<StaticBuffer> rowkeys = getHBaseTableRowkeys(vertices);
+        if (keys != null && keys.length > 0) {
+            for (String key : keys) {
+                final DataOutput out = graph.getDataSerializer().getDataOutput(10);
+                out.writeObjectNotNull(raw ? MediaDataRaw.PREFIX_COL + key : key);
+                StaticBuffer column = out.getStaticBuffer();
+                SliceQuery sliceQuery = new SliceQuery(column, column);
+                sliceQuery.setMaxColumnInclusive(true);
+                readAttachmentValues(vertices, rowkeys, this.getTxHandle().attachmentMultiQuery(rowkeys, sliceQuery), col -> true, result);
+            }
+        } else {
+            Map<StaticBuffer,EntryList> entries = this.getTxHandle().attachmentMultiQuery(rowkeys,
+                new SliceQuery(BufferUtil.zeroBuffer(1), BufferUtil.oneBuffer(1)));
+            readAttachmentValues(vertices, rowkeys, entries, col -> raw == col.startsWith(MediaDataRaw.PREFIX_COL), result);
+        }
+        return result;
+    }
+
+    private void readAttachmentValues(Collection<? extends InternalVertex> vertices, List<StaticBuffer> rowkeys,
+                                      Map<StaticBuffer,EntryList> entries, Predicate<String> columnFilter,
+                                      Map<InternalVertex,List<ReadBuffer>> result) {
+        int i = 0;
+        for (InternalVertex vertex : vertices) {
+            EntryList vertexEntries = entries.get(rowkeys.get(i++));
+            if (vertexEntries == null) continue;
+            List<ReadBuffer> values = result.get(vertex);
+            for (Entry entry : vertexEntries) {
+                ReadBuffer buffer = entry.asReadBuffer();
+                String col = graph.getDataSerializer().readObjectNotNull(buffer, String.class);
+                if (columnFilter.test(col)) {
+                    values.add(buffer);
+                }
+            }
+        }
+    }
+
+    private List<StaticBuffer> getHBaseTableRowkeys(Collection<? extends InternalVertex> vertices) {
+        List<StaticBuffer> rowkeys = new ArrayList<>(vertices.size());
+        for (InternalVertex vertex : vertices) {
+            rowkeys.add(this.getHBaseTableRowkey(vertex.longId()));
+        }
+        return rowkeys;
+    }
+
     private Object readPropertyValue(ReadBuffer read, PropertyKey key) {
         if (InternalAttributeUtil.hasGenericDataType(key)) {
             return graph.getDataSerializer().readClassAndObject(read);
@@ -1290,24 +1551,51 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
     }
 
     public Multimap<String,SimpleJanusGraphProperty> getPropertyProperties(CacheVertex vertex){
-        Multimap<String,SimpleJanusGraphProperty> multimap= ArrayListMultimap.create();
         StaticBuffer rowkey = this.getHBaseTableRowkey(vertex.longId());
         KeySliceQuery keySliceQuery = new KeySliceQuery(rowkey, IDHandler.MIN_KEY, IDHandler.MAX_KEY);
-        EntryList entries = this.getTxHandle().propertyPropertiesQuery(keySliceQuery);
+        return readPropertyProperties(this.getTxHandle().propertyPropertiesQuery(keySliceQuery), new HashMap<>());
+    }
+
+    /**
+     * Loads the properties of properties of all given vertices with one multi query against the property_properties
+     * store instead of one query per vertex.
+     * 批量读取多个顶点的属性的属性
+     *
+     * @param vertices vertices to load the properties of properties for
+     * @return the properties of properties of each vertex, grouped as in {@link #getPropertyProperties(CacheVertex)}
+     */
+    public Map<InternalVertex,Multimap<String,SimpleJanusGraphProperty>> getPropertyProperties(Collection<? extends InternalVertex> vertices) {
+        Map<InternalVertex,Multimap<String,SimpleJanusGraphProperty>> result = new HashMap<>(vertices.size());
+        if (vertices.isEmpty()) return result;
+        List<StaticBuffer> rowkeys = new ArrayList<>(vertices.size());
+        for (InternalVertex vertex : vertices) {
+            rowkeys.add(this.getHBaseTableRowkey(vertex.longId()));
+        }
+        Map<StaticBuffer,EntryList> entries = this.getTxHandle().propertyPropertiesMultiQuery(rowkeys,
+            new SliceQuery(IDHandler.MIN_KEY, IDHandler.MAX_KEY));
+        //The property keys are shared by all vertices, resolve each of them only once
+        Map<String,PropertyKey> keyCache = new HashMap<>();
+        int i = 0;
+        for (InternalVertex vertex : vertices) {
+            result.put(vertex, readPropertyProperties(entries.get(rowkeys.get(i++)), keyCache));
+        }
+        return result;
+    }
+
+    private Multimap<String,SimpleJanusGraphProperty> readPropertyProperties(EntryList entries, Map<String,PropertyKey> keyCache) {
+        Multimap<String,SimpleJanusGraphProperty> multimap= ArrayListMultimap.create();
         if(entries!=null) {
-            Iterator<Entry> iterator = entries.iterator();
-            while (iterator.hasNext()) {
-                Entry entry = iterator.next();
+            Serializer serializer = graph.getDataSerializer();
+            for (Entry entry : entries) {
                 ReadBuffer buffer = entry.asReadBuffer();
-                String propertyTypeId = graph.getDataSerializer().readObjectNotNull(buffer, String.class);
-                String propertyValue_md5 = graph.getDataSerializer().readObjectNotNull(buffer, String.class);
-                String propertyPropertyKeyId = graph.getDataSerializer().readObjectNotNull(buffer, String.class);
-                RelationType relationType = this.getExistingRelationType(propertyPropertyKeyId);
-                PropertyKey key = (PropertyKey) relationType;
+                String propertyTypeId = serializer.readObjectNotNull(buffer, String.class);
+                String propertyValuePrefix = PropertyPropertyLayout.readValuePrefix(buffer, serializer);
+                String propertyPropertyKeyId = serializer.readObjectNotNull(buffer, String.class);
+                PropertyKey key = keyCache.computeIfAbsent(propertyPropertyKeyId, id -> (PropertyKey) this.getExistingRelationType(id));
                 Object propertyPropertyValue = this.readPropertyValue(buffer, key);
-                String propertyId = graph.getDataSerializer().readObjectNotNull(buffer, String.class);
+                String propertyId = serializer.readObjectNotNull(buffer, String.class);
                 SimpleJanusGraphProperty simpleJanusGraphProperty = new SimpleJanusGraphProperty(null, key, propertyPropertyValue);
-                multimap.put(propertyTypeId+propertyValue_md5, simpleJanusGraphProperty);
+                multimap.put(PropertyPropertyLayout.groupKey(propertyTypeId, propertyValuePrefix, propertyId), simpleJanusGraphProperty);
             }
         }
         return multimap;
@@ -1320,11 +1608,12 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
                 PropertyKey propertyKey=(PropertyKey)relation.getType();
                 InternalVertex vertex = relation.getVertex(0);
                 StaticBuffer rowkey = this.getHBaseTableRowkey(vertex.longId());
-                String propertyValueMD5 = MD5Util.getMD8(propertyValue);
-                StaticBuffer prefix = getStartStaticBuffer(propertyKey, propertyValueMD5);
-                StaticBuffer end = getEndStaticBuffer(propertyKey, propertyValueMD5);
-                KeySliceQuery keySliceQuery = new KeySliceQuery(rowkey, prefix, end);
-                EntryList entries = this.getTxHandle().propertyPropertiesQuery(keySliceQuery);
+                PropertyPropertyLayout layout = edgeSerializer.getPropertyPropertyLayout();
+                EntryList entries = propertyPropertiesQuery(rowkey, layout, propertyKey, propertyValue);
+                if (entries.isEmpty() && layout != PropertyPropertyLayout.MD5) {
+                    //Columns written before the layout was switched
+                    entries = propertyPropertiesQuery(rowkey, PropertyPropertyLayout.MD5, propertyKey, propertyValue);
+                }
                 Iterator<Entry> iterator = entries.iterator();
                 Set<String> keySet=null;
                 if(propertyKeys!=null&&propertyKeys.length>0){
@@ -1334,12 +1623,16 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
                     Entry entry = iterator.next();
                     ReadBuffer buffer = entry.asReadBuffer();
                     String propertyTypeId = graph.getDataSerializer().readObjectNotNull(buffer, String.class);
-                    String propertyValue_md5 = graph.getDataSerializer().readObjectNotNull(buffer, String.class);
+                    String propertyValuePrefix = PropertyPropertyLayout.readValuePrefix(buffer, graph.getDataSerializer());
                     String propertyPropertyKeyId = graph.getDataSerializer().readObjectNotNull(buffer, String.class);
                     RelationType relationType = this.getExistingRelationType(propertyPropertyKeyId);
                     PropertyKey key = (PropertyKey) relationType;
                     Object propertyPropertyValue = this.readPropertyValue(buffer, key);
                     String propertyId = graph.getDataSerializer().readObjectNotNull(buffer, String.class);
+                    if (PropertyPropertyLayout.isHashed(propertyValuePrefix) && !relation.longId().equals(propertyId)) {
+                        //Hash collision with another value of the same property key
+                        continue;
+                    }
                     SimpleJanusGraphProperty simpleJanusGraphProperty = new SimpleJanusGraphProperty(relation, key, propertyPropertyValue);
                     if(keySet!=null) {
                         if(keySet.contains(key.name())) {
@@ -1355,18 +1648,23 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
         }
     }
 
-    private StaticBuffer getEndStaticBuffer(PropertyKey propertyKey, String propertyValueMD5) {
-        DataOutput out1 = graph.getDataSerializer().getDataOutput(8);
-        out1.writeObjectNotNull(propertyKey.longId());
-        out1.writeObjectNotNull(propertyValueMD5);
+    private EntryList propertyPropertiesQuery(StaticBuffer rowkey, PropertyPropertyLayout layout, PropertyKey propertyKey, Object propertyValue) {
+        StaticBuffer prefix = getStartStaticBuffer(layout, propertyKey, propertyValue);
+        StaticBuffer end = getEndStaticBuffer(prefix);
+        return this.getTxHandle().propertyPropertiesQuery(new KeySliceQuery(rowkey, prefix, end));
+    }
+
+    private StaticBuffer getEndStaticBuffer(StaticBuffer prefix) {
+        DataOutput out1 = graph.getDataSerializer().getDataOutput(prefix.length() + 1);
+        out1.putBytes(prefix);
         out1.putByte((byte)255);
         return out1.getStaticBuffer();
     }
 
-    private StaticBuffer getStartStaticBuffer(PropertyKey propertyKey, String propertyValueMD5) {
+    private StaticBuffer getStartStaticBuffer(PropertyPropertyLayout layout, PropertyKey propertyKey, Object propertyValue) {
         DataOutput out = graph.getDataSerializer().getDataOutput(8);
         out.writeObjectNotNull(propertyKey.longId());
-        out.writeObjectNotNull(propertyValueMD5);
+        layout.writeValuePrefix(out, graph.getDataSerializer(), propertyKey, propertyValue);
         return out.getStaticBuffer();
     }
 
@@ -1642,6 +1940,7 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
 
         if (!vertexIds.isEmpty()) {
             List<EntryList> results = QueryProfiler.profile(profiler, sq, true, q -> graph.edgeMultiQuery(vertexIds, q, txHandle));
+            prefetchPropertyOfProperties(vertices, vertexIds, sq);
             int pos = 0;
             for (JanusGraphVertex v : vertices) {
                 if (pos<vertexIds.size() && vertexIds.get(pos) == v.longId()) {
@@ -1653,6 +1952,27 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
         }
     }
 
+    /**
+     * Loads the properties of properties of all vertices whose {@link CacheVertex#loadRelations(SliceQuery, Retriever)}
+     * would otherwise query them one vertex at a time.
+     */
+    private void prefetchPropertyOfProperties(final Collection<InternalVertex> vertices, final ObjectArrayList<String> vertexIds,
+                                              final SliceQuery sq) {
+        List<InternalVertex> prefetch = new ArrayList<>(vertexIds.size());
+        int pos = 0;
+        for (InternalVertex v : vertices) {
+            if (pos<vertexIds.size() && vertexIds.get(pos) == v.longId()) {
+                if (((CacheVertex) v).loadsPropertyOfProperties(sq)) prefetch.add(v);
+                pos++;
+            }
+        }
+        if (prefetch.size() < 2) return;
+        Map<InternalVertex,Multimap<String,SimpleJanusGraphProperty>> propertyProperties = getPropertyProperties(prefetch);
+        for (InternalVertex v : prefetch) {
+            ((CacheVertex) v).prefetchPropertyOfProperties(propertyProperties.get(v));
+        }
+    }
+
     public final QueryExecutor<VertexCentricQuery, JanusGraphRelation, SliceQuery> edgeProcessor;
 
     public final QueryExecutor<VertexCentricQuery, JanusGraphRelation, SliceQuery> edgeProcessorImpl = new QueryExecutor<VertexCentricQuery, JanusGraphRelation, SliceQuery>() {
@@ -1933,6 +2253,11 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
        return new MixedIndexCountQueryBuilder(indexSerializer, txHandle);
     }
 
+    @Override
+    public MixedIndexAggregationQuery mixedIndexAggregationQuery() {
+        return new MixedIndexAggregationQueryBuilder(this, indexSerializer, txHandle);
+    }
+
     @Override
     public JanusGraphIndexQuery indexQuery(String indexName, String query) {
         return new IndexQueryBuilder(this,indexSerializer).setIndex(indexName).setQuery(query);
@@ -2002,6 +2327,7 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
     private void releaseTransaction() {
         isOpen = false;
         graph.closeTransaction(this);
+        closeOpenedStreams();
         vertexCache = null;
         indexCache = null;
         addedRelations = null;
@@ -2011,6 +2337,19 @@ public class StandardJanusGraphTx extends JanusGraphBlueprintsTransaction implem
         newTypeCache = null;
     }
 
+    private void closeOpenedStreams() {
+        synchronized (openedStreams) {
+            for (InputStream stream : openedStreams) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    log.warn("Could not close attachment content stream", e);
+                }
+            }
+            openedStreams.clear();
+        }
+    }
+
     @Override
     public final boolean isOpen() {
         return isOpen;
@@ -29,6 +29,7 @@ import org.janusgraph.diskstorage.util.StandardBaseTransactionConfig;
 import org.janusgraph.diskstorage.util.time.TimestampProvider;
 import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
 import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.transaction.vertexcache.VertexCacheType;
 
 import java.time.Instant;
 import java.util.Set;
@@ -75,6 +76,10 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
 
     private int vertexCacheSize;
 
+    private VertexCacheType vertexCacheType;
+
+    private long vertexCacheMaxBytes;
+
     private int dirtyVertexSize;
 
     private long indexCacheWeight;
@@ -121,6 +126,8 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
         this.writableCustomOptions = GraphDatabaseConfiguration.buildGraphConfiguration();
         this.customOptions = new MergedConfiguration(writableCustomOptions, graphConfig.getConfiguration());
         vertexCacheSize(graphConfig.getTxVertexCacheSize());
+        vertexCacheType(graphConfig.getTxVertexCacheType());
+        vertexCacheMaxBytes(graphConfig.getTxVertexCacheMaxBytes());
         dirtyVertexSize(graphConfig.getTxDirtyVertexSize());
     }
 
@@ -141,6 +148,8 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
         this.writableCustomOptions = null;
         this.customOptions = customOptions;
         vertexCacheSize(graphConfig.getTxVertexCacheSize());
+        vertexCacheType(graphConfig.getTxVertexCacheType());
+        vertexCacheMaxBytes(graphConfig.getTxVertexCacheMaxBytes());
         dirtyVertexSize(graphConfig.getTxDirtyVertexSize());
     }
 
@@ -202,6 +211,20 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
         return this;
     }
 
+    @Override
+    public StandardTransactionBuilder vertexCacheType(VertexCacheType type) {
+        Preconditions.checkNotNull(type);
+        this.vertexCacheType = type;
+        return this;
+    }
+
+    @Override
+    public StandardTransactionBuilder vertexCacheMaxBytes(long bytes) {
+        Preconditions.checkArgument(bytes >= 0);
+        this.vertexCacheMaxBytes = bytes;
+        return this;
+    }
+
     @Override
     public TransactionBuilder dirtyVertexSize(int size) {
         this.dirtyVertexSize = size;
@@ -277,7 +300,7 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
                 assignIDsImmediately, preloadedData, forceIndexUsage, verifyExternalVertexExistence,
                 verifyInternalVertexExistence, acquireLocks, verifyUniqueness,
                 propertyPrefetching, multiQuery, singleThreaded, threadBound, getTimestampProvider(), userCommitTime,
-                indexCacheWeight, getVertexCacheSize(), getDirtyVertexSize(),
+                indexCacheWeight, getVertexCacheSize(), getVertexCacheType(), getVertexCacheMaxBytes(), getDirtyVertexSize(),
                 logIdentifier, restrictedPartitions, groupName,
                 defaultSchemaMaker, hasDisabledSchemaConstraints, customOptions,indexMode,transactionCustom,skipIndexes);
         return graph.newTransaction(immutable);
@@ -366,6 +389,16 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
         return vertexCacheSize;
     }
 
+    @Override
+    public final VertexCacheType getVertexCacheType() {
+        return vertexCacheType;
+    }
+
+    @Override
+    public final long getVertexCacheMaxBytes() {
+        return vertexCacheMaxBytes;
+    }
+
     @Override
     public final int getDirtyVertexSize() {
         return dirtyVertexSize;
@@ -476,6 +509,8 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
         private final boolean isThreadBound;
         private final long indexCacheWeight;
         private final int vertexCacheSize;
+        private final VertexCacheType vertexCacheType;
+        private final long vertexCacheMaxBytes;
         private final int dirtyVertexSize;
         private final String logIdentifier;
         private final int[] restrictedPartitions;
@@ -498,7 +533,8 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
                 boolean hasAcquireLocks, boolean hasVerifyUniqueness,
                 boolean hasPropertyPrefetching, boolean useMultiQuery, boolean isSingleThreaded,
                 boolean isThreadBound, TimestampProvider times, Instant commitTime,
-                long indexCacheWeight, int vertexCacheSize, int dirtyVertexSize, String logIdentifier,
+                long indexCacheWeight, int vertexCacheSize, VertexCacheType vertexCacheType, long vertexCacheMaxBytes,
+                int dirtyVertexSize, String logIdentifier,
                 int[] restrictedPartitions,
                 String groupName,
                 DefaultSchemaMaker defaultSchemaMaker,
@@ -519,6 +555,8 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
             this.isThreadBound = isThreadBound;
             this.indexCacheWeight = indexCacheWeight;
             this.vertexCacheSize = vertexCacheSize;
+            this.vertexCacheType = vertexCacheType;
+            this.vertexCacheMaxBytes = vertexCacheMaxBytes;
             this.dirtyVertexSize = dirtyVertexSize;
             this.logIdentifier = logIdentifier;
             this.restrictedPartitions=restrictedPartitions;
@@ -614,6 +652,16 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
             return vertexCacheSize;
         }
 
+        @Override
+        public VertexCacheType getVertexCacheType() {
+            return vertexCacheType;
+        }
+
+        @Override
+        public long getVertexCacheMaxBytes() {
+            return vertexCacheMaxBytes;
+        }
+
         @Override
         public int getDirtyVertexSize() {
             return dirtyVertexSize;
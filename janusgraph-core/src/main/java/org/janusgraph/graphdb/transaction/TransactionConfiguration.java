@@ -16,6 +16,7 @@ package org.janusgraph.graphdb.transaction;
 
 import org.janusgraph.core.schema.DefaultSchemaMaker;
 import org.janusgraph.diskstorage.BaseTransactionConfig;
+import org.janusgraph.graphdb.transaction.vertexcache.VertexCacheType;
 
 /**
  * Provides configuration options for {@link org.janusgraph.core.JanusGraphTransaction}.
@@ -146,6 +147,21 @@ public interface TransactionConfiguration extends BaseTransactionConfig {
      */
     int getVertexCacheSize();
 
+    /**
+     * The implementation of the vertex cache used in this transaction.
+     *
+     * @return
+     */
+    VertexCacheType getVertexCacheType();
+
+    /**
+     * The maximum estimated size in bytes of the vertices cached in this transaction, 0 if the cache is bounded by
+     * {@link #getVertexCacheSize()}. Only applies to {@link VertexCacheType#TINYLFU}.
+     *
+     * @return
+     */
+    long getVertexCacheMaxBytes();
+
     /**
      * The initial size of the dirty (modified) vertex map used by a transaction.
      *
@@ -0,0 +1,277 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.transaction;
+
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.janusgraph.core.Cardinality;
+import org.janusgraph.core.JanusGraphEdge;
+import org.janusgraph.core.JanusGraphVertex;
+import org.janusgraph.core.JanusGraphVertexProperty;
+import org.janusgraph.core.PropertyKey;
+import org.janusgraph.graphdb.database.idassigner.Preconditions;
+import org.janusgraph.graphdb.database.serialize.DataOutput;
+import org.janusgraph.graphdb.database.serialize.Serializer;
+import org.janusgraph.graphdb.vertices.AbstractVertex;
+import org.janusgraph.kydsj.serialize.MediaData;
+import org.janusgraph.kydsj.serialize.MediaDataRaw;
+import org.janusgraph.kydsj.serialize.Note;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.janusgraph.graphdb.util.Constants.HDFS_MEDIA_MEDIATYPE;
+
+/**
+ * Merges a source vertex into a target vertex.
+ * 对象合并:把被合并对象的属性、关系、附件和注释合并到合并对象上,然后删除被合并对象
+ * <ul>
+ *     <li>{@link Cardinality#SINGLE} properties keep the value of the target, the source value is only copied if the
+ *     target has none.</li>
+ *     <li>{@link Cardinality#SET} and {@link Cardinality#LIST} properties become the union of both vertices. The
+ *     properties of a value that both vertices have are copied onto the value of the target.</li>
+ *     <li>Edges are recreated on the target with all their properties and removed from the source.</li>
+ *     <li>Attachments and notes are moved to the target unless the target already has one with the same key.</li>
+ *     <li>The source vertex is removed once everything has been moved.</li>
+ * </ul>
+ * A merge can be split into steps of bounded size by calling {@link #merge(StandardJanusGraphTx, JanusGraphVertex,
+ * JanusGraphVertex, int)} in a new transaction after each commit. Every step only moves what is still left on the
+ * source, so a merge that was interrupted continues where it stopped when it is started again.
+ */
+public class VertexMerger {
+
+    /**
+     * 标记被合并对象的属性,值为合并对象的id
+     */
+    public static final String MERGE_TO_PROPERTY = "merge_to";
+
+    private final Set<String> skippedPropertyKeys;
+    private final Set<String> skippedEdgeLabels;
+
+    public VertexMerger() {
+        this(Collections.emptySet(), Collections.emptySet());
+    }
+
+    /**
+     * @param skippedPropertyKeys 不拷贝到合并对象上的属性类型
+     * @param skippedEdgeLabels   不迁移到合并对象上的关系类型,这些关系随被合并对象一起删除
+     */
+    public VertexMerger(Set<String> skippedPropertyKeys, Set<String> skippedEdgeLabels) {
+        this.skippedPropertyKeys = new HashSet<>(skippedPropertyKeys);
+        this.skippedPropertyKeys.add(MERGE_TO_PROPERTY);
+        this.skippedEdgeLabels = new HashSet<>(skippedEdgeLabels);
+    }
+
+    /**
+     * Merges the source completely into the target within the given transaction.
+     *
+     * @param tx     transaction both vertices belong to
+     * @param source 被合并对象
+     * @param target 合并对象
+     */
+    public void merge(StandardJanusGraphTx tx, JanusGraphVertex source, JanusGraphVertex target) {
+        Step step = merge(tx, source, target, Integer.MAX_VALUE);
+        assert step.isCompleted();
+    }
+
+    /**
+     * Moves at most {@code limit} edges, attachments and notes from the source to the target. Properties are merged
+     * and the source is removed in the step that finds nothing else left to move.
+     *
+     * @param tx     transaction both vertices belong to, which has to be committed before the next step
+     * @param source 被合并对象
+     * @param target 合并对象
+     * @param limit  maximum number of edges, attachments and notes moved in this step
+     * @return what has been done in this step
+     */
+    public Step merge(StandardJanusGraphTx tx, JanusGraphVertex source, JanusGraphVertex target, int limit) {
+        Preconditions.checkArgument(limit > 0, "Invalid merge step limit: %s", limit);
+        Preconditions.checkArgument(!source.equals(target), "Cannot merge vertex %s into itself", source.id());
+        Step step = new Step();
+        int remaining = limit;
+        remaining -= step.edges = moveEdges(source, target, remaining);
+        if (remaining > 0) remaining -= step.attachments = moveAttachments(tx, source, target, remaining);
+        if (remaining > 0) remaining -= step.notes = moveNotes(tx, source, target, remaining);
+        if (remaining > 0) {
+            step.properties = mergeProperties(tx, source, target);
+            source.remove();
+            step.completed = true;
+        }
+        return step;
+    }
+
+    private int moveEdges(JanusGraphVertex source, JanusGraphVertex target, int limit) {
+        //先取出再修改,避免在遍历时删除关系
+        List<JanusGraphEdge> edges = new ArrayList<>();
+        Iterator<JanusGraphEdge> iterator = source.query().direction(Direction.BOTH).limit(limit).edges().iterator();
+        while (iterator.hasNext()) edges.add(iterator.next());
+        for (JanusGraphEdge edge : edges) {
+            if (!skippedEdgeLabels.contains(edge.label())) {
+                Vertex out = edge.outVertex().equals(source) ? target : edge.outVertex();
+                Vertex in = edge.inVertex().equals(source) ? target : edge.inVertex();
+                Edge copy = out.addEdge(edge.label(), in);
+                Iterator<Property<Object>> properties = edge.properties();
+                while (properties.hasNext()) {
+                    Property<Object> property = properties.next();
+                    if (property.isPresent() && !skippedPropertyKeys.contains(property.key())) {
+                        copy.property(property.key(), property.value());
+                    }
+                }
+            }
+            edge.remove();
+        }
+        return edges.size();
+    }
+
+    private int moveAttachments(StandardJanusGraphTx tx, JanusGraphVertex source, JanusGraphVertex target, int limit) {
+        Set<String> targetKeys = new HashSet<>();
+        Iterator<MediaDataRaw> raws = ((AbstractVertex) target).attachmentRaws();
+        while (raws.hasNext()) targetKeys.add(raws.next().getKey());
+
+        boolean hdfsEnabled = tx.getGraph().getLargeContentUploadHdfsEnabled();
+        int moved = 0;
+        Iterator<MediaData> attachments = ((AbstractVertex) source).attachments();
+        while (moved < limit && attachments.hasNext()) {
+            MediaData mediaData = attachments.next();
+            if (targetKeys.add(mediaData.getKey())) {
+                MediaData copy = hdfsEnabled && HDFS_MEDIA_MEDIATYPE.equals(mediaData.getMediaType())
+                    ? tx.openHdfsMediaData(mediaData) : copy(tx, mediaData, MediaData.class);
+                tx.addAttachment(target, copy);
+            }
+            //合并对象上已有同名附件时以合并对象为准
+            tx.removeAttachment(mediaData);
+            moved++;
+        }
+        return moved;
+    }
+
+    private int moveNotes(StandardJanusGraphTx tx, JanusGraphVertex source, JanusGraphVertex target, int limit) {
+        Set<String> targetIds = new HashSet<>();
+        Iterator<Note> targetNotes = ((AbstractVertex) target).notes();
+        while (targetNotes.hasNext()) targetIds.add(targetNotes.next().getId());
+
+        int moved = 0;
+        Iterator<Note> notes = ((AbstractVertex) source).notes();
+        while (moved < limit && notes.hasNext()) {
+            Note note = notes.next();
+            if (targetIds.add(note.getId())) {
+                tx.addNote(target, copy(tx, note, Note.class));
+            }
+            tx.removeNote(note);
+            moved++;
+        }
+        return moved;
+    }
+
+    private int mergeProperties(StandardJanusGraphTx tx, JanusGraphVertex source, JanusGraphVertex target) {
+        int merged = 0;
+        Iterator<VertexProperty<Object>> properties = source.properties();
+        while (properties.hasNext()) {
+            VertexProperty<Object> property = properties.next();
+            if (!property.isPresent() || skippedPropertyKeys.contains(property.key())) continue;
+            PropertyKey key = ((JanusGraphVertexProperty<Object>) property).propertyKey();
+            JanusGraphVertexProperty<Object> existing = null;
+            Iterator<VertexProperty<Object>> targetProperties = target.properties(key.name());
+            if (key.cardinality() == Cardinality.SINGLE) {
+                //单值属性以合并对象为准
+                if (targetProperties.hasNext()) continue;
+            } else {
+                while (existing == null && targetProperties.hasNext()) {
+                    VertexProperty<Object> targetProperty = targetProperties.next();
+                    if (Objects.equals(targetProperty.value(), property.value())) {
+                        existing = (JanusGraphVertexProperty<Object>) targetProperty;
+                    }
+                }
+            }
+            JanusGraphVertexProperty<Object> mergedProperty = existing != null ? existing
+                : tx.addProperty(key.cardinality().convert(), target, key, property.value());
+            Iterator<Property<Object>> propertyProperties = property.properties();
+            while (propertyProperties.hasNext()) {
+                Property<Object> propertyProperty = propertyProperties.next();
+                if (propertyProperty.isPresent()) {
+                    mergedProperty.property(propertyProperty.key(), propertyProperty.value());
+                }
+            }
+            merged++;
+        }
+        return merged;
+    }
+
+    /**
+     * Copies an attachment or note by serializing it, so that the copy can be attached to another vertex while the
+     * original is removed from the source.
+     */
+    private static <T> T copy(StandardJanusGraphTx tx, T element, Class<T> type) {
+        Serializer serializer = tx.getGraph().getDataSerializer();
+        DataOutput out = serializer.getDataOutput(128);
+        out.writeObjectNotNull(element);
+        return serializer.readObjectNotNull(out.getStaticBuffer().asReadBuffer(), type);
+    }
+
+    /**
+     * Result of one merge step.
+     */
+    public static class Step {
+
+        private int edges;
+        private int attachments;
+        private int notes;
+        private int properties;
+        private boolean completed;
+
+        /**
+         * @return number of edges moved or removed from the source
+         */
+        public int getEdges() {
+            return edges;
+        }
+
+        /**
+         * @return number of attachments moved or removed from the source
+         */
+        public int getAttachments() {
+            return attachments;
+        }
+
+        /**
+         * @return number of notes moved or removed from the source
+         */
+        public int getNotes() {
+            return notes;
+        }
+
+        /**
+         * @return number of source properties merged into the target, only set in the completing step
+         */
+        public int getProperties() {
+            return properties;
+        }
+
+        /**
+         * @return whether the source has been removed
+         */
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}
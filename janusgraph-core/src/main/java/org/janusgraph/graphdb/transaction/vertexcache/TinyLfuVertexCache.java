@@ -0,0 +1,425 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.transaction.vertexcache;
+
+import org.apache.commons.lang.StringUtils;
+import org.cliffc.high_scale_lib.NonBlockingHashMap;
+import org.janusgraph.graphdb.database.idassigner.Preconditions;
+import org.janusgraph.graphdb.internal.InternalVertex;
+import org.janusgraph.graphdb.vertices.AbstractVertex;
+import org.janusgraph.graphdb.vertices.CacheVertex;
+import org.janusgraph.util.datastructures.Retriever;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A vertex cache with W-TinyLFU eviction which can be bounded by the estimated size of the cached vertices in bytes.
+ * 按估算的字节数限制大小、使用W-TinyLFU淘汰的顶点缓存
+ * <p>
+ * New vertices enter a small LRU window. Vertices leaving the window compete with the least recently used vertex of
+ * the main space, and only the one accessed more often according to a {@link FrequencySketch} is kept. The main space
+ * is a segmented LRU, vertices accessed again are promoted from probation to the protected segment. This keeps vertices
+ * which are read repeatedly in the transaction even when a traversal scans many vertices only once.
+ * <p>
+ * The cache is split into segments by the hash of the vertex id, each with its own lock, sketch and queues.
+ * Lookups read a {@link ConcurrentHashMap} without locking and only reorder the queues if the lock of the segment is
+ * free, so concurrent readers never wait for each other. Like {@link GuavaVertexCache} vertices which are modified
+ * or removed in the open transaction are kept in a separate map when evicted.
+ * <p>
+ * If a maximum number of bytes is given, the weight of a vertex is estimated from the relations loaded into its
+ * query cache, see {@link CacheVertex#getQueryCacheByteSize()}, and updated whenever the vertex is accessed, since the
+ * relations are usually loaded after the vertex was cached. Otherwise every vertex weighs one.
+ */
+public class TinyLfuVertexCache implements VertexCache {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TinyLfuVertexCache.class);
+
+    /**
+     * Estimated heap size of a cached vertex without its relations: the vertex, the cache node and the map entry
+     */
+    static final long VERTEX_BASE_BYTES = 200;
+    private static final int MIN_SEGMENT_VERTICES = 64;
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private final ConcurrentMap<String, InternalVertex> volatileVertices;
+    private final ConcurrentHashMap<String, Node> data;
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final boolean weighByBytes;
+
+    /**
+     * @param maxVertices      最多缓存的顶点数,maxBytes大于0时只用来估算频率统计的大小
+     * @param maxBytes         缓存顶点的最大估算字节数,0表示按顶点数限制
+     * @param concurrencyLevel 预计同时访问缓存的线程数
+     * @param initialDirtySize 修改过的顶点map的初始大小
+     */
+    public TinyLfuVertexCache(final long maxVertices, final long maxBytes, final int concurrencyLevel, final int initialDirtySize) {
+        Preconditions.checkArgument(maxVertices >= 0 && maxBytes >= 0);
+        volatileVertices = new NonBlockingHashMap<>(initialDirtySize);
+        data = new ConcurrentHashMap<>(16, 0.75f, Math.max(1, concurrencyLevel));
+        weighByBytes = maxBytes > 0;
+
+        int segmentCount = Integer.highestOneBit(Math.max(1, concurrencyLevel));
+        while (segmentCount > 1 && maxVertices / segmentCount < MIN_SEGMENT_VERTICES) {
+            segmentCount >>= 1;
+        }
+        segments = new Segment[segmentCount];
+        segmentMask = segmentCount - 1;
+        final long maxWeight = weighByBytes ? maxBytes : maxVertices;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxWeight / segmentCount, maxVertices / segmentCount);
+        }
+        log.debug("Created TinyLFU vertex cache with max size {}, max bytes {} and {} segments", maxVertices, maxBytes, segmentCount);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return data.containsKey(id) || volatileVertices.containsKey(id);
+    }
+
+    @Override
+    public InternalVertex get(final String id, final Retriever<String, InternalVertex> retriever) {
+        final Node node = data.get(id);
+        if (node != null) {
+            segmentFor(id).recordAccess(node);
+            return node.vertex;
+        }
+
+        InternalVertex newVertex = volatileVertices.get(id);
+        if (newVertex == null) {
+            newVertex = retriever.get(id);
+        }
+        assert newVertex != null;
+        return segmentFor(id).putIfAbsent(id, newVertex);
+    }
+
+    @Override
+    public void add(InternalVertex vertex, String id) {
+        Preconditions.checkNotNull(vertex);
+        Preconditions.checkArgument(StringUtils.isNotBlank(id));
+
+        segmentFor(id).put(id, vertex);
+        if (vertex.isNew() || vertex.hasAddedRelations())
+            volatileVertices.put(id, vertex);
+    }
+
+    @Override
+    public List<InternalVertex> getAllNew() {
+        final List<InternalVertex> vertices = new ArrayList<>(10);
+        for (InternalVertex v : volatileVertices.values()) {
+            if (v.isNew()) vertices.add(v);
+        }
+        return vertices;
+    }
+
+    @Override
+    public synchronized void close() {
+        volatileVertices.clear();
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        data.clear();
+    }
+
+    /**
+     * @return the estimated weight of all cached vertices, in bytes or vertices
+     */
+    long weightedSize() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weightedSize();
+        }
+        return weight;
+    }
+
+    private Segment segmentFor(String id) {
+        final int hash = id.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & segmentMask];
+    }
+
+    private long weigh(String id, InternalVertex vertex) {
+        if (!weighByBytes) {
+            return 1;
+        }
+        long bytes = VERTEX_BASE_BYTES + 2L * id.length();
+        if (vertex instanceof CacheVertex) {
+            bytes += ((CacheVertex) vertex).getQueryCacheByteSize();
+        }
+        return bytes;
+    }
+
+    /**
+     * Keeps vertices that still have to be committed, same as the removal listener of {@link GuavaVertexCache}
+     */
+    private void onRemoval(String id, InternalVertex vertex) {
+        if (((AbstractVertex) vertex).isTxOpen() && (vertex.isModified() || vertex.isRemoved())) {
+            volatileVertices.putIfAbsent(id, vertex);
+        }
+    }
+
+    private static final class Node {
+        private final String id;
+        private volatile InternalVertex vertex;
+        private long weight;
+        private byte queue;
+        private Node prev;
+        private Node next;
+
+        private Node(String id, InternalVertex vertex, long weight) {
+            this.id = id;
+            this.vertex = vertex;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Doubly linked list of nodes in access order, the first node is the least recently used one
+     */
+    private static final class NodeQueue {
+        private Node first;
+        private Node last;
+        private long weight;
+
+        private void addLast(Node node) {
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            weight += node.weight;
+        }
+
+        private void remove(Node node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+
+        private void moveToLast(Node node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        private void clear() {
+            first = null;
+            last = null;
+            weight = 0;
+        }
+    }
+
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final FrequencySketch sketch;
+        private final NodeQueue window = new NodeQueue();
+        private final NodeQueue probation = new NodeQueue();
+        private final NodeQueue protectedQueue = new NodeQueue();
+        private final long maxWeight;
+        private final long maxWindowWeight;
+        private final long maxProtectedWeight;
+
+        private Segment(long maxWeight, long expectedVertices) {
+            this.maxWeight = maxWeight;
+            this.maxWindowWeight = Math.max(1, (long) (maxWeight * WINDOW_RATIO));
+            this.maxProtectedWeight = (long) ((maxWeight - maxWindowWeight) * PROTECTED_RATIO);
+            this.sketch = new FrequencySketch(expectedVertices);
+        }
+
+        /**
+         * Reorders the queues after a lookup. This is skipped if another thread holds the lock, losing some
+         * accesses is cheaper than blocking readers.
+         */
+        private void recordAccess(Node node) {
+            if (lock.tryLock()) {
+                try {
+                    if (data.get(node.id) == node) {
+                        onAccess(node);
+                        evict();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private InternalVertex putIfAbsent(String id, InternalVertex vertex) {
+            lock.lock();
+            try {
+                final Node existing = data.get(id);
+                if (existing != null) {
+                    onAccess(existing);
+                    evict();
+                    return existing.vertex;
+                }
+                insert(id, vertex);
+                return vertex;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void put(String id, InternalVertex vertex) {
+            lock.lock();
+            try {
+                final Node existing = data.get(id);
+                if (existing == null) {
+                    insert(id, vertex);
+                    return;
+                }
+                final InternalVertex replaced = existing.vertex;
+                existing.vertex = vertex;
+                onAccess(existing);
+                evict();
+                if (replaced != vertex) {
+                    onRemoval(id, replaced);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void insert(String id, InternalVertex vertex) {
+            final Node node = new Node(id, vertex, weigh(id, vertex));
+            node.queue = WINDOW;
+            data.put(id, node);
+            sketch.increment(id);
+            window.addLast(node);
+            evict();
+        }
+
+        private void onAccess(Node node) {
+            sketch.increment(node.id);
+            reweigh(node);
+            switch (node.queue) {
+                case WINDOW:
+                    window.moveToLast(node);
+                    break;
+                case PROBATION:
+                    probation.remove(node);
+                    node.queue = PROTECTED;
+                    protectedQueue.addLast(node);
+                    while (protectedQueue.weight > maxProtectedWeight && protectedQueue.first != node) {
+                        final Node demoted = protectedQueue.first;
+                        protectedQueue.remove(demoted);
+                        demoted.queue = PROBATION;
+                        probation.addLast(demoted);
+                    }
+                    break;
+                case PROTECTED:
+                    protectedQueue.moveToLast(node);
+                    break;
+                default:
+                    throw new AssertionError("Unexpected queue: " + node.queue);
+            }
+        }
+
+        private void reweigh(Node node) {
+            if (!weighByBytes) {
+                return;
+            }
+            final long weight = weigh(node.id, node.vertex);
+            if (weight != node.weight) {
+                final NodeQueue queue = queueOf(node);
+                queue.weight += weight - node.weight;
+                node.weight = weight;
+            }
+        }
+
+        /**
+         * Moves the vertices overflowing the window to probation and evicts until the segment fits its maximum
+         * weight. A vertex admitted from the window only replaces the least recently used vertex of probation if it
+         * was accessed more often.
+         */
+        private void evict() {
+            while (window.weight > maxWindowWeight && window.first != null) {
+                final Node candidate = window.first;
+                window.remove(candidate);
+                candidate.queue = PROBATION;
+                probation.addLast(candidate);
+            }
+            while (weightedSize() > maxWeight) {
+                final Node victim = probation.first;
+                final Node candidate = probation.last;
+                if (victim == null) {
+                    evict(protectedQueue.first != null ? protectedQueue.first : window.first);
+                } else if (victim == candidate || sketch.frequency(candidate.id) > sketch.frequency(victim.id)) {
+                    evict(victim);
+                } else {
+                    evict(candidate);
+                }
+            }
+        }
+
+        private void evict(Node node) {
+            queueOf(node).remove(node);
+            data.remove(node.id, node);
+            onRemoval(node.id, node.vertex);
+        }
+
+        private NodeQueue queueOf(Node node) {
+            switch (node.queue) {
+                case WINDOW:
+                    return window;
+                case PROBATION:
+                    return probation;
+                case PROTECTED:
+                    return protectedQueue;
+                default:
+                    throw new AssertionError("Unexpected queue: " + node.queue);
+            }
+        }
+
+        private long weightedSize() {
+            return window.weight + probation.weight + protectedQueue.weight;
+        }
+
+        private void clear() {
+            lock.lock();
+            try {
+                window.clear();
+                probation.clear();
+                protectedQueue.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.transaction.vertexcache;
+
+/**
+ * The {@link VertexCache} implementation used by a transaction.
+ * 事务使用的顶点缓存实现
+ */
+public enum VertexCacheType {
+
+    /**
+     * {@link GuavaVertexCache}, bounded by the number of vertices with LRU eviction
+     */
+    GUAVA,
+
+    /**
+     * {@link TinyLfuVertexCache}, bounded by the estimated size of the vertices in bytes with W-TinyLFU eviction
+     */
+    TINYLFU
+}
@@ -30,6 +30,7 @@ import org.janusgraph.core.JanusGraphVertexProperty;
 import org.janusgraph.core.PropertyKey;
 import org.janusgraph.core.VertexLabel;
 import org.janusgraph.graphdb.database.idassigner.Preconditions;
+import org.janusgraph.graphdb.idmanagement.IDManager;
 import org.janusgraph.graphdb.internal.AbstractElement;
 import org.janusgraph.graphdb.internal.ElementLifeCycle;
 import org.janusgraph.graphdb.internal.InternalVertex;
@@ -53,6 +54,8 @@ public abstract class AbstractVertex extends AbstractElement implements Internal
 
     private final StandardJanusGraphTx tx;
     private boolean partition;
+    //Partition parsed from the id, -1 until first requested
+    private long partitionId = -1;
 
 
     protected AbstractVertex(StandardJanusGraphTx tx, String id) {
@@ -356,4 +359,30 @@ public abstract class AbstractVertex extends AbstractElement implements Internal
     public void setPartition(boolean partition) {
         this.partition = partition;
     }
+
+    @Override
+    public void setId(String id) {
+        super.setId(id);
+        partitionId = -1;
+    }
+
+    /**
+     * Returns the partition of this vertex and caches it so that the id is only parsed once.
+     * 缓存顶点所在分区，避免每次解析id
+     *
+     * @param idManager
+     * @return
+     */
+    public long getPartitionId(IDManager idManager) {
+        long p = partitionId;
+        if (p < 0) {
+            p = idManager.getPartitionId(longId());
+            partitionId = p;
+        }
+        return p;
+    }
+
+    public void setPartitionId(long partitionId) {
+        this.partitionId = partitionId;
+    }
 }
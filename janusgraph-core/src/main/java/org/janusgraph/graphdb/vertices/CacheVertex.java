@@ -20,13 +20,13 @@ import org.janusgraph.diskstorage.EntryList;
 import org.janusgraph.diskstorage.PropertyPropertyInfo;
 import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.graphdb.database.PropertyPropertyLayout;
 import org.janusgraph.graphdb.database.idhandling.IDHandler;
 import org.janusgraph.graphdb.internal.ElementLifeCycle;
 import org.janusgraph.graphdb.internal.RelationCategory;
 import org.janusgraph.graphdb.relations.AbstractVertexProperty;
 import org.janusgraph.graphdb.relations.SimpleJanusGraphProperty;
 import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
-import org.janusgraph.graphdb.util.MD5Util;
 import org.janusgraph.util.datastructures.Retriever;
 
 import java.util.Collection;
@@ -41,12 +41,23 @@ import java.util.stream.Collectors;
  */
 
 public class CacheVertex extends StandardVertex {
+
+    private static final SliceQuery PROPERTY_QUERY;
+
+    static {
+        StaticBuffer[] bound = IDHandler.getBounds(RelationCategory.PROPERTY,false);
+        PROPERTY_QUERY = new SliceQuery(bound[0], bound[1]);
+    }
+
     // We don't try to be smart and match with previous queries
     // because that would waste more cycles on lookup than save actual memory
     // We use a normal map with synchronization since the likelihood of contention
     // is super low in a single transaction
     protected final Map<SliceQuery, EntryList> queryCache;
     protected Multimap<String,SimpleJanusGraphProperty> propertiyOfProperties;
+    private boolean legacyPropertyOfProperties;
+    //属性的属性已经由multi query批量加载，下一次loadRelations不再重复查询
+    private boolean prefetchedPropertyOfProperties;
 
     public CacheVertex(StandardJanusGraphTx tx, String id, byte lifecycle) {
         super(tx, id, lifecycle);
@@ -72,6 +83,19 @@ public class CacheVertex extends StandardVertex {
         }
     }
 
+    /**
+     * @return the heap size of the relations loaded into the query cache of this vertex, in bytes
+     */
+    public long getQueryCacheByteSize() {
+        synchronized (queryCache) {
+            long bytes = 0;
+            for (EntryList entries : queryCache.values()) {
+                bytes += entries.getByteSize();
+            }
+            return bytes;
+        }
+    }
+
     @Override
     public EntryList loadRelations(final SliceQuery query, final Retriever<SliceQuery, EntryList> lookup) {
         if (isNew())
@@ -87,11 +111,9 @@ public class CacheVertex extends StandardVertex {
             if (superset == null || superset.getValue() == null) {
                 result = lookup.get(query);
                 //判断是否是查询所有属性，如果是则加载属性的属性值
-                StaticBuffer[] bound = IDHandler.getBounds(RelationCategory.PROPERTY,false);
-                SliceQuery propertyQuery = new SliceQuery(bound[0], bound[1]);
-                if(propertyQuery.equals(query)){
-                   this.loadPropertyOfProperties();
-                }else if(propertiyOfProperties==null&&propertyQuery.subsumes(query)){
+                if (prefetchedPropertyOfProperties) {
+                    prefetchedPropertyOfProperties = false;
+                } else if (loadsPropertyOfProperties(query)) {
                     this.loadPropertyOfProperties();
                 }
             } else {
@@ -127,10 +149,8 @@ public class CacheVertex extends StandardVertex {
     }
     public Collection<SimpleJanusGraphProperty> findPropertyProperties(AbstractVertexProperty property,final String... propertyKeys){
         if(propertiyOfProperties!=null&&propertiyOfProperties.size()>0){
-            Object value = property.value();
-            String propertyValueMD5 = MD5Util.getMD8(value);
-            String propertyTypeId = property.propertyKey().longId();
-            Collection<SimpleJanusGraphProperty> simpleJanusGraphProperties = propertiyOfProperties.get(propertyTypeId+propertyValueMD5);
+            Collection<SimpleJanusGraphProperty> simpleJanusGraphProperties = PropertyPropertyLayout.find(propertiyOfProperties,
+                legacyPropertyOfProperties, property.propertyKey().longId(), property.longId(), property.value());
             if(simpleJanusGraphProperties!=null){
                 simpleJanusGraphProperties.stream().forEach(f -> f.setRelation(property));
                 if(propertyKeys!=null&&propertyKeys.length>0){
@@ -150,9 +170,33 @@ public class CacheVertex extends StandardVertex {
         this.loadPropertyOfProperties();
     }
 
+    /**
+     * Whether loading the given query from the backend also loads the properties of properties of this vertex.
+     *
+     * @param query slice of the edgestore row
+     * @return true if {@link #loadRelations(SliceQuery, Retriever)} would call {@link #loadPropertyOfProperties()}
+     */
+    public boolean loadsPropertyOfProperties(final SliceQuery query) {
+        return PROPERTY_QUERY.equals(query) || (propertiyOfProperties == null && PROPERTY_QUERY.subsumes(query));
+    }
+
     public void loadPropertyOfProperties(){
-        Multimap<String,SimpleJanusGraphProperty> entries= this.tx().getPropertyProperties(this);
+        setPropertyOfProperties(this.tx().getPropertyProperties(this));
+    }
+
+    /**
+     * Sets the properties of properties that were loaded for several vertices at once, see
+     * {@link StandardJanusGraphTx#getPropertyProperties(Collection)}. The next call of
+     * {@link #loadRelations(SliceQuery, Retriever)} does not load them again.
+     */
+    public void prefetchPropertyOfProperties(Multimap<String,SimpleJanusGraphProperty> entries){
+        setPropertyOfProperties(entries);
+        this.prefetchedPropertyOfProperties=true;
+    }
+
+    private void setPropertyOfProperties(Multimap<String,SimpleJanusGraphProperty> entries){
         this.propertiyOfProperties=entries;
+        this.legacyPropertyOfProperties=PropertyPropertyLayout.hasLegacyGroups(entries);
     }
 
     public Multimap<String,SimpleJanusGraphProperty> getPropertiyOfProperties() {
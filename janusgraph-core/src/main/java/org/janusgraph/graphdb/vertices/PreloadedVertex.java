@@ -29,13 +29,13 @@ import org.janusgraph.core.JanusGraphVertexProperty;
 import org.janusgraph.diskstorage.EntryList;
 import org.janusgraph.diskstorage.PropertyPropertyInfo;
 import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.graphdb.database.PropertyPropertyLayout;
 import org.janusgraph.graphdb.internal.ElementLifeCycle;
 import org.janusgraph.graphdb.internal.InternalRelation;
 import org.janusgraph.graphdb.query.vertex.VertexCentricQueryBuilder;
 import org.janusgraph.graphdb.relations.CacheVertexProperty;
 import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
 import org.janusgraph.graphdb.util.ElementHelper;
-import org.janusgraph.graphdb.util.MD5Util;
 import org.janusgraph.kydsj.serialize.MediaData;
 import org.janusgraph.kydsj.serialize.Note;
 import org.janusgraph.util.datastructures.Retriever;
@@ -54,6 +54,7 @@ public class PreloadedVertex extends CacheVertex {
     private PropertyMixing mixin = NO_MIXIN;
     private AccessCheck accessCheck = DEFAULT_CHECK;
     private Multimap<String, PropertyPropertyInfo> multiPropertyProperties;
+    private boolean legacyMultiPropertyProperties;
 
     private Iterator<MediaData> mediaIterator;
 
@@ -76,6 +77,7 @@ public class PreloadedVertex extends CacheVertex {
 
     public void setMultiPropertyProperties(Multimap<String, PropertyPropertyInfo> multiPropertyProperties) {
         this.multiPropertyProperties = multiPropertyProperties;
+        this.legacyMultiPropertyProperties = PropertyPropertyLayout.hasLegacyGroups(multiPropertyProperties);
     }
 
     public Iterator<MediaData> getMediaIterator() {
@@ -155,7 +157,7 @@ public class PreloadedVertex extends CacheVertex {
         accessCheck.accessProperties();
         if (mixin == NO_MIXIN) {
             Iterator<VertexProperty<Object>> properties = super.properties(keys);
-            PropertyIterator propertyIterator = new PropertyIterator(properties, this.getMultiPropertyProperties());
+            PropertyIterator propertyIterator = new PropertyIterator(properties, this.getMultiPropertyProperties(), legacyMultiPropertyProperties);
             return propertyIterator;
         }
         if (keys != null && keys.length > 0) {
@@ -163,17 +165,17 @@ public class PreloadedVertex extends CacheVertex {
             for (String key : keys) if (mixin.supports(key)) count++;
             if (count == 0 || !mixin.properties(keys).hasNext()) {
                 Iterator<VertexProperty<Object>> properties = super.properties(keys);
-                PropertyIterator propertyIterator = new PropertyIterator(properties, this.getMultiPropertyProperties());
+                PropertyIterator propertyIterator = new PropertyIterator(properties, this.getMultiPropertyProperties(), legacyMultiPropertyProperties);
                 return propertyIterator;
             }
             else if (count == keys.length) {
                 Iterator<VertexProperty<Object>> properties = mixin.properties(keys);
-                PropertyIterator propertyIterator = new PropertyIterator(properties, this.getMultiPropertyProperties());
+                PropertyIterator propertyIterator = new PropertyIterator(properties, this.getMultiPropertyProperties(), legacyMultiPropertyProperties);
                 return propertyIterator;
             }
         }
         Iterator<VertexProperty<Object>> concat = Iterators.concat(super.properties(keys), mixin.properties(keys));
-        PropertyIterator propertyIterator = new PropertyIterator(concat, this.getMultiPropertyProperties());
+        PropertyIterator propertyIterator = new PropertyIterator(concat, this.getMultiPropertyProperties(), legacyMultiPropertyProperties);
         return propertyIterator;
     }
 
@@ -207,10 +209,13 @@ public class PreloadedVertex extends CacheVertex {
 
         private final Iterator<VertexProperty<V>> iterator;
         private final Multimap<String, PropertyPropertyInfo> multiPropertyProperties;
+        private final boolean legacyMultiPropertyProperties;
 
-        public PropertyIterator(final Iterator<VertexProperty<V>> iterator,final Multimap<String, PropertyPropertyInfo> multiPropertyProperties) {
+        public PropertyIterator(final Iterator<VertexProperty<V>> iterator,final Multimap<String, PropertyPropertyInfo> multiPropertyProperties,
+                                final boolean legacyMultiPropertyProperties) {
             this.iterator = iterator;
             this.multiPropertyProperties=multiPropertyProperties;
+            this.legacyMultiPropertyProperties=legacyMultiPropertyProperties;
         }
 
         @Override
@@ -223,10 +228,9 @@ public class PreloadedVertex extends CacheVertex {
             final VertexProperty property = iterator.next();
             if(multiPropertyProperties!=null&&property instanceof CacheVertexProperty){
                 CacheVertexProperty cacheVertexProperty=(CacheVertexProperty)property;
-                Object value = cacheVertexProperty.value();
-                String propertyValueMD5 = MD5Util.getMD8(value);
-                String propertyTypeId = cacheVertexProperty.propertyKey().longId();
-                Collection<PropertyPropertyInfo> propertyPropertyInfos = multiPropertyProperties.get(propertyTypeId+propertyValueMD5);
+                Collection<PropertyPropertyInfo> propertyPropertyInfos = PropertyPropertyLayout.find(multiPropertyProperties,
+                    legacyMultiPropertyProperties, cacheVertexProperty.propertyKey().longId(), cacheVertexProperty.longId(),
+                    cacheVertexProperty.value());
                 cacheVertexProperty.setMultiPropertyProperties(Lists.newArrayList(propertyPropertyInfos));
             }
             return property;
@@ -15,6 +15,7 @@ import org.janusgraph.graphdb.internal.InternalVertex;
 import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
 import org.janusgraph.kydsj.ContentStatus;
 
+import java.io.InputStream;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -59,6 +60,10 @@ public class MediaData extends AbstractElement implements JanusGraphElement, Ser
     private ContentStatus status;
 
     private transient InternalVertex vertex;
+
+    private transient InputStream mediaDataStream;
+
+    private transient long mediaDataLength;
     public MediaData() {
         super(null);
     }
@@ -132,6 +137,44 @@ public class MediaData extends AbstractElement implements JanusGraphElement, Ser
         this.mediaData = mediaData;
     }
 
+    /**
+     * 以流的方式设置附件内容,保存附件时把流直接上传到hdfs,不会把整个附件读入内存.
+     * The stream is consumed once when the transaction commits and must provide exactly {@code length} bytes.
+     *
+     * @param mediaDataStream 附件内容
+     * @param length 附件内容的字节数
+     */
+    public void setMediaDataStream(InputStream mediaDataStream, long length) {
+        this.mediaDataStream = mediaDataStream;
+        this.mediaDataLength = length;
+    }
+
+    public InputStream getMediaDataStream() {
+        return mediaDataStream;
+    }
+
+    public long getMediaDataLength() {
+        return mediaDataLength;
+    }
+
+    /**
+     * 以流的方式读取附件内容,附件内容在hdfs上时不会把整个文件读入内存
+     * @return the content, which has to be closed by the caller
+     */
+    public InputStream openContentStream() {
+        return openContentStream(0, Long.MAX_VALUE);
+    }
+
+    /**
+     * 读取附件内容中从start开始的最多length个字节
+     * @param start position of the first byte in the content
+     * @param length maximum number of bytes to read
+     * @return the content range, which has to be closed by the caller
+     */
+    public InputStream openContentStream(long start, long length) {
+        return tx().openAttachmentStream(this, start, length);
+    }
+
     public String getKey() {
         return key;
     }
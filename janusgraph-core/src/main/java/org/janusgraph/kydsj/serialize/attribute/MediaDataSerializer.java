@@ -2,13 +2,19 @@ package org.janusgraph.kydsj.serialize.attribute;
 
 import org.janusgraph.graphdb.database.idassigner.Preconditions;
 import org.janusgraph.core.attribute.AttributeSerializer;
+import org.janusgraph.diskstorage.ReadBuffer;
 import org.janusgraph.diskstorage.ScanBuffer;
+import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.diskstorage.WriteBuffer;
+import org.janusgraph.diskstorage.util.InputStreamScanBuffer;
+import org.janusgraph.diskstorage.util.ValueCompression;
+import org.janusgraph.graphdb.database.idhandling.VariableLong;
 import org.janusgraph.graphdb.database.serialize.DataOutput;
 import org.janusgraph.graphdb.database.serialize.Serializer;
 import org.janusgraph.graphdb.database.serialize.SerializerInjected;
 import org.janusgraph.kydsj.serialize.MediaData;
 
+import java.io.InputStream;
 import java.util.Date;
 import java.util.Set;
 
@@ -23,44 +29,48 @@ public class MediaDataSerializer implements AttributeSerializer<MediaData>, Seri
 
     @Override
     public MediaData read(ScanBuffer buffer) {
+        if (ValueCompression.isCompressed(buffer)) {
+            buffer = ValueCompression.decompress((ReadBuffer) buffer);
+        }
         String key = serializer.readObjectNotNull(buffer, String.class);
         Set<String> dsr = (Set<String>)serializer.readClassAndObject(buffer);
         String fileName = (String)serializer.readClassAndObject(buffer);
         String linkType = (String)serializer.readClassAndObject(buffer);
         byte[] mediaData = (byte[])serializer.readClassAndObject(buffer);
-        String mediaType = (String)serializer.readClassAndObject(buffer);
-        String desc = (String)serializer.readClassAndObject(buffer);
-        String mediaTitle = (String)serializer.readClassAndObject(buffer);
-        String mimeType = (String)serializer.readClassAndObject(buffer);
-        Date updateDate = (Date)serializer.readClassAndObject(buffer);
-        Integer sort = (Integer) serializer.readClassAndObject(buffer);
         MediaData media=new MediaData(key);
         media.setKey(key);
-        media.setMediaTitle(mediaTitle);
         media.setMediaData(mediaData);
         media.setFilename(fileName);
         media.setDsr(dsr);
         media.setLinkType(linkType);
-        media.setMediaType(mediaType);
-        media.setDesc(desc);
-        media.setMimeType(mimeType);
-        media.setUpdateDate(updateDate);
-        media.setSort(sort);
-        if(buffer.hasRemaining()) {
-            String text = (String) serializer.readClassAndObject(buffer);
-            media.setText(text);
-        }
+        readTrailer(serializer, buffer, media);
         return media;
     }
 
     @Override
     public void write(WriteBuffer buffer, MediaData attribute) {
         DataOutput out = (DataOutput)buffer;
+        writeHeader(out, attribute);
+        out.writeClassAndObject(attribute.getMediaData());
+        writeTrailer(out, attribute);
+    }
+
+    /**
+     * Writes the fields in front of the media content.
+     * 附件内容之前的字段
+     */
+    public static void writeHeader(DataOutput out, MediaData attribute) {
         out.writeObjectNotNull(attribute.getKey());
         out.writeClassAndObject(attribute.getDsr());
         out.writeClassAndObject(attribute.getFilename());
         out.writeClassAndObject(attribute.getLinkType());
-        out.writeClassAndObject(attribute.getMediaData());
+    }
+
+    /**
+     * Writes the fields after the media content.
+     * 附件内容之后的字段
+     */
+    public static void writeTrailer(DataOutput out, MediaData attribute) {
         out.writeClassAndObject(attribute.getMediaType());
         out.writeClassAndObject(attribute.getDesc());
         out.writeClassAndObject(attribute.getMediaTitle());
@@ -70,6 +80,83 @@ public class MediaDataSerializer implements AttributeSerializer<MediaData>, Seri
         out.writeClassAndObject(attribute.getText());
     }
 
+    /**
+     * Reads the fields written by {@link #writeTrailer(DataOutput, MediaData)} into the given media data.
+     * 读取附件内容之后的字段
+     */
+    public static void readTrailer(Serializer serializer, ScanBuffer buffer, MediaData media) {
+        media.setMediaType((String)serializer.readClassAndObject(buffer));
+        media.setDesc((String)serializer.readClassAndObject(buffer));
+        media.setMediaTitle((String)serializer.readClassAndObject(buffer));
+        media.setMimeType((String)serializer.readClassAndObject(buffer));
+        media.setUpdateDate((Date)serializer.readClassAndObject(buffer));
+        media.setSort((Integer) serializer.readClassAndObject(buffer));
+        if(buffer.hasRemaining()) {
+            media.setText((String) serializer.readClassAndObject(buffer));
+        }
+    }
+
+    /**
+     * Writes the prefix of a media content of the given length, i.e. the bytes that
+     * {@link DataOutput#writeClassAndObject(Object)} writes in front of the array elements, so that the content itself
+     * can be streamed afterwards.
+     * 写入附件内容的类型和长度,附件内容本身可以之后以流的方式写入
+     */
+    public static void writeContentPrefix(DataOutput out, Serializer serializer, long length) {
+        Preconditions.checkArgument(length >= 0 && length < Integer.MAX_VALUE, "Invalid media content length: %s", length);
+        //The class registration is followed by the array length + 1, which is a single byte for an empty array
+        DataOutput empty = serializer.getDataOutput(4);
+        empty.writeClassAndObject(new byte[0]);
+        StaticBuffer emptyPrefix = empty.getStaticBuffer();
+        assert VariableLong.positiveLength(1) == 1;
+        for (int i = 0; i < emptyPrefix.length() - 1; i++) {
+            out.putByte(emptyPrefix.getByte(i));
+        }
+        VariableLong.writePositive(out, length + 1);
+    }
+
+    /**
+     * Reads the fields in front of the media content of a serialized {@link MediaData}.
+     * 读取附件内容在序列化后的MediaData中的位置
+     *
+     * @param serializer serializer the media data was written with
+     * @param buffer buffer positioned at the start of the serialized media data
+     * @return the position of the first content byte in the buffer and the length of the content,
+     * or null if the media data has no content
+     * @throws ArrayIndexOutOfBoundsException if the buffer ends before the content
+     */
+    public static long[] readContentPosition(Serializer serializer, ReadBuffer buffer) {
+        long length = readContentLength(serializer, buffer);
+        return length < 0 ? null : new long[]{buffer.getPosition(), length};
+    }
+
+    /**
+     * Reads the fields in front of the media content of a serialized {@link MediaData} from a stream, the content
+     * itself is not read.
+     * 从流中读取附件内容的位置,不读取附件内容
+     *
+     * @param serializer serializer the media data was written with
+     * @param in stream positioned at the start of the serialized media data
+     * @return the position of the first content byte in the stream and the length of the content,
+     * or null if the media data has no content
+     * @throws java.io.UncheckedIOException if the stream cannot be read or ends before the content
+     */
+    public static long[] readContentPosition(Serializer serializer, InputStream in) {
+        InputStreamScanBuffer buffer = new InputStreamScanBuffer(in);
+        long length = readContentLength(serializer, buffer);
+        return length < 0 ? null : new long[]{buffer.getPosition(), length};
+    }
+
+    private static long readContentLength(Serializer serializer, ScanBuffer buffer) {
+        serializer.readObjectNotNull(buffer, String.class);
+        serializer.readClassAndObject(buffer);
+        serializer.readClassAndObject(buffer);
+        serializer.readClassAndObject(buffer);
+        long registrationNo = VariableLong.readPositive(buffer);
+        if (registrationNo == 0) return -1;
+        return VariableLong.readPositive(buffer) - 1;
+    }
+
     @Override
     public void setSerializer(Serializer serializer) {
         this.serializer = Preconditions.checkNotNull(serializer);
@@ -2,8 +2,10 @@ package org.janusgraph.kydsj.serialize.attribute;
 
 import org.janusgraph.graphdb.database.idassigner.Preconditions;
 import org.janusgraph.core.attribute.AttributeSerializer;
+import org.janusgraph.diskstorage.ReadBuffer;
 import org.janusgraph.diskstorage.ScanBuffer;
 import org.janusgraph.diskstorage.WriteBuffer;
+import org.janusgraph.diskstorage.util.ValueCompression;
 import org.janusgraph.graphdb.database.serialize.DataOutput;
 import org.janusgraph.graphdb.database.serialize.Serializer;
 import org.janusgraph.graphdb.database.serialize.SerializerInjected;
@@ -22,6 +24,9 @@ public class NoteSerializer implements AttributeSerializer<Note>, SerializerInje
 
     @Override
     public Note read(ScanBuffer buffer) {
+        if (ValueCompression.isCompressed(buffer)) {
+            buffer = ValueCompression.decompress((ReadBuffer) buffer);
+        }
         String id=serializer.readObjectNotNull(buffer,String.class);
         String noteTitle=(String)serializer.readClassAndObject(buffer);
         String linkType=(String)serializer.readClassAndObject(buffer);
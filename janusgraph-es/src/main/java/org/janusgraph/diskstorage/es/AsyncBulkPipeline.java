@@ -0,0 +1,291 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.es;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.janusgraph.graphdb.database.idassigner.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the index mutations of many transactions to Elasticsearch in shared bulk requests in the background.
+ * 异步批量索引:合并多个事务的索引操作后由后台线程统一写入elasticsearch
+ * <p>
+ * A commit only puts its mutations into a queue and returns, so the storage commit no longer waits for Elasticsearch.
+ * The queue holds at most {@code queueSize} mutations, a commit blocks while it is full. A single flusher thread takes
+ * the mutations of as many transactions as fit into {@code flushActions}, waiting at most {@code flushInterval} for
+ * more, and writes them with one {@link ElasticSearchClient#bulkRequest(List, String)} per ingest pipeline.
+ * <p>
+ * The bulk request may be sent in several chunks at the same time, only the actions of one document are kept together
+ * in one chunk. A flush therefore groups the mutations by document, keeping the commit order within each document, so
+ * the mutations of a document are applied in commit order. There is no order between different documents.
+ * <p>
+ * Mutations that still fail after the retries of the bulk request are written to the {@link BulkRetryLog} and replayed
+ * periodically. Until then, newer mutations of the same documents are appended to the retry log as well, see
+ * {@link BulkRetryLog#holdBack(String, List)}, so that a replayed mutation never overwrites a newer one.
+ * <p>
+ * Every submission gets a sequence number. The watermark returned by {@link #getFlushedWatermark()} is the highest
+ * sequence number for which this and all earlier submissions have been written to Elasticsearch or to the retry log.
+ */
+class AsyncBulkPipeline implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncBulkPipeline.class);
+
+    private final ElasticSearchClient client;
+    private final int queueSize;
+    private final int flushActions;
+    private final long flushIntervalMs;
+    private final BulkRetryLog retryLog;
+
+    private final Semaphore capacity;
+    private final BlockingQueue<Batch> queue = new LinkedBlockingQueue<>();
+    private final Object watermarkLock = new Object();
+    private final AtomicLong failedMutations = new AtomicLong();
+    private final Thread flusher;
+    private final ScheduledExecutorService replayer;
+
+    private long sequence = 0;
+    private volatile long flushedWatermark = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * @param client        elasticsearch客户端
+     * @param queueSize     队列中最多等待写入的索引操作数
+     * @param flushActions  每次批量写入最多合并的索引操作数
+     * @param flushInterval 索引操作在队列中最长的等待时间
+     * @param retryLog      保存写入失败的索引操作
+     * @param retryInterval 重放失败索引操作的间隔
+     */
+    AsyncBulkPipeline(ElasticSearchClient client, int queueSize, int flushActions, Duration flushInterval,
+                      BulkRetryLog retryLog, Duration retryInterval) {
+        Preconditions.checkArgument(queueSize > 0, "Invalid queue size: %s", queueSize);
+        Preconditions.checkArgument(flushActions > 0, "Invalid number of flush actions: %s", flushActions);
+        this.client = client;
+        this.queueSize = queueSize;
+        this.flushActions = flushActions;
+        this.flushIntervalMs = flushInterval.toMillis();
+        this.retryLog = retryLog;
+        this.capacity = new Semaphore(queueSize, true);
+        this.flusher = new ThreadFactoryBuilder().setDaemon(true).setNameFormat("AsyncBulkPipeline-flusher-%d").build()
+            .newThread(this::run);
+        this.flusher.start();
+        this.replayer = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("AsyncBulkPipeline-replayer-%d").build());
+        long retryIntervalMs = retryInterval.toMillis();
+        replayer.scheduleWithFixedDelay(this::replayQuietly, retryIntervalMs, retryIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the mutations of one transaction, blocking while the queue is full.
+     *
+     * @param ingestPipeline 写入时使用的ingest pipeline,可以为null
+     * @param mutations      一个事务的索引操作
+     * @return sequence number of this submission, see {@link #getFlushedWatermark()}
+     * @throws InterruptedIOException 等待队列空闲时被中断
+     */
+    long submit(String ingestPipeline, List<ElasticSearchMutation> mutations) throws InterruptedIOException {
+        //超过队列长度的事务只占满整个队列,避免永远等待
+        int permits = Math.min(mutations.size(), queueSize);
+        try {
+            capacity.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the asynchronous bulk queue");
+        }
+        synchronized (this) {
+            if (closed) {
+                capacity.release(permits);
+                throw new IllegalStateException("Asynchronous bulk pipeline has been closed");
+            }
+            long batchSequence = ++sequence;
+            queue.add(new Batch(batchSequence, ingestPipeline, mutations, permits));
+            return batchSequence;
+        }
+    }
+
+    /**
+     * @return 已写入elasticsearch或失败日志的最大序号,该序号及之前提交的索引操作都已处理
+     */
+    long getFlushedWatermark() {
+        return flushedWatermark;
+    }
+
+    /**
+     * @return number of mutations that have been written to the retry log since startup
+     */
+    long getFailedMutations() {
+        return failedMutations.get();
+    }
+
+    /**
+     * Waits until all mutations submitted before this call have been flushed.
+     *
+     * @throws InterruptedIOException 等待时被中断
+     */
+    void flush() throws InterruptedIOException {
+        final long target;
+        synchronized (this) {
+            target = sequence;
+        }
+        synchronized (watermarkLock) {
+            while (flushedWatermark < target) {
+                if (!flusher.isAlive()) {
+                    throw new IllegalStateException("Asynchronous bulk pipeline has been stopped");
+                }
+                try {
+                    watermarkLock.wait(flushIntervalMs + 1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the asynchronous bulk pipeline");
+                }
+            }
+        }
+    }
+
+    private void run() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Batch first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                List<Batch> batches = new ArrayList<>();
+                batches.add(first);
+                int actions = first.mutations.size();
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (actions < flushActions) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    Batch next = closed ? queue.poll() : queue.poll(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+                    if (next == null) break;
+                    batches.add(next);
+                    actions += next.mutations.size();
+                }
+                flush(batches);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Asynchronous bulk pipeline interrupted with {} transactions in the queue", queue.size());
+                break;
+            }
+        }
+    }
+
+    private void flush(List<Batch> batches) {
+        Map<String, List<ElasticSearchMutation>> byPipeline = new LinkedHashMap<>();
+        int permits = 0;
+        for (Batch batch : batches) {
+            byPipeline.computeIfAbsent(batch.ingestPipeline, pipeline -> new ArrayList<>()).addAll(batch.mutations);
+            permits += batch.permits;
+        }
+        for (Map.Entry<String, List<ElasticSearchMutation>> entry : byPipeline.entrySet()) {
+            List<ElasticSearchMutation> mutations = groupByDocument(entry.getValue());
+            try {
+                mutations = retryLog.holdBack(entry.getKey(), mutations);
+            } catch (IOException e) {
+                //按原顺序直接写入,重放时可能覆盖较新的索引操作
+                log.error("Could not hold back Elasticsearch mutations in the retry log {}, sending them",
+                    retryLog.getDirectory(), e);
+            }
+            if (mutations.isEmpty()) continue;
+            try {
+                client.bulkRequest(mutations, entry.getKey());
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to write {} Elasticsearch mutations, writing them to the retry log {}",
+                    mutations.size(), retryLog.getDirectory(), e);
+                failedMutations.addAndGet(mutations.size());
+                try {
+                    retryLog.append(entry.getKey(), mutations);
+                } catch (IOException ex) {
+                    log.error("Could not write {} Elasticsearch mutations to the retry log, they are lost", mutations.size(), ex);
+                }
+            }
+        }
+        capacity.release(permits);
+        synchronized (watermarkLock) {
+            flushedWatermark = batches.get(batches.size() - 1).sequence;
+            watermarkLock.notifyAll();
+        }
+    }
+
+    /**
+     * Puts the mutations of each document next to each other, keeping their order, so that they end up in the same
+     * chunk of the bulk request.
+     */
+    static List<ElasticSearchMutation> groupByDocument(List<ElasticSearchMutation> mutations) {
+        Map<String, List<ElasticSearchMutation>> byDocument = new LinkedHashMap<>();
+        for (ElasticSearchMutation mutation : mutations) {
+            byDocument.computeIfAbsent(BulkRetryLog.documentKey(mutation), key -> new ArrayList<>(1)).add(mutation);
+        }
+        if (byDocument.size() == mutations.size()) return mutations;
+        List<ElasticSearchMutation> grouped = new ArrayList<>(mutations.size());
+        byDocument.values().forEach(grouped::addAll);
+        return grouped;
+    }
+
+    private void replayQuietly() {
+        try {
+            int replayed = retryLog.replay(client);
+            if (replayed > 0) {
+                log.info("Replayed {} files of failed Elasticsearch mutations from {}", replayed, retryLog.getDirectory());
+            }
+        } catch (Throwable e) {
+            log.warn("Replaying failed Elasticsearch mutations from {} failed", retryLog.getDirectory(), e);
+        }
+    }
+
+    /**
+     * Stops accepting mutations and waits until all queued mutations have been flushed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        replayer.shutdownNow();
+    }
+
+    private static final class Batch {
+
+        private final long sequence;
+        private final String ingestPipeline;
+        private final List<ElasticSearchMutation> mutations;
+        private final int permits;
+
+        private Batch(long sequence, String ingestPipeline, List<ElasticSearchMutation> mutations, int permits) {
+            this.sequence = sequence;
+            this.ingestPipeline = ingestPipeline;
+            this.mutations = mutations;
+            this.permits = permits;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.es;
+
+import org.apache.tinkerpop.shaded.jackson.databind.ObjectMapper;
+import org.apache.tinkerpop.shaded.jackson.databind.SerializationFeature;
+import org.apache.tinkerpop.shaded.jackson.databind.module.SimpleModule;
+import org.janusgraph.core.attribute.Geoshape;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps bulk mutations that could not be written to Elasticsearch in files on the local disk until they are replayed.
+ * 写入elasticsearch失败的索引操作保存在本地文件中,稍后重新写入
+ * <p>
+ * Every failed flush is written to its own file, one mutation per line. A file is first written under a temporary
+ * name, synced and then renamed, so a crash never leaves a partial file behind. Files are replayed in the order they
+ * were written and deleted once Elasticsearch accepted all of their mutations.
+ * <p>
+ * The log counts the documents that have mutations waiting in it. Later mutations of such a document are appended to
+ * the log by {@link #holdBack(String, List)} instead of being sent, so a replayed mutation is never applied after a
+ * newer mutation of the same document. Within a file, mutations followed by an index or delete request of the same
+ * document are superseded and dropped on replay.
+ */
+class BulkRetryLog {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkRetryLog.class);
+
+    private static final String FILE_SUFFIX = ".ndjson";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final ObjectMapper mapper;
+
+    static {
+        final SimpleModule module = new SimpleModule();
+        module.addSerializer(new Geoshape.GeoshapeGsonSerializerV2d0());
+        mapper = new ObjectMapper();
+        mapper.registerModule(module);
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private final Path directory;
+    /**
+     * 在日志中等待重放的文档及其索引操作数
+     */
+    private final Map<String, Integer> pendingDocuments = new HashMap<>();
+
+    BulkRetryLog(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        for (Path file : files()) {
+            for (List<ElasticSearchMutation> mutations : read(file).values()) {
+                addPending(mutations, 1);
+            }
+        }
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Durably stores the given mutations.
+     *
+     * @param ingestPipeline 写入时使用的ingest pipeline,可以为null
+     * @param mutations      写入失败的索引操作
+     * @throws IOException 写入本地文件失败
+     */
+    synchronized void append(String ingestPipeline, List<ElasticSearchMutation> mutations) throws IOException {
+        String name = System.currentTimeMillis() + "-" + UUID.randomUUID();
+        Path temporary = directory.resolve(name + TEMPORARY_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            for (ElasticSearchMutation mutation : mutations) {
+                Map<String, Object> line = new HashMap<>();
+                line.put("pipeline", ingestPipeline);
+                line.put("requestType", mutation.getRequestType().name());
+                line.put("index", mutation.getIndex());
+                line.put("type", mutation.getType());
+                line.put("id", mutation.getId());
+                line.put("source", mutation.getSource());
+                out.write(mapper.writeValueAsBytes(line));
+                out.write('\n');
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(name + FILE_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+        addPending(mutations, 1);
+    }
+
+    /**
+     * Appends the mutations of documents that still have mutations waiting in this log, so that they are replayed
+     * after them.
+     *
+     * @param ingestPipeline 写入时使用的ingest pipeline,可以为null
+     * @param mutations      待写入的索引操作
+     * @return the mutations that can be sent right away, in their original order
+     * @throws IOException 写入本地文件失败
+     */
+    synchronized List<ElasticSearchMutation> holdBack(String ingestPipeline, List<ElasticSearchMutation> mutations)
+            throws IOException {
+        if (pendingDocuments.isEmpty()) return mutations;
+        List<ElasticSearchMutation> ready = new ArrayList<>(mutations.size());
+        List<ElasticSearchMutation> held = new ArrayList<>();
+        for (ElasticSearchMutation mutation : mutations) {
+            (pendingDocuments.containsKey(documentKey(mutation)) ? held : ready).add(mutation);
+        }
+        if (!held.isEmpty()) {
+            log.debug("Holding back {} Elasticsearch mutations of documents waiting in the retry log {}",
+                held.size(), directory);
+            append(ingestPipeline, held);
+        }
+        return ready;
+    }
+
+    /**
+     * @return number of files waiting to be replayed
+     * @throws IOException 读取目录失败
+     */
+    int size() throws IOException {
+        return files().size();
+    }
+
+    /**
+     * Writes the stored mutations to Elasticsearch, oldest first, and stops at the first file that fails again.
+     *
+     * @param client elasticsearch客户端
+     * @return number of replayed files
+     * @throws IOException 读取本地文件失败
+     */
+    synchronized int replay(ElasticSearchClient client) throws IOException {
+        int replayed = 0;
+        for (Path file : files()) {
+            Map<String, List<ElasticSearchMutation>> byPipeline = read(file);
+            try {
+                for (Map.Entry<String, List<ElasticSearchMutation>> entry : byPipeline.entrySet()) {
+                    List<ElasticSearchMutation> mutations = dropSuperseded(entry.getValue());
+                    if (!mutations.isEmpty()) {
+                        client.bulkRequest(mutations, entry.getKey());
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Replaying Elasticsearch mutations from {} failed, will try again later", file, e);
+                break;
+            }
+            Files.delete(file);
+            for (List<ElasticSearchMutation> mutations : byPipeline.values()) {
+                addPending(mutations, -1);
+            }
+            replayed++;
+        }
+        return replayed;
+    }
+
+    /**
+     * @return the mutations without those that are followed by an index or delete request of the same document
+     */
+    static List<ElasticSearchMutation> dropSuperseded(List<ElasticSearchMutation> mutations) {
+        Set<String> replaced = new HashSet<>();
+        List<ElasticSearchMutation> kept = new ArrayList<>(mutations.size());
+        for (int i = mutations.size() - 1; i >= 0; i--) {
+            ElasticSearchMutation mutation = mutations.get(i);
+            String key = documentKey(mutation);
+            if (replaced.contains(key)) continue;
+            if (mutation.getRequestType() != ElasticSearchMutation.RequestType.UPDATE) {
+                replaced.add(key);
+            }
+            kept.add(mutation);
+        }
+        Collections.reverse(kept);
+        return kept;
+    }
+
+    private void addPending(List<ElasticSearchMutation> mutations, int delta) {
+        for (ElasticSearchMutation mutation : mutations) {
+            pendingDocuments.compute(documentKey(mutation), (key, count) -> {
+                int pending = (count == null ? 0 : count) + delta;
+                return pending > 0 ? pending : null;
+            });
+        }
+    }
+
+    /**
+     * @return key of the document a mutation applies to, index names cannot contain a slash
+     */
+    static String documentKey(ElasticSearchMutation mutation) {
+        return mutation.getIndex() + "/" + mutation.getId();
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            //文件名以写入时间开头,按文件名排序即按写入顺序排序
+            return files.filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX))
+                .sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static Map<String, List<ElasticSearchMutation>> read(Path file) throws IOException {
+        Map<String, List<ElasticSearchMutation>> byPipeline = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                Map<String, Object> values = mapper.readValue(line, HashMap.class);
+                byPipeline.computeIfAbsent((String) values.get("pipeline"), pipeline -> new ArrayList<>())
+                    .add(toMutation(values));
+            }
+        }
+        return byPipeline;
+    }
+
+    private static ElasticSearchMutation toMutation(Map<String, Object> values) {
+        String index = (String) values.get("index");
+        String type = (String) values.get("type");
+        String id = (String) values.get("id");
+        Map source = (Map) values.get("source");
+        switch (ElasticSearchMutation.RequestType.valueOf((String) values.get("requestType"))) {
+            case DELETE:
+                return ElasticSearchMutation.createDeleteRequest(index, type, id);
+            case INDEX:
+                return ElasticSearchMutation.createIndexRequest(index, type, id, source);
+            case UPDATE:
+                return ElasticSearchMutation.createUpdateRequest(index, type, id, source);
+            default:
+                throw new IllegalArgumentException("Unknown request type: " + values.get("requestType"));
+        }
+    }
+}
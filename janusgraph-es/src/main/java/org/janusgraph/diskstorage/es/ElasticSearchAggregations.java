@@ -0,0 +1,130 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.es;
+
+import org.janusgraph.diskstorage.indexing.IndexAggregation;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the aggs section of a search request for an {@link IndexAggregation} and reads its result.
+ * 构造聚合请求并解析聚合结果
+ * <p>
+ * min, max and sum are accompanied by a value_count, since elasticsearch reports a sum of 0 if no document has a
+ * value. A terms aggregation is only exact if all distinct values fit into the requested buckets, otherwise null is
+ * returned and the caller aggregates the elements itself.
+ */
+public final class ElasticSearchAggregations {
+
+    public static final String AGGREGATIONS_KEY = "aggs";
+
+    private static final String AGGREGATION_NAME = "agg";
+    private static final String VALUE_COUNT_NAME = "count";
+
+    private static final String FIELD_KEY = "field";
+    private static final String SIZE_KEY = "size";
+    private static final String INTERVAL_KEY = "interval";
+    private static final String MIN_DOC_COUNT_KEY = "min_doc_count";
+    private static final String BUCKETS_KEY = "buckets";
+    private static final String KEY_KEY = "key";
+    private static final String DOC_COUNT_KEY = "doc_count";
+    private static final String SUM_OTHER_DOC_COUNT_KEY = "sum_other_doc_count";
+    private static final String VALUE_KEY = "value";
+
+    private ElasticSearchAggregations() {
+    }
+
+    /**
+     * @param type       聚合类型
+     * @param field      聚合的elasticsearch字段
+     * @param interval   直方图的区间大小,其他聚合为null
+     * @param maxBuckets terms聚合最多返回的桶数
+     * @return aggs section of the search request
+     */
+    public static Map<String, Object> request(IndexAggregation.Type type, String field, Number interval, int maxBuckets) {
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put(FIELD_KEY, field);
+        final Map<String, Object> aggregations = new HashMap<>();
+        switch (type) {
+            case COUNT_BY_VALUE:
+                parameters.put(SIZE_KEY, maxBuckets);
+                aggregations.put(AGGREGATION_NAME, single("terms", parameters));
+                break;
+            case HISTOGRAM:
+                parameters.put(INTERVAL_KEY, interval);
+                parameters.put(MIN_DOC_COUNT_KEY, 1);
+                aggregations.put(AGGREGATION_NAME, single("histogram", parameters));
+                break;
+            case MIN:
+            case MAX:
+            case SUM:
+                aggregations.put(AGGREGATION_NAME, single(type.name().toLowerCase(), parameters));
+                aggregations.put(VALUE_COUNT_NAME, single("value_count", single(FIELD_KEY, field)));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported aggregation: " + type);
+        }
+        return aggregations;
+    }
+
+    /**
+     * @param aggregations aggregations section of the search response
+     * @return the result as described in {@link IndexAggregation}, or null if it is not exact
+     */
+    public static Object parse(IndexAggregation.Type type, Map<String, Object> aggregations) {
+        if (aggregations == null || !aggregations.containsKey(AGGREGATION_NAME)) {
+            return null;
+        }
+        final Map<String, Object> aggregation = (Map<String, Object>) aggregations.get(AGGREGATION_NAME);
+        switch (type) {
+            case COUNT_BY_VALUE:
+                final Number sumOtherDocCount = (Number) aggregation.get(SUM_OTHER_DOC_COUNT_KEY);
+                if (sumOtherDocCount != null && sumOtherDocCount.longValue() > 0) {
+                    return null;
+                }
+                return buckets(aggregation);
+            case HISTOGRAM:
+                return buckets(aggregation);
+            case MIN:
+            case MAX:
+            case SUM:
+                final Map<String, Object> valueCount = (Map<String, Object>) aggregations.get(VALUE_COUNT_NAME);
+                final Number value = (Number) aggregation.get(VALUE_KEY);
+                if (value == null || valueCount == null || ((Number) valueCount.get(VALUE_KEY)).longValue() == 0) {
+                    return Double.NaN;
+                }
+                return value;
+            default:
+                throw new IllegalArgumentException("Unsupported aggregation: " + type);
+        }
+    }
+
+    private static Map<Object, Long> buckets(Map<String, Object> aggregation) {
+        final Map<Object, Long> result = new LinkedHashMap<>();
+        for (final Map<String, Object> bucket : (List<Map<String, Object>>) aggregation.get(BUCKETS_KEY)) {
+            result.put(bucket.get(KEY_KEY), ((Number) bucket.get(DOC_COUNT_KEY)).longValue());
+        }
+        return result;
+    }
+
+    private static Map<String, Object> single(String key, Object value) {
+        final Map<String, Object> map = new HashMap<>();
+        map.put(key, value);
+        return map;
+    }
+}
@@ -65,6 +65,23 @@ public interface ElasticSearchClient extends Closeable {
 
     void deleteScroll(String scrollId) throws IOException;
 
+    /**
+     * Opens a point in time on the index, kept alive as long as a scroll context.
+     *
+     * @return id of the point in time
+     */
+    String openPointInTime(String indexName) throws IOException;
+
+    /**
+     * Searches a point in time opened by {@link #openPointInTime(String)}.
+     *
+     * @param pitId   the most recent id of the point in time
+     * @param request search request without index, usually with search_after
+     */
+    ElasticSearchResponse searchPointInTime(String pitId, Map<String,Object> request) throws IOException;
+
+    void closePointInTime(String pitId) throws IOException;
+
     void addAlias(String alias, String index) throws IOException;
 
     void addAliases(String index, Set<String> aliases) throws IOException;
@@ -18,6 +18,7 @@ public class ElasticSearchConstants {
 
     public static final String ES_DOC_KEY = "doc";
     public static final String ES_UPSERT_KEY = "upsert";
+    public static final String ES_DOC_AS_UPSERT_KEY = "doc_as_upsert";
     public static final String ES_SCRIPT_KEY = "script";
     public static final String ES_SOURCE_KEY = "source";
     public static final String ES_ID_KEY = "id";
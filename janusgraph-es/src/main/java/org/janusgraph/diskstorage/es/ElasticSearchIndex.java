@@ -135,6 +135,66 @@ public class ElasticSearchIndex implements IndexProvider {
             new ConfigOption<>(ELASTICSEARCH_NS, "show-bulk-write-costs",
             "显示bulk批量向elasticsearch提交数据耗时大于等于400毫秒的请求具体所用时间", ConfigOption.Type.LOCAL, false);
 
+    public static final ConfigOption<Integer> BULK_CHUNK_SIZE =
+            new ConfigOption<>(ELASTICSEARCH_NS, "bulk-chunk-size",
+            "单个bulk请求未压缩的最大字节数,超过时拆分为多个请求。同一文档的操作总是在同一个请求中", ConfigOption.Type.MASKABLE,
+            5 * 1024 * 1024, ConfigOption.positiveInt());
+
+    public static final ConfigOption<Integer> BULK_CHUNK_ACTIONS =
+            new ConfigOption<>(ELASTICSEARCH_NS, "bulk-chunk-actions",
+            "单个bulk请求最多包含的操作数,超过时拆分为多个请求", ConfigOption.Type.MASKABLE, 1000, ConfigOption.positiveInt());
+
+    public static final ConfigOption<Integer> BULK_CONCURRENCY =
+            new ConfigOption<>(ELASTICSEARCH_NS, "bulk-concurrency",
+            "一次提交拆分出的bulk请求最多同时发送的数量", ConfigOption.Type.MASKABLE, 4, ConfigOption.positiveInt());
+
+    public static final ConfigOption<Integer> BULK_RETRIES =
+            new ConfigOption<>(ELASTICSEARCH_NS, "bulk-retries",
+            "bulk请求中因限流、版本冲突或节点暂时不可用而失败的操作的最大重试次数,只重试失败的操作", ConfigOption.Type.MASKABLE,
+            3, ConfigOption.nonnegativeInt());
+
+    public static final ConfigOption<Integer> BULK_RETRY_WAIT =
+            new ConfigOption<>(ELASTICSEARCH_NS, "bulk-retry-wait",
+            "bulk操作第一次重试前等待的毫秒数,之后每次重试等待时间翻倍", ConfigOption.Type.MASKABLE, 200);
+
+    public static final ConfigOption<Boolean> PARTIAL_UPDATE =
+            new ConfigOption<>(ELASTICSEARCH_NS, "partial-update",
+            "只新增或修改关键字字段和单值属性时使用部分文档(doc)更新和doc_as_upsert代替painless脚本,不再重复发送upsert文档。" +
+            "多值属性的合并以及数据来源的合并或删除仍然使用脚本", ConfigOption.Type.MASKABLE, true);
+
+    public static final ConfigOption<Boolean> SKIP_UPSERT_FOR_EXISTING =
+            new ConfigOption<>(ELASTICSEARCH_NS, "skip-upsert-for-existing",
+            "已存在的对象使用脚本更新时不再附带upsert文档。开启前需确保已存在对象在elasticsearch中都有文档,否则缺少文档的更新会被忽略",
+            ConfigOption.Type.MASKABLE, false);
+
+    public static final ConfigNamespace ASYNC_BULK_NS =
+            new ConfigNamespace(ELASTICSEARCH_NS, "async-bulk", "异步批量索引配置");
+
+    public static final ConfigOption<Boolean> ASYNC_BULK_ENABLED =
+            new ConfigOption<>(ASYNC_BULK_NS, "enabled",
+            "开启后事务提交时只把索引操作放入队列,由后台线程合并多个事务的索引操作批量写入elasticsearch,提交耗时不再包含" +
+            "elasticsearch的写入耗时,但提交后的数据要等写入后才能被索引查询到。适用于批量导入", ConfigOption.Type.MASKABLE, false);
+
+    public static final ConfigOption<Integer> ASYNC_BULK_QUEUE_SIZE =
+            new ConfigOption<>(ASYNC_BULK_NS, "queue-size",
+            "队列中最多等待写入的索引操作数,队列满时提交会阻塞", ConfigOption.Type.MASKABLE, 100000, ConfigOption.positiveInt());
+
+    public static final ConfigOption<Integer> ASYNC_BULK_FLUSH_ACTIONS =
+            new ConfigOption<>(ASYNC_BULK_NS, "flush-actions",
+            "每次批量写入最多合并的索引操作数", ConfigOption.Type.MASKABLE, 5000, ConfigOption.positiveInt());
+
+    public static final ConfigOption<Integer> ASYNC_BULK_FLUSH_INTERVAL =
+            new ConfigOption<>(ASYNC_BULK_NS, "flush-interval",
+            "索引操作在队列中等待与其他事务合并的最长毫秒数", ConfigOption.Type.MASKABLE, 200, ConfigOption.positiveInt());
+
+    public static final ConfigOption<String> ASYNC_BULK_RETRY_LOG_DIRECTORY =
+            new ConfigOption<>(ASYNC_BULK_NS, "retry-log-directory",
+            "保存写入失败的索引操作的本地目录,为空时使用临时目录下的janusgraph-es-retry/<索引名>", ConfigOption.Type.MASKABLE, "");
+
+    public static final ConfigOption<Integer> ASYNC_BULK_RETRY_INTERVAL =
+            new ConfigOption<>(ASYNC_BULK_NS, "retry-interval",
+            "重新写入失败索引操作的间隔毫秒数", ConfigOption.Type.MASKABLE, 30000, ConfigOption.positiveInt());
+
     public static final ConfigNamespace ES_CREATE_NS =
             new ConfigNamespace(ELASTICSEARCH_NS, "create", "Settings related to index creation");
 
@@ -190,6 +250,16 @@ public class ElasticSearchIndex implements IndexProvider {
             new ConfigOption<>(ELASTICSEARCH_NS, "scroll-keep-alive",
             "How long (in seconds) elasticsearch should keep alive the scroll context.", ConfigOption.Type.GLOBAL_OFFLINE, 60);
 
+    public static final ConfigOption<Boolean> USE_SEARCH_AFTER =
+            new ConfigOption<>(ELASTICSEARCH_NS, "use-search-after",
+            "读取超过一页的查询结果时使用point in time和search_after代替scroll,并在后台线程预取下一页。" +
+            "point in time的保留时间与scroll-keep-alive相同,需要elasticsearch 7.12及以上版本", ConfigOption.Type.MASKABLE, false);
+
+    public static final ConfigOption<Integer> AGGREGATION_MAX_BUCKETS =
+            new ConfigOption<>(ELASTICSEARCH_NS, "aggregation-max-buckets",
+            "groupCount下推为terms聚合时最多返回的不同值个数,超过时不使用聚合结果,改为读取匹配的元素计算",
+            ConfigOption.Type.MASKABLE, 10000);
+
     public static final ConfigNamespace ES_INGEST_PIPELINES =
             new ConfigNamespace(ELASTICSEARCH_NS, "ingest-pipeline", "Ingest pipeline applicable to a store of an index.");
 
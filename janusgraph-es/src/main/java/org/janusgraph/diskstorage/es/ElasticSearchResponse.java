@@ -16,7 +16,9 @@ package org.janusgraph.diskstorage.es;
 
 import org.janusgraph.diskstorage.indexing.RawQuery;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 public class ElasticSearchResponse {
@@ -25,8 +27,12 @@ public class ElasticSearchResponse {
 
     private String scrollId;
 
+    private String pitId;
+
     private List<RawQuery.Result<String>> results;
 
+    private Map<String, Object> aggregations;
+
     public long getTook() {
         return took;
     }
@@ -54,4 +60,27 @@ public class ElasticSearchResponse {
     public void setScrollId(String scrollId) {
         this.scrollId = scrollId;
     }
+
+    public String getPitId() {
+        return pitId;
+    }
+
+    public void setPitId(String pitId) {
+        this.pitId = pitId;
+    }
+
+    public Map<String, Object> getAggregations() {
+        return aggregations;
+    }
+
+    public void setAggregations(Map<String, Object> aggregations) {
+        this.aggregations = aggregations;
+    }
+
+    /**
+     * @return sort values of the last hit, used as search_after of the next page
+     */
+    public List<Object> getLastSortValues() {
+        return Collections.emptyList();
+    }
 }
@@ -0,0 +1,164 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.es;
+
+import org.janusgraph.diskstorage.indexing.RawQuery;
+import org.janusgraph.diskstorage.indexing.RawQuery.Result;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Iterates over all hits of a search by paging through a point in time with search_after.
+ * 使用point in time和search_after分页读取全部结果,代替scroll
+ * <p>
+ * Unlike a scroll, a point in time does not keep a search context per shard and request alive, and search_after does
+ * not need from+size windows. As soon as a page has been received the next page is requested on the given executor,
+ * so the caller processes one page while Elasticsearch fetches the next one. At most one page is fetched ahead.
+ * The point in time is closed when the last page has been read or when the iterator is closed.
+ */
+public class ElasticSearchSearchAfter implements Iterator<RawQuery.Result<String>>, Closeable {
+
+    private static final String SEARCH_AFTER_KEY = "search_after";
+
+    private final Queue<RawQuery.Result<String>> queue;
+    private final ElasticSearchClient client;
+    private final Map<String, Object> request;
+    private final int pageSize;
+    private final Executor executor;
+
+    private String pitId;
+    private CompletableFuture<ElasticSearchResponse> nextPage;
+    private boolean isFinished;
+
+    /**
+     * @param client   elasticsearch客户端
+     * @param pitId    已打开的point in time
+     * @param request  查询请求,需要包含以_shard_doc结尾的排序
+     * @param pageSize 每页结果数
+     * @param executor 预取下一页的线程池
+     */
+    public ElasticSearchSearchAfter(ElasticSearchClient client, String pitId, Map<String, Object> request, int pageSize,
+                                    Executor executor) throws IOException {
+        this.queue = new ArrayDeque<>(pageSize);
+        this.client = client;
+        this.pitId = pitId;
+        this.request = request;
+        this.pageSize = pageSize;
+        this.executor = executor;
+        final ElasticSearchResponse initialResponse;
+        try {
+            initialResponse = client.searchPointInTime(pitId, request);
+        } catch (IOException | RuntimeException e) {
+            client.closePointInTime(pitId);
+            throw e;
+        }
+        update(initialResponse);
+    }
+
+    private void update(ElasticSearchResponse response) {
+        response.getResults().forEach(queue::add);
+        if (response.getPitId() != null) {
+            pitId = response.getPitId();
+        }
+        final List<Object> lastSortValues = response.getLastSortValues();
+        if (response.numResults() < pageSize || lastSortValues.isEmpty()) {
+            close();
+        } else {
+            nextPage = fetch(lastSortValues);
+        }
+    }
+
+    private CompletableFuture<ElasticSearchResponse> fetch(List<Object> searchAfter) {
+        final Map<String, Object> pageRequest = new HashMap<>(request);
+        pageRequest.put(SEARCH_AFTER_KEY, searchAfter);
+        final String id = pitId;
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return client.searchPointInTime(id, pageRequest);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!queue.isEmpty()) {
+            return true;
+        }
+        if (isFinished) {
+            return false;
+        }
+        final ElasticSearchResponse res = awaitNextPage();
+        update(res);
+        return res.numResults() > 0;
+    }
+
+    private ElasticSearchResponse awaitNextPage() {
+        try {
+            return nextPage.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for the next page"));
+        } catch (final ExecutionException e) {
+            close();
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw (UncheckedIOException) e.getCause();
+            }
+            throw new UncheckedIOException(new IOException(e.getCause()));
+        }
+    }
+
+    @Override
+    public Result<String> next() {
+        if (hasNext()) {
+            return queue.remove();
+        }
+        throw new NoSuchElementException();
+    }
+
+    /**
+     * Closes the point in time, results that have already been received can still be read.
+     */
+    @Override
+    public void close() {
+        if (isFinished) {
+            return;
+        }
+        isFinished = true;
+        if (nextPage != null) {
+            nextPage.cancel(false);
+        }
+        try {
+            client.closePointInTime(pitId);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+}
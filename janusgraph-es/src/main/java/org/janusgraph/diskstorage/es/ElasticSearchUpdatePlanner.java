@@ -0,0 +1,94 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.es;
+
+import org.janusgraph.core.Cardinality;
+import org.janusgraph.util.system.DefaultKeywordField;
+import org.janusgraph.util.system.DefaultTextField;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_CARDINALITY;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_DSR;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_DS_NAME;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_ENDDATE;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_GEO;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_OVERLAID;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_ROLE;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_STARTDATE;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_VALUE;
+
+/**
+ * Decides whether the additions of a document can be written as a partial document instead of the stored addition script.
+ * 判断新增的属性能否用部分文档(doc)更新代替painless脚本
+ * <p>
+ * Elasticsearch merges a partial document recursively into the stored one: scalar values and arrays are replaced,
+ * objects are merged key by key. For keyword fields and for SINGLE properties this is exactly what the addition script
+ * does, unless the data sources of an existing value have to be united with new ones or removed. SET and LIST
+ * properties are merged element by element and always need the script. One update request carries either a partial
+ * document or a script, so a single field that needs the script sends all fields of the document through the script.
+ */
+public final class ElasticSearchUpdatePlanner {
+
+    private ElasticSearchUpdatePlanner() {
+    }
+
+    /**
+     * @param fields update parameters of the additions of one document, in the format used by the addition script
+     * @return the partial document, or null if the additions need the addition script
+     */
+    public static Map<String, Object> getPartialDocument(List<Map<String, Object>> fields) {
+        final Map<String, Object> doc = new LinkedHashMap<>();
+        for (Map<String, Object> field : fields) {
+            final String name = (String) field.get(KG_PROPERTY_DS_NAME);
+            final Object value = field.get(KG_PROPERTY_VALUE);
+            //值为对象时会与已有的值合并,而脚本是替换
+            if (value instanceof Map) {
+                return null;
+            }
+            if (DefaultKeywordField.isKeyWordField(name) || DefaultTextField.isKeyWordField(name)) {
+                doc.put(name, value);
+            } else if (Cardinality.SINGLE.name().equals(field.get(KG_CARDINALITY))) {
+                final boolean overlaid = Boolean.TRUE.equals(field.get(KG_PROPERTY_OVERLAID));
+                final boolean hasDsr = field.get(KG_PROPERTY_DSR) != null;
+                //不覆盖时需要合并已有的数据来源,覆盖为空时需要删除已有的数据来源
+                if (hasDsr != overlaid) {
+                    return null;
+                }
+                final Object existing = doc.get(name);
+                final Map<String, Object> fieldValues = existing instanceof Map ? (Map<String, Object>) existing : new HashMap<>();
+                putIfNotNull(fieldValues, KG_PROPERTY_VALUE, value);
+                putIfNotNull(fieldValues, KG_PROPERTY_STARTDATE, field.get(KG_PROPERTY_STARTDATE));
+                putIfNotNull(fieldValues, KG_PROPERTY_ENDDATE, field.get(KG_PROPERTY_ENDDATE));
+                putIfNotNull(fieldValues, KG_PROPERTY_ROLE, field.get(KG_PROPERTY_ROLE));
+                putIfNotNull(fieldValues, KG_PROPERTY_GEO, field.get(KG_PROPERTY_GEO));
+                putIfNotNull(fieldValues, KG_PROPERTY_DSR, field.get(KG_PROPERTY_DSR));
+                doc.put(name, fieldValues);
+            } else {
+                return null;
+            }
+        }
+        return doc;
+    }
+
+    private static void putIfNotNull(Map<String, Object> fieldValues, String key, Object value) {
+        if (value != null) {
+            fieldValues.put(key, value);
+        }
+    }
+}
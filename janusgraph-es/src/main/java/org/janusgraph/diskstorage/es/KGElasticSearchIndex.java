@@ -20,6 +20,7 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang3.StringUtils;
 import org.janusgraph.core.Cardinality;
 import org.janusgraph.core.JanusGraphException;
@@ -41,6 +42,7 @@ import org.janusgraph.diskstorage.es.compat.AbstractESCompat;
 import org.janusgraph.diskstorage.es.compat.ESCompatUtils;
 import org.janusgraph.diskstorage.es.mapping.IndexMapping;
 import org.janusgraph.diskstorage.es.script.ESScriptResponse;
+import org.janusgraph.diskstorage.indexing.IndexAggregation;
 import org.janusgraph.diskstorage.indexing.IndexEntry;
 import org.janusgraph.diskstorage.indexing.IndexFeatures;
 import org.janusgraph.diskstorage.indexing.IndexMutation;
@@ -69,6 +71,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -85,6 +90,8 @@ import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -366,7 +373,9 @@ public class KGElasticSearchIndex implements IndexProvider {
     private static final Parameter[] NULL_PARAMETERS = null;
 
     private static final String TRACK_TOTAL_HITS_PARAMETER = "track_total_hits";
+    private static final String TRACK_SCORES_PARAMETER = "track_scores";
     private static final Parameter[] TRACK_TOTAL_HITS_DISABLED_PARAMETERS = new Parameter[]{new Parameter<>(TRACK_TOTAL_HITS_PARAMETER, false)};
+    private static final Map<String, Object> SHARD_DOC_SORT = ImmutableMap.of("_shard_doc", "asc");
     private static final Map<String, Object> TRACK_TOTAL_HITS_DISABLED_REQUEST_BODY = ImmutableMap.of(TRACK_TOTAL_HITS_PARAMETER, false);
 
     private final Function<String, String> generateIndexStoreNameFunction = this::generateIndexStoreName;
@@ -385,8 +394,13 @@ public class KGElasticSearchIndex implements IndexProvider {
     private final Map<String, Object> ingestPipelines;
     private final boolean useMappingForES7;
     private final boolean showBulkWriteCosts;
+    private final boolean partialUpdate;
+    private final boolean skipUpsertForExisting;
+    private final int aggregationMaxBuckets;
     private final String parameterizedAdditionScriptId;
     private final String parameterizedDeletionScriptId;
+    private final AsyncBulkPipeline asyncBulkPipeline;
+    private final ExecutorService searchAfterExecutor;
 
     public KGElasticSearchIndex(Configuration config) throws BackendException {
 
@@ -398,6 +412,9 @@ public class KGElasticSearchIndex implements IndexProvider {
         allowMappingUpdate = config.get(ElasticSearchIndex.ALLOW_MAPPING_UPDATE);
         createSleep = config.get(ElasticSearchIndex.CREATE_SLEEP);
         showBulkWriteCosts = config.get(ElasticSearchIndex.BULK_WRITE_COSTS);
+        partialUpdate = config.get(ElasticSearchIndex.PARTIAL_UPDATE);
+        skipUpsertForExisting = config.get(ElasticSearchIndex.SKIP_UPSERT_FOR_EXISTING);
+        aggregationMaxBuckets = config.get(ElasticSearchIndex.AGGREGATION_MAX_BUCKETS);
         ingestPipelines = config.getSubset(ElasticSearchIndex.ES_INGEST_PIPELINES);
         useMappingForES7 = config.get(ElasticSearchIndex.USE_MAPPING_FOR_ES7);
         indexStoreNameCacheEnabled = config.get(ElasticSearchIndex.ENABLE_INDEX_STORE_NAMES_CACHE);
@@ -415,6 +432,27 @@ public class KGElasticSearchIndex implements IndexProvider {
         setupMaxOpenScrollContextsIfNeeded(config);
 
         setupStoredScripts();
+
+        asyncBulkPipeline = config.get(ElasticSearchIndex.ASYNC_BULK_ENABLED) ? createAsyncBulkPipeline(config) : null;
+
+        searchAfterExecutor = config.get(ElasticSearchIndex.USE_SEARCH_AFTER) ? Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ElasticSearchSearchAfter-%d").build()) : null;
+    }
+
+    private AsyncBulkPipeline createAsyncBulkPipeline(Configuration config) throws PermanentBackendException {
+        String directory = config.get(ElasticSearchIndex.ASYNC_BULK_RETRY_LOG_DIRECTORY);
+        Path retryLogDirectory = StringUtils.isBlank(directory)
+            ? Paths.get(System.getProperty("java.io.tmpdir"), "janusgraph-es-retry", indexName) : Paths.get(directory);
+        try {
+            BulkRetryLog retryLog = new BulkRetryLog(retryLogDirectory);
+            log.info("Asynchronous bulk indexing enabled for {}, failed mutations are kept in {}", indexName, retryLogDirectory);
+            return new AsyncBulkPipeline(client, config.get(ElasticSearchIndex.ASYNC_BULK_QUEUE_SIZE),
+                config.get(ElasticSearchIndex.ASYNC_BULK_FLUSH_ACTIONS),
+                Duration.ofMillis(config.get(ElasticSearchIndex.ASYNC_BULK_FLUSH_INTERVAL)), retryLog,
+                Duration.ofMillis(config.get(ElasticSearchIndex.ASYNC_BULK_RETRY_INTERVAL)));
+        } catch (final IOException e) {
+            throw new PermanentBackendException("Could not create the retry log directory " + retryLogDirectory, e);
+        }
     }
 
     private void checkClusterHealth(String healthCheck) throws BackendException {
@@ -1178,16 +1216,22 @@ public class KGElasticSearchIndex implements IndexProvider {
                             }
                         } else {
                             if(skipIndexes==null||!skipIndexes.contains(storeName)) {
-                                final Map upsert=getNewDocument(mutation.getAdditions(), information.get(storeName));
-                                /*if (!mutation.hasDeletions()) {
-                                    upsert = getNewDocument(mutation.getAdditions(), information.get(storeName));
-                                } else {
-                                    upsert = null;
-                                }*/
-
                                 List<Map<String, Object>> params = getUpdateParameters(information.get(storeName),
                                     mutation.getAdditions());
-                                if (!params.isEmpty()) {
+                                final Map<String, Object> doc = partialUpdate && !params.isEmpty()
+                                    ? ElasticSearchUpdatePlanner.getPartialDocument(params) : null;
+                                if (doc != null) {
+                                    //部分文档更新,文档不存在时直接以doc作为新文档
+                                    final Map<String, Object> source = new HashMap<>();
+                                    source.put(ES_DOC_KEY, doc);
+                                    source.put(ES_DOC_AS_UPSERT_KEY, true);
+                                    requestByStore.add(ElasticSearchMutation.createUpdateRequest(indexStoreName, indexStoreName,
+                                        documentId, source));
+                                    log.trace("Adding partial document {}", doc);
+                                } else if (!params.isEmpty()) {
+                                    //已存在的对象在elasticsearch中已有文档,不需要upsert
+                                    final Map upsert = skipUpsertForExisting && !mutation.isNew()
+                                        ? null : getNewDocument(mutation.getAdditions(), information.get(storeName));
                                     ImmutableMap.Builder builder = compat.prepareStoredScript(parameterizedAdditionScriptId, params);
                                     requestByStore.add(ElasticSearchMutation.createUpdateRequest(indexStoreName, indexStoreName,
                                         documentId, builder, upsert));
@@ -1206,7 +1250,7 @@ public class KGElasticSearchIndex implements IndexProvider {
                     }
                 }
                 if (!requestByStore.isEmpty() && ingestPipelines.containsKey(storeName)) {
-                    client.bulkRequest(requestByStore, String.valueOf(ingestPipelines.get(storeName)));
+                    bulkRequest(requestByStore, String.valueOf(ingestPipelines.get(storeName)));
                 } else if (!requestByStore.isEmpty()) {
                     requests.addAll(requestByStore);
                 }
@@ -1214,7 +1258,7 @@ public class KGElasticSearchIndex implements IndexProvider {
             if (!requests.isEmpty()) {
                 long start = System.currentTimeMillis();
                 int size=requests.size();
-                client.bulkRequest(requests, null);
+                bulkRequest(requests, null);
                 long end = System.currentTimeMillis();
                 long time =end - start;
                 if(showBulkWriteCosts&&time>=400){
@@ -1227,6 +1271,59 @@ public class KGElasticSearchIndex implements IndexProvider {
         }
     }
 
+    /**
+     * Writes the mutations of a commit, or only queues them if asynchronous bulk indexing is enabled.
+     */
+    private void bulkRequest(List<ElasticSearchMutation> requests, String ingestPipeline) throws IOException {
+        if (asyncBulkPipeline != null) {
+            asyncBulkPipeline.submit(ingestPipeline, requests);
+        } else {
+            client.bulkRequest(requests, ingestPipeline);
+        }
+    }
+
+    /**
+     * Writes mutations outside of a commit. With asynchronous bulk indexing they go through the queue as well, so
+     * that they are applied after the queued or held back mutations of the same documents, and the call waits until
+     * they have been written to Elasticsearch or to the retry log.
+     */
+    private void bulkRequestAndWait(List<ElasticSearchMutation> requests, String ingestPipeline) throws IOException {
+        bulkRequest(requests, ingestPipeline);
+        if (asyncBulkPipeline != null) {
+            asyncBulkPipeline.flush();
+        }
+    }
+
+    /**
+     * 异步批量索引已经处理到的事务序号
+     *
+     * @return sequence number of the last commit whose mutations, together with those of all earlier commits, have
+     * been written to Elasticsearch or to the retry log, or -1 if asynchronous bulk indexing is disabled
+     */
+    public long getAsyncBulkWatermark() {
+        return asyncBulkPipeline != null ? asyncBulkPipeline.getFlushedWatermark() : -1;
+    }
+
+    /**
+     * @return number of mutations the asynchronous bulk indexing could not write and put into the retry log
+     */
+    public long getAsyncBulkFailures() {
+        return asyncBulkPipeline != null ? asyncBulkPipeline.getFailedMutations() : 0;
+    }
+
+    /**
+     * Waits until the mutations of all commits so far have been written to Elasticsearch or to the retry log. Does
+     * nothing if asynchronous bulk indexing is disabled.
+     */
+    public void flushAsyncBulk() throws BackendException {
+        if (asyncBulkPipeline == null) return;
+        try {
+            asyncBulkPipeline.flush();
+        } catch (final IOException e) {
+            throw new PermanentBackendException(e);
+        }
+    }
+
     private List<Map<String, Object>> getUpdateParameters(KeyInformation.StoreRetriever storeRetriever,
                                                     List<IndexEntry> entries) {
         List<Map<String, Object>> result = new ArrayList<>();
@@ -1390,13 +1487,13 @@ public class KGElasticSearchIndex implements IndexProvider {
                     }
                 }
                 if (!requestByStore.isEmpty() && ingestPipelines.containsKey(store)) {
-                    client.bulkRequest(requestByStore, String.valueOf(ingestPipelines.get(store)));
+                    bulkRequestAndWait(requestByStore, String.valueOf(ingestPipelines.get(store)));
                 } else if (!requestByStore.isEmpty()) {
                     requests.addAll(requestByStore);
                 }
             }
             if (!requests.isEmpty())
-                client.bulkRequest(requests, null);
+                bulkRequestAndWait(requests, null);
         } catch (final Exception e) {
             throw convert(e);
         }
@@ -1416,6 +1513,55 @@ public class KGElasticSearchIndex implements IndexProvider {
         }
     }
 
+    @Override
+    public Object aggregate(IndexQuery query, IndexAggregation aggregation, KeyInformation.IndexRetriever information,
+                            BaseTransaction tx) throws BackendException {
+        final KeyInformation.StoreRetriever storeInformation = information.get(query.getStore());
+        final String field = getAggregationFieldName(aggregation.getField(), storeInformation);
+        if (field == null) {
+            return null;
+        }
+        final ElasticSearchRequest sr = new ElasticSearchRequest();
+        final Map<String,Object> esQuery = getFilter(query.getCondition(), storeInformation);
+        sr.setQuery(compat.prepareQuery(esQuery));
+        sr.setSize(0);
+        final Map<String, Object> requestBody = compat.createRequestBody(sr, TRACK_TOTAL_HITS_DISABLED_PARAMETERS);
+        requestBody.put(ElasticSearchAggregations.AGGREGATIONS_KEY, ElasticSearchAggregations.request(aggregation.getType(),
+            field, aggregation.getInterval(), aggregationMaxBuckets));
+        try {
+            final ElasticSearchResponse response = client.search(getIndexStoreName(query.getStore()), requestBody, false);
+            log.debug("Executed aggregation {} of [{}] in {} ms", aggregation, query.getCondition(), response.getTook());
+            return ElasticSearchAggregations.parse(aggregation.getType(), response.getAggregations());
+        } catch (final IOException | UncheckedIOException e) {
+            throw new PermanentBackendException(e);
+        }
+    }
+
+    /**
+     * 返回可以做聚合的elasticsearch字段,text类型的字段以及带ignore_above的keyword子字段无法得到准确结果,返回null
+     */
+    private String getAggregationFieldName(String key, KeyInformation.StoreRetriever information) {
+        if (DefaultKeywordField.isKeyWordField(key)) {
+            return key;
+        }
+        if (DefaultTextField.isKeyWordField(key)) {
+            return null;
+        }
+        final KeyInformation keyInformation = information.get(key);
+        if (keyInformation == null) {
+            return null;
+        }
+        final Class<?> dataType = keyInformation.getDataType();
+        if (AttributeUtils.isString(dataType)) {
+            return getStringMapping(keyInformation) == Mapping.STRING ? getQueryFieldName(key) : null;
+        }
+        if (Number.class.isAssignableFrom(dataType) || dataType == Date.class || dataType == Instant.class
+            || dataType == Boolean.class) {
+            return getQueryFieldName(key);
+        }
+        return null;
+    }
+
     private Map<String, Object> getRelationFromCmp(final Cmp cmp, String key, final Object value) {
         switch (cmp) {
             case EQUAL:
@@ -1644,6 +1790,14 @@ public class KGElasticSearchIndex implements IndexProvider {
         try {
             final String indexStoreName = getIndexStoreName(query.getStore());
             final boolean useScroll = sr.getSize() >= batchSize;
+            if (useScroll && searchAfterExecutor != null) {
+                final ElasticSearchSearchAfter searchAfter = searchAfter(indexStoreName,
+                    compat.createRequestBody(sr, TRACK_TOTAL_HITS_DISABLED_PARAMETERS), sr.getSize());
+                final Stream<RawQuery.Result<String>> toReturn
+                    = StreamSupport.stream(Spliterators.spliteratorUnknownSize(searchAfter, Spliterator.ORDERED), false)
+                    .onClose(searchAfter::close);
+                return (query.hasLimit() ? toReturn.limit(query.getLimit()) : toReturn).map(RawQuery.Result::getResult);
+            }
             response = client.search(indexStoreName,
                 compat.createRequestBody(sr, useScroll? NULL_PARAMETERS : TRACK_TOTAL_HITS_DISABLED_PARAMETERS),
                 useScroll);
@@ -1661,6 +1815,25 @@ public class KGElasticSearchIndex implements IndexProvider {
         return (useScroll)? new ElasticSearchScroll(client, response, windowSize) : response.getResults().iterator();
     }
 
+    /**
+     * Opens a point in time and pages through it with search_after. The sort of the request is extended by _shard_doc
+     * so that every hit has unique sort values.
+     */
+    private ElasticSearchSearchAfter searchAfter(String indexStoreName, Map<String, Object> requestBody, int pageSize)
+        throws IOException {
+        final Map<String, Object> request = new HashMap<>(requestBody);
+        final List<Object> sorts = new ArrayList<>();
+        if (request.get("sort") instanceof List) {
+            sorts.addAll((List) request.get("sort"));
+        }
+        sorts.add(SHARD_DOC_SORT);
+        request.put("sort", sorts);
+        //search_after不能与from同时使用
+        request.remove("from");
+        final String pitId = client.openPointInTime(indexStoreName);
+        return new ElasticSearchSearchAfter(client, pitId, request, pageSize, searchAfterExecutor);
+    }
+
     private String convertToEsDataType(Class<?> dataType, Mapping mapping) {
         if(String.class.isAssignableFrom(dataType)) {
             return "string";
@@ -1695,16 +1868,8 @@ public class KGElasticSearchIndex implements IndexProvider {
 
     private ElasticSearchResponse runCommonQuery(RawQuery query, KeyInformation.IndexRetriever informations, BaseTransaction tx, int size,
                                                  boolean useScroll) throws BackendException{
-        final ElasticSearchRequest sr = new ElasticSearchRequest();
-        sr.setQuery(compat.queryString(query.getQuery()));
-        if (!query.getOrders().isEmpty()) {
-            addOrderToQuery(informations, sr, query.getOrders(), query.getStore());
-        }
-        sr.setFrom(0);
-        sr.setSize(size);
-        sr.setDisableSourceRetrieval(true);
         try {
-            Map<String, Object> requestBody = compat.createRequestBody(sr, query.getParameters());
+            Map<String, Object> requestBody = getCommonRequestBody(query, informations, size);
             if(!useScroll) {
                 if (requestBody == null) {
                     requestBody = TRACK_TOTAL_HITS_DISABLED_REQUEST_BODY;
@@ -1721,6 +1886,18 @@ public class KGElasticSearchIndex implements IndexProvider {
         }
     }
 
+    private Map<String, Object> getCommonRequestBody(RawQuery query, KeyInformation.IndexRetriever informations, int size) {
+        final ElasticSearchRequest sr = new ElasticSearchRequest();
+        sr.setQuery(compat.queryString(query.getQuery()));
+        if (!query.getOrders().isEmpty()) {
+            addOrderToQuery(informations, sr, query.getOrders(), query.getStore());
+        }
+        sr.setFrom(0);
+        sr.setSize(size);
+        sr.setDisableSourceRetrieval(true);
+        return compat.createRequestBody(sr, query.getParameters());
+    }
+
     private long runCountQuery(RawQuery query) throws BackendException{
         try {
             return client.countTotal(
@@ -1756,7 +1933,7 @@ public class KGElasticSearchIndex implements IndexProvider {
             if (!requestByStore.isEmpty()) {
                 long start = System.currentTimeMillis();
                 int size = requestByStore.size();
-                client.bulkRequest(requestByStore, null);
+                bulkRequestAndWait(requestByStore, null);
                 long end = System.currentTimeMillis();
                 long time = end - start;
                 if (showBulkWriteCosts && time >= 400) {
@@ -1774,6 +1951,22 @@ public class KGElasticSearchIndex implements IndexProvider {
                                                  BaseTransaction tx) throws BackendException {
         final int size = query.hasLimit() ? Math.min(query.getLimit() + query.getOffset(), batchSize) : batchSize;
         final boolean useScroll = size >= batchSize;
+        if (useScroll && searchAfterExecutor != null) {
+            final ElasticSearchSearchAfter searchAfter;
+            try {
+                final Map<String, Object> requestBody = getCommonRequestBody(query, information, size);
+                requestBody.put(TRACK_TOTAL_HITS_PARAMETER, false);
+                //排序时也计算得分,与scroll返回的得分一致
+                requestBody.put(TRACK_SCORES_PARAMETER, true);
+                searchAfter = searchAfter(getIndexStoreName(query.getStore()), requestBody, size);
+            } catch (final IOException | UncheckedIOException e) {
+                throw new PermanentBackendException(e);
+            }
+            final Stream<RawQuery.Result<String>> toReturn
+                = StreamSupport.stream(Spliterators.spliteratorUnknownSize(searchAfter, Spliterator.ORDERED), false)
+                .onClose(searchAfter::close).skip(query.getOffset());
+            return query.hasLimit() ? toReturn.limit(query.getLimit()) : toReturn;
+        }
         final ElasticSearchResponse response = runCommonQuery(query, information, tx, size, useScroll);
         log.debug("First Executed query [{}] in {} ms", query.getQuery(), response.getTook());
         final Iterator<RawQuery.Result<String>> resultIterator = getResultsIterator(useScroll, response, size);
@@ -1867,6 +2060,12 @@ public class KGElasticSearchIndex implements IndexProvider {
 
     @Override
     public void close() throws BackendException {
+        if (asyncBulkPipeline != null) {
+            asyncBulkPipeline.close();
+        }
+        if (searchAfterExecutor != null) {
+            searchAfterExecutor.shutdownNow();
+        }
         try {
             client.close();
         } catch (final IOException e) {
@@ -1878,6 +2077,10 @@ public class KGElasticSearchIndex implements IndexProvider {
     @Override
     public void clearStorage() throws BackendException {
         try {
+            if (asyncBulkPipeline != null) {
+                //队列中的操作不能在删除索引之后写入
+                asyncBulkPipeline.close();
+            }
             client.deleteIndex(indexName);
         } catch (final Exception e) {
             throw new PermanentBackendException("Could not delete index " + indexName, e);
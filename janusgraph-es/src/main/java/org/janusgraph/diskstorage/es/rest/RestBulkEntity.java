@@ -0,0 +1,134 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.es.rest;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzipped NDJSON body of one bulk chunk.
+ * bulk请求体,在写入连接时逐个压缩操作
+ * <p>
+ * The async http client asks the entity for more content whenever the connection can take it, so only the compressed
+ * output of a single action is buffered instead of the compressed body of the whole request.
+ */
+class RestBulkEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+    private final List<RestBulkWriter.Action> actions;
+
+    private ByteArrayOutputStream compressed;
+    private GZIPOutputStream gzip;
+    private ByteBuffer pending;
+    private int next;
+    private boolean finished;
+
+    RestBulkEntity(List<RestBulkWriter.Action> actions) {
+        this.actions = actions;
+        setContentType(ContentType.APPLICATION_JSON.toString());
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+        if (gzip == null) {
+            start();
+        }
+        while (true) {
+            if (pending.hasRemaining()) {
+                encoder.write(pending);
+                //连接暂时写不进更多数据,等待下一次回调
+                if (pending.hasRemaining()) return;
+            }
+            if (finished) {
+                encoder.complete();
+                return;
+            }
+            if (next < actions.size()) {
+                gzip.write(actions.get(next++).bytes);
+            } else {
+                gzip.finish();
+                finished = true;
+            }
+            pending = ByteBuffer.wrap(compressed.toByteArray());
+            compressed.reset();
+        }
+    }
+
+    private void start() throws IOException {
+        compressed = new ByteArrayOutputStream(8192);
+        gzip = new GZIPOutputStream(compressed, 8192);
+        pending = ByteBuffer.allocate(0);
+        next = 0;
+        finished = false;
+    }
+
+    @Override
+    public void resetRequest() throws IOException {
+        //请求被重新发送到其他节点时从头开始
+        close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (gzip != null) {
+            gzip.close();
+            gzip = null;
+        }
+        compressed = null;
+        pending = null;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        GZIPOutputStream out = new GZIPOutputStream(outStream, 8192);
+        for (RestBulkWriter.Action action : actions) {
+            out.write(action.bytes);
+        }
+        out.finish();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
@@ -0,0 +1,358 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.es.rest;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.http.HttpHeaders;
+import org.apache.tinkerpop.shaded.jackson.databind.ObjectMapper;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.janusgraph.diskstorage.es.ElasticSearchMutation;
+import org.janusgraph.diskstorage.es.rest.RestBulkResponse.RestBulkItemResponse;
+import org.janusgraph.graphdb.database.idassigner.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sends the actions of a bulk request in chunks of bounded size.
+ * 分块并发发送elasticsearch的bulk请求
+ * <p>
+ * The actions are serialized one by one while a chunk is filled, and a chunk is sent as soon as it reaches
+ * {@code maxChunkBytes} or {@code maxChunkActions}. At most {@code concurrency} chunks are in flight, the caller blocks
+ * until one of them finished before the next chunk is serialized, so the memory used by a bulk request no longer
+ * grows with the size of the commit. The body of a chunk is gzipped while it is written to the connection by
+ * {@link RestBulkEntity}.
+ * <p>
+ * The actions of one document are never split across chunks, so they are applied in order although chunks run in
+ * parallel. Actions rejected with a temporary error (see {@link #RETRYABLE_STATUS}) are sent again after a backoff,
+ * together with the following actions of the same document, instead of failing the whole commit.
+ */
+class RestBulkWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(RestBulkWriter.class);
+
+    /**
+     * 版本冲突、限流以及节点暂时不可用
+     */
+    static final Set<Integer> RETRYABLE_STATUS = ImmutableSet.of(409, 429, 502, 503, 504);
+
+    private static final int STATUS_NOT_FOUND = 404;
+    private static final int STATUS_ENTITY_TOO_LARGE = 413;
+
+    private static final String REQUEST_TYPE_POST = "POST";
+
+    /**
+     * Serializes a mutation to its NDJSON lines, i.e. the action line and the source line if there is one.
+     */
+    interface ActionSerializer {
+        byte[] serialize(ElasticSearchMutation mutation) throws IOException;
+    }
+
+    private final RestClient delegate;
+    private final ObjectMapper mapper;
+    private final ActionSerializer serializer;
+    private final int maxChunkBytes;
+    private final int maxChunkActions;
+    private final int concurrency;
+    private final int retries;
+    private final long retryWaitMs;
+
+    /**
+     * @param maxChunkBytes   单个请求未压缩的最大字节数
+     * @param maxChunkActions 单个请求最多包含的操作数
+     * @param concurrency     同时发送的请求数
+     * @param retries         临时失败的操作最多重试的次数
+     * @param retryWaitMs     第一次重试前等待的毫秒数,之后每次翻倍
+     */
+    RestBulkWriter(RestClient delegate, ObjectMapper mapper, ActionSerializer serializer, int maxChunkBytes,
+                   int maxChunkActions, int concurrency, int retries, long retryWaitMs) {
+        Preconditions.checkArgument(maxChunkBytes > 0, "Invalid bulk chunk size: %s", maxChunkBytes);
+        Preconditions.checkArgument(maxChunkActions > 0, "Invalid number of bulk chunk actions: %s", maxChunkActions);
+        Preconditions.checkArgument(concurrency > 0, "Invalid bulk concurrency: %s", concurrency);
+        Preconditions.checkArgument(retries >= 0, "Invalid number of bulk retries: %s", retries);
+        this.delegate = delegate;
+        this.mapper = mapper;
+        this.serializer = serializer;
+        this.maxChunkBytes = maxChunkBytes;
+        this.maxChunkActions = maxChunkActions;
+        this.concurrency = concurrency;
+        this.retries = retries;
+        this.retryWaitMs = retryWaitMs;
+    }
+
+    /**
+     * Sends all mutations and waits until every chunk has been answered.
+     *
+     * @param mutations mutations in the order they have to be applied
+     * @param path      path of the bulk endpoint including its parameters
+     * @throws IOException some actions failed permanently or were still failing after all retries
+     */
+    void write(List<ElasticSearchMutation> mutations, String path) throws IOException {
+        if (mutations.isEmpty()) return;
+        Iterator<Action> actions = new SerializingIterator(mutations);
+        int chunkBytes = maxChunkBytes;
+        int chunkActions = maxChunkActions;
+        List<Object> errors = new ArrayList<>();
+        for (int attempt = 0; ; attempt++) {
+            Execution execution = new Execution(path);
+            execution.send(actions, chunkBytes, chunkActions);
+            execution.await();
+            errors.addAll(execution.errors);
+            List<Action> failed = new ArrayList<>(execution.failed);
+            if (failed.isEmpty()) break;
+            if (attempt >= retries) {
+                failed.forEach(action -> errors.add(action.error));
+                break;
+            }
+            if (execution.tooLarge) {
+                //请求体超过了elasticsearch的http.max_content_length
+                chunkBytes = Math.max(1, chunkBytes / 2);
+                chunkActions = Math.max(1, chunkActions / 2);
+            }
+            //保持同一文档的操作顺序
+            failed.sort(Comparator.comparingInt(action -> action.sequence));
+            log.warn("Retrying {} of {} Elasticsearch bulk actions, attempt {}", failed.size(), mutations.size(), attempt + 1);
+            backoff(attempt);
+            actions = failed.iterator();
+        }
+        if (!errors.isEmpty()) {
+            errors.forEach(error -> log.error("Failed to execute ES query: {}", error));
+            throw new IOException("Failure(s) in Elasticsearch bulk request: " + errors);
+        }
+    }
+
+    private void backoff(int attempt) throws InterruptedIOException {
+        if (retryWaitMs <= 0) return;
+        try {
+            Thread.sleep(retryWaitMs << Math.min(attempt, 16));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry Elasticsearch bulk actions");
+        }
+    }
+
+    /**
+     * One pass over the actions: fills chunks, sends them with bounded concurrency and collects the results.
+     */
+    private class Execution {
+
+        private final String path;
+        private final Semaphore permits = new Semaphore(concurrency);
+        private final List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        private final Queue<Action> failed = new ConcurrentLinkedQueue<>();
+        private final Queue<Object> errors = new ConcurrentLinkedQueue<>();
+        private volatile boolean tooLarge = false;
+
+        private Execution(String path) {
+            this.path = path;
+        }
+
+        private void send(Iterator<Action> actions, int chunkBytes, int chunkActions) throws IOException {
+            List<Action> chunk = new ArrayList<>();
+            long bytes = 0;
+            Action previous = null;
+            while (actions.hasNext()) {
+                Action action = actions.next();
+                boolean full = bytes + action.bytes.length > chunkBytes || chunk.size() >= chunkActions;
+                if (full && !chunk.isEmpty() && !action.sameDocument(previous)) {
+                    submit(chunk);
+                    chunk = new ArrayList<>();
+                    bytes = 0;
+                }
+                chunk.add(action);
+                bytes += action.bytes.length;
+                previous = action;
+            }
+            if (!chunk.isEmpty()) submit(chunk);
+        }
+
+        private void submit(List<Action> chunk) throws IOException {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for Elasticsearch bulk requests");
+            }
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            chunks.add(done);
+            Request request = new Request(REQUEST_TYPE_POST, path);
+            request.setEntity(new RestBulkEntity(chunk));
+            RequestOptions.Builder options = request.getOptions().toBuilder();
+            options.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            request.setOptions(options);
+            try {
+                delegate.performRequestAsync(request, new ResponseListener() {
+                    @Override
+                    public void onSuccess(Response response) {
+                        try {
+                            handleResponse(chunk, response);
+                        } catch (Exception e) {
+                            handleFailure(chunk, e);
+                        } finally {
+                            complete(done);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        try {
+                            handleFailure(chunk, e);
+                        } finally {
+                            complete(done);
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                handleFailure(chunk, e);
+                complete(done);
+            }
+        }
+
+        private void complete(CompletableFuture<Void> done) {
+            permits.release();
+            done.complete(null);
+        }
+
+        private void handleResponse(List<Action> chunk, Response response) throws IOException {
+            if (response.getStatusLine().getStatusCode() >= 400) {
+                throw new IOException("Error executing request: " + response.getStatusLine().getReasonPhrase());
+            }
+            final RestBulkResponse bulkResponse;
+            try (InputStream inputStream = response.getEntity().getContent()) {
+                bulkResponse = mapper.readValue(inputStream, RestBulkResponse.class);
+            }
+            List<Map<String, RestBulkItemResponse>> items = bulkResponse.getItems();
+            Preconditions.checkState(items.size() == chunk.size(),
+                "Elasticsearch answered %s items for a bulk request of %s actions", items.size(), chunk.size());
+            Action retriedDocument = null;
+            for (int i = 0; i < chunk.size(); i++) {
+                Action action = chunk.get(i);
+                RestBulkItemResponse item = items.get(i).values().iterator().next();
+                if (action.sameDocument(retriedDocument)) {
+                    //前一个操作需要重试,同一文档后续的操作也必须在它之后重新执行
+                    action.error = item.getError();
+                    failed.add(action);
+                } else if (item.getError() != null && item.getStatus() != STATUS_NOT_FOUND) {
+                    action.error = item.getError();
+                    if (RETRYABLE_STATUS.contains(item.getStatus())) {
+                        failed.add(action);
+                        retriedDocument = action;
+                    } else {
+                        errors.add(item.getError());
+                    }
+                }
+            }
+        }
+
+        private void handleFailure(List<Action> chunk, Exception e) {
+            int status = e instanceof ResponseException
+                ? ((ResponseException) e).getResponse().getStatusLine().getStatusCode() : -1;
+            if (status == STATUS_ENTITY_TOO_LARGE) {
+                tooLarge = true;
+            }
+            if (status < 0 || status == STATUS_ENTITY_TOO_LARGE || RETRYABLE_STATUS.contains(status)) {
+                log.debug("Elasticsearch bulk request of {} actions failed, it will be retried", chunk.size(), e);
+                for (Action action : chunk) {
+                    action.error = e.toString();
+                    failed.add(action);
+                }
+            } else {
+                errors.add(e.toString());
+            }
+        }
+
+        private void await() throws IOException {
+            try {
+                CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for Elasticsearch bulk requests");
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Serializes the mutations lazily while the chunks are filled.
+     */
+    private class SerializingIterator implements Iterator<Action> {
+
+        private final List<ElasticSearchMutation> mutations;
+        private int next = 0;
+
+        private SerializingIterator(List<ElasticSearchMutation> mutations) {
+            this.mutations = mutations;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < mutations.size();
+        }
+
+        @Override
+        public Action next() {
+            int sequence = next++;
+            ElasticSearchMutation mutation = mutations.get(sequence);
+            try {
+                return new Action(sequence, mutation.getIndex(), mutation.getId(), serializer.serialize(mutation));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not serialize Elasticsearch mutation of document " + mutation.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * A serialized action of a bulk request.
+     */
+    static final class Action {
+
+        final int sequence;
+        final String index;
+        final String id;
+        final byte[] bytes;
+        volatile Object error;
+
+        Action(int sequence, String index, String id, byte[] bytes) {
+            this.sequence = sequence;
+            this.index = index;
+            this.id = id;
+            this.bytes = bytes;
+        }
+
+        boolean sameDocument(Action other) {
+            return other != null && Objects.equals(id, other.id) && Objects.equals(index, other.index);
+        }
+    }
+}
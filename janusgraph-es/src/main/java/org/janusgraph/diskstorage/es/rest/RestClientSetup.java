@@ -82,6 +82,9 @@ public class RestClientSetup {
 
         Integer retryOnConflict = config.has(ElasticSearchIndex.RETRY_ON_CONFLICT) ? config.get(ElasticSearchIndex.RETRY_ON_CONFLICT) : null;
         client.setRetryOnConflict(retryOnConflict);
+        client.setBulkChunking(config.get(ElasticSearchIndex.BULK_CHUNK_SIZE), config.get(ElasticSearchIndex.BULK_CHUNK_ACTIONS),
+            config.get(ElasticSearchIndex.BULK_CONCURRENCY), config.get(ElasticSearchIndex.BULK_RETRIES),
+            config.get(ElasticSearchIndex.BULK_RETRY_WAIT));
 
         return client;
     }
@@ -19,7 +19,6 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpHeaders;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.tinkerpop.shaded.jackson.annotation.JsonIgnoreProperties;
@@ -32,7 +31,6 @@ import org.apache.tinkerpop.shaded.jackson.databind.ObjectWriter;
 import org.apache.tinkerpop.shaded.jackson.databind.SerializationFeature;
 import org.apache.tinkerpop.shaded.jackson.databind.module.SimpleModule;
 import org.elasticsearch.client.Request;
-import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.ResponseException;
 import org.elasticsearch.client.ResponseListener;
@@ -40,6 +38,7 @@ import org.elasticsearch.client.RestClient;
 import org.janusgraph.core.attribute.Geoshape;
 import org.janusgraph.diskstorage.es.ElasticMajorVersion;
 import org.janusgraph.diskstorage.es.ElasticSearchClient;
+import org.janusgraph.diskstorage.es.ElasticSearchIndex;
 import org.janusgraph.diskstorage.es.ElasticSearchMutation;
 import org.janusgraph.diskstorage.es.mapping.IndexMapping;
 import org.janusgraph.diskstorage.es.mapping.TypedIndexMappings;
@@ -59,7 +58,6 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.zip.GZIPOutputStream;
 
 import static org.janusgraph.util.encoding.StringEncoding.UTF8_CHARSET;
 
@@ -117,7 +115,9 @@ public class RestElasticSearchClient implements ElasticSearchClient {
     private Integer retryOnConflict;
 
     private final String retryOnConflictKey;
-    
+
+    private RestBulkWriter bulkWriter;
+
     public RestElasticSearchClient(RestClient delegate, int scrollKeepAlive, boolean useMappingTypesForES7) {
         this.delegate = delegate;
         majorVersion = getMajorVersion();
@@ -125,6 +125,9 @@ public class RestElasticSearchClient implements ElasticSearchClient {
         esVersion7 = ElasticMajorVersion.SEVEN.equals(majorVersion);
         useMappingTypes = majorVersion.getValue() < 7 || (useMappingTypesForES7 && esVersion7);
         retryOnConflictKey = majorVersion.getValue() >= 7 ? "retry_on_conflict" : "_retry_on_conflict";
+        setBulkChunking(ElasticSearchIndex.BULK_CHUNK_SIZE.getDefaultValue(),
+            ElasticSearchIndex.BULK_CHUNK_ACTIONS.getDefaultValue(), ElasticSearchIndex.BULK_CONCURRENCY.getDefaultValue(),
+            ElasticSearchIndex.BULK_RETRIES.getDefaultValue(), ElasticSearchIndex.BULK_RETRY_WAIT.getDefaultValue());
     }
 
     @Override
@@ -442,34 +445,40 @@ public class RestElasticSearchClient implements ElasticSearchClient {
     }
 
     public void bulkRequest(List<ElasticSearchMutation> requests, String ingestPipeline) throws IOException {
-        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream)) {
-            for (final ElasticSearchMutation request : requests) {
-                Map<String, Object> requestData = new HashMap<>();
-                if (useMappingTypes) {
-                    requestData.put("_index", request.getIndex());
-                    requestData.put("_type", request.getType());
-                    requestData.put("_id", request.getId());
-                } else {
-                    requestData.put("_index", request.getIndex());
-                    requestData.put("_id", request.getId());
-                }
+        bulkWriter.write(requests, getBulkPath(ingestPipeline));
+    }
+
+    /**
+     * Serializes one mutation to the NDJSON lines of a bulk request.
+     */
+    private byte[] toBulkAction(ElasticSearchMutation request) throws IOException {
+        Map<String, Object> requestData = new HashMap<>();
+        if (useMappingTypes) {
+            requestData.put("_index", request.getIndex());
+            requestData.put("_type", request.getType());
+            requestData.put("_id", request.getId());
+        } else {
+            requestData.put("_index", request.getIndex());
+            requestData.put("_id", request.getId());
+        }
 
-                if (retryOnConflict != null && request.getRequestType() == ElasticSearchMutation.RequestType.UPDATE) {
-                    requestData.put(retryOnConflictKey, retryOnConflict);
-                }
+        if (retryOnConflict != null && request.getRequestType() == ElasticSearchMutation.RequestType.UPDATE) {
+            requestData.put(retryOnConflictKey, retryOnConflict);
+        }
 
-                gzipStream.write(mapWriter.writeValueAsBytes(
-                    ImmutableMap.of(request.getRequestType().name().toLowerCase(), requestData))
-                );
-                gzipStream.write(NEW_LINE_BYTES);
-                if (request.getSource() != null) {
-                    gzipStream.write(mapWriter.writeValueAsBytes(request.getSource()));
-                    gzipStream.write(NEW_LINE_BYTES);
-                }
-            }
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.write(mapWriter.writeValueAsBytes(
+            ImmutableMap.of(request.getRequestType().name().toLowerCase(), requestData))
+        );
+        outputStream.write(NEW_LINE_BYTES);
+        if (request.getSource() != null) {
+            outputStream.write(mapWriter.writeValueAsBytes(request.getSource()));
+            outputStream.write(NEW_LINE_BYTES);
         }
+        return outputStream.toByteArray();
+    }
 
+    private String getBulkPath(String ingestPipeline) {
         final StringBuilder builder = new StringBuilder();
         if (ingestPipeline != null) {
             APPEND_OP.apply(builder).append("pipeline=").append(ingestPipeline);
@@ -478,19 +487,7 @@ public class RestElasticSearchClient implements ElasticSearchClient {
             APPEND_OP.apply(builder).append("refresh=").append(bulkRefresh);
         }
         builder.insert(0, REQUEST_SEPARATOR + "_bulk");
-
-        final Response response = performGzipRequest(REQUEST_TYPE_POST, builder.toString(), outputStream.toByteArray());
-        try (final InputStream inputStream = response.getEntity().getContent()){
-            final RestBulkResponse bulkResponse = mapper.readValue(inputStream, RestBulkResponse.class);
-            final List<Object> errors = bulkResponse.getItems().stream()
-                .flatMap(item -> item.values().stream())
-                .filter(item -> item.getError() != null && item.getStatus() != 404)
-                .map(RestBulkItemResponse::getError).collect(Collectors.toList());
-            if (!errors.isEmpty()) {
-                errors.forEach(error -> log.error("Failed to execute ES query: {}", error));
-                throw new IOException("Failure(s) in Elasticsearch bulk request: " + errors);
-            }
-        }
+        return builder.toString();
     }
 
     @Override
@@ -535,6 +532,20 @@ public class RestElasticSearchClient implements ElasticSearchClient {
     public void setRetryOnConflict(Integer retryOnConflict) {
             this.retryOnConflict = retryOnConflict;
     }
+
+    /**
+     * Configures how bulk requests are split into chunks, see {@link RestBulkWriter}.
+     *
+     * @param maxChunkBytes   单个bulk请求未压缩的最大字节数
+     * @param maxChunkActions 单个bulk请求最多包含的操作数
+     * @param concurrency     同时发送的bulk请求数
+     * @param retries         临时失败的操作最多重试的次数
+     * @param retryWaitMs     第一次重试前等待的毫秒数
+     */
+    public void setBulkChunking(int maxChunkBytes, int maxChunkActions, int concurrency, int retries, long retryWaitMs) {
+        this.bulkWriter = new RestBulkWriter(delegate, mapper, this::toBulkAction, maxChunkBytes, maxChunkActions,
+            concurrency, retries, retryWaitMs);
+    }
     @Override
     public long countTotal(String indexName, Map<String, Object> requestData) throws IOException {
 
@@ -574,6 +585,29 @@ public class RestElasticSearchClient implements ElasticSearchClient {
         delegate.performRequest(new Request(REQUEST_TYPE_DELETE, REQUEST_SEPARATOR + "_search" + REQUEST_SEPARATOR + "scroll" + REQUEST_SEPARATOR + scrollId));
     }
 
+    @Override
+    public String openPointInTime(String indexName) throws IOException {
+        final String path = REQUEST_SEPARATOR + indexName + REQUEST_SEPARATOR + "_pit" + REQUEST_PARAM_BEGINNING
+            + "keep_alive=" + scrollKeepAlive;
+        final Response response = performRequest(REQUEST_TYPE_POST, path, null);
+        try (final InputStream inputStream = response.getEntity().getContent()) {
+            final Map<String, Object> result = mapReader.readValue(inputStream);
+            return (String) result.get("id");
+        }
+    }
+
+    @Override
+    public RestSearchResponse searchPointInTime(String pitId, Map<String, Object> request) throws IOException {
+        final Map<String, Object> requestData = new HashMap<>(request);
+        requestData.put("pit", ImmutableMap.of("id", pitId, "keep_alive", scrollKeepAlive));
+        return search(requestData, REQUEST_SEPARATOR + "_search");
+    }
+
+    @Override
+    public void closePointInTime(String pitId) throws IOException {
+        performRequest(REQUEST_TYPE_DELETE, REQUEST_SEPARATOR + "_pit", mapper.writeValueAsBytes(ImmutableMap.of("id", pitId)));
+    }
+
     public void setBulkRefresh(String bulkRefresh) {
         this.bulkRefresh = bulkRefresh;
         bulkRefreshEnabled = bulkRefresh != null && !bulkRefresh.equalsIgnoreCase("false");
@@ -608,25 +642,6 @@ public class RestElasticSearchClient implements ElasticSearchClient {
         return response;
     }
 
-    private Response performGzipRequest(String method, String path, byte[] requestData) throws IOException {
-        return performGzipRequest(new Request(method, path), requestData);
-    }
-
-    private Response performGzipRequest(Request request, byte[] requestData) throws IOException {
-        final HttpEntity entity = requestData != null ? new ByteArrayEntity(requestData,ContentType.APPLICATION_JSON) : null;
-        request.setEntity(entity);
-        RequestOptions options=request.getOptions();
-        RequestOptions.Builder builder=options.toBuilder();
-        builder.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
-        RequestOptions requestOptions = builder.build();
-        request.setOptions(requestOptions);
-        final Response response = delegate.performRequest(request);
-        if (response.getStatusLine().getStatusCode() >= 400) {
-            throw new IOException("Error executing request: " + response.getStatusLine().getReasonPhrase());
-        }
-        return response;
-    }
-
     private void performRequestAsync(String method, String path, byte[] requestData) throws IOException {
         this.performRequestAsync(new Request(method, path), requestData);
     }
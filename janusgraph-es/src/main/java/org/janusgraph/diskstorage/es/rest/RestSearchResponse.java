@@ -19,6 +19,9 @@ import org.apache.tinkerpop.shaded.jackson.annotation.JsonProperty;
 import org.janusgraph.diskstorage.es.ElasticSearchResponse;
 import org.janusgraph.diskstorage.indexing.RawQuery;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 @JsonIgnoreProperties(ignoreUnknown=true)
@@ -32,6 +35,12 @@ public class RestSearchResponse extends ElasticSearchResponse {
     @JsonProperty("_scroll_id")
     private String scrollId;
 
+    @JsonProperty("pit_id")
+    private String pitId;
+
+    @JsonProperty("aggregations")
+    private Map<String, Object> aggregations;
+
     @Override
     public long getTook() {
         return took;
@@ -78,4 +87,33 @@ public class RestSearchResponse extends ElasticSearchResponse {
     public void setScrollId(String scrollId) {
         this.scrollId = scrollId;
     }
+
+    @Override
+    public String getPitId() {
+        return pitId;
+    }
+
+    @Override
+    public void setPitId(String pitId) {
+        this.pitId = pitId;
+    }
+
+    @Override
+    public Map<String, Object> getAggregations() {
+        return aggregations;
+    }
+
+    @Override
+    public void setAggregations(Map<String, Object> aggregations) {
+        this.aggregations = aggregations;
+    }
+
+    @Override
+    public List<Object> getLastSortValues() {
+        final List<RestSearchHit> searchHits = hits.getHits();
+        if (searchHits.isEmpty() || searchHits.get(searchHits.size() - 1).getSort() == null) {
+            return Collections.emptyList();
+        }
+        return searchHits.get(searchHits.size() - 1).getSort();
+    }
 }
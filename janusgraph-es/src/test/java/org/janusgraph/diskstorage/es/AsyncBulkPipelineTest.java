@@ -0,0 +1,187 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.es;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+public class AsyncBulkPipelineTest {
+
+    @TempDir
+    Path retryLogDirectory;
+
+    private final ElasticSearchClient client = mock(ElasticSearchClient.class);
+    private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<>());
+
+    private void recordRequests() throws IOException {
+        doAnswer(invocation -> {
+            List<ElasticSearchMutation> mutations = invocation.getArgument(0);
+            requests.add(mutations.stream().map(ElasticSearchMutation::getId).collect(Collectors.toList()));
+            return null;
+        }).when(client).bulkRequest(anyList(), any());
+    }
+
+    @Test
+    public void testCoalesceTransactions() throws IOException {
+        recordRequests();
+        AsyncBulkPipeline pipeline = new AsyncBulkPipeline(client, 100, 100, Duration.ofMillis(500),
+            new BulkRetryLog(retryLogDirectory), Duration.ofHours(1));
+        pipeline.submit(null, mutations("a", "b"));
+        long last = pipeline.submit(null, mutations("c"));
+        pipeline.flush();
+
+        assertEquals(last, pipeline.getFlushedWatermark());
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b", "c")), requests);
+        pipeline.close();
+    }
+
+    @Test
+    public void testFlushActionsLimit() throws IOException {
+        recordRequests();
+        AsyncBulkPipeline pipeline = new AsyncBulkPipeline(client, 100, 2, Duration.ofMillis(500),
+            new BulkRetryLog(retryLogDirectory), Duration.ofHours(1));
+        pipeline.submit(null, mutations("a", "b"));
+        pipeline.submit(null, mutations("c"));
+        pipeline.flush();
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Collections.singletonList("c")), requests);
+        pipeline.close();
+    }
+
+    @Test
+    public void testFailedMutationsAreReplayed() throws IOException {
+        BulkRetryLog retryLog = new BulkRetryLog(retryLogDirectory);
+        doThrow(new IOException("unavailable")).when(client).bulkRequest(anyList(), any());
+        AsyncBulkPipeline pipeline = new AsyncBulkPipeline(client, 100, 100, Duration.ofMillis(10),
+            retryLog, Duration.ofHours(1));
+        long sequence = pipeline.submit("pipeline", mutations("a", "b"));
+        pipeline.flush();
+
+        assertEquals(sequence, pipeline.getFlushedWatermark());
+        assertEquals(2, pipeline.getFailedMutations());
+        assertEquals(1, retryLog.size());
+
+        recordRequests();
+        assertEquals(1, retryLog.replay(client));
+        assertEquals(0, retryLog.size());
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b")), requests);
+        pipeline.close();
+    }
+
+    @Test
+    public void testMutationsOfADocumentStayTogether() throws IOException {
+        recordRequests();
+        AsyncBulkPipeline pipeline = new AsyncBulkPipeline(client, 100, 100, Duration.ofMillis(500),
+            new BulkRetryLog(retryLogDirectory), Duration.ofHours(1));
+        pipeline.submit(null, mutations("a", "b"));
+        pipeline.submit(null, mutations("c", "a"));
+        pipeline.flush();
+
+        //the chunks of a bulk request run concurrently, only the actions of one document are kept together
+        assertEquals(Collections.singletonList(Arrays.asList("a", "a", "b", "c")), requests);
+        pipeline.close();
+    }
+
+    @Test
+    public void testNewerMutationsWaitForReplayedOnes() throws IOException {
+        BulkRetryLog retryLog = new BulkRetryLog(retryLogDirectory);
+        doThrow(new IOException("unavailable")).when(client).bulkRequest(anyList(), any());
+        AsyncBulkPipeline pipeline = new AsyncBulkPipeline(client, 100, 100, Duration.ofMillis(10),
+            retryLog, Duration.ofHours(1));
+        pipeline.submit(null, Collections.singletonList(update("a", "old")));
+        pipeline.flush();
+        assertEquals(1, retryLog.size());
+
+        //elasticsearch is back, but the newer mutation of a must not be applied before the old one
+        List<String> names = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            List<ElasticSearchMutation> mutations = invocation.getArgument(0);
+            mutations.forEach(mutation -> names.add(mutation.getId() + "=" + name(mutation)));
+            return null;
+        }).when(client).bulkRequest(anyList(), any());
+        pipeline.submit(null, Arrays.asList(update("a", "new"), update("b", "new")));
+        pipeline.flush();
+        assertEquals(Collections.singletonList("b=new"), names);
+        assertEquals(2, retryLog.size());
+
+        //the pending documents are restored from the files
+        assertEquals(Collections.emptyList(),
+            new BulkRetryLog(retryLogDirectory).holdBack(null, Collections.singletonList(update("a", "newer"))));
+        assertEquals(3, retryLog.size());
+
+        assertEquals(3, retryLog.replay(client));
+        assertEquals(Arrays.asList("b=new", "a=old", "a=new", "a=newer"), names);
+        //nothing is held back once the retry log has been replayed
+        List<ElasticSearchMutation> latest = Collections.singletonList(update("a", "latest"));
+        assertEquals(latest, retryLog.holdBack(null, latest));
+        pipeline.close();
+    }
+
+    @Test
+    public void testReplayDropsSupersededMutations() {
+        ElasticSearchMutation updateA = update("a", "1");
+        ElasticSearchMutation indexA = ElasticSearchMutation.createIndexRequest("index", "index", "a", ImmutableMap.of("name", "2"));
+        ElasticSearchMutation updateB = update("b", "1");
+        ElasticSearchMutation deleteB = ElasticSearchMutation.createDeleteRequest("index", "index", "b");
+        ElasticSearchMutation laterA = update("a", "3");
+        assertEquals(Arrays.asList(indexA, deleteB, laterA),
+            BulkRetryLog.dropSuperseded(Arrays.asList(updateA, updateB, indexA, deleteB, laterA)));
+    }
+
+    @Test
+    public void testCloseFlushesQueue() throws IOException {
+        recordRequests();
+        AsyncBulkPipeline pipeline = new AsyncBulkPipeline(client, 100, 100, Duration.ofMillis(10),
+            new BulkRetryLog(retryLogDirectory), Duration.ofHours(1));
+        pipeline.submit(null, mutations("a"));
+        pipeline.close();
+
+        assertTrue(pipeline.getFlushedWatermark() >= 1);
+        assertEquals(Collections.singletonList(Collections.singletonList("a")), requests);
+    }
+
+    private static ElasticSearchMutation update(String id, String name) {
+        return ElasticSearchMutation.createUpdateRequest("index", "index", id, ImmutableMap.of("doc", ImmutableMap.of("name", name)));
+    }
+
+    private static Object name(ElasticSearchMutation mutation) {
+        return ((Map) mutation.getSource().get("doc")).get("name");
+    }
+
+    private static List<ElasticSearchMutation> mutations(String... ids) {
+        return Arrays.stream(ids)
+            .map(id -> ElasticSearchMutation.createUpdateRequest("index", "index", id, ImmutableMap.of("doc", ImmutableMap.of("name", id))))
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,96 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.es;
+
+import com.google.common.collect.ImmutableMap;
+import org.janusgraph.diskstorage.indexing.IndexAggregation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ElasticSearchAggregationsTest {
+
+    @Test
+    public void shouldRequestTermsWithMaxBuckets() {
+        Map<String, Object> request = ElasticSearchAggregations.request(IndexAggregation.Type.COUNT_BY_VALUE, "category.value", null, 100);
+
+        Assertions.assertEquals(ImmutableMap.of("agg", ImmutableMap.of("terms", ImmutableMap.of("field", "category.value", "size", 100))),
+            request);
+    }
+
+    @Test
+    public void shouldRequestValueCountWithMetric() {
+        Map<String, Object> request = ElasticSearchAggregations.request(IndexAggregation.Type.SUM, "weight.value", null, 100);
+
+        Assertions.assertEquals(ImmutableMap.of(
+            "agg", ImmutableMap.of("sum", ImmutableMap.of("field", "weight.value")),
+            "count", ImmutableMap.of("value_count", ImmutableMap.of("field", "weight.value"))), request);
+    }
+
+    @Test
+    public void shouldRequestHistogramWithoutEmptyBuckets() {
+        Map<String, Object> request = ElasticSearchAggregations.request(IndexAggregation.Type.HISTOGRAM, "weight.value", 10, 100);
+
+        Assertions.assertEquals(ImmutableMap.of("agg", ImmutableMap.of("histogram",
+            ImmutableMap.of("field", "weight.value", "interval", 10, "min_doc_count", 1))), request);
+    }
+
+    @Test
+    public void shouldParseTermsBuckets() {
+        Map<String, Object> aggregations = ImmutableMap.of("agg", ImmutableMap.of(
+            "sum_other_doc_count", 0,
+            "buckets", Arrays.asList(bucket("a", 5), bucket("b", 3))));
+
+        Map<Object, Long> expected = new LinkedHashMap<>();
+        expected.put("a", 5L);
+        expected.put("b", 3L);
+        Assertions.assertEquals(expected, ElasticSearchAggregations.parse(IndexAggregation.Type.COUNT_BY_VALUE, aggregations));
+    }
+
+    @Test
+    public void shouldNotReturnIncompleteTerms() {
+        Map<String, Object> aggregations = ImmutableMap.of("agg", ImmutableMap.of(
+            "sum_other_doc_count", 7,
+            "buckets", Collections.singletonList(bucket("a", 5))));
+
+        Assertions.assertNull(ElasticSearchAggregations.parse(IndexAggregation.Type.COUNT_BY_VALUE, aggregations));
+    }
+
+    @Test
+    public void shouldParseMetric() {
+        Map<String, Object> aggregations = ImmutableMap.of(
+            "agg", ImmutableMap.of("value", 12.0),
+            "count", ImmutableMap.of("value", 3));
+
+        Assertions.assertEquals(12.0, ElasticSearchAggregations.parse(IndexAggregation.Type.MAX, aggregations));
+    }
+
+    @Test
+    public void shouldReturnNaNIfNoDocumentHasValue() {
+        Map<String, Object> aggregations = ImmutableMap.of(
+            "agg", ImmutableMap.of("value", 0.0),
+            "count", ImmutableMap.of("value", 0));
+
+        Assertions.assertEquals(Double.NaN, ElasticSearchAggregations.parse(IndexAggregation.Type.SUM, aggregations));
+    }
+
+    private static Map<String, Object> bucket(Object key, long docCount) {
+        return ImmutableMap.of("key", key, "doc_count", docCount);
+    }
+}
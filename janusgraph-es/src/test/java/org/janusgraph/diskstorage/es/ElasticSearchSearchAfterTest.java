@@ -0,0 +1,131 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.es;
+
+import org.janusgraph.diskstorage.indexing.RawQuery;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+
+public class ElasticSearchSearchAfterTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    private final ElasticSearchClient client = Mockito.mock(ElasticSearchClient.class);
+    private final Map<String, Object> request = new HashMap<>();
+
+    @Test
+    public void shouldClosePointInTimeIfFinishedOnInitialResponse() throws IOException {
+        int pageSize = 5;
+        ElasticSearchResponse initialResponse = response(pageSize - 1, "pit1", 4);
+        Mockito.when(client.searchPointInTime(Mockito.eq("pit1"), Mockito.argThat(page(null)))).thenReturn(initialResponse);
+
+        ElasticSearchSearchAfter searchAfter = new ElasticSearchSearchAfter(client, "pit1", request, pageSize, DIRECT);
+
+        Mockito.verify(client).closePointInTime("pit1");
+        Mockito.verify(client, Mockito.times(1)).searchPointInTime(Mockito.any(), Mockito.any());
+        for (int i = 0; i < pageSize - 1; i++) {
+            searchAfter.next();
+        }
+        Assertions.assertThrows(NoSuchElementException.class, searchAfter::next);
+    }
+
+    @Test
+    public void shouldPrefetchNextPageWithSearchAfter() throws IOException {
+        int pageSize = 5;
+        ElasticSearchResponse initialResponse = response(pageSize, "pit2", 5);
+        ElasticSearchResponse secondResponse = response(pageSize - 2, "pit3", 8);
+        Mockito.when(client.searchPointInTime(Mockito.eq("pit1"), Mockito.argThat(page(null)))).thenReturn(initialResponse);
+        Mockito.when(client.searchPointInTime(Mockito.eq("pit2"), Mockito.argThat(page(5L)))).thenReturn(secondResponse);
+
+        ElasticSearchSearchAfter searchAfter = new ElasticSearchSearchAfter(client, "pit1", request, pageSize, DIRECT);
+
+        // The second page is requested before the first page has been read
+        Mockito.verify(client).searchPointInTime(Mockito.eq("pit2"), Mockito.argThat(page(5L)));
+        Mockito.verify(client, Mockito.never()).closePointInTime(Mockito.any());
+
+        int count = 0;
+        while (searchAfter.hasNext()) {
+            searchAfter.next();
+            count++;
+        }
+        Assertions.assertEquals(2 * pageSize - 2, count);
+        // The most recent id of the point in time is closed
+        Mockito.verify(client).closePointInTime("pit3");
+    }
+
+    @Test
+    public void shouldClosePointInTimeWhenClosed() throws IOException {
+        int pageSize = 5;
+        ElasticSearchResponse initialResponse = response(pageSize, "pit1", 5);
+        Mockito.when(client.searchPointInTime(Mockito.eq("pit1"), Mockito.argThat(page(null)))).thenReturn(initialResponse);
+        Executor never = command -> { };
+
+        ElasticSearchSearchAfter searchAfter = new ElasticSearchSearchAfter(client, "pit1", request, pageSize, never);
+        searchAfter.close();
+        searchAfter.close();
+
+        Mockito.verify(client, Mockito.times(1)).closePointInTime("pit1");
+        for (int i = 0; i < pageSize; i++) {
+            searchAfter.next();
+        }
+        Assertions.assertFalse(searchAfter.hasNext());
+    }
+
+    @Test
+    public void shouldClosePointInTimeIfPageFails() throws IOException {
+        int pageSize = 5;
+        ElasticSearchResponse initialResponse = response(pageSize, "pit1", 5);
+        Mockito.when(client.searchPointInTime(Mockito.eq("pit1"), Mockito.argThat(page(null)))).thenReturn(initialResponse);
+        Mockito.when(client.searchPointInTime(Mockito.eq("pit1"), Mockito.argThat(page(5L)))).thenThrow(new IOException("failed"));
+
+        ElasticSearchSearchAfter searchAfter = new ElasticSearchSearchAfter(client, "pit1", request, pageSize, DIRECT);
+        for (int i = 0; i < pageSize; i++) {
+            searchAfter.next();
+        }
+
+        Assertions.assertThrows(UncheckedIOException.class, searchAfter::hasNext);
+        Mockito.verify(client).closePointInTime("pit1");
+    }
+
+    private static ArgumentMatcher<Map<String, Object>> page(Long searchAfter) {
+        return request -> searchAfter == null ? !request.containsKey("search_after")
+            : Collections.singletonList(searchAfter).equals(request.get("search_after"));
+    }
+
+    private static ElasticSearchResponse response(int size, String pitId, long lastSortValue) {
+        List<RawQuery.Result<String>> results = new LinkedList<>();
+        for (int i = 0; i < size; i++) {
+            results.add(new RawQuery.Result<>("testResult" + i, 0.9));
+        }
+        ElasticSearchResponse response = Mockito.mock(ElasticSearchResponse.class);
+        Mockito.when(response.getResults()).thenReturn(results.stream());
+        Mockito.when(response.numResults()).thenReturn(size);
+        Mockito.when(response.getPitId()).thenReturn(pitId);
+        Mockito.when(response.getLastSortValues()).thenReturn(Collections.singletonList(lastSortValue));
+        return response;
+    }
+}
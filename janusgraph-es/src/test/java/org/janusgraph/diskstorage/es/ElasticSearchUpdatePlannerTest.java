@@ -0,0 +1,95 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.es;
+
+import org.janusgraph.core.Cardinality;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_CARDINALITY;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_DSR;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_DS_NAME;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_OVERLAID;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_ROLE;
+import static org.janusgraph.diskstorage.es.ElasticSearchConstants.KG_PROPERTY_VALUE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ElasticSearchUpdatePlannerTest {
+
+    @Test
+    public void testKeywordAndSingleFields() {
+        Map<String, Object> doc = ElasticSearchUpdatePlanner.getPartialDocument(Arrays.asList(
+            field("title", "name", Cardinality.SINGLE, false, null),
+            field("age", 42L, Cardinality.SINGLE, true, new String[]{"ds1"})));
+
+        assertEquals("name", doc.get("title"));
+        Map<String, Object> age = (Map<String, Object>) doc.get("age");
+        assertEquals(42L, age.get(KG_PROPERTY_VALUE));
+        assertArrayEquals(new String[]{"ds1"}, (String[]) age.get(KG_PROPERTY_DSR));
+        assertFalse(age.containsKey(KG_PROPERTY_ROLE));
+    }
+
+    @Test
+    public void testSameSingleFieldIsMerged() {
+        Map<String, Object> first = field("age", 41L, Cardinality.SINGLE, false, null);
+        first.put(KG_PROPERTY_ROLE, "owner");
+        Map<String, Object> doc = ElasticSearchUpdatePlanner.getPartialDocument(Arrays.asList(
+            first, field("age", 42L, Cardinality.SINGLE, false, null)));
+
+        Map<String, Object> age = (Map<String, Object>) doc.get("age");
+        assertEquals(42L, age.get(KG_PROPERTY_VALUE));
+        assertEquals("owner", age.get(KG_PROPERTY_ROLE));
+    }
+
+    @Test
+    public void testSetFieldNeedsScript() {
+        assertNull(ElasticSearchUpdatePlanner.getPartialDocument(Arrays.asList(
+            field("title", "name", Cardinality.SINGLE, false, null),
+            field("alias", "other", Cardinality.SET, false, null))));
+    }
+
+    @Test
+    public void testDataSourceMergeNeedsScript() {
+        assertNull(ElasticSearchUpdatePlanner.getPartialDocument(Collections.singletonList(
+            field("age", 42L, Cardinality.SINGLE, false, new String[]{"ds1"}))));
+        assertNull(ElasticSearchUpdatePlanner.getPartialDocument(Collections.singletonList(
+            field("age", 42L, Cardinality.SINGLE, true, null))));
+    }
+
+    @Test
+    public void testObjectValueNeedsScript() {
+        assertNull(ElasticSearchUpdatePlanner.getPartialDocument(Collections.singletonList(
+            field("location", Collections.singletonMap("type", "point"), Cardinality.SINGLE, false, null))));
+    }
+
+    private static Map<String, Object> field(String name, Object value, Cardinality cardinality, boolean overlaid, String[] dsr) {
+        Map<String, Object> field = new HashMap<>();
+        field.put(KG_PROPERTY_DS_NAME, name);
+        field.put(KG_PROPERTY_VALUE, value);
+        field.put(KG_PROPERTY_OVERLAID, overlaid);
+        field.put(KG_CARDINALITY, cardinality.name());
+        if (dsr != null) {
+            field.put(KG_PROPERTY_DSR, dsr);
+        }
+        return field;
+    }
+}
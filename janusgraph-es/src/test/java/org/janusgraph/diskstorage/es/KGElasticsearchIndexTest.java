@@ -53,6 +53,7 @@ import org.json.simple.parser.ParseException;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -62,9 +63,12 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration.INDEX_NAME;
@@ -120,8 +124,12 @@ public class KGElasticsearchIndexTest extends IndexProviderTest {
     }
 
     public Configuration getESTestConfig() {
+        return getESTestConfig(new BaseConfiguration());
+    }
+
+    private Configuration getESTestConfig(BaseConfiguration base) {
         final String index = "es";
-        final CommonsConfiguration cc = new CommonsConfiguration(new BaseConfiguration());
+        final CommonsConfiguration cc = new CommonsConfiguration(base);
         cc.set("index." + index + ".elasticsearch.create.ext.number_of_shards", String.valueOf(5));
         cc.set("index." + index + ".elasticsearch.ssl.enabled", "false");
         cc.set("index."+index+".index-name","janusgraph");
@@ -269,6 +277,31 @@ public class KGElasticsearchIndexTest extends IndexProviderTest {
         assertEquals(1, tx.queryStream(new IndexQuery("ingestvertex", PredicateCondition.of(STRING, Cmp.EQUAL, "hello"))).count());
     }
 
+    @Test
+    public void testDeleteAfterQueuedUpsert(@TempDir Path retryLogDirectory) throws Exception {
+        close();
+        final BaseConfiguration async = new BaseConfiguration();
+        async.setProperty("index.es.elasticsearch.async-bulk.enabled", "true");
+        async.setProperty("index.es.elasticsearch.async-bulk.flush-interval", "2000");
+        async.setProperty("index.es.elasticsearch.async-bulk.retry-log-directory", retryLogDirectory.toString());
+        index = new KGElasticSearchIndex(getESTestConfig(async));
+        tx = openTx();
+        initialize("vertex");
+
+        final Multimap<String, Object> doc = HashMultimap.create();
+        doc.put(TEXT, "queued upsert");
+        add("vertex", "deleted", doc, true);
+        add("vertex", "kept", doc, true);
+        newTx();
+        //the upserts are still in the queue when the document is deleted
+        ((KGElasticSearchIndex) index).deleteDocument("vertex", "deleted");
+        clopen();
+
+        assertEquals(Collections.singletonList("kept"),
+            tx.queryStream(new IndexQuery("vertex", PredicateCondition.of(TEXT, Text.CONTAINS, "queued")))
+                .collect(Collectors.toList()));
+    }
+
     @Test
     public void testMapKey2Field_IllegalCharacter() {
         assertThrows(IllegalArgumentException.class, () -> {
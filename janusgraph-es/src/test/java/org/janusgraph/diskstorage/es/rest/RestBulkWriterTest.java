@@ -0,0 +1,155 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.es.rest;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.tinkerpop.shaded.jackson.databind.ObjectMapper;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.janusgraph.diskstorage.es.ElasticSearchMutation;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RestBulkWriterTest {
+
+    private final RestClient restClientMock = mock(RestClient.class);
+    private final List<List<String>> requests = new ArrayList<>();
+    private final Queue<int[]> statuses = new LinkedList<>();
+
+    private RestBulkWriter writer(int maxChunkBytes, int maxChunkActions, int retries) {
+        doAnswer(invocation -> {
+            Request request = invocation.getArgument(0);
+            ResponseListener listener = invocation.getArgument(1);
+            List<String> actions = readActions(request);
+            requests.add(actions);
+            int[] itemStatuses = statuses.isEmpty() ? new int[0] : statuses.poll();
+            listener.onSuccess(response(actions.size(), itemStatuses));
+            return null;
+        }).when(restClientMock).performRequestAsync(any(Request.class), any(ResponseListener.class));
+        return new RestBulkWriter(restClientMock, new ObjectMapper(),
+            mutation -> (mutation.getId() + "\n").getBytes(StandardCharsets.UTF_8),
+            maxChunkBytes, maxChunkActions, 2, retries, 0);
+    }
+
+    @Test
+    public void testSplitIntoChunks() throws IOException {
+        writer(1024, 2, 0).write(mutations("a", "b", "c", "d", "e"), "/_bulk");
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d"), Collections.singletonList("e")), requests);
+    }
+
+    @Test
+    public void testSplitBySize() throws IOException {
+        writer(4, 100, 0).write(mutations("a", "b", "c"), "/_bulk");
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Collections.singletonList("c")), requests);
+    }
+
+    @Test
+    public void testKeepActionsOfDocumentTogether() throws IOException {
+        writer(1024, 1, 0).write(mutations("a", "a", "b"), "/_bulk");
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "a"), Collections.singletonList("b")), requests);
+    }
+
+    @Test
+    public void testRetryFailedActionsOnly() throws IOException {
+        statuses.add(new int[]{200, 429, 200});
+        writer(1024, 100, 1).write(mutations("a", "b", "c"), "/_bulk");
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", "c"), Collections.singletonList("b")), requests);
+    }
+
+    @Test
+    public void testRetryFollowingActionsOfDocument() throws IOException {
+        statuses.add(new int[]{503, 200, 200});
+        writer(1024, 100, 1).write(mutations("a", "a", "b"), "/_bulk");
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "a", "b"), Arrays.asList("a", "a")), requests);
+    }
+
+    @Test
+    public void testFailAfterRetries() {
+        statuses.add(new int[]{429});
+        statuses.add(new int[]{429});
+        RestBulkWriter writer = writer(1024, 100, 1);
+
+        assertThrows(IOException.class, () -> writer.write(mutations("a"), "/_bulk"));
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    public void testPermanentFailureIsNotRetried() {
+        statuses.add(new int[]{200, 400});
+        RestBulkWriter writer = writer(1024, 100, 3);
+
+        assertThrows(IOException.class, () -> writer.write(mutations("a", "b"), "/_bulk"));
+        assertEquals(1, requests.size());
+    }
+
+    private static List<ElasticSearchMutation> mutations(String... ids) {
+        return Arrays.stream(ids)
+            .map(id -> ElasticSearchMutation.createDeleteRequest("index", "index", id))
+            .collect(Collectors.toList());
+    }
+
+    private static List<String> readActions(Request request) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        request.getEntity().writeTo(out);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            return IOUtils.readLines(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Response response(int size, int[] itemStatuses) {
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            int status = i < itemStatuses.length ? itemStatuses[i] : 200;
+            if (i > 0) items.append(',');
+            items.append("{\"delete\":{\"status\":").append(status);
+            if (status >= 400) items.append(",\"error\":{\"type\":\"error").append(status).append("\"}");
+            items.append("}}");
+        }
+        Response response = mock(Response.class);
+        when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, 200, "OK"));
+        when(response.getEntity()).thenReturn(new StringEntity("{\"items\":[" + items + "]}", ContentType.APPLICATION_JSON));
+        return response;
+    }
+}
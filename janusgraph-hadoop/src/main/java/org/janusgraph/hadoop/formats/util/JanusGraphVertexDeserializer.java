@@ -40,6 +40,7 @@ import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
 import org.janusgraph.diskstorage.util.BufferUtil;
 import org.janusgraph.diskstorage.util.EntryArrayList;
+import org.janusgraph.graphdb.database.PropertyPropertyLayout;
 import org.janusgraph.graphdb.database.RelationReader;
 import org.janusgraph.graphdb.database.idassigner.Preconditions;
 import org.janusgraph.graphdb.database.serialize.InternalAttributeUtil;
@@ -56,7 +57,6 @@ import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
 import org.janusgraph.graphdb.types.TypeInspector;
 import org.janusgraph.graphdb.types.system.BaseKey;
 import org.janusgraph.graphdb.types.system.BaseLabel;
-import org.janusgraph.graphdb.util.MD5Util;
 import org.janusgraph.graphdb.vertices.PreloadedVertex;
 import org.janusgraph.hadoop.formats.util.input.JanusGraphHadoopSetup;
 import org.janusgraph.hadoop.formats.util.input.SystemTypeInspector;
@@ -254,6 +254,7 @@ public class JanusGraphVertexDeserializer implements AutoCloseable {
 
     /**
      * 列名=》属性类型id+md5(属性值).substring(8,16)+属性的属性类型id+属性的属性值
+     *       (hash64格式: 属性类型id+0x00+8字节hash(序列化后的属性值)+属性的属性类型id+属性的属性值)
      * 列值=》属性值的ID
      * @param propertyProperties
      * @return
@@ -266,7 +267,7 @@ public class JanusGraphVertexDeserializer implements AutoCloseable {
                 Entry entry = iterator.next();
                 ReadBuffer buffer = entry.asReadBuffer();
                 String propertyTypeId = serializer.readObjectNotNull(buffer, String.class);
-                String propertyValue_md5 = serializer.readObjectNotNull(buffer, String.class);
+                String propertyValue_md5 = PropertyPropertyLayout.readValuePrefix(buffer, serializer);
                 String propertyPropertyKeyId = serializer.readObjectNotNull(buffer, String.class);
                 RelationType relationType = typeManager.getExistingRelationType(propertyPropertyKeyId);
                 PropertyKey key = (PropertyKey) relationType;
@@ -274,7 +275,7 @@ public class JanusGraphVertexDeserializer implements AutoCloseable {
                 String propertyId = serializer.readObjectNotNull(buffer, String.class);
                 PropertyPropertyInfo propertyPropertyInfo = new PropertyPropertyInfo(propertyTypeId, propertyValue_md5,
                     propertyPropertyKeyId,propertyPropertyValue,propertyId,key);
-                multimap.put(propertyTypeId+propertyValue_md5,propertyPropertyInfo);
+                multimap.put(PropertyPropertyLayout.groupKey(propertyTypeId, propertyValue_md5, propertyId),propertyPropertyInfo);
             }
         }
         return multimap;
@@ -341,6 +342,7 @@ public class JanusGraphVertexDeserializer implements AutoCloseable {
             EntryList propertyProperties = propertyEntry.getPropertyProperties() == null ? EntryArrayList.EMPTY_LIST : EntryArrayList.of(propertyEntry.getPropertyProperties());
             multiPropertyProperties = readPropertyProperties(propertyProperties);
         }
+        boolean legacyPropertyProperties = PropertyPropertyLayout.hasLegacyGroups(multiPropertyProperties);
         EntryList labelEntryList = entries.get(this.labelQuery);
         RelationReader relationReader = setup.getRelationReader();
         final RelationCache labelrRelation = relationReader.parseRelation(labelEntryList.get(0), false, typeManager);
@@ -371,9 +373,8 @@ public class JanusGraphVertexDeserializer implements AutoCloseable {
                     // Decode meta properties
                     decodeProperties(relation, vp);
                     if(multiPropertyProperties!=null) {
-                        String propertyValueMD5 = MD5Util.getMD8(value);
-                        String propertyTypeId = type.longId();
-                        Collection<PropertyPropertyInfo> propertyPropertyInfos = multiPropertyProperties.get(propertyTypeId + propertyValueMD5);
+                        Collection<PropertyPropertyInfo> propertyPropertyInfos = PropertyPropertyLayout.find(multiPropertyProperties,
+                            legacyPropertyProperties, type.longId(), relation.relationId, value);
                         if (propertyPropertyInfos != null) {
                             for (PropertyPropertyInfo propertyPropertyInfo : propertyPropertyInfos) {
                                 Object dsr = propertyPropertyInfo.getPropertyPropertyValue();
@@ -0,0 +1,50 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import org.apache.hadoop.hbase.client.Row;
+import org.janusgraph.util.system.IOUtils;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes all rows of a commit with one blocking {@link TableMask#batch(List, Object[])}. 整个提交用一次batch写入
+ */
+class BatchMutationWriter implements HBaseMutationWriter {
+
+    private final ConnectionMask cnx;
+    private final String tableName;
+
+    BatchMutationWriter(ConnectionMask cnx, String tableName) {
+        this.cnx = cnx;
+        this.tableName = tableName;
+    }
+
+    @Override
+    public void write(List<Row> rows) throws IOException, InterruptedException {
+        TableMask table = null;
+        try {
+            table = cnx.getTable(tableName);
+            table.batch(rows, new Object[rows.size()]);
+        } finally {
+            IOUtils.closeQuietly(table);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,158 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Row;
+import org.janusgraph.util.stats.MetricManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the commits of concurrent transactions into shared flushes of one {@link BufferedMutator}.
+ * 合并并发事务的提交,共用BufferedMutator一起写入hbase
+ * <p>
+ * A committing thread queues its rows and waits for the flush lock. The thread that gets the lock takes all queued
+ * commits, hands them to the mutator and flushes it, while the commits of other threads queue up for the next flush.
+ * A thread whose commit was flushed by another thread returns without flushing again. Every commit still returns only
+ * after its rows have been written, and fails only if one of its own rows failed, so the durability of a single
+ * commit is unchanged. Only the flushing thread uses the mutator, errors of a flush therefore belong to its commits.
+ */
+class CoalescingMutationWriter implements HBaseMutationWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingMutationWriter.class);
+
+    private final BufferedMutator mutator;
+    private final Object flushLock = new Object();
+    private List<Commit> queued = new ArrayList<>();
+
+    private final Timer flushTimer;
+    private final Histogram commitsPerFlush;
+
+    /**
+     * @param mutator       共用的BufferedMutator
+     * @param metricsPrefix 监控指标前缀,为null时不记录指标
+     */
+    CoalescingMutationWriter(BufferedMutator mutator, String metricsPrefix) {
+        this.mutator = mutator;
+        if (metricsPrefix != null) {
+            MetricManager metrics = MetricManager.INSTANCE;
+            flushTimer = metrics.getTimer(metricsPrefix, "hbase", "coalesce", "flush");
+            commitsPerFlush = metrics.getHistogram(metricsPrefix, "hbase", "coalesce", "commits");
+        } else {
+            flushTimer = null;
+            commitsPerFlush = null;
+        }
+    }
+
+    private static class Commit {
+        private final List<Row> rows;
+        //Written and read under the flush lock
+        private boolean done;
+        private IOException failure;
+
+        private Commit(List<Row> rows) {
+            this.rows = rows;
+        }
+    }
+
+    @Override
+    public void write(List<Row> rows) throws IOException {
+        if (rows.isEmpty()) return;
+        final Commit commit = new Commit(rows);
+        synchronized (this) {
+            queued.add(commit);
+        }
+        synchronized (flushLock) {
+            if (!commit.done) {
+                final List<Commit> commits;
+                synchronized (this) {
+                    commits = queued;
+                    queued = new ArrayList<>();
+                }
+                flush(commits);
+            }
+            if (commit.failure != null) throw commit.failure;
+        }
+    }
+
+    private void flush(List<Commit> commits) {
+        final long start = System.nanoTime();
+        final Map<Row, Commit> owners = new IdentityHashMap<>();
+        final List<Mutation> mutations = new ArrayList<>();
+        for (Commit commit : commits) {
+            for (Row row : commit.rows) {
+                owners.put(row, commit);
+                mutations.add((Mutation) row);
+            }
+        }
+        try {
+            try {
+                mutator.mutate(mutations);
+            } catch (RetriesExhaustedWithDetailsException e) {
+                //Failures of an earlier background flush, the mutations are buffered nevertheless
+                fail(e, owners);
+            }
+            mutator.flush();
+        } catch (RetriesExhaustedWithDetailsException e) {
+            fail(e, owners);
+        } catch (IOException e) {
+            //Unknown which rows were written
+            for (Commit commit : commits) {
+                if (commit.failure == null) commit.failure = e;
+            }
+        }
+        for (Commit commit : commits) {
+            commit.done = true;
+        }
+        if (flushTimer != null) {
+            flushTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            commitsPerFlush.update(commits.size());
+        }
+    }
+
+    private static void fail(RetriesExhaustedWithDetailsException e, Map<Row, Commit> owners) {
+        for (int i = 0; i < e.getNumExceptions(); i++) {
+            final Commit owner = owners.get(e.getRow(i));
+            if (owner == null) {
+                logger.warn("写入hbase失败的数据不属于当前合并的提交: {}", e.getRow(i), e.getCause(i));
+            } else if (owner.failure == null) {
+                owner.failure = new IOException("写入hbase失败: " + e.getRow(i), e.getCause(i));
+            }
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getQueuedCommits() {
+        return queued.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mutator.close();
+    }
+}
@@ -20,7 +20,9 @@
 package org.janusgraph.diskstorage.hbase;
 
 import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.client.BufferedMutator;
 import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -56,6 +58,23 @@ public interface ConnectionMask extends Closeable
      */
     List<HRegionLocation> getRegionLocations(String tableName) throws IOException;
 
+    /**
+     * Retrieve a RegionLocator for the supplied table name. The locator is not thread-safe and is cheap to create.
+     * @param tableName
+     * @return A RegionLocator backed by the region cache of this Connection.
+     * @throws IOException in the case of backend exceptions.
+     */
+    RegionLocator getRegionLocator(String tableName) throws IOException;
+
+    /**
+     * Retrieve a BufferedMutator for the supplied table name, which sends the mutations of all threads in batches.
+     * @param tableName
+     * @param writeBufferSize the size of the buffer in bytes after which the buffered mutations are sent
+     * @return The BufferedMutator for the named table.
+     * @throws IOException in the case of backend exceptions.
+     */
+    BufferedMutator getBufferedMutator(String tableName, long writeBufferSize) throws IOException;
+
 
     Connection getConnection();
 }
@@ -0,0 +1,89 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.EntryMetaData;
+import org.janusgraph.diskstorage.util.StaticArrayEntry;
+import org.janusgraph.diskstorage.util.StaticArrayEntryList;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds entries directly from the {@link Cell}s of an HBase result. 直接从HBase的Cell构建Entry
+ * <p>
+ * {@link org.apache.hadoop.hbase.client.Result#getMap()} clones the qualifier and value of every cell into new arrays
+ * and builds nested tree maps, which are then copied once more into the {@link StaticArrayEntryList}. Here the
+ * qualifiers and values are wrapped in place and copied once into the single array of the entry list.
+ * The column and value of an entry have to be adjacent, which they are not in a cell, so this one copy remains.
+ */
+public class HBaseCellGetter implements StaticArrayEntry.GetColVal<Cell, ByteBuffer> {
+
+    public static final HBaseCellGetter NO_METADATA = new HBaseCellGetter(StaticArrayEntry.EMPTY_SCHEMA);
+
+    private final EntryMetaData[] schema;
+
+    public HBaseCellGetter(EntryMetaData[] schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * @param cells  the cells of a row, sorted as returned by HBase
+     * @param family the column family to read, cells of other families are skipped
+     * @return the latest version of each column of the family
+     */
+    public EntryList toEntryList(Cell[] cells, byte[] family) {
+        if (cells == null || cells.length == 0) return EntryList.EMPTY_LIST;
+        final List<Cell> latest = new ArrayList<>(cells.length);
+        Cell previous = null;
+        for (Cell cell : cells) {
+            if (!CellUtil.matchingFamily(cell, family)) continue;
+            //Versions of a column are sorted by descending timestamp, only the first one is kept
+            if (previous != null && CellUtil.matchingQualifier(previous, cell)) continue;
+            latest.add(cell);
+            previous = cell;
+        }
+        return StaticArrayEntryList.ofByteBuffer(latest, this);
+    }
+
+    @Override
+    public ByteBuffer getColumn(Cell element) {
+        return ByteBuffer.wrap(element.getQualifierArray(), element.getQualifierOffset(), element.getQualifierLength());
+    }
+
+    @Override
+    public ByteBuffer getValue(Cell element) {
+        return ByteBuffer.wrap(element.getValueArray(), element.getValueOffset(), element.getValueLength());
+    }
+
+    @Override
+    public EntryMetaData[] getMetaSchema(Cell element) {
+        return schema;
+    }
+
+    @Override
+    public Object getMetaData(Cell element, EntryMetaData meta) {
+        switch(meta) {
+            case TIMESTAMP:
+                return element.getTimestamp();
+            default:
+                throw new UnsupportedOperationException("Unsupported meta data: " + meta);
+        }
+    }
+}
@@ -14,7 +14,6 @@
 
 package org.janusgraph.diskstorage.hbase;
 
-import org.janusgraph.graphdb.database.idassigner.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
@@ -30,10 +29,10 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.janusgraph.diskstorage.BackendException;
 import org.janusgraph.diskstorage.Entry;
 import org.janusgraph.diskstorage.EntryList;
-import org.janusgraph.diskstorage.EntryMetaData;
 import org.janusgraph.diskstorage.PermanentBackendException;
 import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.diskstorage.TemporaryBackendException;
+import org.janusgraph.diskstorage.hbase.filter.ColumnRangesFilter;
 import org.janusgraph.diskstorage.keycolumnvalue.KCVMutation;
 import org.janusgraph.diskstorage.keycolumnvalue.KCVSUtil;
 import org.janusgraph.diskstorage.keycolumnvalue.KeyColumnValueStore;
@@ -44,10 +43,9 @@ import org.janusgraph.diskstorage.keycolumnvalue.KeySlicesIterator;
 import org.janusgraph.diskstorage.keycolumnvalue.MultiSlicesQuery;
 import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
 import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
+import org.janusgraph.diskstorage.util.EntryArrayList;
 import org.janusgraph.diskstorage.util.RecordIterator;
 import org.janusgraph.diskstorage.util.StaticArrayBuffer;
-import org.janusgraph.diskstorage.util.StaticArrayEntry;
-import org.janusgraph.diskstorage.util.StaticArrayEntryList;
 import org.janusgraph.kydsj.ContentStatus;
 import org.janusgraph.util.system.IOUtils;
 import org.slf4j.Logger;
@@ -55,6 +53,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -63,7 +62,6 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.NavigableMap;
 import javax.annotation.Nullable;
 
 /**
@@ -71,10 +69,8 @@ import javax.annotation.Nullable;
  * <p>
  * - batching? (consider HTable#batch, HTable#setAutoFlush(false)
  * - tuning HTable#setWriteBufferSize (?)
- * - writing a server-side filter to replace ColumnCountGetFilter, which drops
- * all columns on the row where it reaches its limit.  This requires getSlice,
- * currently, to impose its limit on the client side.  That obviously won't
- * scale.
+ * - enabling {@link ColumnRangesFilter} by default once the filter jar is part
+ * of the regionserver deployment, see {@code storage.hbase.server-side-filter}
  * - RowMutations for combining Puts+Deletes (need a newer HBase than 0.92 for this)
  * - (maybe) fiddle with HTable#setRegionCachePrefetch and/or #prewarmRegionCache
  * <p>
@@ -93,7 +89,9 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
     private final String storeName;
     // This is columnFamily.getBytes()
     private final byte[] columnFamilyBytes;
-    private final HBaseGetter entryGetter;
+    private final HBaseCellGetter entryGetter;
+    // Whether the region servers evaluate the slice queries with ColumnRangesFilter
+    private final boolean serverSideFilter;
 
     private final ConnectionMask cnx;
 
@@ -104,7 +102,8 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
         //this.columnFamily = columnFamily;
         this.storeName = storeName;
         this.columnFamilyBytes = Bytes.toBytes(columnFamily);
-        this.entryGetter = new HBaseGetter(storeManager.getMetaDataSchema(storeName));
+        this.entryGetter = new HBaseCellGetter(storeManager.getMetaDataSchema(storeName));
+        this.serverSideFilter = storeManager.isServerSideFilter();
     }
 
     @Override
@@ -113,7 +112,7 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
 
     @Override
     public EntryList getSlice(KeySliceQuery query, StoreTransaction txh) throws BackendException {
-        Map<StaticBuffer, EntryList> result = getHelper(Collections.singletonList(query.getKey()), getFilter(query));
+        Map<StaticBuffer, EntryList> result = getHelper(Collections.singletonList(query.getKey()), getColumnFilter(query));
         return Iterables.getOnlyElement(result.values(), EntryList.EMPTY_LIST);
     }
 
@@ -122,6 +121,11 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
         return storeManager.getLargeCellContent(fileName);
     }
 
+    @Override
+    public InputStream getLargeCellStream(String fileName, long offset){
+        return storeManager.getLargeCellStream(fileName, offset);
+    }
+
     @Override
     public ContentStatus getContentStatus(String fileName){
         return storeManager.getContentStatus(fileName);
@@ -129,7 +133,7 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
 
     @Override
     public Map<StaticBuffer,EntryList> getSlice(List<StaticBuffer> keys, SliceQuery query, StoreTransaction txh) throws BackendException {
-        return getHelper(keys, getFilter(query));
+        return getHelper(keys, getColumnFilter(query));
     }
 
     @Override
@@ -166,7 +170,28 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
 
     @Override
     public KeySlicesIterator getKeys(MultiSlicesQuery queries, StoreTransaction txh) throws BackendException {
-        throw new UnsupportedOperationException();
+        final List<SliceQuery> sliceQueries = queries.getQueries();
+        //A cell is returned if it matches any of the queries, the rows are split per query on the client
+        final Filter filters;
+        if (serverSideFilter) {
+            filters = getRangesFilter(sliceQueries);
+        } else {
+            final FilterList filterList = new FilterList(FilterList.Operator.MUST_PASS_ONE);
+            for (SliceQuery query : sliceQueries) {
+                filterList.addFilter(getFilter(query));
+            }
+            filters = filterList;
+        }
+
+        TableMask table = null;
+
+        try {
+            table = cnx.getTable(tableName);
+            return new RowSlicesIterator(table, table.getScanner(newScan(null, null).setFilter(filters)), sliceQueries);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(table);
+            throw new PermanentBackendException(e);
+        }
     }
 
     public static Filter getFilter(SliceQuery query) {
@@ -186,6 +211,60 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
         return filter;
     }
 
+    /**
+     * @return a server-side filter which evaluates all queries and their limits in one pass
+     */
+    public static ColumnRangesFilter getRangesFilter(List<SliceQuery> queries) {
+        final ColumnRangesFilter.Builder builder = ColumnRangesFilter.builder();
+        for (SliceQuery query : queries) {
+            builder.addRange(query.getSliceStart().as(StaticBuffer.ARRAY_FACTORY),
+                query.getSliceEnd().as(StaticBuffer.ARRAY_FACTORY),
+                query.isMaxColumnInclusive(),
+                query.hasLimit() ? query.getLimit() : ColumnRangesFilter.NO_LIMIT);
+        }
+        final ColumnRangesFilter filter = builder.build();
+        logger.debug("Generated HBase Filter {}", filter);
+        return filter;
+    }
+
+    private Filter getColumnFilter(SliceQuery query) {
+        return serverSideFilter ? getRangesFilter(Collections.singletonList(query)) : getFilter(query);
+    }
+
+    /**
+     * Splits the entries of a row, which were read with the union of the queries, into the result of each query.
+     * 按查询拆分一次scan读取的行数据
+     *
+     * @param entries the sorted entries of the row
+     * @param queries the slice queries of the scan
+     * @return the entries of each query, limited as the query would be on its own
+     */
+    static Map<SliceQuery, EntryList> getSlices(EntryList entries, List<SliceQuery> queries) {
+        final Map<SliceQuery, EntryList> slices = new HashMap<>(queries.size());
+        for (SliceQuery query : queries) {
+            slices.put(query, getSlice(entries, query));
+        }
+        return slices;
+    }
+
+    private static EntryList getSlice(EntryList entries, SliceQuery query) {
+        final StaticBuffer sliceEnd = query.getSliceEnd();
+        int pos = Collections.binarySearch(entries, query.getSliceStart());
+        if (pos < 0) pos = -pos - 1;
+
+        final List<Entry> slice = new ArrayList<>();
+        for (; pos < entries.size() && slice.size() < query.getLimit(); pos++) {
+            final Entry entry = entries.get(pos);
+            //An empty end is unbounded, as in getFilter
+            if (sliceEnd.length() > 0) {
+                final int cmp = entry.getColumnAs(StaticBuffer.STATIC_FACTORY).compareTo(sliceEnd);
+                if (cmp > 0 || (cmp == 0 && !query.isMaxColumnInclusive())) break;
+            }
+            slice.add(entry);
+        }
+        return slice.isEmpty() ? EntryList.EMPTY_LIST : EntryArrayList.of(slice);
+    }
+
     private Map<StaticBuffer,EntryList> getHelper(List<StaticBuffer> keys, Filter getFilter) throws BackendException {
         List<Get> requests = new ArrayList<>(keys.size());
         {
@@ -220,18 +299,7 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
 
             for (int i = 0; i < results.length; i++) {
                 final Result result = results[i];
-                NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> f = result.getMap();
-
-                if (f == null) { // no result for this key
-                    resultMap.put(keys.get(i), EntryList.EMPTY_LIST);
-                    continue;
-                }
-
-                // actual key with <timestamp, value>
-                NavigableMap<byte[], NavigableMap<Long, byte[]>> r = f.get(columnFamilyBytes);
-                resultMap.put(keys.get(i), (r == null)
-                                            ? EntryList.EMPTY_LIST
-                                            : StaticArrayEntryList.ofBytes(r.entrySet(), entryGetter));
+                resultMap.put(keys.get(i), entryGetter.toEntryList(result.rawCells(), columnFamilyBytes));
             }
 
             return resultMap;
@@ -256,6 +324,24 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
                                             @Nullable byte[] endKey,
                                             FilterList filters,
                                             @Nullable SliceQuery columnSlice) throws BackendException {
+        Scan scan = newScan(startKey, endKey);
+
+        if (columnSlice != null) {
+            filters.addFilter(getColumnFilter(columnSlice));
+        }
+
+        TableMask table = null;
+
+        try {
+            table = cnx.getTable(tableName);
+            return new RowIterator(table, table.getScanner(scan.setFilter(filters)), columnFamilyBytes);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(table);
+            throw new PermanentBackendException(e);
+        }
+    }
+
+    private Scan newScan(@Nullable byte[] startKey, @Nullable byte[] endKey) throws BackendException {
         Scan scan = new Scan().addFamily(columnFamilyBytes);
 
         try {
@@ -270,19 +356,7 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
         if (endKey != null)
             scan.setStopRow(endKey);
 
-        if (columnSlice != null) {
-            filters.addFilter(getFilter(columnSlice));
-        }
-
-        TableMask table = null;
-
-        try {
-            table = cnx.getTable(tableName);
-            return new RowIterator(table, table.getScanner(scan.setFilter(filters)), columnFamilyBytes);
-        } catch (IOException e) {
-            IOUtils.closeQuietly(table);
-            throw new PermanentBackendException(e);
-        }
+        return scan;
     }
 
     private class RowIterator implements KeyIterator {
@@ -304,12 +378,7 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
             ensureOpen();
 
             return new RecordIterator<Entry>() {
-                private final Iterator<Map.Entry<byte[], NavigableMap<Long, byte[]>>> kv;
-                {
-                    final Map<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> map = currentRow.getMap();
-                    Preconditions.checkNotNull(map);
-                    kv = map.get(columnFamilyBytes).entrySet().iterator();
-                }
+                private final Iterator<Entry> kv = entryGetter.toEntryList(currentRow.rawCells(), columnFamilyBytes).iterator();
 
                 @Override
                 public boolean hasNext() {
@@ -320,7 +389,7 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
                 @Override
                 public Entry next() {
                     ensureOpen();
-                    return StaticArrayEntry.ofBytes(kv.next(), entryGetter);
+                    return kv.next();
                 }
 
                 @Override
@@ -367,37 +436,90 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
         }
     }
 
-    private static class HBaseGetter implements StaticArrayEntry.GetColVal<Map.Entry<byte[], NavigableMap<Long, byte[]>>, byte[]> {
+    /**
+     * Iterates over the rows of a single scan for several slice queries. 一次scan读取多个slice查询
+     */
+    private class RowSlicesIterator implements KeySlicesIterator {
+        private final Closeable table;
+        private final Iterator<Result> rows;
+        private final List<SliceQuery> queries;
+
+        private Result currentRow;
+        private boolean isClosed;
+
+        public RowSlicesIterator(Closeable table, ResultScanner rows, List<SliceQuery> queries) {
+            this.table = table;
+            this.queries = queries;
+            this.rows = Iterators.filter(rows.iterator(), result -> null != result && null != result.getRow());
+        }
 
-        private final EntryMetaData[] schema;
+        @Override
+        public Map<SliceQuery, RecordIterator<Entry>> getEntries() {
+            ensureOpen();
 
-        private HBaseGetter(EntryMetaData[] schema) {
-            this.schema = schema;
+            final EntryList entries = entryGetter.toEntryList(currentRow.rawCells(), columnFamilyBytes);
+            final Map<SliceQuery, RecordIterator<Entry>> result = new HashMap<>(queries.size());
+            getSlices(entries, queries).forEach((query, slice) -> result.put(query, new EntryIterator(slice.iterator())));
+            return result;
         }
 
         @Override
-        public byte[] getColumn(Map.Entry<byte[], NavigableMap<Long, byte[]>> element) {
-            return element.getKey();
+        public boolean hasNext() {
+            ensureOpen();
+            return rows.hasNext();
         }
 
         @Override
-        public byte[] getValue(Map.Entry<byte[], NavigableMap<Long, byte[]>> element) {
-            return element.getValue().lastEntry().getValue();
+        public StaticBuffer next() {
+            ensureOpen();
+
+            currentRow = rows.next();
+            return StaticArrayBuffer.of(currentRow.getRow());
         }
 
         @Override
-        public EntryMetaData[] getMetaSchema(Map.Entry<byte[], NavigableMap<Long, byte[]>> element) {
-            return schema;
+        public void close() {
+            IOUtils.closeQuietly(table);
+            isClosed = true;
+            logger.debug("RowSlicesIterator closed table {}", table);
         }
 
         @Override
-        public Object getMetaData(Map.Entry<byte[], NavigableMap<Long, byte[]>> element, EntryMetaData meta) {
-            switch(meta) {
-                case TIMESTAMP:
-                    return element.getValue().lastEntry().getKey();
-                default:
-                    throw new UnsupportedOperationException("Unsupported meta data: " + meta);
-            }
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void ensureOpen() {
+            if (isClosed)
+                throw new IllegalStateException("Iterator has been closed.");
+        }
+    }
+
+    private static class EntryIterator implements RecordIterator<Entry> {
+        private final Iterator<Entry> entries;
+
+        EntryIterator(Iterator<Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return entries.hasNext();
+        }
+
+        @Override
+        public Entry next() {
+            return entries.next();
+        }
+
+        @Override
+        public void close() {
+            //the entries are already read, closing has no effect on the row iterator
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
         }
     }
 }
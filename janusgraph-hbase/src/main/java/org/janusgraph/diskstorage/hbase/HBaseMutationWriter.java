@@ -0,0 +1,40 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import org.apache.hadoop.hbase.client.Row;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the puts and deletes of a commit to the HBase table. 提交事务时向hbase写入数据的方式
+ *
+ * @see HBaseStoreManager#mutateMany(java.util.Map, org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction)
+ */
+interface HBaseMutationWriter extends Closeable {
+
+    /**
+     * Writes all rows and returns once every row has been written.
+     *
+     * @param rows the puts and deletes of one commit
+     * @throws IOException if at least one row could not be written; other rows may have been written
+     */
+    void write(List<Row> rows) throws IOException, InterruptedException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -21,8 +21,13 @@ import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.leader.LeaderLatch;
+import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HRegionInfo;
@@ -34,9 +39,11 @@ import org.apache.hadoop.hbase.TableNotEnabledException;
 import org.apache.hadoop.hbase.TableNotFoundException;
 import org.apache.hadoop.hbase.ZooKeeperConnectionException;
 import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Row;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
@@ -68,6 +75,7 @@ import org.janusgraph.diskstorage.util.time.TimestampProviders;
 import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
 import org.janusgraph.graphdb.configuration.PreInitializeConfigOptions;
 import org.janusgraph.graphdb.database.idassigner.Preconditions;
+import org.janusgraph.graphdb.transaction.TransactionConfiguration;
 import org.janusgraph.hadoop.HBaseHadoopStoreManager;
 import org.janusgraph.hadoop.kerberos.SecurityUtil;
 import org.janusgraph.kydsj.ContentStatus;
@@ -78,17 +86,21 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import static org.janusgraph.diskstorage.Backend.ATTACHMENT_FAMILY_NAME;
 import static org.janusgraph.diskstorage.Backend.EDGESTORE_NAME;
@@ -177,6 +189,31 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
             "显示bulk批量向hbase提交数据耗时大于等于400毫秒请求具体所用时间",
             ConfigOption.Type.LOCAL, false);
 
+    public static final ConfigOption<Boolean> MULTI_SLICE_SCAN =
+        new ConfigOption<>(HBASE_NS, "multi-slice-scan",
+            "扫描任务(OLAP、索引修复、幽灵顶点清理)用一次scan读取所有slice查询，每行只读取一次；关闭时每个slice查询单独scan",
+            ConfigOption.Type.MASKABLE, true);
+
+    public static final ConfigOption<Boolean> SERVER_SIDE_FILTER =
+        new ConfigOption<>(HBASE_NS, "server-side-filter",
+            "在regionserver上用ColumnRangesFilter一次计算所有列范围和每个范围的limit，开启前需把janusgraph-hbase的filter jar加入所有regionserver的classpath",
+            ConfigOption.Type.MASKABLE, false);
+
+    public static final ConfigOption<Integer> WRITE_THREADS =
+        new ConfigOption<>(HBASE_NS, "write-threads",
+            "提交事务时按region分组并行写入的线程数，为1时整个提交用一次batch写入",
+            ConfigOption.Type.MASKABLE, 1, ConfigOption.positiveInt());
+
+    public static final ConfigOption<Boolean> WRITE_COALESCING =
+        new ConfigOption<>(HBASE_NS, "write-coalescing",
+            "批量导入(batch-loading)事务的提交合并到共享的BufferedMutator中一起写入hbase，减少并发导入时的写请求数",
+            ConfigOption.Type.MASKABLE, false);
+
+    public static final ConfigOption<Long> WRITE_BUFFER_SIZE =
+        new ConfigOption<>(HBASE_NS, "write-buffer-size",
+            "合并写入时BufferedMutator的缓冲区大小(字节)，超过后在后台发送",
+            ConfigOption.Type.MASKABLE, 8L * 1024 * 1024, ConfigOption.positiveLong());
+
     /**
      * Related bug fixed in 0.98.0, 0.94.7, 0.95.0:
      *
@@ -303,6 +340,11 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
     private final boolean showBulkWriteCosts;
     private final boolean skipSchemaCheck;
     private final boolean isCreateAttachmentTable;
+    private final boolean multiSliceScan;
+    private final boolean serverSideFilter;
+    private final HBaseMutationWriter mutationWriter;
+    // Writes the commits of batch-loading transactions, null if they are not coalesced
+    private final HBaseMutationWriter batchLoadingWriter;
     private final String attachmentSuffix;
     private final String kerberosPrincipal;
     private final String kerberosKeytab;
@@ -318,6 +360,11 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
     private final ConcurrentMap<String, HBaseKeyColumnValueStore> openStores;
     private FileSystem hdfsFileSystem;
     private Path hdfsDirectory;
+    private HDFSUploader hdfsUploader;
+    private HDFSDeletionSweeper hdfsDeletionSweeper;
+    // Elects the instance that sweeps the deleted hdfs files, null if zookeeper is not configured
+    private CuratorFramework sweeperZookeeper;
+    private LeaderLatch sweeperLeaderLatch;
 
     public HBaseStoreManager(org.janusgraph.diskstorage.configuration.Configuration config) throws BackendException {
         super(config, PORT_DEFAULT);
@@ -387,6 +434,10 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
         this.showBulkWriteCosts = config.get(BULK_WRITE_COSTS);
         this.isCreateAttachmentTable = config.get(IS_CRATE_ATTACHMENT_TABLE);
         this.attachmentSuffix = config.get(ATTACHMENT_TABLE_NAME);
+        this.multiSliceScan = config.get(MULTI_SLICE_SCAN);
+        this.serverSideFilter = config.get(SERVER_SIDE_FILTER);
+        final String metricsPrefix = config.get(GraphDatabaseConfiguration.BASIC_METRICS)
+            ? config.get(GraphDatabaseConfiguration.METRICS_PREFIX) : null;
 
         try {
             //this.cnx = HConnectionManager.createConnection(hconf);
@@ -401,6 +452,20 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
             throw new PermanentBackendException(e);
         }
 
+        final int writeThreads = config.get(WRITE_THREADS);
+        this.mutationWriter = writeThreads > 1
+            ? new RegionParallelMutationWriter(cnx, tableName, writeThreads, metricsPrefix)
+            : new BatchMutationWriter(cnx, tableName);
+        try {
+            this.batchLoadingWriter = config.get(WRITE_COALESCING)
+                ? new CoalescingMutationWriter(cnx.getBufferedMutator(tableName, config.get(WRITE_BUFFER_SIZE)), metricsPrefix)
+                : null;
+        } catch (IOException e) {
+            IOUtils.closeQuietly(mutationWriter);
+            IOUtils.closeQuietly(cnx);
+            throw new PermanentBackendException(e);
+        }
+
         if (logger.isTraceEnabled()) {
             openManagers.put(this, new Throwable("Manager Opened"));
             dumpOpenManagers();
@@ -420,6 +485,15 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
                 if (fs.getScheme().equals("hdfs")) {
                     this.hdfsFileSystem = fs;
                     hdfsDirectory = HDFSManager.openGraphHDFS(this.hdfsFileSystem, tableName);
+                    hdfsUploader = new HDFSUploader(this.hdfsFileSystem, hdfsDirectory,
+                        config.get(GraphDatabaseConfiguration.LARGE_CONTENT_UPLOAD_HDFS_THREADS),
+                        config.get(GraphDatabaseConfiguration.LARGE_CONTENT_UPLOAD_HDFS_RETRIES),
+                        config.get(GraphDatabaseConfiguration.LARGE_CONTENT_UPLOAD_HDFS_RETRY_WAIT),
+                        metricsPrefix);
+                    hdfsDeletionSweeper = new HDFSDeletionSweeper(this.hdfsFileSystem, hdfsDirectory,
+                        config.get(GraphDatabaseConfiguration.LARGE_CONTENT_DELETE_HDFS_INTERVAL),
+                        config.get(GraphDatabaseConfiguration.LARGE_CONTENT_DELETE_HDFS_BATCH_SIZE),
+                        this::getCellTimestamps, electSweeper(config), metricsPrefix);
                 }
 
             } catch (IOException e) {
@@ -581,6 +655,17 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
         openStores.clear();
         if (logger.isTraceEnabled())
             openManagers.remove(this);
+        // flushes the mutations still buffered for batch-loading transactions
+        IOUtils.closeQuietly(batchLoadingWriter);
+        IOUtils.closeQuietly(mutationWriter);
+        if(hdfsUploader!=null){
+            hdfsUploader.close();
+        }
+        if(hdfsDeletionSweeper!=null){
+            hdfsDeletionSweeper.close();
+        }
+        IOUtils.closeQuietly(sweeperLeaderLatch);
+        IOUtils.closeQuietly(sweeperZookeeper);
         IOUtils.closeQuietly(cnx);
         if(hdfsFileSystem!=null){
             try {
@@ -599,7 +684,9 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
                 .orderedScan(true).unorderedScan(true).batchMutation(true)
                 .multiQuery(true).distributed(true).keyOrdered(true).storeTTL(true)
                 .cellTTL(true).timestamps(true).preferredTimestamps(PREFERRED_TIMESTAMPS)
-                .optimisticLocking(true).keyConsistent(c);
+                .optimisticLocking(true).keyConsistent(c)
+                //Without consistent scans the scanner reads all slice queries with one multi-slice scan
+                .consistentScan(!multiSliceScan);
 
         try {
             fb.localKeyPartition(getDeployment() == Deployment.LOCAL);
@@ -636,6 +723,17 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
         return null;
     }
 
+    public InputStream getLargeCellStream(String fileName, long offset){
+        if(this.hdfsFileSystem!=null){
+            try {
+                return HDFSManager.openHdfs(this.hdfsFileSystem, hdfsDirectory, fileName, offset);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return null;
+    }
+
     public ContentStatus getContentStatus(String fileName){
         if(this.hdfsFileSystem!=null){
             try {
@@ -661,8 +759,14 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
         // In case of an addition and deletion with identical timestamps, the
         // deletion tombstone wins.
         // https://hbase.apache.org/book/versions.html#d244e4250
+        final List<HDFSUploader.Upload> uploads = new ArrayList<>();
+        final Map<String, HDFSDeletionSweeper.Deletion> hdfsDeletions = new LinkedHashMap<>();
         final Map<StaticBuffer, Pair<List<Put>, Delete>> commandsPerKey =
-            convertToCommands(mutations, putTimestamp, delTimestamp);
+            convertToCommands(mutations, putTimestamp, delTimestamp, uploads, hdfsDeletions);
+        // 同一次提交中重新上传的文件不删除
+        for (HDFSUploader.Upload upload : uploads) {
+            hdfsDeletions.remove(upload.fileName);
+        }
 
         final List<Row> batch = new ArrayList<>(commandsPerKey.size()); // actual batch operation
 
@@ -675,30 +779,57 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
                 batch.add(commands.getSecond());
         }
 
+        Path tombstone = null;
         try {
-            TableMask table = null;
+            // 写hbase之前记录需要删除的hdfs文件,清理线程根据hbase中的单元格判断删除是否已经生效
+            if (hdfsDeletionSweeper != null) {
+                tombstone = hdfsDeletionSweeper.log(hdfsDeletions.values());
+            }
+            // 先并行把大内容写入hdfs的上传目录,全部成功后才写hbase,失败时只清理本次提交上传的文件
+            try {
+                uploadHdfs(uploads);
+            } catch (IOException e) {
+                if (hdfsDeletionSweeper != null) hdfsDeletionSweeper.discard(tombstone);
+                throw e;
+            }
 
+            final HBaseMutationWriter writer = batchLoadingWriter != null && isBatchLoading(txh) ? batchLoadingWriter : mutationWriter;
+            long start = System.currentTimeMillis();
             try {
-                table = cnx.getTable(tableName);
-                long start = System.currentTimeMillis();
-                table.batch(batch, new Object[batch.size()]);
-                long end=System.currentTimeMillis();
-                long time=end-start;
-                if(showBulkWriteCosts&&time>=400){
-                    logger.info(String.format("线程%s向hbase表%s写入%s条用时：%s毫秒",Thread.currentThread().getName(),tableName,batch.size(),time));
-                }
-            } finally {
-                IOUtils.closeQuietly(table);
+                writer.write(batch);
+            } catch (IOException | InterruptedException e) {
+                if (hdfsUploader != null) hdfsUploader.discard(uploads);
+                if (hdfsDeletionSweeper != null) hdfsDeletionSweeper.discard(tombstone);
+                throw e;
+            }
+            long end=System.currentTimeMillis();
+            long time=end-start;
+            if(showBulkWriteCosts&&time>=400){
+                logger.info(String.format("线程%s向hbase表%s写入%s条用时：%s毫秒",Thread.currentThread().getName(),tableName,batch.size(),time));
             }
         } catch (IOException | InterruptedException e) {
             throw new TemporaryBackendException(e);
         }
+        // hbase写入成功后才用上传的文件替换旧文件
+        if (hdfsUploader != null) hdfsUploader.publish(uploads);
+        if (hdfsDeletionSweeper == null) {
+            deleteHdfs(hdfsDeletions.keySet());
+        }
 
         if (commitTime != null) {
             sleepAfterWrite(commitTime);
         }
     }
 
+    boolean isServerSideFilter() {
+        return serverSideFilter;
+    }
+
+    private static boolean isBatchLoading(StoreTransaction txh) {
+        final BaseTransactionConfig config = txh.getConfiguration();
+        return config instanceof TransactionConfiguration && ((TransactionConfiguration) config).hasEnabledBatchLoading();
+    }
+
     @Override
     public KeyColumnValueStore openDatabase(String longName, StoreMetaData.Container metaData) throws BackendException {
         // HBase does not support retrieving cell-level TTL by the client.
@@ -1126,7 +1257,8 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
     }
 
     /**
-     * Convert JanusGraph internal Mutation representation into HBase native commands.
+     * Convert JanusGraph internal Mutation representation into HBase native commands. The HDFS part of large cells
+     * is neither written nor deleted.
      *
      * @param mutations    Mutations to convert into HBase commands.
      * @param putTimestamp The timestamp to use for Put commands.
@@ -1137,7 +1269,23 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
      @VisibleForTesting
      Map<StaticBuffer, Pair<List<Put>, Delete>> convertToCommands(Map<String, Map<StaticBuffer, KCVMutation>> mutations,
                                                                    final Long putTimestamp,
-                                                                   final Long delTimestamp) throws PermanentBackendException {
+                                                                   final Long delTimestamp) throws BackendException {
+        return convertToCommands(mutations, putTimestamp, delTimestamp, new ArrayList<>(), new HashMap<>());
+    }
+
+    /**
+     * Convert JanusGraph internal Mutation representation into HBase native commands without writing the
+     * HDFS part of large cells.
+     *
+     * @param uploads collects the files that have to be written to HDFS before the commands are applied
+     * @param hdfsDeletions collects the HDFS files by name that are no longer referenced once the commands are applied
+     * @see #convertToCommands(Map, Long, Long)
+     */
+    private Map<StaticBuffer, Pair<List<Put>, Delete>> convertToCommands(Map<String, Map<StaticBuffer, KCVMutation>> mutations,
+                                                                         final Long putTimestamp,
+                                                                         final Long delTimestamp,
+                                                                         final List<HDFSUploader.Upload> uploads,
+                                                                         final Map<String, HDFSDeletionSweeper.Deletion> hdfsDeletions) throws PermanentBackendException {
         // A map of rowkey to commands (list of Puts, Delete)
         final Map<StaticBuffer, Pair<List<Put>, Delete>> commandsPerKey = new HashMap<>();
 
@@ -1173,14 +1321,12 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
 
                     for (StaticBuffer b : mutation.getDeletions()) {
                         // commands.getSecond() is a Delete for this rowkey.
+                        final byte[] qualifier = b.as(StaticBuffer.ARRAY_FACTORY);
                         if(this.hdfsFileSystem!=null&&StringUtils.isNotBlank(b.getHdfsFileName())){
-                            try {
-                                HDFSManager.deleteHdfs(this.hdfsFileSystem,this.hdfsDirectory,b.getHdfsFileName());
-                            } catch (IOException e) {
-                                logger.warn(String.format("在hdfs删除%s/%s失败",this.hdfsDirectory,b.getHdfsFileName()));
-                            }
+                            hdfsDeletions.put(b.getHdfsFileName(), new HDFSDeletionSweeper.Deletion(b.getHdfsFileName(),
+                                key, cfName, qualifier, delTimestamp != null ? delTimestamp : -1));
                         }
-                        addColumnToDelete(commands.getSecond(), cfName, b.as(StaticBuffer.ARRAY_FACTORY), delTimestamp);
+                        addColumnToDelete(commands.getSecond(), cfName, qualifier, delTimestamp);
                     }
                 }
 
@@ -1203,7 +1349,7 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
                         if (null != ttl && ttl > 0) {
                             // Create a new Put
                             Put putColumnWithTtl = putTimestamp != null ? new Put(key, putTimestamp) : new Put(key);
-                            addColumnToPut(putColumnWithTtl, cfName, putTimestamp, e);
+                            addColumnToPut(putColumnWithTtl, cfName, putTimestamp, e, uploads);
                             // Convert ttl from second (JanusGraph TTL) to milliseconds (HBase TTL)
                             // @see JanusGraphManagement#setTTL(JanusGraphSchemaType, Duration)
                             // HBase supports cell-level TTL for versions 0.98.6 and above.
@@ -1212,7 +1358,7 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
                             // Put column with TTL to the list.
                             commands.getFirst().add(putColumnWithTtl);
                         } else {
-                            addColumnToPut(putColumnsWithoutTtl, cfName, putTimestamp, e);
+                            addColumnToPut(putColumnsWithoutTtl, cfName, putTimestamp, e, uploads);
                         }
                     }
                     // If there were any mutations without TTL set, add them to commands.getFirst()
@@ -1234,7 +1380,7 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
          }
     }
 
-    private void addColumnToPut(Put p, byte[] cfName, Long putTimestamp, Entry e) {
+    private void addColumnToPut(Put p, byte[] cfName, Long putTimestamp, Entry e, List<HDFSUploader.Upload> uploads) {
          final byte[] qualifier = e.getColumnAs(StaticBuffer.ARRAY_FACTORY);
          final byte[] value = e.getValueAs(StaticBuffer.ARRAY_FACTORY);
          if (putTimestamp != null) {
@@ -1242,16 +1388,94 @@ public class HBaseStoreManager extends DistributedStoreManager implements KeyCol
          } else {
              p.addColumn(cfName, qualifier, value);
          }
-         //超过一定大小的数据需要写入hdfs
-         if(this.hdfsFileSystem!=null&&e.getHdfsFileName()!=null&&e.getHdfsContent()!=null){
-             try {
-                 HDFSManager.uploadHdfs(this.hdfsFileSystem,hdfsDirectory,e.getHdfsFileName(),e.getHdfsContent());
-             } catch (IOException ex) {
-                 throw new RuntimeException(ex);
+         //超过一定大小的数据需要写入hdfs,在写hbase之前统一并行上传
+         if(this.hdfsUploader!=null){
+             HDFSUploader.Upload upload = HDFSUploader.of(e);
+             if(upload!=null){
+                 uploads.add(upload);
              }
          }
     }
 
+    private void uploadHdfs(List<HDFSUploader.Upload> uploads) throws IOException {
+        if(this.hdfsUploader!=null&&!uploads.isEmpty()){
+            long start = System.currentTimeMillis();
+            hdfsUploader.upload(uploads);
+            long time=System.currentTimeMillis()-start;
+            if(showBulkWriteCosts&&time>=400){
+                logger.info(String.format("线程%s向hdfs目录%s上传%s个文件用时：%s毫秒",Thread.currentThread().getName(),hdfsDirectory,uploads.size(),time));
+            }
+        }
+    }
+
+    /**
+     * 没有后台清理线程时,hbase写入成功后直接删除不再被引用的hdfs文件
+     */
+    private void deleteHdfs(Set<String> hdfsDeletions) {
+        for(String fileName:hdfsDeletions){
+            try {
+                HDFSManager.deleteHdfs(this.hdfsFileSystem,this.hdfsDirectory,fileName);
+            } catch (IOException e) {
+                logger.warn(String.format("在hdfs删除%s/%s失败",this.hdfsDirectory,fileName));
+            }
+        }
+    }
+
+    /**
+     * @return the timestamp of the latest version of each cell or -1 if the cell does not exist
+     */
+    private long[] getCellTimestamps(List<HDFSDeletionSweeper.Deletion> deletions) throws IOException {
+        final List<Get> gets = new ArrayList<>(deletions.size());
+        for (HDFSDeletionSweeper.Deletion deletion : deletions) {
+            gets.add(new Get(deletion.row).addColumn(deletion.family, deletion.qualifier));
+        }
+        final long[] timestamps = new long[deletions.size()];
+        TableMask table = null;
+        try {
+            table = cnx.getTable(tableName);
+            final Result[] results = table.get(gets);
+            for (int i = 0; i < results.length; i++) {
+                final HDFSDeletionSweeper.Deletion deletion = deletions.get(i);
+                final Cell cell = results[i].getColumnLatestCell(deletion.family, deletion.qualifier);
+                timestamps[i] = cell == null ? -1 : cell.getTimestamp();
+            }
+        } finally {
+            IOUtils.closeQuietly(table);
+        }
+        return timestamps;
+    }
+
+    /**
+     * Only the leader of the graph's zookeeper node sweeps the deleted hdfs files. Without zookeeper every instance
+     * sweeps, which is safe since every file is checked against its cell, but does the work several times.
+     */
+    private BooleanSupplier electSweeper(Configuration config) {
+        if (!config.get(GraphDatabaseConfiguration.REGISTRY_ZOOKEEPER_ENABLE)
+            || !config.has(GraphDatabaseConfiguration.JANUSGRAPH_ZOOKEEPER_URI)
+            || !config.has(GraphDatabaseConfiguration.GRAPH_NODE)) {
+            logger.info("没有配置zookeeper,所有实例都会清理hdfs目录{}中待删除的文件", hdfsDirectory);
+            return () -> true;
+        }
+        String zookeeperURI = String.join(",", config.get(GraphDatabaseConfiguration.JANUSGRAPH_ZOOKEEPER_URI));
+        String rootPath = config.get(GraphDatabaseConfiguration.JANUSGRAPH_ZOOKEEPER_NAMESPACE) + "/"
+            + config.get(GraphDatabaseConfiguration.GRAPH_NODE);
+        sweeperZookeeper = CuratorFrameworkFactory.builder()
+            .connectString(zookeeperURI)
+            .sessionTimeoutMs(config.get(GraphDatabaseConfiguration.ZOOKEEPER_SESSIONTIMEOUTMS))
+            .connectionTimeoutMs(config.get(GraphDatabaseConfiguration.ZOOKEEPER_CONNECTIONTIMEOUTMS))
+            .namespace(rootPath)
+            .retryPolicy(new ExponentialBackoffRetry(1000, 3))
+            .build();
+        sweeperZookeeper.start();
+        sweeperLeaderLatch = new LeaderLatch(sweeperZookeeper, "/hdfs-sweeper/" + tableName);
+        try {
+            sweeperLeaderLatch.start();
+        } catch (Exception e) {
+            logger.warn("竞选清理hdfs文件的实例失败", e);
+        }
+        return sweeperLeaderLatch::hasLeadership;
+    }
+
     private String getCfNameForStoreName(String storeName) throws PermanentBackendException {
         return shortCfNames ? shortenCfName(shortCfNameMap, storeName) : storeName;
     }
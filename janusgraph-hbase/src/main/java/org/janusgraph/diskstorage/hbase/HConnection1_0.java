@@ -16,7 +16,10 @@ package org.janusgraph.diskstorage.hbase;
 
 import org.apache.hadoop.hbase.HRegionLocation;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
 import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
 
 import java.io.IOException;
 import java.util.List;
@@ -60,4 +63,17 @@ public class HConnection1_0 implements ConnectionMask
     {
         return this.cnx.getRegionLocator(TableName.valueOf(tableName)).getAllRegionLocations();
     }
+
+    @Override
+    public RegionLocator getRegionLocator(String tableName) throws IOException
+    {
+        return this.cnx.getRegionLocator(TableName.valueOf(tableName));
+    }
+
+    @Override
+    public BufferedMutator getBufferedMutator(String tableName, long writeBufferSize) throws IOException
+    {
+        return this.cnx.getBufferedMutator(new BufferedMutatorParams(TableName.valueOf(tableName))
+            .writeBufferSize(writeBufferSize));
+    }
 }
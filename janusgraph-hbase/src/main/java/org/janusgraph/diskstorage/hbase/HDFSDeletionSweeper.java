@@ -0,0 +1,388 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import com.codahale.metrics.Counter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.janusgraph.util.stats.MetricManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Deletes the HDFS files of large cells in the background.
+ * 在后台批量删除hdfs上的大附件文件
+ * <p>
+ * Instead of deleting every file inline while a transaction is committed, the files removed by a commit are written
+ * to one tombstone file in {@link #TOMBSTONE_DIRECTORY_NAME} below the graph directory before the HBase batch is
+ * written. Each entry names the file together with the HBase cell that referenced it and the deletion timestamp of
+ * the commit. Tombstones live on HDFS, so files are reclaimed even if the instance that wrote the tombstone crashed
+ * right after the HBase batch.
+ * <p>
+ * The cell, not the file, decides whether a file is still needed:
+ * <ul>
+ *     <li>While the cell exists the deletion has not been applied yet, the entry is kept. It is dropped once the cell
+ *     has been written after the deletion, or after {@link #PENDING_TIMEOUT} when the HBase batch of the commit
+ *     failed.</li>
+ *     <li>Once the cell is gone the file is moved to {@link #DELETING_DIRECTORY_NAME} and the cell is looked up again.
+ *     Uploads replace a file only after their HBase batch, so a cell written in the meantime is always seen by the
+ *     second lookup and the file is moved back; otherwise it is deleted.</li>
+ * </ul>
+ * Only the instance for which {@code leadership} is true sweeps. Every run handles at most {@code batchSize} entries,
+ * the rest of a tombstone is written to a new tombstone of the same age.
+ */
+class HDFSDeletionSweeper implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HDFSDeletionSweeper.class);
+
+    public static final String TOMBSTONE_DIRECTORY_NAME = "_tombstones";
+    public static final String DELETING_DIRECTORY_NAME = "_deleting";
+
+    /**
+     * How long an entry whose cell still exists is kept, which is longer than any HBase batch can take to succeed.
+     */
+    public static final Duration PENDING_TIMEOUT = Duration.ofHours(1);
+    /**
+     * Age after which files left in the upload and deleting directories by a crashed instance are removed.
+     */
+    public static final Duration STALE_FILE_TIMEOUT = Duration.ofDays(1);
+
+    private static final char SEPARATOR = '\t';
+
+    /**
+     * Looks up the cells that referenced deleted files. 查询引用hdfs文件的hbase单元格
+     */
+    interface CellLookup {
+        /**
+         * @return for each deletion the timestamp of the latest version of its cell or -1 if the cell does not exist
+         */
+        long[] getTimestamps(List<Deletion> deletions) throws IOException;
+    }
+
+    /**
+     * A file that is no longer referenced by a cell once the deletion of the cell has been applied.
+     */
+    static final class Deletion {
+
+        final String fileName;
+        final byte[] row;
+        final byte[] family;
+        final byte[] qualifier;
+        // deletion timestamp of the commit or -1 if HBase assigns the timestamps
+        final long timestamp;
+
+        Deletion(String fileName, byte[] row, byte[] family, byte[] qualifier, long timestamp) {
+            this.fileName = fileName;
+            this.row = row;
+            this.family = family;
+            this.qualifier = qualifier;
+            this.timestamp = timestamp;
+        }
+
+        private String format() {
+            Base64.Encoder encoder = Base64.getEncoder();
+            return fileName + SEPARATOR + encoder.encodeToString(row) + SEPARATOR + encoder.encodeToString(family)
+                + SEPARATOR + encoder.encodeToString(qualifier) + SEPARATOR + timestamp;
+        }
+
+        /**
+         * @return null for entries without a cell, which were written before the cell was recorded
+         */
+        private static Deletion parse(String line) {
+            String[] fields = line.split(String.valueOf(SEPARATOR));
+            if (fields.length != 5) return null;
+            Base64.Decoder decoder = Base64.getDecoder();
+            return new Deletion(fields[0], decoder.decode(fields[1]), decoder.decode(fields[2]), decoder.decode(fields[3]),
+                Long.parseLong(fields[4]));
+        }
+    }
+
+    private final FileSystem fs;
+    private final Path directory;
+    private final Path tombstoneDirectory;
+    private final Path deletingDirectory;
+    private final int batchSize;
+    private final CellLookup cells;
+    private final BooleanSupplier leadership;
+    private final ScheduledExecutorService executor;
+
+    private final Counter deletedFiles;
+    private final Counter skippedFiles;
+    private final Counter tombstones;
+
+    /**
+     * @param fs            hdfs文件系统
+     * @param directory     图在hdfs上的目录
+     * @param interval      两次清理之间的间隔
+     * @param batchSize     每次清理最多处理的文件数
+     * @param cells         查询引用文件的hbase单元格
+     * @param leadership    当前实例是否负责清理
+     * @param metricsPrefix 监控指标前缀,为null时不记录指标
+     * @throws IOException 创建墓碑目录失败
+     */
+    HDFSDeletionSweeper(FileSystem fs, Path directory, Duration interval, int batchSize, CellLookup cells,
+                        BooleanSupplier leadership, String metricsPrefix) throws IOException {
+        this.fs = fs;
+        this.directory = directory;
+        this.tombstoneDirectory = new Path(directory, TOMBSTONE_DIRECTORY_NAME);
+        this.deletingDirectory = new Path(directory, DELETING_DIRECTORY_NAME);
+        this.batchSize = batchSize;
+        this.cells = cells;
+        this.leadership = leadership;
+        for (Path dir : new Path[]{tombstoneDirectory, deletingDirectory}) {
+            if (!fs.exists(dir)) {
+                fs.mkdirs(dir);
+            }
+        }
+        if (metricsPrefix != null) {
+            MetricManager metrics = MetricManager.INSTANCE;
+            deletedFiles = metrics.getCounter(metricsPrefix, "hdfs", "delete", "files");
+            skippedFiles = metrics.getCounter(metricsPrefix, "hdfs", "delete", "skipped");
+            tombstones = metrics.getCounter(metricsPrefix, "hdfs", "delete", "tombstones");
+        } else {
+            deletedFiles = null;
+            skippedFiles = null;
+            tombstones = null;
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("HDFSDeletionSweeper[%02d]").build());
+        long intervalMs = interval.toMillis();
+        executor.scheduleWithFixedDelay(this::sweepQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records the files that are no longer referenced once the HBase batch of a commit has been applied. Must be
+     * called before the batch is written. This is a single call to HDFS regardless of the number of files.
+     *
+     * @param deletions 需要删除的文件
+     * @return the tombstone, to be passed to {@link #discard(Path)} if the HBase batch fails; null if nothing was logged
+     * @throws IOException 写入墓碑文件失败
+     */
+    Path log(Collection<Deletion> deletions) throws IOException {
+        if (deletions.isEmpty()) return null;
+        List<String> lines = new ArrayList<>(deletions.size());
+        for (Deletion deletion : deletions) {
+            lines.add(deletion.format());
+        }
+        Path tombstone = write(System.currentTimeMillis(), lines);
+        if (tombstones != null) tombstones.inc();
+        return tombstone;
+    }
+
+    /**
+     * Removes the tombstone of a commit whose HBase batch failed. If this fails too the entries are dropped by the
+     * sweeper after {@link #PENDING_TIMEOUT}, since their cells still exist.
+     */
+    void discard(Path tombstone) {
+        if (tombstone == null) return;
+        try {
+            fs.delete(tombstone, false);
+        } catch (IOException e) {
+            logger.warn(String.format("删除墓碑文件%s失败", tombstone), e);
+        }
+    }
+
+    private Path write(long time, List<String> lines) throws IOException {
+        StringBuilder content = new StringBuilder(lines.size() * 96);
+        for (String line : lines) {
+            content.append(line).append('\n');
+        }
+        Path tombstone = new Path(tombstoneDirectory, time + "-" + UUID.randomUUID());
+        try (FSDataOutputStream out = fs.create(tombstone, false)) {
+            out.write(content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return tombstone;
+    }
+
+    /**
+     * Processes the oldest tombstones until {@code batchSize} entries have been handled or no tombstone is left.
+     *
+     * @return number of deleted files
+     * @throws IOException hdfs或hbase访问失败,未处理完的墓碑文件会在下次清理时继续处理
+     */
+    int sweep() throws IOException {
+        if (!leadership.getAsBoolean()) return 0;
+        FileStatus[] pending;
+        try {
+            pending = fs.listStatus(tombstoneDirectory);
+        } catch (FileNotFoundException e) {
+            //图的hdfs目录已被清空
+            return 0;
+        }
+        //墓碑文件名以写入时间开头,按文件名排序即按时间排序
+        Arrays.sort(pending, Comparator.comparing(status -> status.getPath().getName()));
+        long now = System.currentTimeMillis();
+        int handled = 0;
+        int deleted = 0;
+        for (FileStatus tombstone : pending) {
+            if (handled >= batchSize) break;
+            List<String> lines;
+            try (FSDataInputStream in = fs.open(tombstone.getPath())) {
+                lines = IOUtils.readLines(in, StandardCharsets.UTF_8);
+            } catch (FileNotFoundException e) {
+                continue;
+            }
+            long written = getWriteTime(tombstone);
+            List<Deletion> checked = new ArrayList<>();
+            List<String> remaining = new ArrayList<>();
+            for (String line : lines) {
+                if (line.isEmpty()) continue;
+                if (handled >= batchSize) {
+                    remaining.add(line);
+                    continue;
+                }
+                handled++;
+                Deletion deletion = Deletion.parse(line);
+                if (deletion == null) {
+                    //旧格式的墓碑文件在hbase写入成功后才记录,只比较文件的修改时间
+                    if (deleteIfNotModified(new Path(directory, line), tombstone.getModificationTime())) deleted++;
+                } else {
+                    checked.add(deletion);
+                }
+            }
+            long[] timestamps = checked.isEmpty() ? new long[0] : cells.getTimestamps(checked);
+            for (int i = 0; i < checked.size(); i++) {
+                Deletion deletion = checked.get(i);
+                if (timestamps[i] < 0) {
+                    if (delete(deletion)) deleted++;
+                } else if (deletion.timestamp >= 0 && timestamps[i] > deletion.timestamp) {
+                    //单元格在删除之后又被重新写入,文件仍然被引用
+                    if (skippedFiles != null) skippedFiles.inc();
+                } else if (now - written > PENDING_TIMEOUT.toMillis()) {
+                    //hbase写入失败,删除没有生效
+                    if (skippedFiles != null) skippedFiles.inc();
+                } else {
+                    remaining.add(deletion.format());
+                }
+            }
+            if (!remaining.isEmpty()) {
+                //stop inside the tombstone, the rest keeps the age of the tombstone
+                write(written, remaining);
+            }
+            fs.delete(tombstone.getPath(), false);
+        }
+        cleanUpStaleFiles(new Path(directory, HDFSUploader.UPLOAD_DIRECTORY_NAME), now);
+        cleanUpStaleFiles(deletingDirectory, now);
+        if (deleted > 0) {
+            logger.debug(String.format("从hdfs目录%s删除%s个文件", directory, deleted));
+        }
+        return deleted;
+    }
+
+    private static long getWriteTime(FileStatus tombstone) {
+        String name = tombstone.getPath().getName();
+        int end = name.indexOf('-');
+        try {
+            return Long.parseLong(end < 0 ? name : name.substring(0, end));
+        } catch (NumberFormatException e) {
+            return tombstone.getModificationTime();
+        }
+    }
+
+    private boolean delete(Deletion deletion) throws IOException {
+        Path file = new Path(directory, deletion.fileName);
+        Path moved = new Path(deletingDirectory, UUID.randomUUID() + "_" + deletion.fileName);
+        if (!fs.rename(file, moved)) {
+            //文件不存在
+            return false;
+        }
+        //文件移走之后再确认一次,期间写入的同名附件在hbase写入之后才会替换文件
+        if (cells.getTimestamps(Collections.singletonList(deletion))[0] >= 0) {
+            if (!fs.rename(moved, file)) {
+                //已经有更新的文件
+                fs.delete(moved, false);
+            }
+            if (skippedFiles != null) skippedFiles.inc();
+            return false;
+        }
+        boolean deleted = fs.delete(moved, false);
+        if (deleted && deletedFiles != null) deletedFiles.inc();
+        return deleted;
+    }
+
+    private boolean deleteIfNotModified(Path file, long tombstoneTime) throws IOException {
+        FileStatus status;
+        try {
+            status = fs.getFileStatus(file);
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+        if (status.getModificationTime() > tombstoneTime) {
+            //文件在删除之后又被重新写入
+            if (skippedFiles != null) skippedFiles.inc();
+            return false;
+        }
+        boolean deleted = fs.delete(file, false);
+        if (deleted && deletedFiles != null) deletedFiles.inc();
+        return deleted;
+    }
+
+    private void cleanUpStaleFiles(Path dir, long now) throws IOException {
+        FileStatus[] files;
+        try {
+            files = fs.listStatus(dir);
+        } catch (FileNotFoundException e) {
+            return;
+        }
+        for (FileStatus file : files) {
+            if (now - file.getModificationTime() > STALE_FILE_TIMEOUT.toMillis()) {
+                logger.warn(String.format("删除异常退出的实例遗留的hdfs文件%s", file.getPath()));
+                fs.delete(file.getPath(), false);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    Path getTombstoneDirectory() {
+        return tombstoneDirectory;
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (Throwable e) {
+            logger.warn(String.format("清理hdfs目录%s中待删除的文件失败", directory), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
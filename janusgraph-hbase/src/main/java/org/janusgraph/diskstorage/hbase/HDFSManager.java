@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 public class HDFSManager {
     private static final Logger logger = LoggerFactory.getLogger(HDFSManager.class);
@@ -47,6 +48,51 @@ public class HDFSManager {
         }
     }
 
+    /**
+     * 以流的方式把文件上传到hdfs,每次只在内存中保留一个缓冲区
+     * @param fs
+     * @param directory
+     * @param fileName
+     * @param content 文件内容,只能读取一次
+     * @param length 文件内容的字节数,流提前结束时上传失败
+     * @throws IOException
+     */
+    public static void uploadHdfs(FileSystem fs,Path directory,String fileName,InputStream content,long length) throws IOException {
+        Path filePath = new Path(directory, fileName);
+        try(FSDataOutputStream outputStream = fs.create(filePath, true)) {
+            long copied = IOUtils.copyLarge(content, outputStream, 0, length);
+            if (copied != length) {
+                throw new IOException(String.format("上传%s失败,内容只有%s个字节,预期%s个字节", filePath, copied, length));
+            }
+        } finally {
+            content.close();
+        }
+    }
+
+    /**
+     * 以流的方式读取hdfs具体文件,从offset处开始读取
+     * @param fs
+     * @param directory
+     * @param fileName
+     * @param offset 开始读取的位置
+     * @return 文件不存在时返回null
+     * @throws IOException
+     */
+    public static InputStream openHdfs(FileSystem fs,Path directory,String fileName,long offset) throws IOException {
+        Path filePath = new Path(directory,fileName);
+        if (fs.exists(filePath)) {
+            FSDataInputStream inputStream = fs.open(filePath);
+            try {
+                if (offset > 0) inputStream.seek(offset);
+            } catch (IOException e) {
+                inputStream.close();
+                throw e;
+            }
+            return inputStream;
+        }
+        return null;
+    }
+
     /**
      * 读取hdfs具体文件
      * @param fs
@@ -0,0 +1,303 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.util.stats.MetricManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uploads the HDFS part of large cells in parallel before the HBase mutation of a commit is applied.
+ * 提交事务时把大于阀值的正文、附件并行上传到hdfs
+ * <p>
+ * All files of one call to {@link #upload(List)} are written concurrently on a bounded pool, so the commit waits for
+ * the slowest file instead of the sum of all files. When the pool and its queue are full the committing thread
+ * uploads the file itself. Files with in-memory content are retried with an exponential backoff, streamed content can
+ * only be read once and is not retried.
+ * <p>
+ * File names are fixed per attachment, so an update replaces the file that the committed cell still points to.
+ * Files are therefore first written to a unique name in {@link #UPLOAD_DIRECTORY_NAME} below the graph directory.
+ * Only after the HBase batch succeeded {@link #publish(List)} renames them to their final names, replacing the old
+ * content. If an upload or the HBase batch fails, {@link #discard(List)} removes the uploaded files of this commit and
+ * the files of the committed cells stay untouched. Readers see the old content until the rename, and a process that
+ * dies between the HBase batch and the rename leaves its files in the upload directory.
+ */
+class HDFSUploader implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HDFSUploader.class);
+
+    public static final String UPLOAD_DIRECTORY_NAME = "_uploading";
+
+    private static final int QUEUE_SIZE_PER_THREAD = 16;
+
+    private final FileSystem fs;
+    private final FileContext fileContext;
+    private final Path directory;
+    private final Path uploadDirectory;
+    private final int retries;
+    private final long retryWaitMs;
+    private final ThreadPoolExecutor executor;
+
+    private final Timer uploadTimer;
+    private final Counter uploadBytes;
+    private final Counter uploadRetries;
+    private final Counter uploadFailures;
+
+    /**
+     * @param fs            hdfs文件系统
+     * @param directory     图在hdfs上的目录
+     * @param threads       并行上传的线程数
+     * @param retries       单个文件失败后的重试次数
+     * @param retryWait     第一次重试前的等待时间
+     * @param metricsPrefix 监控指标前缀,为null时不记录指标
+     * @throws IOException 创建上传目录失败
+     */
+    HDFSUploader(FileSystem fs, Path directory, int threads, int retries, Duration retryWait, String metricsPrefix) throws IOException {
+        this.fs = fs;
+        this.fileContext = FileContext.getFileContext(fs.getUri(), fs.getConf());
+        this.directory = directory;
+        this.uploadDirectory = new Path(directory, UPLOAD_DIRECTORY_NAME);
+        if (!fs.exists(uploadDirectory)) {
+            fs.mkdirs(uploadDirectory);
+        }
+        this.retries = retries;
+        this.retryWaitMs = retryWait.toMillis();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(threads * QUEUE_SIZE_PER_THREAD),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("HDFSUploader[%02d]").build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        if (metricsPrefix != null) {
+            MetricManager metrics = MetricManager.INSTANCE;
+            uploadTimer = metrics.getTimer(metricsPrefix, "hdfs", "upload", "time");
+            uploadBytes = metrics.getCounter(metricsPrefix, "hdfs", "upload", "bytes");
+            uploadRetries = metrics.getCounter(metricsPrefix, "hdfs", "upload", "retries");
+            uploadFailures = metrics.getCounter(metricsPrefix, "hdfs", "upload", "failures");
+        } else {
+            uploadTimer = null;
+            uploadBytes = null;
+            uploadRetries = null;
+            uploadFailures = null;
+        }
+    }
+
+    /**
+     * Writes all given files to their upload names and returns once every file has been written.
+     *
+     * @param uploads files of one commit
+     * @throws IOException if at least one file could not be written; none of the uploaded files exist afterwards
+     */
+    void upload(List<Upload> uploads) throws IOException {
+        if (uploads.isEmpty()) return;
+        if (uploads.size() == 1) {
+            Upload upload = uploads.get(0);
+            try {
+                uploadWithRetry(upload);
+            } catch (IOException e) {
+                discard(uploads);
+                throw e;
+            }
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(uploads.size());
+        for (Upload upload : uploads) {
+            futures.add(executor.submit(() -> {
+                uploadWithRetry(upload);
+                return null;
+            }));
+        }
+        //等待所有文件上传结束,失败时才能确定需要清理哪些文件
+        IOException failure = null;
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            try {
+                if (interrupted) {
+                    future.cancel(true);
+                } else {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+                future.cancel(true);
+                failure = addFailure(failure, new InterruptedIOException("上传hdfs时线程被中断"));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                failure = addFailure(failure, cause instanceof IOException ? (IOException) cause : new IOException(cause));
+            }
+        }
+        if (failure != null) {
+            discard(uploads);
+            if (interrupted) Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+
+    private void uploadWithRetry(Upload upload) throws IOException {
+        long start = System.nanoTime();
+        int attempt = 0;
+        while (true) {
+            try {
+                if (upload.content != null) {
+                    HDFSManager.uploadHdfs(fs, uploadDirectory, upload.uploadName, upload.content);
+                } else {
+                    HDFSManager.uploadHdfs(fs, uploadDirectory, upload.uploadName, upload.stream, upload.length);
+                }
+                break;
+            } catch (IOException e) {
+                if (upload.content == null || attempt >= retries || e instanceof InterruptedIOException) {
+                    if (uploadFailures != null) uploadFailures.inc();
+                    throw e;
+                }
+                long wait = retryWaitMs << Math.min(attempt, 16);
+                attempt++;
+                logger.warn(String.format("上传%s/%s失败,%s毫秒后进行第%s次重试", directory, upload.fileName, wait, attempt), e);
+                if (uploadRetries != null) uploadRetries.inc();
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    InterruptedIOException iie = new InterruptedIOException("上传hdfs重试时线程被中断");
+                    iie.addSuppressed(e);
+                    throw iie;
+                }
+            }
+        }
+        if (uploadTimer != null) {
+            uploadTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            uploadBytes.inc(upload.length);
+        }
+    }
+
+    /**
+     * Replaces the files referenced by the committed cells with the uploaded files. Called once the HBase batch of the
+     * commit succeeded, so a failure cannot fail the commit any more: the rename is retried and a file that still
+     * cannot be renamed is logged and left in the upload directory.
+     *
+     * @param uploads files of one commit that were written by {@link #upload(List)}
+     */
+    void publish(List<Upload> uploads) {
+        for (Upload upload : uploads) {
+            Path uploaded = new Path(uploadDirectory, upload.uploadName);
+            Path target = new Path(directory, upload.fileName);
+            int attempt = 0;
+            while (true) {
+                try {
+                    fileContext.rename(uploaded, target, Options.Rename.OVERWRITE);
+                    break;
+                } catch (IOException e) {
+                    if (attempt >= retries || e instanceof InterruptedIOException) {
+                        if (uploadFailures != null) uploadFailures.inc();
+                        logger.error(String.format("把%s替换为%s失败,hbase中已提交的数据仍然指向旧的文件内容", uploaded, target), e);
+                        break;
+                    }
+                    attempt++;
+                    if (uploadRetries != null) uploadRetries.inc();
+                    try {
+                        Thread.sleep(retryWaitMs << Math.min(attempt - 1, 16));
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        logger.error(String.format("把%s替换为%s时线程被中断", uploaded, target), e);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the uploaded files of a commit that failed. The files referenced by committed cells are not touched.
+     *
+     * @param uploads files of one commit
+     */
+    void discard(List<Upload> uploads) {
+        for (Upload upload : uploads) {
+            try {
+                HDFSManager.deleteHdfs(fs, uploadDirectory, upload.uploadName);
+            } catch (IOException e) {
+                logger.warn(String.format("清理上传失败的hdfs文件%s/%s失败", uploadDirectory, upload.uploadName), e);
+            }
+        }
+    }
+
+    private static IOException addFailure(IOException failure, IOException e) {
+        if (failure == null) return e;
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Creates the upload for the hdfs part of the given entry.
+     *
+     * @return null if the entry has no content that needs to be written to hdfs
+     */
+    static Upload of(Entry e) {
+        if (e.getHdfsFileName() == null) return null;
+        if (e.getHdfsContent() != null) {
+            return new Upload(e.getHdfsFileName(), e.getHdfsContent(), null, e.getHdfsContent().length);
+        } else if (e.getHdfsContentStream() != null) {
+            return new Upload(e.getHdfsFileName(), null, e.getHdfsContentStream(), e.getHdfsContentLength());
+        }
+        return null;
+    }
+
+    /**
+     * One file to be written to hdfs, either from memory or from a stream that can be read once.
+     */
+    static final class Upload {
+
+        final String fileName;
+        //在上传目录中的唯一文件名,hbase写入成功后才改名为fileName
+        final String uploadName;
+        final byte[] content;
+        final InputStream stream;
+        final long length;
+
+        private Upload(String fileName, byte[] content, InputStream stream, long length) {
+            this.fileName = fileName;
+            this.uploadName = UUID.randomUUID() + "_" + fileName;
+            this.content = content;
+            this.stream = stream;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Row;
+import org.janusgraph.util.stats.MetricManager;
+import org.janusgraph.util.system.IOUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups the rows of a commit by region and writes the groups as parallel batches. 按region分组并行写入
+ * <p>
+ * A single batch returns when its slowest region server has answered, and a commit touching many regions waits for
+ * them one retry round after the other. Here every region is its own batch on a bounded pool, the committing thread
+ * writes the last region itself. The latency of each region is recorded in a timer named
+ * {@code <metrics-prefix>.hbase.region.<encoded region name>.write}, which shows hot or slow regions.
+ * The region of a row is looked up in the region cache of the connection; if the region moved in the meantime the
+ * batch is still routed correctly by the client.
+ */
+class RegionParallelMutationWriter implements HBaseMutationWriter {
+
+    private static final int QUEUE_SIZE_PER_THREAD = 16;
+
+    private final ConnectionMask cnx;
+    private final String tableName;
+    private final String metricsPrefix;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param cnx           hbase连接
+     * @param tableName     写入的表
+     * @param threads       并行写入的线程数
+     * @param metricsPrefix 监控指标前缀,为null时不记录指标
+     */
+    RegionParallelMutationWriter(ConnectionMask cnx, String tableName, int threads, String metricsPrefix) {
+        this.cnx = cnx;
+        this.tableName = tableName;
+        this.metricsPrefix = metricsPrefix;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(threads * QUEUE_SIZE_PER_THREAD),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("HBaseRegionWriter[%02d]").build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return the rows by encoded region name, in the order of the rows
+     */
+    static Map<String, List<Row>> groupByRegion(List<Row> rows, RegionLocator locator) throws IOException {
+        final Map<String, List<Row>> regions = new LinkedHashMap<>();
+        for (Row row : rows) {
+            final String region = locator.getRegionLocation(row.getRow()).getRegionInfo().getEncodedName();
+            regions.computeIfAbsent(region, r -> new ArrayList<>()).add(row);
+        }
+        return regions;
+    }
+
+    @Override
+    public void write(List<Row> rows) throws IOException, InterruptedException {
+        if (rows.isEmpty()) return;
+        final Map<String, List<Row>> regions;
+        try (RegionLocator locator = cnx.getRegionLocator(tableName)) {
+            regions = groupByRegion(rows, locator);
+        }
+
+        final Iterator<Map.Entry<String, List<Row>>> iterator = regions.entrySet().iterator();
+        final List<Future<?>> futures = new ArrayList<>(regions.size() - 1);
+        Map.Entry<String, List<Row>> region = iterator.next();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, List<Row>> submitted = region;
+            futures.add(executor.submit(() -> {
+                writeRegion(submitted.getKey(), submitted.getValue());
+                return null;
+            }));
+            region = iterator.next();
+        }
+
+        IOException failure = null;
+        try {
+            writeRegion(region.getKey(), region.getValue());
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new InterruptedIOException("写入hbase时线程被中断");
+        }
+        //等待所有region写入结束,任一region失败则整个提交失败
+        boolean interrupted = Thread.interrupted();
+        for (Future<?> future : futures) {
+            try {
+                if (interrupted) {
+                    future.cancel(true);
+                } else {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+                future.cancel(true);
+                failure = addFailure(failure, new InterruptedIOException("写入hbase时线程被中断"));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                failure = addFailure(failure, cause instanceof IOException ? (IOException) cause : new IOException(cause));
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (failure != null) throw failure;
+    }
+
+    private void writeRegion(String region, List<Row> rows) throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        TableMask table = null;
+        try {
+            table = cnx.getTable(tableName);
+            table.batch(rows, new Object[rows.size()]);
+        } finally {
+            IOUtils.closeQuietly(table);
+        }
+        if (metricsPrefix != null) {
+            MetricManager.INSTANCE.getTimer(metricsPrefix, "hbase", "region", region, "write")
+                .update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static IOException addFailure(IOException failure, IOException e) {
+        if (failure == null) return e;
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
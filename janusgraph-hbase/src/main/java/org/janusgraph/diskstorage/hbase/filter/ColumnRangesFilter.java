@@ -0,0 +1,212 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase.filter;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.exceptions.DeserializationException;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Returns the columns of a row that fall into any of several column ranges, at most a given number per range.
+ * 在regionserver上一次计算多个列范围及每个范围的limit
+ * <p>
+ * It replaces a {@code FilterList} of {@code ColumnRangeFilter}s and {@code ColumnPaginationFilter}s. That list asks
+ * every sub-filter about every cell and keeps sending cells of a range after its limit is reached when another range
+ * still accepts cells further on. This filter evaluates all ranges in one pass, includes only the latest version of a
+ * column and seeks directly to the start of the next range that still needs columns. When no range needs columns any
+ * more it skips the rest of the row. The limits are counted per row, i.e. per vertex.
+ * <p>
+ * The filter only depends on HBase, it is packaged into the {@code filter} jar of this module, which has to be on the
+ * classpath of every region server before it is enabled with {@code storage.hbase.server-side-filter}.
+ */
+public class ColumnRangesFilter extends FilterBase {
+
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private final byte[][] starts;
+    // an empty end is unbounded
+    private final byte[][] ends;
+    private final boolean[] endInclusive;
+    private final int[] limits;
+    // number of columns returned per range in the current row
+    private final int[] counts;
+    // the column to seek to after SEEK_NEXT_USING_HINT
+    private byte[] hint;
+
+    private ColumnRangesFilter(byte[][] starts, byte[][] ends, boolean[] endInclusive, int[] limits) {
+        this.starts = starts;
+        this.ends = ends;
+        this.endInclusive = endInclusive;
+        this.limits = limits;
+        this.counts = new int[starts.length];
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private final List<byte[]> starts = new ArrayList<>();
+        private final List<byte[]> ends = new ArrayList<>();
+        private final List<Boolean> endInclusive = new ArrayList<>();
+        private final List<Integer> limits = new ArrayList<>();
+
+        /**
+         * @param start        the first column of the range, inclusive; empty or null for the first column of the row
+         * @param end          the last column of the range; empty or null for the end of the row
+         * @param endInclusive whether the end column itself belongs to the range
+         * @param limit        the maximum number of columns returned for this range, {@link #NO_LIMIT} for all
+         */
+        public Builder addRange(byte[] start, byte[] end, boolean endInclusive, int limit) {
+            if (limit < 0) throw new IllegalArgumentException("Invalid limit: " + limit);
+            starts.add(start == null ? new byte[0] : start);
+            ends.add(end == null ? new byte[0] : end);
+            this.endInclusive.add(endInclusive);
+            limits.add(limit);
+            return this;
+        }
+
+        public ColumnRangesFilter build() {
+            if (starts.isEmpty()) throw new IllegalArgumentException("At least one column range is required");
+            final int size = starts.size();
+            final boolean[] inclusive = new boolean[size];
+            final int[] limit = new int[size];
+            for (int i = 0; i < size; i++) {
+                inclusive[i] = endInclusive.get(i);
+                limit[i] = limits.get(i);
+            }
+            return new ColumnRangesFilter(starts.toArray(new byte[size][]), ends.toArray(new byte[size][]), inclusive, limit);
+        }
+    }
+
+    public int getNumRanges() {
+        return starts.length;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(counts, 0);
+    }
+
+    private boolean isActive(int range) {
+        return counts[range] < limits[range];
+    }
+
+    private boolean isAfterEnd(int range, byte[] qualifier, int offset, int length) {
+        if (ends[range].length == 0) return false;
+        final int cmp = Bytes.compareTo(qualifier, offset, length, ends[range], 0, ends[range].length);
+        return cmp > 0 || (cmp == 0 && !endInclusive[range]);
+    }
+
+    // HBase 2 calls filterKeyValue from the default implementation of filterCell, so this works with both versions
+    @Override
+    public ReturnCode filterKeyValue(Cell cell) {
+        final byte[] qualifier = cell.getQualifierArray();
+        final int offset = cell.getQualifierOffset();
+        final int length = cell.getQualifierLength();
+
+        boolean included = false;
+        byte[] next = null;
+        for (int i = 0; i < starts.length; i++) {
+            if (!isActive(i) || isAfterEnd(i, qualifier, offset, length)) continue;
+            if (Bytes.compareTo(qualifier, offset, length, starts[i], 0, starts[i].length) < 0) {
+                // range still ahead
+                if (next == null || Bytes.compareTo(starts[i], next) < 0) next = starts[i];
+            } else {
+                // the column counts for every range it belongs to
+                counts[i]++;
+                included = true;
+            }
+        }
+        // older versions of an included column are never needed
+        if (included) return ReturnCode.INCLUDE_AND_NEXT_COL;
+        if (next == null) return ReturnCode.NEXT_ROW;
+        hint = next;
+        return ReturnCode.SEEK_NEXT_USING_HINT;
+    }
+
+    @Override
+    public Cell getNextCellHint(Cell cell) {
+        return KeyValueUtil.createFirstOnRow(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength(),
+            cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength(), hint, 0, hint.length);
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(starts.length);
+            for (int i = 0; i < starts.length; i++) {
+                writeBytes(out, starts[i]);
+                writeBytes(out, ends[i]);
+                out.writeBoolean(endInclusive[i]);
+                out.writeInt(limits[i]);
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Called by HBase through reflection to deserialize the filter on the region server.
+     */
+    public static ColumnRangesFilter parseFrom(byte[] pbBytes) throws DeserializationException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(pbBytes))) {
+            final Builder builder = builder();
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                builder.addRange(readBytes(in), readBytes(in), in.readBoolean(), in.readInt());
+            }
+            return builder.build();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new DeserializationException(e);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(getClass().getSimpleName()).append('[');
+        for (int i = 0; i < starts.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('[').append(Bytes.toStringBinary(starts[i])).append(',').append(Bytes.toStringBinary(ends[i]))
+                .append(endInclusive[i] ? ']' : ')');
+            if (limits[i] != NO_LIMIT) sb.append('@').append(limits[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -14,7 +14,6 @@
 
 package org.janusgraph.hadoop.formats.hbase;
 
-import org.janusgraph.graphdb.database.idassigner.Preconditions;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
@@ -22,13 +21,10 @@ import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.janusgraph.diskstorage.Entry;
 import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.hbase.HBaseCellGetter;
 import org.janusgraph.diskstorage.util.StaticArrayBuffer;
-import org.janusgraph.diskstorage.util.StaticArrayEntry;
 
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.NavigableMap;
 
 public class HBaseBinaryRecordReader  extends RecordReader<StaticBuffer, Iterable<Entry>> {
 
@@ -58,7 +54,7 @@ public class HBaseBinaryRecordReader  extends RecordReader<StaticBuffer, Iterabl
 
     @Override
     public Iterable<Entry> getCurrentValue() throws IOException, InterruptedException {
-        return new HBaseMapIterable(reader.getCurrentValue().getMap().get(edgestoreFamilyBytes));
+        return HBaseCellGetter.NO_METADATA.toEntryList(reader.getCurrentValue().rawCells(), edgestoreFamilyBytes);
     }
 
     @Override
@@ -70,48 +66,4 @@ public class HBaseBinaryRecordReader  extends RecordReader<StaticBuffer, Iterabl
     public float getProgress() throws IOException, InterruptedException {
         return this.reader.getProgress();
     }
-
-    private static class HBaseMapIterable implements Iterable<Entry> {
-
-        private final NavigableMap<byte[], NavigableMap<Long, byte[]>> columnValues;
-
-        public HBaseMapIterable(final NavigableMap<byte[], NavigableMap<Long, byte[]>> columnValues) {
-            Preconditions.checkNotNull(columnValues);
-            this.columnValues = columnValues;
-        }
-
-        @Override
-        public Iterator<Entry> iterator() {
-            return new HBaseMapIterator(columnValues.entrySet().iterator());
-        }
-
-    }
-
-    private static class HBaseMapIterator implements Iterator<Entry> {
-
-        private final Iterator<Map.Entry<byte[], NavigableMap<Long, byte[]>>> iterator;
-
-        public HBaseMapIterator(final Iterator<Map.Entry<byte[], NavigableMap<Long, byte[]>>> iterator) {
-            this.iterator = iterator;
-        }
-
-        @Override
-        public boolean hasNext() {
-            return iterator.hasNext();
-        }
-
-        @Override
-        public Entry next() {
-            final Map.Entry<byte[], NavigableMap<Long, byte[]>> entry = iterator.next();
-            byte[] col = entry.getKey();
-            byte[] val = entry.getValue().lastEntry().getValue();
-            return StaticArrayEntry.of(new StaticArrayBuffer(col), new StaticArrayBuffer(val));
-        }
-
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
-        }
-    }
 }
-
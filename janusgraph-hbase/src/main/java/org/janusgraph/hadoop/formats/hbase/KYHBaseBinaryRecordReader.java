@@ -14,22 +14,19 @@
 
 package org.janusgraph.hadoop.formats.hbase;
 
-import org.apache.commons.collections.iterators.EmptyIterator;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.EntryList;
 import org.janusgraph.diskstorage.PropertyEntry;
 import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.hbase.HBaseCellGetter;
 import org.janusgraph.diskstorage.util.StaticArrayBuffer;
-import org.janusgraph.diskstorage.util.StaticArrayEntry;
 
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.NavigableMap;
 
 public class KYHBaseBinaryRecordReader extends RecordReader<StaticBuffer, PropertyEntry> {
 
@@ -65,26 +62,24 @@ public class KYHBaseBinaryRecordReader extends RecordReader<StaticBuffer, Proper
 
     @Override
     public PropertyEntry getCurrentValue() throws IOException, InterruptedException {
-        HBaseMapIterable edgeEntries = new HBaseMapIterable(reader.getCurrentValue().getMap().get(edgestoreFamilyBytes));
-        PropertyEntry propertyEntry=new PropertyEntry(edgeEntries);
+        //只取一次rawCells, 各列族的Entry直接从Cell构建
+        final Cell[] cells = reader.getCurrentValue().rawCells();
+        PropertyEntry propertyEntry=new PropertyEntry(HBaseCellGetter.NO_METADATA.toEntryList(cells, edgestoreFamilyBytes));
         if(ppFamilyBytes!=null) {
-            NavigableMap<byte[], NavigableMap<Long, byte[]>> propertyPropeties = reader.getCurrentValue().getMap().get(ppFamilyBytes);
-            if (propertyPropeties != null&&propertyPropeties.size()>0) {
-                HBaseMapIterable ppEntries = new HBaseMapIterable(propertyPropeties);
+            EntryList ppEntries = HBaseCellGetter.NO_METADATA.toEntryList(cells, ppFamilyBytes);
+            if (!ppEntries.isEmpty()) {
                 propertyEntry.setPropertyProperties(ppEntries);
             }
         }
         if(mediaFamilyBytes!=null) {
-            NavigableMap<byte[], NavigableMap<Long, byte[]>> medias = reader.getCurrentValue().getMap().get(mediaFamilyBytes);
-            if (medias != null&&medias.size()>0) {
-                HBaseMapIterable entries = new HBaseMapIterable(medias);
+            EntryList entries = HBaseCellGetter.NO_METADATA.toEntryList(cells, mediaFamilyBytes);
+            if (!entries.isEmpty()) {
                 propertyEntry.setMedias(entries);
             }
         }
         if(noteFamilyBytes!=null) {
-            NavigableMap<byte[], NavigableMap<Long, byte[]>> notes = reader.getCurrentValue().getMap().get(noteFamilyBytes);
-            if (notes != null&&notes.size()>0) {
-                HBaseMapIterable entries = new HBaseMapIterable(notes);
+            EntryList entries = HBaseCellGetter.NO_METADATA.toEntryList(cells, noteFamilyBytes);
+            if (!entries.isEmpty()) {
                 propertyEntry.setNotes(entries);
             }
         }
@@ -100,51 +95,4 @@ public class KYHBaseBinaryRecordReader extends RecordReader<StaticBuffer, Proper
     public float getProgress() throws IOException, InterruptedException {
         return this.reader.getProgress();
     }
-
-    private static class HBaseMapIterable implements Iterable<Entry> {
-
-        private final NavigableMap<byte[], NavigableMap<Long, byte[]>> columnValues;
-
-        public HBaseMapIterable(final NavigableMap<byte[], NavigableMap<Long, byte[]>> columnValues) {
-            this.columnValues = columnValues;
-        }
-
-        @Override
-        public Iterator<Entry> iterator() {
-            if(columnValues!=null) {
-                return new HBaseMapIterator(columnValues.entrySet().iterator());
-            }else{
-                return EmptyIterator.INSTANCE;
-            }
-        }
-
-    }
-
-    private static class HBaseMapIterator implements Iterator<Entry> {
-
-        private final Iterator<Map.Entry<byte[], NavigableMap<Long, byte[]>>> iterator;
-
-        public HBaseMapIterator(final Iterator<Map.Entry<byte[], NavigableMap<Long, byte[]>>> iterator) {
-            this.iterator = iterator;
-        }
-
-        @Override
-        public boolean hasNext() {
-            return iterator.hasNext();
-        }
-
-        @Override
-        public Entry next() {
-            final Map.Entry<byte[], NavigableMap<Long, byte[]>> entry = iterator.next();
-            byte[] col = entry.getKey();
-            byte[] val = entry.getValue().lastEntry().getValue();
-            return StaticArrayEntry.of(new StaticArrayBuffer(col), new StaticArrayBuffer(val));
-        }
-
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
-        }
-    }
 }
-
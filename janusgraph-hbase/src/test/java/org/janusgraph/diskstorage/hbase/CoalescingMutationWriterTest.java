@@ -0,0 +1,125 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CoalescingMutationWriterTest {
+
+    private static List<Row> rows(String key) {
+        return Collections.singletonList(new Put(Bytes.toBytes(key)).addColumn(Bytes.toBytes("e"), Bytes.toBytes(1), Bytes.toBytes(1)));
+    }
+
+    @Test
+    public void testConcurrentCommitsShareFlush() throws Exception {
+        final BufferedMutator mutator = mock(BufferedMutator.class);
+        final List<List<Mutation>> mutated = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            final List<Mutation> mutations = invocation.getArgument(0);
+            mutated.add(new ArrayList<>(mutations));
+            return null;
+        }).when(mutator).mutate(anyList());
+        final CountDownLatch flushing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger flushes = new AtomicInteger();
+        final List<Row> failingRows = rows("c");
+        doAnswer(invocation -> {
+            if (flushes.getAndIncrement() == 0) {
+                flushing.countDown();
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+                return null;
+            }
+            //The second flush carries b and c, only the row of c fails
+            throw new RetriesExhaustedWithDetailsException(Collections.<Throwable>singletonList(new IOException("region busy")),
+                failingRows, Collections.singletonList("server:16020"));
+        }).when(mutator).flush();
+
+        final CoalescingMutationWriter writer = new CoalescingMutationWriter(mutator, null);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final Future<?> a = executor.submit(() -> {
+                writer.write(rows("a"));
+                return null;
+            });
+            assertTrue(flushing.await(10, TimeUnit.SECONDS));
+            final Future<?> b = executor.submit(() -> {
+                writer.write(rows("b"));
+                return null;
+            });
+            final Future<?> c = executor.submit(() -> {
+                writer.write(failingRows);
+                return null;
+            });
+            //Wait until b and c are queued behind the first flush
+            while (writer.getQueuedCommits() < 2) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            a.get(10, TimeUnit.SECONDS);
+            b.get(10, TimeUnit.SECONDS);
+            final Exception failure = assertThrows(Exception.class, () -> c.get(10, TimeUnit.SECONDS));
+            assertTrue(failure.getCause() instanceof IOException);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2, flushes.get());
+        assertEquals(2, mutated.size());
+        assertEquals(1, mutated.get(0).size());
+        assertEquals(2, mutated.get(1).size());
+        writer.close();
+        verify(mutator, times(1)).close();
+    }
+
+    @Test
+    public void testFailedFlushFailsAllCommits() throws Exception {
+        final BufferedMutator mutator = mock(BufferedMutator.class);
+        doAnswer(invocation -> {
+            throw new IOException("connection closed");
+        }).when(mutator).flush();
+        final CoalescingMutationWriter writer = new CoalescingMutationWriter(mutator, null);
+        assertThrows(IOException.class, () -> writer.write(rows("a")));
+        //An empty commit has nothing to write
+        writer.write(Collections.emptyList());
+        verify(mutator, times(1)).flush();
+    }
+}
@@ -0,0 +1,165 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.janusgraph.diskstorage.Backend;
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.configuration.ModifiableConfiguration;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyColumnValueStore;
+import org.janusgraph.diskstorage.keycolumnvalue.KeySlicesIterator;
+import org.janusgraph.diskstorage.keycolumnvalue.MultiSlicesQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.diskstorage.util.RecordIterator;
+import org.janusgraph.diskstorage.util.StandardBaseTransactionConfig;
+import org.janusgraph.diskstorage.util.StaticArrayBuffer;
+import org.janusgraph.diskstorage.util.StaticArrayEntry;
+import org.janusgraph.diskstorage.util.time.TimestampProviders;
+import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares limited multi-range slices of wide rows on a local mini cluster, evaluated by {@link
+ * org.janusgraph.diskstorage.hbase.filter.ColumnRangesFilter} on the region server or by the filter lists of HBase.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ColumnRangesFilterBenchmark {
+
+    private static final int ROWS = 100;
+    private static final int VALUE_SIZE = 64;
+
+    @Param({"true", "false"})
+    boolean serverSideFilter;
+
+    @Param({"1000", "10000"})
+    int columns;
+
+    HBaseTestingUtility hbase;
+    HBaseStoreManager manager;
+    KeyColumnValueStore store;
+    List<StaticBuffer> keys;
+    List<SliceQuery> queries;
+
+    @Setup
+    public void setUp() throws Exception {
+        hbase = new HBaseTestingUtility();
+        hbase.startMiniCluster();
+        ModifiableConfiguration config = GraphDatabaseConfiguration.buildGraphConfiguration();
+        config.set(GraphDatabaseConfiguration.STORAGE_BACKEND, "hbase");
+        config.set(GraphDatabaseConfiguration.STORAGE_HOSTS, new String[]{"localhost"});
+        config.set(GraphDatabaseConfiguration.STORAGE_PORT, hbase.getZkCluster().getClientPort());
+        config.set(GraphDatabaseConfiguration.TIMESTAMP_PROVIDER, HBaseStoreManager.PREFERRED_TIMESTAMPS);
+        config.set(HBaseStoreManager.SERVER_SIDE_FILTER, serverSideFilter);
+        manager = new HBaseStoreManager(config);
+        store = manager.openDatabase(Backend.EDGESTORE_NAME);
+
+        keys = new ArrayList<>(ROWS);
+        StoreTransaction tx = beginTransaction();
+        byte[] value = new byte[VALUE_SIZE];
+        for (int row = 0; row < ROWS; row++) {
+            keys.add(StaticArrayBuffer.of(Bytes.toBytes("v" + row)));
+            List<Entry> additions = new ArrayList<>(columns);
+            for (int column = 0; column < columns; column++) {
+                additions.add(StaticArrayEntry.of(BufferUtil.getIntBuffer(column), StaticArrayBuffer.of(value)));
+            }
+            store.mutate(keys.get(row), additions, KeyColumnValueStore.NO_DELETIONS, tx);
+        }
+        tx.commit();
+
+        //The first edges of three edge labels of a vertex, like a limited vertex centric query
+        int third = columns / 3;
+        queries = Arrays.asList(
+            new SliceQuery(BufferUtil.getIntBuffer(0), BufferUtil.getIntBuffer(third)).setLimit(10),
+            new SliceQuery(BufferUtil.getIntBuffer(third), BufferUtil.getIntBuffer(2 * third)).setLimit(10),
+            new SliceQuery(BufferUtil.getIntBuffer(2 * third), BufferUtil.getIntBuffer(columns)).setLimit(10));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        manager.clearStorage();
+        manager.close();
+        hbase.shutdownMiniCluster();
+    }
+
+    private StoreTransaction beginTransaction() throws BackendException {
+        return manager.beginTransaction(StandardBaseTransactionConfig.of(TimestampProviders.MILLI));
+    }
+
+    @Benchmark
+    public void multiGet(Blackhole blackhole) throws BackendException {
+        StoreTransaction tx = beginTransaction();
+        for (SliceQuery query : queries) {
+            for (Map.Entry<StaticBuffer, EntryList> entry : store.getSlice(keys, query, tx).entrySet()) {
+                blackhole.consume(entry.getValue().size());
+            }
+        }
+        tx.commit();
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) throws BackendException, IOException {
+        StoreTransaction tx = beginTransaction();
+        try (KeySlicesIterator rows = store.getKeys(new MultiSlicesQuery(queries), tx)) {
+            while (rows.hasNext()) {
+                blackhole.consume(rows.next());
+                for (RecordIterator<Entry> entries : rows.getEntries().values()) {
+                    while (entries.hasNext()) {
+                        blackhole.consume(entries.next());
+                    }
+                }
+            }
+        }
+        tx.commit();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(ColumnRangesFilterBenchmark.class.getSimpleName())
+            .warmupIterations(5)
+            .measurementIterations(5)
+            .build();
+        new Runner(options).run();
+    }
+}
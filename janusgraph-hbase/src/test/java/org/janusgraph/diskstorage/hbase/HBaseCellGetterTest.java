@@ -0,0 +1,74 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.EntryMetaData;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HBaseCellGetterTest {
+
+    private static final byte[] ROW = Bytes.toBytes("row");
+    private static final byte[] EDGES = Bytes.toBytes("e");
+    private static final byte[] NOTES = Bytes.toBytes("n");
+
+    private static Cell cell(byte[] family, int column, long timestamp, int value) {
+        return new KeyValue(ROW, family, Bytes.toBytes(column), timestamp, Bytes.toBytes(value));
+    }
+
+    @Test
+    public void testLatestVersionOfFamily() {
+        //sorted as in a result: by family, qualifier and descending timestamp
+        Cell[] cells = new Cell[]{
+            cell(EDGES, 1, 20, 12),
+            cell(EDGES, 1, 10, 11),
+            cell(EDGES, 2, 10, 21),
+            cell(EDGES, 3, 30, 33),
+            cell(EDGES, 3, 20, 32),
+            cell(EDGES, 3, 10, 31),
+            cell(NOTES, 1, 10, 91)
+        };
+        HBaseCellGetter getter = new HBaseCellGetter(new EntryMetaData[]{EntryMetaData.TIMESTAMP});
+        EntryList entries = getter.toEntryList(cells, EDGES);
+        assertEquals(3, entries.size());
+        int[] values = {12, 21, 33};
+        long[] timestamps = {20, 10, 30};
+        int i = 0;
+        for (Entry entry : entries) {
+            assertEquals(i + 1, entry.getColumn().getInt(0));
+            assertEquals(values[i], entry.getValue().getInt(0));
+            assertEquals(timestamps[i], entry.getMetaData().get(EntryMetaData.TIMESTAMP));
+            i++;
+        }
+
+        EntryList notes = HBaseCellGetter.NO_METADATA.toEntryList(cells, NOTES);
+        assertEquals(1, notes.size());
+        assertEquals(91, notes.get(0).getValue().getInt(0));
+        assertTrue(notes.get(0).getMetaData().isEmpty());
+    }
+
+    @Test
+    public void testMissingFamily() {
+        assertTrue(HBaseCellGetter.NO_METADATA.toEntryList(new Cell[0], EDGES).isEmpty());
+        assertTrue(HBaseCellGetter.NO_METADATA.toEntryList(new Cell[]{cell(NOTES, 1, 10, 91)}, EDGES).isEmpty());
+    }
+}
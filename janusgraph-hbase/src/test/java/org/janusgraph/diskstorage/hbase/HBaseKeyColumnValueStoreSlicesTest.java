@@ -0,0 +1,85 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.diskstorage.util.StaticArrayBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HBaseKeyColumnValueStoreSlicesTest {
+
+    private static final byte[] ROW = Bytes.toBytes("row");
+    private static final byte[] EDGES = Bytes.toBytes("e");
+
+    private static EntryList row(int... columns) {
+        Cell[] cells = new Cell[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            cells[i] = new KeyValue(ROW, EDGES, Bytes.toBytes(columns[i]), 10, Bytes.toBytes(columns[i] * 10));
+        }
+        return HBaseCellGetter.NO_METADATA.toEntryList(cells, EDGES);
+    }
+
+    private static SliceQuery slice(int start, int end) {
+        return new SliceQuery(StaticArrayBuffer.of(Bytes.toBytes(start)), StaticArrayBuffer.of(Bytes.toBytes(end)));
+    }
+
+    private static void assertColumns(EntryList entries, int... columns) {
+        assertEquals(columns.length, entries.size());
+        for (int i = 0; i < columns.length; i++) {
+            assertEquals(columns[i], entries.get(i).getColumn().getInt(0));
+            assertEquals(columns[i] * 10, entries.get(i).getValue().getInt(0));
+        }
+    }
+
+    @Test
+    public void testSplitRowByQuery() {
+        //the union of the queries as returned by the MUST_PASS_ONE filter list
+        EntryList entries = row(1, 2, 3, 5, 8, 13, 21);
+        SliceQuery low = slice(1, 5);
+        SliceQuery overlapping = slice(3, 14);
+        SliceQuery limited = slice(2, 100).setLimit(2);
+        SliceQuery inclusive = slice(8, 21);
+        inclusive.setMaxColumnInclusive(true);
+        SliceQuery missing = slice(30, 40);
+
+        Map<SliceQuery, EntryList> slices = HBaseKeyColumnValueStore.getSlices(entries,
+            Arrays.asList(low, overlapping, limited, inclusive, missing));
+        assertEquals(5, slices.size());
+        assertColumns(slices.get(low), 1, 2, 3);
+        assertColumns(slices.get(overlapping), 3, 5, 8, 13);
+        assertColumns(slices.get(limited), 2, 3);
+        assertColumns(slices.get(inclusive), 8, 13, 21);
+        assertTrue(slices.get(missing).isEmpty());
+    }
+
+    @Test
+    public void testUnboundedSlice() {
+        SliceQuery everything = new SliceQuery(BufferUtil.zeroBuffer(0), BufferUtil.zeroBuffer(0));
+        Map<SliceQuery, EntryList> slices = HBaseKeyColumnValueStore.getSlices(row(4, 7), Arrays.asList(everything));
+        assertColumns(slices.get(everything), 4, 7);
+        assertTrue(HBaseKeyColumnValueStore.getSlices(EntryList.EMPTY_LIST, Arrays.asList(everything)).get(everything).isEmpty());
+    }
+}
@@ -0,0 +1,295 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.janusgraph.diskstorage.Backend;
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.configuration.ModifiableConfiguration;
+import org.janusgraph.diskstorage.hbase.filter.ColumnRangesFilter;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyColumnValueStore;
+import org.janusgraph.diskstorage.keycolumnvalue.KeySlicesIterator;
+import org.janusgraph.diskstorage.keycolumnvalue.MultiSlicesQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.diskstorage.util.RecordIterator;
+import org.janusgraph.diskstorage.util.StandardBaseTransactionConfig;
+import org.janusgraph.diskstorage.util.StaticArrayBuffer;
+import org.janusgraph.diskstorage.util.StaticArrayEntry;
+import org.janusgraph.diskstorage.util.time.TimestampProviders;
+import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Runs slice queries against the region server of a local mini cluster, once with {@link ColumnRangesFilter} and once
+ * with the filter lists evaluated by HBase itself, the results have to be the same.
+ */
+public class HBaseServerSideFilterTest {
+
+    private static final String TABLE = "ranges";
+    private static final int COLUMNS = 50;
+    private static final int SHORT_ROW_COLUMNS = 5;
+
+    private static HBaseTestingUtility hbase;
+
+    private HBaseStoreManager clientSideManager;
+    private HBaseStoreManager serverSideManager;
+    private final List<StaticBuffer> keys = new ArrayList<>();
+
+    private final SliceQuery limited = slice(0, 10).setLimit(3);
+    private final SliceQuery unlimited = slice(5, 20);
+    private final SliceQuery inclusive = inclusive(slice(30, 40)).setLimit(4);
+    private final SliceQuery beyondRow = slice(45, 60).setLimit(100);
+    private final SliceQuery missing = slice(100, 200);
+    private final SliceQuery overlapping = slice(8, 12).setLimit(2);
+    private final List<SliceQuery> queries = Arrays.asList(limited, unlimited, inclusive, beyondRow, missing, overlapping);
+
+    @BeforeAll
+    public static void startMiniCluster() throws Exception {
+        hbase = new HBaseTestingUtility();
+        hbase.startMiniCluster();
+    }
+
+    @AfterAll
+    public static void shutdownMiniCluster() throws Exception {
+        hbase.shutdownMiniCluster();
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        clientSideManager = open(false);
+        serverSideManager = open(true);
+        for (int i = 0; i < 5; i++) {
+            keys.add(StaticArrayBuffer.of(Bytes.toBytes("k" + i)));
+        }
+        //the even columns get a second version, the older versions are flushed to a store file so the filter sees
+        //them next to the newer ones in the memstore
+        write(1);
+        hbase.flush(TableName.valueOf(TABLE));
+        Thread.sleep(5);
+        write(2);
+    }
+
+    @AfterEach
+    public void tearDown() throws BackendException {
+        clientSideManager.clearStorage();
+        clientSideManager.close();
+        serverSideManager.close();
+    }
+
+    private static HBaseStoreManager open(boolean serverSideFilter) throws BackendException {
+        ModifiableConfiguration config = GraphDatabaseConfiguration.buildGraphConfiguration();
+        config.set(GraphDatabaseConfiguration.STORAGE_BACKEND, "hbase");
+        config.set(GraphDatabaseConfiguration.STORAGE_HOSTS, new String[]{"localhost"});
+        config.set(GraphDatabaseConfiguration.STORAGE_PORT, hbase.getZkCluster().getClientPort());
+        config.set(GraphDatabaseConfiguration.TIMESTAMP_PROVIDER, HBaseStoreManager.PREFERRED_TIMESTAMPS);
+        config.set(GraphDatabaseConfiguration.DROP_ON_CLEAR, false);
+        config.set(HBaseStoreManager.HBASE_TABLE, TABLE);
+        config.set(HBaseStoreManager.SERVER_SIDE_FILTER, serverSideFilter);
+        return new HBaseStoreManager(config);
+    }
+
+    private static StoreTransaction beginTransaction(HBaseStoreManager manager) throws BackendException {
+        return manager.beginTransaction(StandardBaseTransactionConfig.of(TimestampProviders.MILLI));
+    }
+
+    private static SliceQuery slice(int start, int end) {
+        return new SliceQuery(BufferUtil.getIntBuffer(start), BufferUtil.getIntBuffer(end));
+    }
+
+    private static SliceQuery inclusive(SliceQuery query) {
+        query.setMaxColumnInclusive(true);
+        return query;
+    }
+
+    private static int columns(int row) {
+        return row == 4 ? SHORT_ROW_COLUMNS : COLUMNS;
+    }
+
+    private static int value(int column) {
+        //only the even columns are written again
+        return column * 10 + (column % 2 == 0 ? 2 : 1);
+    }
+
+    private void write(int version) throws BackendException {
+        KeyColumnValueStore store = clientSideManager.openDatabase(Backend.EDGESTORE_NAME);
+        StoreTransaction tx = beginTransaction(clientSideManager);
+        for (int row = 0; row < keys.size(); row++) {
+            List<Entry> additions = new ArrayList<>();
+            for (int column = 0; column < columns(row); column++) {
+                if (version == 1 || column % 2 == 0) {
+                    additions.add(StaticArrayEntry.of(BufferUtil.getIntBuffer(column),
+                        BufferUtil.getIntBuffer(column * 10 + version)));
+                }
+            }
+            store.mutate(keys.get(row), additions, KeyColumnValueStore.NO_DELETIONS, tx);
+        }
+        tx.commit();
+    }
+
+    private static List<String> toStrings(Iterable<Entry> entries) {
+        List<String> result = new ArrayList<>();
+        for (Entry entry : entries) {
+            result.add(entry.getColumn().getInt(0) + "=" + entry.getValue().getInt(0));
+        }
+        return result;
+    }
+
+    private List<String> expected(int row, SliceQuery query) {
+        int start = query.getSliceStart().getInt(0);
+        int end = query.getSliceEnd().getInt(0) + (query.isMaxColumnInclusive() ? 1 : 0);
+        List<String> result = new ArrayList<>();
+        for (int column = start; column < Math.min(end, columns(row)); column++) {
+            if (query.hasLimit() && result.size() == query.getLimit()) break;
+            result.add(column + "=" + value(column));
+        }
+        return result;
+    }
+
+    private Map<StaticBuffer, List<String>> getSlice(HBaseStoreManager manager, List<StaticBuffer> keys, SliceQuery query)
+            throws BackendException {
+        KeyColumnValueStore store = manager.openDatabase(Backend.EDGESTORE_NAME);
+        StoreTransaction tx = beginTransaction(manager);
+        Map<StaticBuffer, List<String>> result = new HashMap<>();
+        for (Map.Entry<StaticBuffer, EntryList> entry : store.getSlice(keys, query, tx).entrySet()) {
+            result.put(entry.getKey(), toStrings(entry.getValue()));
+        }
+        tx.commit();
+        return result;
+    }
+
+    private Map<StaticBuffer, Map<SliceQuery, List<String>>> getKeys(HBaseStoreManager manager) throws BackendException, IOException {
+        KeyColumnValueStore store = manager.openDatabase(Backend.EDGESTORE_NAME);
+        StoreTransaction tx = beginTransaction(manager);
+        Map<StaticBuffer, Map<SliceQuery, List<String>>> result = new HashMap<>();
+        try (KeySlicesIterator rows = store.getKeys(new MultiSlicesQuery(queries), tx)) {
+            while (rows.hasNext()) {
+                StaticBuffer key = rows.next();
+                Map<SliceQuery, List<String>> slices = new HashMap<>();
+                for (Map.Entry<SliceQuery, RecordIterator<Entry>> slice : rows.getEntries().entrySet()) {
+                    List<String> entries = toStrings(() -> slice.getValue());
+                    if (!entries.isEmpty()) slices.put(slice.getKey(), entries);
+                }
+                result.put(key, slices);
+            }
+        }
+        tx.commit();
+        return result;
+    }
+
+    @Test
+    public void testMultiGetSlices() throws BackendException {
+        List<StaticBuffer> requested = new ArrayList<>(keys);
+        requested.add(StaticArrayBuffer.of(Bytes.toBytes("k9")));
+        for (SliceQuery query : queries) {
+            Map<StaticBuffer, List<String>> slices = getSlice(serverSideManager, requested, query);
+            assertEquals(getSlice(clientSideManager, requested, query), slices, query.toString());
+            //the limits start again for every row of the multi-get
+            for (int row = 0; row < keys.size(); row++) {
+                assertEquals(expected(row, query), slices.get(keys.get(row)), query + " of row " + row);
+            }
+        }
+    }
+
+    @Test
+    public void testScanSlices() throws BackendException, IOException {
+        Map<StaticBuffer, Map<SliceQuery, List<String>>> rows = getKeys(serverSideManager);
+        assertEquals(getKeys(clientSideManager), rows);
+        assertEquals(keys.size(), rows.size());
+        //the limits start again for every row of the scan
+        for (int row = 0; row < keys.size(); row++) {
+            Map<SliceQuery, List<String>> expected = new HashMap<>();
+            for (SliceQuery query : queries) {
+                List<String> entries = expected(row, query);
+                if (!entries.isEmpty()) expected.put(query, entries);
+            }
+            assertEquals(expected, rows.get(keys.get(row)), "row " + row);
+        }
+        assertNotEquals(Collections.emptyMap(), rows.get(keys.get(4)));
+    }
+
+    /**
+     * The filter jar contains only the filter package, the region servers have to load and deserialize the filter
+     * without any other JanusGraph class.
+     */
+    @Test
+    public void testFilterLoadsWithoutJanusGraph() throws Exception {
+        ColumnRangesFilter filter = HBaseKeyColumnValueStore.getRangesFilter(queries);
+        URL classes = ColumnRangesFilter.class.getProtectionDomain().getCodeSource().getLocation();
+        try (FilterJarClassLoader loader = new FilterJarClassLoader(classes, Filter.class.getClassLoader())) {
+            Class<?> filterClass = loader.loadClass(ColumnRangesFilter.class.getName());
+            assertSame(loader, filterClass.getClassLoader());
+            Method parseFrom = filterClass.getMethod("parseFrom", byte[].class);
+            Filter parsed = (Filter) parseFrom.invoke(null, (Object) filter.toByteArray());
+            Cell cell = new KeyValue(Bytes.toBytes("k0"), Bytes.toBytes("e"), Bytes.toBytes(0), 10, Bytes.toBytes(0));
+            assertEquals(filter.filterKeyValue(cell), parsed.filterKeyValue(cell));
+        }
+    }
+
+    /**
+     * Loads the classes of the filter package from the given location and nothing else of JanusGraph, like a region
+     * server with only the filter jar on its classpath.
+     */
+    private static class FilterJarClassLoader extends URLClassLoader {
+
+        private static final String FILTER_PACKAGE = ColumnRangesFilter.class.getPackage().getName() + ".";
+
+        FilterJarClassLoader(URL location, ClassLoader hbase) {
+            super(new URL[]{location}, hbase);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith("org.janusgraph.")) return super.loadClass(name, resolve);
+            if (!name.startsWith(FILTER_PACKAGE)) {
+                throw new ClassNotFoundException(name + " is not part of the filter jar");
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) loaded = findClass(name);
+                if (resolve) resolveClass(loaded);
+                return loaded;
+            }
+        }
+    }
+}
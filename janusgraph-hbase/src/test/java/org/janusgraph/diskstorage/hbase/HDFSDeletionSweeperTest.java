@@ -0,0 +1,165 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HDFSDeletionSweeperTest {
+
+    private static final byte[] FAMILY = {'m'};
+
+    @TempDir
+    java.nio.file.Path tempDir;
+
+    private FileSystem fs;
+    private Path directory;
+    // file name -> timestamp of the referencing cell
+    private final Map<String, Long> cells = new HashMap<>();
+    private boolean leader = true;
+    private HDFSDeletionSweeper sweeper;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        fs = FileSystem.getLocal(new Configuration()).getRawFileSystem();
+        directory = new Path(tempDir.toUri());
+        sweeper = newSweeper(100);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        sweeper.close();
+    }
+
+    private HDFSDeletionSweeper newSweeper(int batchSize) throws IOException {
+        return new HDFSDeletionSweeper(fs, directory, Duration.ofHours(1), batchSize, deletions -> {
+            long[] timestamps = new long[deletions.size()];
+            for (int i = 0; i < timestamps.length; i++) {
+                timestamps[i] = cells.getOrDefault(deletions.get(i).fileName, -1L);
+            }
+            return timestamps;
+        }, () -> leader, null);
+    }
+
+    private static HDFSDeletionSweeper.Deletion deletion(String fileName, long timestamp) {
+        return new HDFSDeletionSweeper.Deletion(fileName, fileName.getBytes(StandardCharsets.UTF_8), FAMILY,
+            new byte[]{1}, timestamp);
+    }
+
+    private void upload(String fileName, long cellTimestamp) throws IOException {
+        HDFSManager.uploadHdfs(fs, directory, fileName, fileName.getBytes(StandardCharsets.UTF_8));
+        cells.put(fileName, cellTimestamp);
+    }
+
+    private boolean exists(String fileName) throws IOException {
+        return fs.exists(new Path(directory, fileName));
+    }
+
+    private int tombstones() throws IOException {
+        return fs.listStatus(sweeper.getTombstoneDirectory()).length;
+    }
+
+    @Test
+    public void testFileIsDeletedOnlyOnceTheCellIsGone() throws IOException {
+        upload("a", 10);
+        //the tombstone is written before the hbase batch
+        sweeper.log(Collections.singletonList(deletion("a", 20)));
+        assertEquals(0, sweeper.sweep());
+        assertTrue(exists("a"));
+        assertEquals(1, tombstones());
+
+        //the hbase batch has been applied
+        cells.remove("a");
+        assertEquals(1, sweeper.sweep());
+        assertFalse(exists("a"));
+        assertEquals(0, tombstones());
+    }
+
+    @Test
+    public void testReAddedCellKeepsTheFile() throws IOException {
+        upload("a", 10);
+        sweeper.log(Collections.singletonList(deletion("a", 20)));
+        //a later commit wrote the attachment again
+        cells.put("a", 31L);
+        assertEquals(0, sweeper.sweep());
+        assertTrue(exists("a"));
+        assertEquals(0, tombstones());
+    }
+
+    @Test
+    public void testFailedCommitDiscardsTheTombstone() throws IOException {
+        upload("a", 10);
+        Path tombstone = sweeper.log(Collections.singletonList(deletion("a", 20)));
+        sweeper.discard(tombstone);
+        assertEquals(0, tombstones());
+        assertEquals(0, sweeper.sweep());
+        assertTrue(exists("a"));
+        assertNull(sweeper.log(Collections.emptyList()));
+    }
+
+    @Test
+    public void testBatchSizeSplitsATombstone() throws IOException {
+        sweeper.close();
+        sweeper = newSweeper(2);
+        upload("a", 10);
+        upload("b", 10);
+        upload("c", 10);
+        sweeper.log(Arrays.asList(deletion("a", 20), deletion("b", 20), deletion("c", 20)));
+        cells.clear();
+
+        assertEquals(2, sweeper.sweep());
+        assertFalse(exists("a"));
+        assertFalse(exists("b"));
+        assertTrue(exists("c"));
+        assertEquals(1, tombstones());
+
+        assertEquals(1, sweeper.sweep());
+        assertFalse(exists("c"));
+        assertEquals(0, tombstones());
+    }
+
+    @Test
+    public void testOnlyTheLeaderSweeps() throws IOException {
+        upload("a", 10);
+        sweeper.log(Collections.singletonList(deletion("a", 20)));
+        cells.clear();
+        leader = false;
+        assertEquals(0, sweeper.sweep());
+        assertTrue(exists("a"));
+        assertEquals(1, tombstones());
+
+        leader = true;
+        assertEquals(1, sweeper.sweep());
+        assertFalse(exists("a"));
+    }
+}
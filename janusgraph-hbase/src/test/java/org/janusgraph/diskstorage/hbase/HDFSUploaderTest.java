@@ -0,0 +1,111 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.util.StaticArrayEntry;
+import org.janusgraph.diskstorage.util.StaticArrayBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HDFSUploaderTest {
+
+    @TempDir
+    java.nio.file.Path tempDir;
+
+    private FileSystem fs;
+    private Path directory;
+    private HDFSUploader uploader;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        fs = FileSystem.getLocal(new Configuration()).getRawFileSystem();
+        directory = new Path(tempDir.toUri());
+        uploader = new HDFSUploader(fs, directory, 2, 0, Duration.ofMillis(1), null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        uploader.close();
+    }
+
+    private static HDFSUploader.Upload upload(String fileName, String content) {
+        Entry entry = StaticArrayEntry.of(StaticArrayBuffer.of(new byte[]{1}), StaticArrayBuffer.of(new byte[]{2}));
+        entry.setHdfsFileName(fileName);
+        entry.setHdfsContent(content.getBytes(StandardCharsets.UTF_8));
+        return HDFSUploader.of(entry);
+    }
+
+    private String read(String fileName) throws IOException {
+        byte[] content = HDFSManager.downloadHdfs(fs, directory, fileName);
+        return content == null ? null : new String(content, StandardCharsets.UTF_8);
+    }
+
+    private int uploadedFiles() throws IOException {
+        return fs.listStatus(new Path(directory, HDFSUploader.UPLOAD_DIRECTORY_NAME)).length;
+    }
+
+    @Test
+    public void testFilesAreReplacedOnlyWhenPublished() throws IOException {
+        HDFSManager.uploadHdfs(fs, directory, "a", "old".getBytes(StandardCharsets.UTF_8));
+        List<HDFSUploader.Upload> uploads = Arrays.asList(upload("a", "new"), upload("b", "created"));
+        uploader.upload(uploads);
+        //the committed cell still points to the old content until the hbase batch succeeded
+        assertEquals("old", read("a"));
+        assertEquals(null, read("b"));
+
+        uploader.publish(uploads);
+        assertEquals("new", read("a"));
+        assertEquals("created", read("b"));
+        assertEquals(0, uploadedFiles());
+    }
+
+    @Test
+    public void testFailedCommitKeepsCommittedFiles() throws IOException {
+        HDFSManager.uploadHdfs(fs, directory, "a", "old".getBytes(StandardCharsets.UTF_8));
+        List<HDFSUploader.Upload> uploads = Collections.singletonList(upload("a", "new"));
+        uploader.upload(uploads);
+        //hbase batch failed
+        uploader.discard(uploads);
+        assertEquals("old", read("a"));
+        assertEquals(0, uploadedFiles());
+
+        //the stream ends before the announced length, the upload fails
+        Entry entry = StaticArrayEntry.of(StaticArrayBuffer.of(new byte[]{1}), StaticArrayBuffer.of(new byte[]{2}));
+        entry.setHdfsFileName("b");
+        entry.setHdfsContentStream(new ByteArrayInputStream(new byte[3]), 10);
+        HDFSManager.uploadHdfs(fs, directory, "b", "old".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> uploader.upload(Arrays.asList(upload("a", "new"), HDFSUploader.of(entry))));
+        assertEquals("old", read("a"));
+        assertEquals("old", read("b"));
+        assertEquals(0, uploadedFiles());
+    }
+}
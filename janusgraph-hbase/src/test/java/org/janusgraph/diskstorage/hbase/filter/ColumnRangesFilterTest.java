@@ -0,0 +1,107 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.hbase.filter;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.exceptions.DeserializationException;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ColumnRangesFilterTest {
+
+    private static final byte[] ROW = Bytes.toBytes("row");
+    private static final byte[] EDGES = Bytes.toBytes("e");
+
+    private static byte[] column(int column) {
+        return Bytes.toBytes(column);
+    }
+
+    private static Cell cell(int column) {
+        return new KeyValue(ROW, EDGES, column(column), 10, Bytes.toBytes(column));
+    }
+
+    @Test
+    public void testSeekBetweenRanges() {
+        ColumnRangesFilter filter = ColumnRangesFilter.builder()
+            .addRange(column(2), column(4), false, ColumnRangesFilter.NO_LIMIT)
+            .addRange(column(6), column(8), true, 1)
+            .build();
+
+        assertEquals(ReturnCode.SEEK_NEXT_USING_HINT, filter.filterKeyValue(cell(1)));
+        Cell hint = filter.getNextCellHint(cell(1));
+        assertArrayEquals(ROW, CellUtil.cloneRow(hint));
+        assertArrayEquals(EDGES, CellUtil.cloneFamily(hint));
+        assertArrayEquals(column(2), CellUtil.cloneQualifier(hint));
+
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(cell(2)));
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(cell(3)));
+        //the end of the first range is exclusive
+        assertEquals(ReturnCode.SEEK_NEXT_USING_HINT, filter.filterKeyValue(cell(4)));
+        assertArrayEquals(column(6), CellUtil.cloneQualifier(filter.getNextCellHint(cell(4))));
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(cell(6)));
+        //the limit of the second range is reached
+        assertEquals(ReturnCode.NEXT_ROW, filter.filterKeyValue(cell(7)));
+
+        //limits are counted per row
+        filter.reset();
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(cell(6)));
+    }
+
+    @Test
+    public void testOverlappingRangeLimits() {
+        ColumnRangesFilter filter = ColumnRangesFilter.builder()
+            .addRange(column(1), column(5), true, 2)
+            .addRange(column(3), null, false, ColumnRangesFilter.NO_LIMIT)
+            .build();
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(cell(1)));
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(cell(2)));
+        //the first range is exhausted, the second one is unbounded
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(cell(3)));
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(cell(100)));
+
+        //a column within two ranges counts for both
+        filter = ColumnRangesFilter.builder()
+            .addRange(null, null, false, 2)
+            .addRange(column(1), null, false, 3)
+            .build();
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(cell(1)));
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(cell(2)));
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(cell(3)));
+        assertEquals(ReturnCode.NEXT_ROW, filter.filterKeyValue(cell(4)));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ColumnRangesFilter filter = ColumnRangesFilter.builder()
+            .addRange(column(2), column(4), false, ColumnRangesFilter.NO_LIMIT)
+            .addRange(column(6), null, true, 1)
+            .build();
+        ColumnRangesFilter parsed = ColumnRangesFilter.parseFrom(filter.toByteArray());
+        assertEquals(2, parsed.getNumRanges());
+        assertEquals(filter.toString(), parsed.toString());
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, parsed.filterKeyValue(cell(6)));
+        assertEquals(ReturnCode.NEXT_ROW, parsed.filterKeyValue(cell(7)));
+
+        assertThrows(DeserializationException.class, () -> ColumnRangesFilter.parseFrom(new byte[]{0, 0, 0, 1}));
+        assertThrows(IllegalArgumentException.class, () -> ColumnRangesFilter.builder().build());
+    }
+}
@@ -0,0 +1,84 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.cache;
+
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyColumnValueStore;
+import org.janusgraph.diskstorage.keycolumnvalue.cache.CacheTransaction;
+import org.janusgraph.diskstorage.keycolumnvalue.cache.KCVSCache;
+import org.janusgraph.diskstorage.keycolumnvalue.cache.OffHeapKCVSCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffHeapCacheTest extends KCVSCacheTest {
+
+    public static final String METRICS_STRING = "metrics";
+    public static final long CACHE_SIZE = 1024*1024*8; //8 MB
+    public static final int PAGE_SIZE = 64;
+
+    @Override
+    public KCVSCache getCache(KeyColumnValueStore store) {
+        return getCache(store, CACHE_SIZE);
+    }
+
+    private static OffHeapKCVSCache getCache(KeyColumnValueStore store, long cacheSize) {
+        return new OffHeapKCVSCache(store,METRICS_STRING,Duration.ofDays(1).toMillis(),0,cacheSize,PAGE_SIZE);
+    }
+
+    @Test
+    public void testCachedEntriesMatchStore() throws Exception {
+        loadStore(10,100);
+        CacheTransaction tx = getCacheTx();
+        for (int i=1;i<=10;i++) {
+            EntryList expected = cache.getSliceNoCache(getQuery(i,0,101),tx);
+            //first read goes to the store, second one is served from the off-heap pages
+            assertEquals(expected,cache.getSlice(getQuery(i,0,101),tx));
+            assertEquals(expected,cache.getSlice(getQuery(i,0,101),tx));
+        }
+        assertEquals(0,cache.getSlice(getQuery(11,0,101),tx).size());
+        assertEquals(0,cache.getSlice(getQuery(11,0,101),tx).size());
+        tx.commit();
+        assertEquals(21,store.getSliceCalls());
+    }
+
+    @Test
+    public void testOffHeapMemoryIsBounded() throws Exception {
+        final int numKeys = 200, numCols = 50;
+        loadStore(numKeys,numCols);
+        cache.close();
+        final long cacheSize = 64*1024;
+        OffHeapKCVSCache offHeapCache = getCache(store, cacheSize);
+        cache = offHeapCache;
+
+        CacheTransaction tx = getCacheTx();
+        for (int t=0;t<3;t++) {
+            for (int i=1;i<=numKeys;i++) {
+                EntryList result = offHeapCache.getSlice(getQuery(i,0,numCols+1),tx);
+                assertEquals(numCols,result.size());
+                for (Entry entry : result) assertEquals(entry.getColumn().getInt(0),entry.getValue().getInt(0));
+            }
+            assertTrue(offHeapCache.getOffHeapBytes()<=cacheSize);
+        }
+        tx.commit();
+        //not all slices fit into the cache
+        assertTrue(store.getSliceCalls()>numKeys);
+    }
+
+}
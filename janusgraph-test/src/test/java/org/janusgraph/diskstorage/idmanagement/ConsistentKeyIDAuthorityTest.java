@@ -0,0 +1,132 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.idmanagement;
+
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.IDBlock;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.configuration.Configuration;
+import org.janusgraph.diskstorage.configuration.ModifiableConfiguration;
+import org.janusgraph.diskstorage.inmemory.InMemoryStoreManager;
+import org.janusgraph.diskstorage.keycolumnvalue.KCVSProxy;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyColumnValueStore;
+import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
+import org.janusgraph.diskstorage.util.StaticArrayEntry;
+import org.janusgraph.diskstorage.util.WriteByteBuffer;
+import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
+import org.janusgraph.graphdb.database.idassigner.StaticIDBlockSizer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConsistentKeyIDAuthorityTest {
+
+    private static ConsistentKeyIDAuthority open(InMemoryStoreManager manager, KeyColumnValueStore idStore,
+                                                 String instance, int blockSize) throws BackendException {
+        ModifiableConfiguration config = GraphDatabaseConfiguration.buildGraphConfiguration();
+        config.set(GraphDatabaseConfiguration.UNIQUE_INSTANCE_ID, instance);
+        config.set(GraphDatabaseConfiguration.IDAUTHORITY_WAIT, Duration.ofMillis(100));
+        ConsistentKeyIDAuthority authority = new ConsistentKeyIDAuthority(idStore, manager, config);
+        authority.setIDBlockSizer(new StaticIDBlockSizer(blockSize, Integer.MAX_VALUE));
+        return authority;
+    }
+
+    @Test
+    public void testDifferentBlockSizesDoNotOverlap() throws Exception {
+        final InMemoryStoreManager manager = new InMemoryStoreManager(Configuration.EMPTY);
+        final KeyColumnValueStore idStore = manager.openDatabase("janusgraph_ids");
+        final int[] blockSizes = {100, 130, 250};
+        final ConsistentKeyIDAuthority[] authorities = new ConsistentKeyIDAuthority[blockSizes.length];
+        for (int i = 0; i < blockSizes.length; i++) {
+            authorities[i] = open(manager, idStore, "instance" + i, blockSizes[i]);
+        }
+
+        final List<IDBlock> blocks = new ArrayList<>();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread[] threads = new Thread[authorities.length * 2];
+        for (int i = 0; i < threads.length; i++) {
+            final ConsistentKeyIDAuthority authority = authorities[i % authorities.length];
+            threads[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 50; j++) {
+                        IDBlock block = authority.getIDBlock(0, 0, Duration.ofSeconds(60));
+                        synchronized (blocks) {
+                            blocks.add(block);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertNull(failure.get());
+        assertEquals(threads.length * 50, blocks.size());
+
+        //Blocks are contiguous ranges of ids, sorted by their first id they must not overlap
+        blocks.sort((a, b) -> Long.compare(a.getId(0), b.getId(0)));
+        for (int i = 1; i < blocks.size(); i++) {
+            IDBlock previous = blocks.get(i - 1);
+            assertTrue(previous.getId(previous.numIds() - 1) < blocks.get(i).getId(0),
+                "Overlapping blocks " + previous + " and " + blocks.get(i));
+        }
+        for (ConsistentKeyIDAuthority authority : authorities) authority.close();
+        manager.close();
+    }
+
+    @Test
+    public void testOlderLargerClaimWinsOverlappingBlock() throws Exception {
+        final InMemoryStoreManager manager = new InMemoryStoreManager(Configuration.EMPTY);
+        final AtomicBoolean contended = new AtomicBoolean(false);
+        //Another instance wrote a claim on [1,251) just before ours, after we read the current id
+        final KeyColumnValueStore idStore = new KCVSProxy(manager.openDatabase("janusgraph_ids")) {
+            @Override
+            public void mutate(StaticBuffer key, List<Entry> additions, List<StaticBuffer> deletions,
+                               StoreTransaction txh) throws BackendException {
+                if (!additions.isEmpty() && contended.compareAndSet(false, true)) {
+                    final byte[] uid = "instance1".getBytes(StandardCharsets.UTF_8);
+                    final StaticBuffer claim = new WriteByteBuffer(16 + uid.length).putLong(-251)
+                        .putLong(additions.get(0).getLong(8) - 1).putBytes(uid).getStaticBuffer();
+                    store.mutate(key, Collections.singletonList(StaticArrayEntry.of(claim)), KeyColumnValueStore.NO_DELETIONS,
+                        unwrapTx(txh));
+                }
+                super.mutate(key, additions, deletions, txh);
+            }
+        };
+        final ConsistentKeyIDAuthority authority = open(manager, idStore, "instance0", 100);
+
+        final IDBlock block = authority.getIDBlock(0, 0, Duration.ofSeconds(60));
+        assertTrue(contended.get());
+        //Our claim [1,101) ends within the older one, the block follows it instead
+        final int uniqueIdBits = GraphDatabaseConfiguration.buildGraphConfiguration()
+            .get(GraphDatabaseConfiguration.IDAUTHORITY_CAV_BITS);
+        assertEquals(251, block.getId(0) >> uniqueIdBits);
+        assertEquals(100, block.numIds());
+        authority.close();
+        manager.close();
+    }
+}
@@ -28,6 +28,11 @@ import org.janusgraph.diskstorage.util.WriteByteBuffer;
 import org.janusgraph.graphdb.relations.RelationCache;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -200,6 +205,26 @@ public class StaticArrayEntryTest {
         }
     }
 
+    @Test
+    public void testSerializedEntryList() throws IOException {
+        final Map<Integer,Long> entries = generateRandomEntries();
+        for (String getterName : new String[]{"INSTANCE", "SCHEMA_INSTANCE"}) {
+            final StaticArrayEntryList list = (StaticArrayEntryList) StaticArrayEntryList.ofStaticBuffer(entries.entrySet(),
+                StaticEntryGetter.valueOf(getterName));
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            list.writeTo(new DataOutputStream(bytes));
+            assertEquals(list.getSerializedSize(), bytes.size());
+
+            final EntryList read = StaticArrayEntryList.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertEquals(entries.size(), read.size());
+            for (int i = 0; i < read.size(); i++) {
+                assertEquals(list.get(i), read.get(i));
+                assertEquals(list.get(i).getMetaData(), read.get(i).getMetaData());
+                checkEntry(read.get(i), entries);
+            }
+        }
+    }
+
     @Test
     public void testTTLMetadata() {
         WriteBuffer wb = new WriteByteBuffer(128);
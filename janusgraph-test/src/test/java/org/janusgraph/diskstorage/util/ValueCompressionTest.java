@@ -0,0 +1,127 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.diskstorage.util;
+
+import org.janusgraph.diskstorage.ReadBuffer;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.graphdb.database.serialize.DataOutput;
+import org.janusgraph.graphdb.database.serialize.StandardSerializer;
+import org.janusgraph.kydsj.serialize.MediaData;
+import org.janusgraph.kydsj.serialize.Note;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ValueCompressionTest {
+
+    private final StandardSerializer serializer = new StandardSerializer();
+
+    private static Note note(int i) {
+        Note note = new Note("note-" + i);
+        note.setId("note-" + i);
+        note.setNoteTitle("会议纪要");
+        note.setLinkType("local");
+        note.setNoteData("项目例会, 参会人员 user-" + (i % 20) + ", 讨论了第" + i + "项议题");
+        note.setUser("admin");
+        return note;
+    }
+
+    private StaticBuffer serialize(Object value) {
+        DataOutput out = serializer.getDataOutput(64);
+        out.writeObjectNotNull(value);
+        return out.getStaticBuffer();
+    }
+
+    @Test
+    public void testCompressedMediaDataIsReadBySerializer() {
+        MediaData mediaData = new MediaData("attachment-1");
+        mediaData.setFilename("report.txt");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++) text.append("line ").append(i % 7).append('\n');
+        mediaData.setMediaData(text.toString().getBytes());
+        StaticBuffer value = serialize(mediaData);
+
+        ValueCompression compression = new ValueCompression(ValueCompression.Codec.DEFLATE, 1, 64, null);
+        StaticBuffer compressed = compression.compress(value);
+        assertTrue(compressed.length() < value.length());
+        assertEquals(ValueCompression.MARKER, compressed.getByte(0));
+        assertEquals(value, compression.decompress(compressed));
+
+        MediaData read = serializer.readObjectNotNull(compressed.asReadBuffer(), MediaData.class);
+        assertEquals("attachment-1", read.getKey());
+        assertEquals("report.txt", read.getFilename());
+        assertArrayEquals(mediaData.getMediaData(), read.getMediaData());
+    }
+
+    @Test
+    public void testUncompressedValuesAreReadUnchanged() {
+        StaticBuffer value = serialize(note(1));
+        assertFalse(ValueCompression.isCompressed(value.asReadBuffer()));
+        ValueCompression compression = new ValueCompression(ValueCompression.Codec.DEFLATE, 1, 64, null);
+        assertSame(value, compression.decompress(value));
+        assertEquals(note(1).getNoteData(), serializer.readObjectNotNull(value.asReadBuffer(), Note.class).getNoteData());
+
+        //Below the minimum size and incompressible values are kept as they are
+        assertSame(value, new ValueCompression(ValueCompression.Codec.DEFLATE, 1, value.length() + 1, null).compress(value));
+        byte[] random = new byte[256];
+        new Random(3).nextBytes(random);
+        StaticBuffer randomValue = StaticArrayBuffer.of(random);
+        assertSame(randomValue, compression.compress(randomValue));
+        assertSame(value, new ValueCompression(ValueCompression.Codec.NONE, 1, 0, null).compress(value));
+    }
+
+    @Test
+    public void testDictionaryCompressesSmallNotes() {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 200; i++) samples.add(serialize(note(i)).as(StaticBuffer.ARRAY_FACTORY));
+        byte[] dictionary = ValueCompression.trainDictionary(samples, 2048);
+        assertTrue(dictionary.length > 0 && dictionary.length <= 2048);
+
+        ValueCompression plain = new ValueCompression(ValueCompression.Codec.DEFLATE, 6, 0, null);
+        ValueCompression trained = new ValueCompression(ValueCompression.Codec.DEFLATE, 6, 0, dictionary);
+        int plainSize = 0, trainedSize = 0;
+        for (int i = 200; i < 300; i++) {
+            StaticBuffer value = serialize(note(i));
+            plainSize += plain.compress(value).length();
+            StaticBuffer compressed = trained.compress(value);
+            trainedSize += compressed.length();
+            assertEquals(note(i).getNoteData(), serializer.readObjectNotNull(compressed.asReadBuffer(), Note.class).getNoteData());
+        }
+        assertTrue(trainedSize < plainSize);
+    }
+
+    @Test
+    public void testDecompressMovesBehindValue() {
+        Note note = note(1);
+        note.setNoteData(new String(new char[1000]).replace('\0', 'a'));
+        StaticBuffer value = serialize(note);
+        StaticBuffer compressed = new ValueCompression(ValueCompression.Codec.DEFLATE, 1, 0, null).compress(value);
+        WriteByteBuffer out = new WriteByteBuffer();
+        out.putBytes(compressed);
+        out.putInt(42);
+        ReadBuffer buffer = out.getStaticBuffer().asReadBuffer();
+        assertTrue(ValueCompression.isCompressed(buffer));
+        assertEquals(value, ValueCompression.decompress(buffer));
+        assertEquals(42, buffer.getInt());
+    }
+}
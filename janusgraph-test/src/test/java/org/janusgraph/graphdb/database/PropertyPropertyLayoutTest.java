@@ -0,0 +1,74 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.database;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import org.janusgraph.diskstorage.ReadBuffer;
+import org.janusgraph.graphdb.database.serialize.DataOutput;
+import org.janusgraph.graphdb.database.serialize.StandardSerializer;
+import org.janusgraph.graphdb.types.system.BaseKey;
+import org.janusgraph.graphdb.util.MD5Util;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PropertyPropertyLayoutTest {
+
+    private final StandardSerializer serializer = new StandardSerializer();
+
+    @Test
+    public void testReadBothLayouts() {
+        for (PropertyPropertyLayout layout : PropertyPropertyLayout.values()) {
+            DataOutput out = serializer.getDataOutput(64);
+            out.writeObjectNotNull("7000101");
+            layout.writeValuePrefix(out, serializer, BaseKey.SchemaName, "张三");
+            out.writeObjectNotNull("8000101");
+            ReadBuffer buffer = out.getStaticBuffer().asReadBuffer();
+            assertEquals("7000101", serializer.readObjectNotNull(buffer, String.class));
+            String valuePrefix = PropertyPropertyLayout.readValuePrefix(buffer, serializer);
+            assertEquals(layout == PropertyPropertyLayout.HASH64, PropertyPropertyLayout.isHashed(valuePrefix));
+            if (layout == PropertyPropertyLayout.MD5) assertEquals(MD5Util.getMD8("张三"), valuePrefix);
+            assertEquals("8000101", serializer.readObjectNotNull(buffer, String.class));
+        }
+    }
+
+    @Test
+    public void testHashUsesSerializedValue() {
+        long hash = PropertyPropertyLayout.hashValue(serializer, BaseKey.SchemaName, "value");
+        assertEquals(hash, PropertyPropertyLayout.hashValue(serializer, BaseKey.SchemaName, "value"));
+        assertNotEquals(hash, PropertyPropertyLayout.hashValue(serializer, BaseKey.SchemaName, "value2"));
+    }
+
+    @Test
+    public void testFindGroupsHashedColumnsByProperty() {
+        Multimap<String, String> groups = ArrayListMultimap.create();
+        String hashed = "#" + Long.toHexString(42);
+        //Two values of the same key whose hashes collide are kept apart by their property ids
+        groups.put(PropertyPropertyLayout.groupKey("7000101", hashed, "1_1"), "a");
+        groups.put(PropertyPropertyLayout.groupKey("7000101", hashed, "2_1"), "b");
+        assertFalse(PropertyPropertyLayout.hasLegacyGroups(groups));
+        assertEquals("a", PropertyPropertyLayout.find(groups, false, "7000101", "1_1", "x").iterator().next());
+        assertEquals("b", PropertyPropertyLayout.find(groups, false, "7000101", "2_1", "y").iterator().next());
+        assertTrue(PropertyPropertyLayout.find(groups, false, "7000101", "3_1", "x").isEmpty());
+
+        groups.put(PropertyPropertyLayout.groupKey("7000101", MD5Util.getMD8("x"), "3_1"), "c");
+        assertTrue(PropertyPropertyLayout.hasLegacyGroups(groups));
+        assertEquals("c", PropertyPropertyLayout.find(groups, true, "7000101", "3_1", "x").iterator().next());
+    }
+}
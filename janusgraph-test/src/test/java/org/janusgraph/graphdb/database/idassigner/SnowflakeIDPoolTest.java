@@ -0,0 +1,146 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.database.idassigner;
+
+import org.janusgraph.core.JanusGraphException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnowflakeIDPoolTest {
+
+    private static final long START = SnowflakeIDPool.EPOCH + 100000;
+
+    @Test
+    public void testConcurrentIdsAreUnique() throws InterruptedException {
+        //Few stripes so that threads share them
+        testConcurrentIds(new SnowflakeIDPool(10, 1), 8, 100000);
+        testConcurrentIds(new SnowflakeIDPool(10, 4), 16, 50000);
+    }
+
+    private void testConcurrentIds(SnowflakeIDPool pool, int numThreads, int idsPerThread) throws InterruptedException {
+        pool.setWorkerId(513);
+        final long[][] ids = new long[numThreads][idsPerThread];
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            final long[] threadIds = ids[i];
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < idsPerThread; j++) {
+                        threadIds[j] = Long.parseLong(pool.nextID());
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            threads[i].start();
+        }
+        final long before = System.currentTimeMillis();
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+        assertNull(failure.get());
+
+        final long[] all = new long[numThreads * idsPerThread];
+        for (int i = 0; i < numThreads; i++) {
+            for (int j = 0; j < idsPerThread; j++) {
+                if (j > 0) assertTrue(ids[i][j] > ids[i][j - 1], "ids of a thread are ordered");
+                assertEquals(513, pool.getWorkerId(ids[i][j]));
+                //Borrowed milliseconds stay close to the clock
+                assertTrue(SnowflakeIDPool.getTimestamp(ids[i][j]) >= before - 10);
+                assertTrue(SnowflakeIDPool.getTimestamp(ids[i][j]) <= System.currentTimeMillis() + SnowflakeIDPool.MAX_BORROW_MS);
+            }
+            System.arraycopy(ids[i], 0, all, i * idsPerThread, idsPerThread);
+        }
+        Arrays.sort(all);
+        assertTrue(all[0] > 0);
+        for (int i = 1; i < all.length; i++) {
+            assertTrue(all[i] != all[i - 1], "duplicate id " + all[i]);
+        }
+    }
+
+    @Test
+    public void testSequenceOverflowContinuesWithNextMillisecond() {
+        final SnowflakeIDPool pool = new SnowflakeIDPool(10, 0, () -> START);
+        pool.setWorkerId(1);
+        final int sequenceSize = 1 << (SnowflakeIDPool.NODE_BITS - 10);
+        long last = 0;
+        for (int i = 0; i < sequenceSize * 3; i++) {
+            final long id = pool.nextLongID();
+            assertTrue(id > last);
+            assertEquals(START + i / sequenceSize, SnowflakeIDPool.getTimestamp(id));
+            last = id;
+        }
+    }
+
+    @Test
+    public void testClockMovingBackwards() {
+        final AtomicLong clock = new AtomicLong(START);
+        final SnowflakeIDPool pool = new SnowflakeIDPool(10, 0, clock::get);
+        pool.setWorkerId(1);
+        final long first = pool.nextLongID();
+        clock.addAndGet(-500);
+        final long second = pool.nextLongID();
+        assertTrue(second > first);
+        assertEquals(START, SnowflakeIDPool.getTimestamp(second));
+
+        clock.set(START + 10);
+        assertEquals(START + 10, SnowflakeIDPool.getTimestamp(pool.nextLongID()));
+
+        clock.addAndGet(-SnowflakeIDPool.MAX_BORROW_MS - SnowflakeIDPool.MAX_CLOCK_BACKWARD_MS - 10);
+        assertThrows(JanusGraphException.class, pool::nextLongID);
+    }
+
+    @Test
+    public void testWorkersDoNotCollide() {
+        final SnowflakeIDPool pool1 = new SnowflakeIDPool(2, 0, () -> START);
+        final SnowflakeIDPool pool2 = new SnowflakeIDPool(2, 0, () -> START);
+        pool1.setWorkerId(0);
+        pool2.setWorkerId(3);
+        for (int i = 0; i < 1000; i++) {
+            final long id1 = pool1.nextLongID();
+            final long id2 = pool2.nextLongID();
+            assertFalse(id1 == id2);
+            assertEquals(0, pool1.getWorkerId(id1));
+            assertEquals(3, pool2.getWorkerId(id2));
+        }
+    }
+
+    @Test
+    public void testWorkerIdIsRequired() {
+        final SnowflakeIDPool pool = new SnowflakeIDPool(4, 2);
+        assertFalse(pool.hasWorkerId());
+        assertThrows(JanusGraphException.class, pool::nextID);
+        assertThrows(IllegalArgumentException.class, () -> pool.setWorkerId(16));
+        pool.setWorkerId(15);
+        assertTrue(pool.hasWorkerId());
+        pool.nextID();
+        //Lease lost
+        pool.setWorkerId(-1);
+        assertThrows(JanusGraphException.class, pool::nextID);
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIDPool(16, 4));
+    }
+}
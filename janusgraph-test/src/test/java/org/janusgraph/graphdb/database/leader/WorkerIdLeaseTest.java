@@ -0,0 +1,132 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.database.leader;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.CreateMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WorkerIdLeaseTest {
+
+    private static final String INSTANCE = "instance0";
+    private static final int MAX_WORKER_ID = 3;
+
+    private TestingServer server;
+    private CuratorFramework client;
+    //stands for the expiring session of a previous connection, or another instance with the same instance id
+    private CuratorFramework staleClient;
+    private final List<Integer> workerIds = new ArrayList<>();
+    private WorkerIdLease lease;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        client = newClient();
+        staleClient = newClient();
+        lease = new WorkerIdLease(client, INSTANCE, MAX_WORKER_ID, workerIds::add);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        lease.close();
+        staleClient.close();
+        client.close();
+        server.close();
+    }
+
+    private CuratorFramework newClient() throws InterruptedException {
+        CuratorFramework curator = CuratorFrameworkFactory.newClient(server.getConnectString(), new RetryOneTime(100));
+        curator.start();
+        curator.blockUntilConnected();
+        return curator;
+    }
+
+    private static String path(int workerId) {
+        return "/" + LeaderSelectorAdapter.WORKERNODE + "/" + workerId;
+    }
+
+    private static int preferredWorkerId() {
+        return (INSTANCE.hashCode() & Integer.MAX_VALUE) % (MAX_WORKER_ID + 1);
+    }
+
+    private void createStaleNode(int workerId) throws Exception {
+        staleClient.create().creatingParentContainersIfNeeded().withMode(CreateMode.EPHEMERAL)
+            .forPath(path(workerId), INSTANCE.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void assertOwnedByClient(int workerId) throws Exception {
+        assertEquals(client.getZookeeperClient().getZooKeeper().getSessionId(),
+            client.checkExists().forPath(path(workerId)).getEphemeralOwner());
+    }
+
+    @Test
+    public void testNodeOfAnotherSessionIsTaken() throws Exception {
+        createStaleNode(preferredWorkerId());
+        int workerId = lease.acquire();
+        assertTrue(workerId >= 0);
+        assertNotEquals(preferredWorkerId(), workerId);
+        assertOwnedByClient(workerId);
+    }
+
+    @Test
+    public void testSuspendedConnectionKeepsTheNode() throws Exception {
+        int workerId = lease.acquire();
+        assertEquals(preferredWorkerId(), workerId);
+        lease.stateChanged(client, ConnectionState.SUSPENDED);
+        assertEquals(-1, lease.getWorkerId());
+        lease.stateChanged(client, ConnectionState.RECONNECTED);
+        assertEquals(workerId, lease.getWorkerId());
+        assertEquals(Arrays.asList(workerId, -1, workerId), workerIds);
+    }
+
+    @Test
+    public void testReconnectWithStaleNode() throws Exception {
+        int workerId = lease.acquire();
+        assertEquals(preferredWorkerId(), workerId);
+        //the session is lost, its node is still there until the server expires the session
+        client.delete().forPath(path(workerId));
+        createStaleNode(workerId);
+        lease.stateChanged(client, ConnectionState.LOST);
+        assertEquals(-1, lease.getWorkerId());
+
+        lease.stateChanged(client, ConnectionState.RECONNECTED);
+        int reconnectedId = lease.getWorkerId();
+        assertTrue(reconnectedId >= 0);
+        assertNotEquals(workerId, reconnectedId);
+        assertOwnedByClient(reconnectedId);
+        assertEquals(Arrays.asList(workerId, -1, reconnectedId), workerIds);
+
+        //the expired session removes its node, the lease keeps its own
+        staleClient.close();
+        assertNull(client.checkExists().forPath(path(workerId)));
+        assertOwnedByClient(reconnectedId);
+    }
+}
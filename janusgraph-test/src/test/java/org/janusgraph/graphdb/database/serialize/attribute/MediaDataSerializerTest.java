@@ -0,0 +1,136 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.database.serialize.attribute;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.util.ReadArrayBuffer;
+import org.janusgraph.graphdb.database.serialize.DataOutput;
+import org.janusgraph.graphdb.database.serialize.StandardSerializer;
+import org.janusgraph.kydsj.serialize.MediaData;
+import org.janusgraph.kydsj.serialize.attribute.MediaDataSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MediaDataSerializerTest {
+
+    private final StandardSerializer serializer = new StandardSerializer();
+
+    private static MediaData mediaData(byte[] content) {
+        MediaData mediaData = new MediaData("attachment-1");
+        mediaData.setFilename("report.pdf");
+        mediaData.setLinkType("local");
+        mediaData.setMediaType("application/pdf");
+        mediaData.setMediaTitle("report");
+        mediaData.setMimeType("pdf");
+        mediaData.setUpdateDate(new Date(1557602288000L));
+        mediaData.setSort(3);
+        mediaData.getDsr().add("source-a");
+        mediaData.setMediaData(content);
+        return mediaData;
+    }
+
+    private byte[] serialize(MediaData mediaData) {
+        DataOutput out = serializer.getDataOutput(64);
+        out.writeObjectNotNull(mediaData);
+        return out.getStaticBuffer().as(StaticBuffer.ARRAY_FACTORY);
+    }
+
+    @Test
+    public void contentPositionPointsAtContent() {
+        byte[] content = new byte[5000];
+        new Random(7).nextBytes(content);
+        byte[] serialized = serialize(mediaData(content));
+
+        long[] position = MediaDataSerializer.readContentPosition(serializer, new ReadArrayBuffer(serialized));
+        assertNotNull(position);
+        assertEquals(content.length, position[1]);
+        int offset = (int) position[0];
+        assertArrayEquals(content, Arrays.copyOfRange(serialized, offset, offset + content.length));
+    }
+
+    @Test
+    public void contentPositionWithoutContent() {
+        byte[] serialized = serialize(mediaData(null));
+        assertNull(MediaDataSerializer.readContentPosition(serializer, new ReadArrayBuffer(serialized)));
+    }
+
+    @Test
+    public void contentPositionOfTruncatedHead() {
+        byte[] serialized = serialize(mediaData(new byte[100]));
+        byte[] head = Arrays.copyOf(serialized, 5);
+        assertThrows(ArrayIndexOutOfBoundsException.class,
+            () -> MediaDataSerializer.readContentPosition(serializer, new ReadArrayBuffer(head)));
+    }
+
+    @Test
+    public void contentPositionFromStream() {
+        MediaData mediaData = mediaData(new byte[300]);
+        //a head larger than any fixed read size
+        for (int i = 0; i < 2000; i++) {
+            mediaData.getDsr().add("source-" + i);
+        }
+        byte[] serialized = serialize(mediaData);
+
+        long[] position = MediaDataSerializer.readContentPosition(serializer, new ByteArrayInputStream(serialized));
+        assertArrayEquals(MediaDataSerializer.readContentPosition(serializer, new ReadArrayBuffer(serialized)), position);
+        assertTrue(position[0] > 8192);
+        assertEquals(300, position[1]);
+    }
+
+    @Test
+    public void contentPositionFromStreamWithoutContent() {
+        byte[] serialized = serialize(mediaData(null));
+        assertNull(MediaDataSerializer.readContentPosition(serializer, new ByteArrayInputStream(serialized)));
+    }
+
+    @Test
+    public void contentPositionOfTruncatedStream() {
+        byte[] serialized = serialize(mediaData(new byte[100]));
+        byte[] head = Arrays.copyOf(serialized, 5);
+        UncheckedIOException e = assertThrows(UncheckedIOException.class,
+            () -> MediaDataSerializer.readContentPosition(serializer, new ByteArrayInputStream(head)));
+        assertTrue(e.getCause() instanceof EOFException);
+    }
+
+    @Test
+    public void streamedLayoutMatchesSerializedMediaData() {
+        for (int length : new int[]{0, 1, 127, 128, 20000}) {
+            byte[] content = new byte[length];
+            new Random(length).nextBytes(content);
+            MediaData mediaData = mediaData(content);
+
+            DataOutput out = serializer.getDataOutput(64);
+            MediaDataSerializer.writeHeader(out, mediaData);
+            MediaDataSerializer.writeContentPrefix(out, serializer, length);
+            out.putBytes(content);
+            MediaDataSerializer.writeTrailer(out, mediaData);
+
+            assertArrayEquals(serialize(mediaData), out.getStaticBuffer().as(StaticBuffer.ARRAY_FACTORY));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.idmanagement;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.graphdb.database.idassigner.UUIDIDPool;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactIDKeyCodecTest {
+
+    private final CompactIDKeyCodec codec = new CompactIDKeyCodec();
+
+    @Test
+    public void testNumericVertexId() {
+        IDManager idManager = new IDManager(5, codec);
+        for (IDManager.VertexIDType type : new IDManager.VertexIDType[]{IDManager.VertexIDType.NormalVertex,
+                IDManager.VertexIDType.UnmodifiableVertex}) {
+            String id = idManager.getVertexID("1234567", 17, type);
+            StaticBuffer key = idManager.getKey(id);
+            assertEquals(CompactIDKeyCodec.TAG_NUMERIC, key.getByte(0));
+            assertTrue(key.length() < id.length());
+            assertEquals(id, idManager.getKeyID(key));
+        }
+    }
+
+    @Test
+    public void testHexVertexId() {
+        IDManager idManager = new IDManager(5, codec);
+        String id = idManager.getVertexID(new UUIDIDPool().nextID(), 3, IDManager.VertexIDType.NormalVertex);
+        StaticBuffer key = idManager.getKey(id);
+        assertEquals(CompactIDKeyCodec.TAG_HEX, key.getByte(0));
+        assertEquals(1 + 16 + 1 + 1, key.length());
+        assertEquals(id, idManager.getKeyID(key));
+    }
+
+    @Test
+    public void testNonCanonicalIdsFallBackToUtf8() {
+        String[] ids = {"007_3_000", "abc_3_000", "a_b_c_3_000", "12_3_999", "12000101", "ABCDEF0123456789ABCDEF0123456789_1_000"};
+        for (String id : ids) {
+            StaticBuffer key = codec.encode(id);
+            assertEquals(CompactIDKeyCodec.TAG_UTF8, key.getByte(0), id);
+            assertEquals(id, codec.decode(key));
+        }
+    }
+
+    @Test
+    public void testReadsLegacyKeys() {
+        String id = "1234567_17_000";
+        StaticBuffer legacyKey = StringIDKeyCodec.INSTANCE.encode(id);
+        assertFalse(CompactIDKeyCodec.isCompactKey(legacyKey));
+        assertEquals(id, codec.decode(legacyKey));
+        assertTrue(CompactIDKeyCodec.isCompactKey(codec.encode(id)));
+    }
+
+    @Test
+    public void testTypeCodesAreStable() {
+        //The codes are persisted in row keys and must never change
+        assertEquals(1, CompactIDKeyCodec.getTypeCode(IDManager.VertexIDType.NormalVertex));
+        assertEquals(3, CompactIDKeyCodec.getTypeCode(IDManager.VertexIDType.UnmodifiableVertex));
+        assertEquals(16, CompactIDKeyCodec.getTypeCode(IDManager.VertexIDType.GenericSchemaType));
+        StaticBuffer key = codec.encode("1234567_17_100");
+        assertEquals(3, key.getByte(key.length() - 1));
+        for (IDManager.VertexIDType type : IDManager.VertexIDType.values()) {
+            assertTrue(CompactIDKeyCodec.getTypeCode(type) >= 0, type.name());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.idmanagement;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.graphdb.database.idassigner.UUIDIDPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares key size and encode/decode cost of the {@link IDKeyCodec} implementations.
+ * The average key size of each codec is printed during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IDKeyCodecBenchmark {
+
+    private static final int ID_COUNT = 1024;
+
+    @Param({"string", "compact"})
+    String codecName;
+
+    @Param({"numeric", "hex"})
+    String idType;
+
+    IDManager idManager;
+    String[] ids;
+    StaticBuffer[] keys;
+
+    @Setup
+    public void setUp() {
+        IDKeyCodec codec = "compact".equals(codecName) ? new CompactIDKeyCodec() : new StringIDKeyCodec();
+        idManager = new IDManager(5, codec);
+        Random random = new Random(42);
+        UUIDIDPool uuids = new UUIDIDPool();
+        ids = new String[ID_COUNT];
+        keys = new StaticBuffer[ID_COUNT];
+        long keyBytes = 0;
+        for (int i = 0; i < ID_COUNT; i++) {
+            String count = "hex".equals(idType) ? uuids.nextID() : String.valueOf(1 + random.nextInt(Integer.MAX_VALUE));
+            ids[i] = idManager.getVertexID(count, random.nextInt(32), IDManager.VertexIDType.NormalVertex);
+            keys[i] = idManager.getKey(ids[i]);
+            keyBytes += keys[i].length();
+        }
+        System.out.printf("%n%s/%s average key size: %.2f bytes%n", codecName, idType, keyBytes / (double) ID_COUNT);
+    }
+
+    @Benchmark
+    public void encode(Blackhole blackhole) {
+        for (String id : ids) {
+            blackhole.consume(idManager.getKey(id));
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        for (StaticBuffer key : keys) {
+            blackhole.consume(idManager.getKeyID(key));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(IDKeyCodecBenchmark.class.getSimpleName())
+            .warmupIterations(5)
+            .measurementIterations(5)
+            .build();
+        new Runner(options).run();
+    }
+}
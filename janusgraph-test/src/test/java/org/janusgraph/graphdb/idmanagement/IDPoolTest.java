@@ -22,11 +22,14 @@ import org.janusgraph.diskstorage.IDAuthority;
 import org.janusgraph.diskstorage.IDBlock;
 import org.janusgraph.diskstorage.TemporaryBackendException;
 import org.janusgraph.diskstorage.keycolumnvalue.KeyRange;
+import org.janusgraph.graphdb.database.idassigner.AdaptiveIDBlockSizer;
 import org.janusgraph.graphdb.database.idassigner.IDBlockSizer;
 import org.janusgraph.graphdb.database.idassigner.IDPoolExhaustedException;
 import org.janusgraph.graphdb.database.idassigner.StandardIDPool;
+import org.janusgraph.graphdb.database.idassigner.StaticIDBlockSizer;
 import org.janusgraph.graphdb.util.IntHashSet;
 import org.janusgraph.graphdb.util.IntSet;
+import org.janusgraph.util.stats.MetricManager;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
@@ -73,6 +76,61 @@ public class IDPoolTest {
             10, 2, 100);
     }
 
+    @Test
+    public void testAdaptiveIDPool() throws InterruptedException {
+        final MockIDAuthority idAuthority = new MockIDAuthority(200);
+        final AdaptiveIDBlockSizer sizer = new AdaptiveIDBlockSizer(new StaticIDBlockSizer(200, Integer.MAX_VALUE), Duration.ofMillis(50), 20);
+        idAuthority.setIDBlockSizer(sizer);
+        testIDPoolWith(partitionID -> new StandardIDPool(idAuthority, partitionID, partitionID, Integer.MAX_VALUE, Duration.ofMillis(2000), 0.2, sizer, null), 10, 20, 100000);
+    }
+
+    @Test
+    public void testAdaptiveBlockSizeFollowsConsumption() {
+        final AdaptiveIDBlockSizer sizer = new AdaptiveIDBlockSizer(new StaticIDBlockSizer(100, Integer.MAX_VALUE), Duration.ofSeconds(1), 10);
+        assertEquals(100, sizer.getBlockSize(1, 0));
+
+        sizer.blockConsumed(1, 0, 500, Duration.ofSeconds(1));
+        assertEquals(500, sizer.getBlockSize(1, 0));
+        assertEquals(500, sizer.getConsumptionRate(1, 0), 0.001);
+        //Other partitions and namespaces are sized on their own
+        assertEquals(100, sizer.getBlockSize(2, 0));
+        assertEquals(100, sizer.getBlockSize(1, 1));
+        assertEquals(100, sizer.getBlockSize(0));
+
+        //Smoothed, bounded by ten times the base size
+        sizer.blockConsumed(1, 0, 100000, Duration.ofSeconds(1));
+        assertEquals(1000, sizer.getBlockSize(1, 0));
+        //Slow consumption goes back to the base size
+        for (int i = 0; i < 20; i++) sizer.blockConsumed(1, 0, 10, Duration.ofSeconds(1));
+        assertEquals(100, sizer.getBlockSize(1, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveIDBlockSizer(sizer, Duration.ZERO, 10));
+    }
+
+    @Test
+    public void testAdaptiveIDPoolPrefetchAndMetrics() {
+        final String metricsPrefix = "test.idpool.adaptive";
+        final MockIDAuthority idAuthority = new MockIDAuthority(100, Integer.MAX_VALUE, 20);
+        final AdaptiveIDBlockSizer sizer = new AdaptiveIDBlockSizer(new StaticIDBlockSizer(100, Integer.MAX_VALUE), Duration.ofSeconds(1), 100);
+        idAuthority.setIDBlockSizer(sizer);
+        final StandardIDPool pool = new StandardIDPool(idAuthority, 0, 1, Integer.MAX_VALUE, Duration.ofMillis(2000), 0.2, sizer, metricsPrefix);
+        final IntSet ids = new IntHashSet(20000);
+        for (int i = 0; i < 20000; i++) {
+            long id = Long.parseLong(pool.nextID());
+            assertFalse(ids.contains((int) id));
+            ids.add((int) id);
+        }
+        pool.close();
+
+        assertTrue(sizer.getConsumptionRate(0, 1) > 0);
+        assertTrue(sizer.getBlockSize(0, 1) > 100);
+        //Blocks grew, so far fewer than 200 blocks of the base size were needed
+        final long blocks = MetricManager.INSTANCE.getTimer(metricsPrefix, StandardIDPool.M_IDS, "1", StandardIDPool.M_WAIT).getCount();
+        assertTrue(blocks > 1 && blocks < 20, "blocks: " + blocks);
+        assertEquals(blocks, MetricManager.INSTANCE.getHistogram(metricsPrefix, StandardIDPool.M_IDS, "1", StandardIDPool.M_BLOCK_SIZE).getCount());
+        assertTrue(MetricManager.INSTANCE.getHistogram(metricsPrefix, StandardIDPool.M_IDS, "1", StandardIDPool.M_BLOCK_SIZE).getSnapshot().getMax() > 100);
+    }
+
     private void testIDPoolWith(IDPoolFactory poolFactory, final int numPartitions,
                                        final int numThreads, final int attemptsPerThread) throws InterruptedException {
         final Random random = new Random();
@@ -75,7 +75,7 @@ public class MockIDAuthority implements IDAuthority {
         Preconditions.checkArgument(partition >= 0);
         Preconditions.checkArgument(idNamespace >= 0);
         Long p = (((long)partition)<<Integer.SIZE) + ((long)idNamespace);
-        long size = blockSizer.getBlockSize(idNamespace);
+        long size = blockSizer.getBlockSize(partition, idNamespace);
         AtomicLong id = ids.get(p);
         if (id == null) {
             ids.putIfAbsent(p, new AtomicLong(1));
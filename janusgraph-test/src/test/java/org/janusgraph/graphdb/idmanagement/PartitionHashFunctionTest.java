@@ -0,0 +1,84 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.idmanagement;
+
+import org.janusgraph.graphdb.database.idassigner.placement.HashPartitionPlacementStrategy;
+import org.janusgraph.graphdb.database.idassigner.placement.Murmur3PartitionFunction;
+import org.janusgraph.graphdb.database.idassigner.placement.PartitionIDRange;
+import org.janusgraph.graphdb.database.idassigner.placement.PartitionHashFunction;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PartitionHashFunctionTest {
+
+    @Test
+    public void testLegacyPartitionIsUnchanged() {
+        IDManager idManager = new IDManager(5);
+        String id = "user-provided-id";
+        assertEquals(Math.abs((long) id.hashCode()) % 32, idManager.getHashPartition(id));
+        assertEquals(idManager.getHashPartition(id), idManager.getPartitionId(idManager.toVertexId(id)));
+    }
+
+    @Test
+    public void testMurmur3Partition() {
+        IDManager idManager = new IDManager(5, StringIDKeyCodec.INSTANCE, Murmur3PartitionFunction.INSTANCE);
+        for (int i = 0; i < 1000; i++) {
+            String id = UUID.randomUUID().toString();
+            long partition = idManager.getHashPartition(id);
+            assertTrue(partition >= 0 && partition < 32);
+            String vertexId = idManager.toVertexId(id);
+            assertEquals(partition, idManager.getPartitionId(vertexId));
+            assertEquals(id, idManager.fromVertexId(vertexId));
+        }
+    }
+
+    @Test
+    public void testMurmur3SpreadsPrefixedIds() {
+        long[] counts = histogram(Murmur3PartitionFunction.INSTANCE, 16);
+        assertTrue(skew(counts) < 1.2, "murmur3 skew " + skew(counts));
+    }
+
+    @Test
+    public void testHashPlacementUsesLocalPartitions() {
+        HashPartitionPlacementStrategy strategy = new HashPartitionPlacementStrategy(42);
+        strategy.setLocalPartitionBounds(PartitionIDRange.getGlobalRange(4));
+        long[] counts = new long[16];
+        for (int i = 0; i < 16000; i++) counts[strategy.getPartition(null)]++;
+        assertTrue(skew(counts) < 1.2, "placement skew " + skew(counts));
+        strategy.exhaustedPartition(3);
+        for (int i = 0; i < 1000; i++) assertTrue(strategy.getPartition(null) != 3);
+    }
+
+    private static long[] histogram(PartitionHashFunction function, int partitions) {
+        long[] counts = new long[partitions];
+        for (int i = 0; i < 16000; i++) {
+            counts[(int) function.getPartition("order-2020-" + i, partitions)]++;
+        }
+        return counts;
+    }
+
+    private static double skew(long[] counts) {
+        long total = 0, max = 0;
+        for (long c : counts) {
+            total += c;
+            max = Math.max(max, c);
+        }
+        return max / ((double) total / counts.length);
+    }
+}
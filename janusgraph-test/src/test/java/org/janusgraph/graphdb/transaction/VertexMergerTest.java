@@ -0,0 +1,263 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.transaction;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Sets;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.janusgraph.core.Cardinality;
+import org.janusgraph.core.JanusGraph;
+import org.janusgraph.core.JanusGraphFactory;
+import org.janusgraph.core.JanusGraphVertex;
+import org.janusgraph.core.schema.JanusGraphManagement;
+import org.janusgraph.diskstorage.configuration.ModifiableConfiguration;
+import org.janusgraph.diskstorage.keycolumnvalue.scan.ScanMetrics;
+import org.janusgraph.diskstorage.keycolumnvalue.scan.StandardScanner;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.olap.VertexJobConverter;
+import org.janusgraph.graphdb.olap.job.VertexMergeJob;
+import org.janusgraph.graphdb.vertices.AbstractVertex;
+import org.janusgraph.kydsj.serialize.MediaData;
+import org.janusgraph.kydsj.serialize.Note;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VertexMergerTest {
+
+    private JanusGraph graph;
+    private String sourceId;
+    private String targetId;
+    private String otherId;
+
+    @BeforeEach
+    public void setUp() {
+        graph = JanusGraphFactory.open("inmemory");
+        JanusGraphManagement mgmt = graph.openManagement();
+        mgmt.makePropertyKey("name").dataType(String.class).cardinality(Cardinality.SINGLE).make();
+        mgmt.makePropertyKey("tag").dataType(String.class).cardinality(Cardinality.SET).make();
+        mgmt.makePropertyKey("since").dataType(String.class).cardinality(Cardinality.SINGLE).make();
+        mgmt.makePropertyKey(VertexMerger.MERGE_TO_PROPERTY).dataType(String.class).cardinality(Cardinality.SINGLE).make();
+        mgmt.makeEdgeLabel("knows").make();
+        mgmt.commit();
+
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        JanusGraphVertex source = tx.addVertex();
+        source.property("name", "source");
+        source.property("tag", "x").property("since", "source-x");
+        source.property("tag", "y").property("since", "source-y");
+        JanusGraphVertex target = tx.addVertex();
+        target.property("name", "target");
+        target.property("tag", "y");
+        target.property("tag", "z");
+        JanusGraphVertex other = tx.addVertex();
+        source.addEdge("knows", other);
+        other.addEdge("knows", source);
+        source.addEdge("knows", target);
+
+        tx.addAttachment(source, attachment("a", "source-a"));
+        tx.addAttachment(source, attachment("shared", "source-shared"));
+        tx.addAttachment(target, attachment("shared", "target-shared"));
+        tx.addNote(source, note("n", "source-n"));
+        tx.addNote(source, note("common", "source-common"));
+        tx.addNote(target, note("common", "target-common"));
+        tx.commit();
+        sourceId = source.longId();
+        targetId = target.longId();
+        otherId = other.longId();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.close();
+    }
+
+    private static MediaData attachment(String key, String title) {
+        MediaData mediaData = new MediaData(key);
+        mediaData.setMediaTitle(title);
+        mediaData.setMediaData(title.getBytes());
+        return mediaData;
+    }
+
+    private static Note note(String id, String title) {
+        Note note = new Note(id);
+        note.setNoteTitle(title);
+        return note;
+    }
+
+    @Test
+    public void testMergeVertices() {
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        tx.mergeVertices(tx.getVertex(targetId), tx.getVertex(sourceId));
+        tx.commit();
+
+        verifyMerged();
+    }
+
+    @Test
+    public void testMergeInSteps() {
+        VertexMerger merger = new VertexMerger();
+        int steps = 0;
+        boolean completed = false;
+        while (!completed) {
+            StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+            VertexMerger.Step step = merger.merge(tx, tx.getVertex(sourceId), tx.getVertex(targetId), 1);
+            tx.commit();
+            assertTrue(step.getEdges() + step.getAttachments() + step.getNotes() <= 1);
+            completed = step.isCompleted();
+            steps++;
+        }
+        //one step per edge, attachment and note and the step that merges the properties
+        assertEquals(8, steps);
+
+        verifyMerged();
+    }
+
+    @Test
+    public void testMergeJobInBatches() throws Exception {
+        markSource();
+        ScanMetrics metrics = executeMergeJob(2);
+        //3 edges, 2 attachments, 2 notes in steps of 2 and the step that merges the properties
+        assertEquals(4, metrics.getCustom(VertexMergeJob.SUCCESS_TX));
+        assertEquals(0, metrics.getCustom(VertexMergeJob.FAILED_TX));
+        assertEquals(1, metrics.getCustom(VertexMergeJob.MERGED_VERTEX_COUNT));
+        assertEquals(3, metrics.getCustom(VertexMergeJob.MOVED_EDGE_COUNT));
+        assertEquals(2, metrics.getCustom(VertexMergeJob.MOVED_ATTACHMENT_COUNT));
+        assertEquals(2, metrics.getCustom(VertexMergeJob.MOVED_NOTE_COUNT));
+
+        verifyMerged();
+    }
+
+    @Test
+    public void testMergeJobResumesAfterPartialRun() throws Exception {
+        markSource();
+        //an interrupted run committed the first steps only
+        VertexMerger merger = new VertexMerger(Sets.newHashSet(VertexMerger.MERGE_TO_PROPERTY), new HashSet<>());
+        for (int i = 0; i < 4; i++) {
+            StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+            assertFalse(merger.merge(tx, tx.getVertex(sourceId), tx.getVertex(targetId), 1).isCompleted());
+            tx.commit();
+        }
+
+        ScanMetrics metrics = executeMergeJob(1);
+        //1 attachment, 2 notes and the completing step are left
+        assertEquals(4, metrics.getCustom(VertexMergeJob.SUCCESS_TX));
+        assertEquals(0, metrics.getCustom(VertexMergeJob.MOVED_EDGE_COUNT));
+        assertEquals(1, metrics.getCustom(VertexMergeJob.MOVED_ATTACHMENT_COUNT));
+        assertEquals(1, metrics.getCustom(VertexMergeJob.MERGED_VERTEX_COUNT));
+
+        verifyMerged();
+    }
+
+    @Test
+    public void testMergeJobIsIdempotent() throws Exception {
+        markSource();
+        executeMergeJob(3);
+        verifyMerged();
+
+        //the marker is removed together with the source, nothing is left to merge
+        ScanMetrics metrics = executeMergeJob(3);
+        assertEquals(0, metrics.getCustom(VertexMergeJob.SUCCESS_TX));
+        assertEquals(0, metrics.getCustom(VertexMergeJob.MERGED_VERTEX_COUNT));
+        verifyMerged();
+    }
+
+    @Test
+    public void testMergeJobSkipsMissingTarget() throws Exception {
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        tx.getVertex(targetId).remove();
+        tx.getVertex(sourceId).property(VertexMerger.MERGE_TO_PROPERTY, targetId);
+        tx.commit();
+
+        ScanMetrics metrics = executeMergeJob(2);
+        assertEquals(1, metrics.getCustom(VertexMergeJob.MISSING_TARGET_COUNT));
+        assertEquals(0, metrics.getCustom(VertexMergeJob.SUCCESS_TX));
+        tx = (StandardJanusGraphTx) graph.newTransaction();
+        //the source keeps its marker and everything else
+        JanusGraphVertex source = tx.getVertex(sourceId);
+        assertEquals(targetId, source.value(VertexMerger.MERGE_TO_PROPERTY));
+        assertEquals(2, Iterators.size(((AbstractVertex) source).attachments()));
+        tx.rollback();
+    }
+
+    private void markSource() {
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        tx.getVertex(sourceId).property(VertexMerger.MERGE_TO_PROPERTY, targetId);
+        tx.commit();
+    }
+
+    private ScanMetrics executeMergeJob(int batchSize) throws Exception {
+        StandardScanner.Builder builder = ((StandardJanusGraph) graph).getBackend().buildEdgeScanJob();
+        ((ModifiableConfiguration) builder.getJobConfiguration()).set(VertexMergeJob.BATCH_SIZE, batchSize);
+        return builder.setJob(VertexJobConverter.convert(graph, new VertexMergeJob())).execute().get();
+    }
+
+    private void verifyMerged() {
+        StandardJanusGraphTx tx = (StandardJanusGraphTx) graph.newTransaction();
+        assertNull(tx.getVertex(sourceId));
+        JanusGraphVertex target = tx.getVertex(targetId);
+        assertEquals("target", target.value("name"));
+        assertFalse(target.property(VertexMerger.MERGE_TO_PROPERTY).isPresent());
+        Map<Object, Object> tags = new HashMap<>();
+        target.properties("tag").forEachRemaining(p -> tags.put(p.value(),
+            p.property("since").isPresent() ? p.value("since") : null));
+        assertEquals(Sets.newHashSet("x", "y", "z"), tags.keySet());
+        //the properties of a value are copied, also onto a value that the target already had
+        assertEquals("source-x", tags.get("x"));
+        assertEquals("source-y", tags.get("y"));
+        assertNull(tags.get("z"));
+
+        Set<String> outNeighbors = new HashSet<>();
+        target.vertices(Direction.OUT, "knows").forEachRemaining(v -> outNeighbors.add(v.id().toString()));
+        assertEquals(Sets.newHashSet(otherId, targetId), outNeighbors);
+        Set<String> inNeighbors = new HashSet<>();
+        target.vertices(Direction.IN, "knows").forEachRemaining(v -> inNeighbors.add(v.id().toString()));
+        assertEquals(Sets.newHashSet(otherId, targetId), inNeighbors);
+
+        JanusGraphVertex other = tx.getVertex(otherId);
+        assertEquals(1, Iterables.size(other.query().direction(Direction.OUT).edges()));
+        Vertex neighbor = other.vertices(Direction.OUT, "knows").next();
+        assertEquals(targetId, neighbor.id().toString());
+
+        //attachments and notes move unless the target already has the same key
+        Map<String, String> attachments = new HashMap<>();
+        Iterator<MediaData> mediaData = ((AbstractVertex) target).attachments();
+        mediaData.forEachRemaining(m -> attachments.put(m.getKey(), m.getMediaTitle()));
+        Map<String, String> expectedAttachments = new HashMap<>();
+        expectedAttachments.put("a", "source-a");
+        expectedAttachments.put("shared", "target-shared");
+        assertEquals(expectedAttachments, attachments);
+        Map<String, String> notes = new HashMap<>();
+        ((AbstractVertex) target).notes().forEachRemaining(n -> notes.put(n.getId(), n.getNoteTitle()));
+        Map<String, String> expectedNotes = new HashMap<>();
+        expectedNotes.put("n", "source-n");
+        expectedNotes.put("common", "target-common");
+        assertEquals(expectedNotes, notes);
+        tx.rollback();
+    }
+}
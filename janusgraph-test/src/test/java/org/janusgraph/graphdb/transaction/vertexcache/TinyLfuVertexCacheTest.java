@@ -0,0 +1,190 @@
+// Copyright 2017 JanusGraph Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.janusgraph.graphdb.transaction.vertexcache;
+
+import org.janusgraph.graphdb.internal.ElementLifeCycle;
+import org.janusgraph.graphdb.internal.InternalVertex;
+import org.janusgraph.graphdb.transaction.StandardJanusGraphTx;
+import org.janusgraph.graphdb.vertices.CacheVertex;
+import org.janusgraph.util.datastructures.Retriever;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TinyLfuVertexCacheTest {
+
+    private final StandardJanusGraphTx tx = Mockito.mock(StandardJanusGraphTx.class);
+    private final AtomicInteger retrieved = new AtomicInteger();
+    private final Retriever<String, InternalVertex> retriever = id -> {
+        retrieved.incrementAndGet();
+        return new TestVertex(tx, id, ElementLifeCycle.Loaded, 0);
+    };
+
+    @Test
+    public void shouldRetrieveVertexOnlyOnce() {
+        TinyLfuVertexCache cache = new TinyLfuVertexCache(100, 0, 1, 8);
+
+        InternalVertex vertex = cache.get("v1", retriever);
+
+        assertTrue(cache.contains("v1"));
+        assertSame(vertex, cache.get("v1", retriever));
+        assertEquals(1, retrieved.get());
+    }
+
+    @Test
+    public void shouldBoundNumberOfVertices() {
+        TinyLfuVertexCache cache = new TinyLfuVertexCache(100, 0, 4, 8);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.get("v" + i, retriever);
+        }
+
+        assertTrue(cache.weightedSize() <= 100);
+    }
+
+    @Test
+    public void shouldKeepFrequentlyUsedVerticesDuringScan() {
+        TinyLfuVertexCache cache = new TinyLfuVertexCache(100, 0, 1, 8);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                cache.get("hot" + i, retriever);
+            }
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            cache.get("scan" + i, retriever);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(cache.contains("hot" + i), "hot" + i);
+        }
+    }
+
+    @Test
+    public void shouldBoundEstimatedBytes() {
+        long vertexBytes = TinyLfuVertexCache.VERTEX_BASE_BYTES + 1000;
+        TinyLfuVertexCache cache = new TinyLfuVertexCache(1000, 10 * vertexBytes, 1, 8);
+
+        for (int i = 0; i < 100; i++) {
+            cache.add(new TestVertex(tx, "v" + i, ElementLifeCycle.Loaded, 1000), "v" + i);
+        }
+
+        assertTrue(cache.weightedSize() <= 10 * vertexBytes);
+    }
+
+    @Test
+    public void shouldReweighVertexWhenRelationsAreLoaded() {
+        TinyLfuVertexCache cache = new TinyLfuVertexCache(1000, 10_000, 1, 8);
+        TestVertex vertex = new TestVertex(tx, "v", ElementLifeCycle.Loaded, 0);
+        cache.add(vertex, "v");
+        for (int i = 0; i < 5; i++) {
+            cache.get("v" + i, retriever);
+        }
+        long before = cache.weightedSize();
+
+        vertex.queryCacheBytes = 1000;
+        cache.get("v", retriever);
+
+        assertEquals(before + 1000, cache.weightedSize());
+
+        // the vertex no longer fits into the cache
+        vertex.queryCacheBytes = 20_000;
+        cache.get("v", retriever);
+
+        assertFalse(cache.contains("v"));
+        assertTrue(cache.weightedSize() <= 10_000);
+    }
+
+    @Test
+    public void shouldReturnNewVertices() {
+        TinyLfuVertexCache cache = new TinyLfuVertexCache(100, 0, 1, 8);
+        TestVertex newVertex = new TestVertex(tx, "new", ElementLifeCycle.New, 0);
+        cache.add(newVertex, "new");
+        cache.add(new TestVertex(tx, "loaded", ElementLifeCycle.Loaded, 0), "loaded");
+
+        assertEquals(1, cache.getAllNew().size());
+        assertSame(newVertex, cache.getAllNew().get(0));
+
+        cache.close();
+        assertFalse(cache.contains("new"));
+        assertTrue(cache.getAllNew().isEmpty());
+    }
+
+    @Test
+    public void shouldReturnSameVertexToConcurrentReaders() throws Exception {
+        TinyLfuVertexCache cache = new TinyLfuVertexCache(10_000, 0, 8, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<List<InternalVertex>>> readers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                readers.add(() -> {
+                    List<InternalVertex> vertices = new ArrayList<>();
+                    for (int i = 0; i < 1000; i++) {
+                        vertices.add(cache.get("v" + i, retriever));
+                    }
+                    return vertices;
+                });
+            }
+            List<Future<List<InternalVertex>>> results = executor.invokeAll(readers);
+            List<InternalVertex> expected = results.get(0).get();
+            for (Future<List<InternalVertex>> result : results) {
+                List<InternalVertex> vertices = result.get();
+                for (int i = 0; i < vertices.size(); i++) {
+                    assertSame(expected.get(i), vertices.get(i));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class TestVertex extends CacheVertex {
+        private final byte lifecycle;
+        private volatile long queryCacheBytes;
+
+        private TestVertex(StandardJanusGraphTx tx, String id, byte lifecycle, long queryCacheBytes) {
+            super(tx, id, lifecycle);
+            this.lifecycle = lifecycle;
+            this.queryCacheBytes = queryCacheBytes;
+        }
+
+        @Override
+        public boolean isNew() {
+            return lifecycle == ElementLifeCycle.New;
+        }
+
+        @Override
+        public boolean hasAddedRelations() {
+            return false;
+        }
+
+        @Override
+        public long getQueryCacheByteSize() {
+            return queryCacheBytes;
+        }
+    }
+}